@@ -0,0 +1,47 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.cytoscape.edges.AugmentedEdgeContainer;
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Analysing every edge of a network from scratch, what happens when a network view is first shown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Xss64m" })
+public class EdgeAnalyserBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int elements;
+
+	private SyntheticNetwork network;
+
+	@Setup(Level.Trial)
+	public void createNetwork() {
+		network = SyntheticNetwork.create(elements);
+	}
+
+	@Benchmark
+	public Collection<AugmentedEdgeContainer> analyzeAllEdges() {
+		return new EdgeAnalyser().getAnalyzedEdges(network.getNetworkView(), GraphicsData.DISTANCE_SCALE);
+	}
+}
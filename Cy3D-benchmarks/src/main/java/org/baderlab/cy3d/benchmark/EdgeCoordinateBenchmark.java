@@ -0,0 +1,87 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.tools.EdgeCoordinateCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Generating the points of curved edges, with the same number of segments and spacings
+ * that the EdgeAnalyser uses, for one arc per edge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class EdgeCoordinateBenchmark {
+
+	private static final int NUM_SEGMENTS = 8;
+	private static final double DASHED_EDGE_SPACING = 0.07;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int edges;
+
+	private Vector3[] starts;
+	private Vector3[] ends;
+	private Vector3[] centers;
+
+	@Setup(Level.Trial)
+	public void createArcs() {
+		Random random = new Random(SyntheticNetwork.DEFAULT_SEED);
+		starts  = new Vector3[edges];
+		ends    = new Vector3[edges];
+		centers = new Vector3[edges];
+
+		for(int i = 0; i < edges; i++) {
+			Vector3 start = randomVector(random, 5);
+			Vector3 end   = randomVector(random, 5);
+			// a center off to the side of the edge, like a multi edge between the same nodes
+			Vector3 middle = start.plus(end).multiply(0.5);
+			Vector3 side = end.subtract(start).cross(randomVector(random, 1)).normalize();
+			starts[i]  = start;
+			ends[i]    = end;
+			centers[i] = middle.plus(side.multiply(start.distance(end)));
+		}
+	}
+
+	private static Vector3 randomVector(Random random, double extent) {
+		return new Vector3((random.nextDouble() - 0.5) * extent, (random.nextDouble() - 0.5) * extent, (random.nextDouble() - 0.5) * extent);
+	}
+
+	@Benchmark
+	public void arcCoordinates(Blackhole blackhole) {
+		for(int i = 0; i < edges; i++) {
+			blackhole.consume(EdgeCoordinateCalculator.generateArcEdgeCoordinates(starts[i], ends[i], centers[i], NUM_SEGMENTS, false));
+		}
+	}
+
+	@Benchmark
+	public void sparseArcCoordinates(Blackhole blackhole) {
+		for(int i = 0; i < edges; i++) {
+			blackhole.consume(EdgeCoordinateCalculator.generateArcEdgeSparseCoordinates(starts[i], ends[i], centers[i], DASHED_EDGE_SPACING, false));
+		}
+	}
+
+	@Benchmark
+	public void straightCoordinates(Blackhole blackhole) {
+		for(int i = 0; i < edges; i++) {
+			blackhole.consume(EdgeCoordinateCalculator.generateStraightEdgeSparseCoordinates(starts[i], ends[i], DASHED_EDGE_SPACING));
+		}
+	}
+}
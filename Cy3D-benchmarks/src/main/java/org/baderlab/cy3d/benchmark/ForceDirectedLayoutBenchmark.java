@@ -0,0 +1,88 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.layouts.ForceDirectedLayout;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.SnapshotEdgeInfo;
+import org.cytoscape.view.model.View;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One step of the force-directed layout, building the Barnes-Hut tree and moving every node,
+ * on one thread and on all the cores. The layout keeps cooling down across invocations, but
+ * the cost of a step only depends on how the nodes are spread out, which changes little.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Xss64m" })
+public class ForceDirectedLayoutBenchmark {
+
+	@Param({ "1000", "10000", "30000", "100000" })
+	public int elements;
+
+	/** 0 for all the cores */
+	@Param({ "1", "0" })
+	public int threads;
+
+	private ForkJoinPool pool;
+	private ForceDirectedLayout layout;
+
+	@Setup(Level.Trial)
+	public void createLayout() {
+		SyntheticNetwork network = SyntheticNetwork.create(elements);
+		CyNetworkViewSnapshot networkView = network.getNetworkView();
+
+		List<View<CyNode>> nodeViews = network.getNodeViews();
+		Map<Long,Integer> indices = new HashMap<>();
+		for(View<CyNode> nodeView : nodeViews) {
+			indices.put(nodeView.getSUID(), indices.size());
+		}
+
+		List<View<CyEdge>> edgeViews = network.getEdgeViews();
+		int[] sources = new int[edgeViews.size()];
+		int[] targets = new int[edgeViews.size()];
+		for(int e = 0; e < edgeViews.size(); e++) {
+			SnapshotEdgeInfo edgeInfo = networkView.getEdgeInfo(edgeViews.get(e));
+			sources[e] = indices.get(edgeInfo.getSourceViewSUID());
+			targets[e] = indices.get(edgeInfo.getTargetViewSUID());
+		}
+
+		pool = threads == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+		layout = new ForceDirectedLayout(new double[nodeViews.size() * 3], nodeViews.size(), sources, targets, sources.length, pool);
+		layout.setIterations(Integer.MAX_VALUE);
+		layout.jitter(SyntheticNetwork.DEFAULT_SEED);
+	}
+
+	@TearDown(Level.Trial)
+	public void shutdown() {
+		if(pool != ForkJoinPool.commonPool())
+			pool.shutdown();
+	}
+
+	@Benchmark
+	public boolean step() {
+		return layout.step();
+	}
+}
@@ -0,0 +1,130 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.geometric.ViewingVolume;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The viewing volume and vector math done for every node and edge.
+ *
+ * Run with -prof gc to check the allocations, gc.alloc.rate.norm should stay near 0 bytes per
+ * operation for everything but {@link #rotate(Points, Blackhole)}, which creates the rotated vectors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class GeometryBenchmark {
+
+	/** A camera 10 units in front of the origin, looking at it */
+	@State(Scope.Benchmark)
+	public static class Camera {
+		final Vector3 position  = new Vector3(0, 0, 10);
+		final Vector3 direction = new Vector3(0, 0, -1);
+		final Vector3 up        = new Vector3(0, 1, 0);
+		final ViewingVolume viewingVolume = new ViewingVolume();
+
+		@Setup(Level.Trial)
+		public void calculate() {
+			update();
+		}
+
+		ViewingVolume update() {
+			viewingVolume.calculateViewingVolume(position, direction, up,
+					GraphicsData.NEAR_Z, GraphicsData.FAR_Z, GraphicsData.VERTICAL_VOF, GraphicsData.VERTICAL_VOF * 16 / 9);
+			return viewingVolume;
+		}
+	}
+
+	/** Points and rotation axes spread around the origin, about half of them in view */
+	@State(Scope.Benchmark)
+	public static class Points {
+		@Param({ "1000", "10000", "100000", "1000000" })
+		public int elements;
+
+		Vector3[] points;
+		Vector3[] normals;
+		double[] angles;
+
+		@Setup(Level.Trial)
+		public void createPoints() {
+			Random random = new Random(SyntheticNetwork.DEFAULT_SEED);
+			points  = new Vector3[elements];
+			normals = new Vector3[elements];
+			angles  = new double[elements];
+			for(int i = 0; i < elements; i++) {
+				points[i]  = new Vector3((random.nextDouble() - 0.5) * 20, (random.nextDouble() - 0.5) * 20, (random.nextDouble() - 0.5) * 20);
+				normals[i] = new Vector3(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5);
+				angles[i]  = random.nextDouble() * 2 * Math.PI;
+			}
+		}
+	}
+
+
+	@Benchmark
+	public ViewingVolume calculateViewingVolume(Camera camera) {
+		return camera.update();
+	}
+
+	@Benchmark
+	public int insideViewingVolume(Camera camera, Points points) {
+		int inside = 0;
+		for(Vector3 point : points.points) {
+			if(camera.viewingVolume.inside(point, 0.1))
+				inside++;
+		}
+		return inside;
+	}
+
+	@Benchmark
+	public int intersectsSphere(Camera camera, Points points) {
+		int inside = 0;
+		for(Vector3 point : points.points) {
+			if(camera.viewingVolume.intersectsSphere(point.x(), point.y(), point.z(), 0.1))
+				inside++;
+		}
+		return inside;
+	}
+
+	@Benchmark
+	public int intersectsSegment(Camera camera, Points points) {
+		int inside = 0;
+		for(int i = 1; i < points.elements; i++) {
+			if(camera.viewingVolume.intersectsSegment(points.points[i - 1], points.points[i]))
+				inside++;
+		}
+		return inside;
+	}
+
+	@Benchmark
+	public void rotate(Points points, Blackhole blackhole) {
+		for(int i = 0; i < points.elements; i++) {
+			blackhole.consume(points.points[i].rotate(points.normals[i], points.angles[i]));
+		}
+	}
+
+	@Benchmark
+	public void rotateInto(Points points, Blackhole blackhole) {
+		Vector3 result = new Vector3();
+		for(int i = 0; i < points.elements; i++) {
+			blackhole.consume(points.points[i].rotate(points.normals[i], points.angles[i], result).x());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.layouts.BoxLayoutAlgorithmTask;
+import org.baderlab.cy3d.internal.layouts.CenterLayoutAlgorithmTask;
+import org.baderlab.cy3d.internal.layouts.FlattenLayoutAlgorithmTask;
+import org.baderlab.cy3d.internal.layouts.GridLayoutAlgorithmTask;
+import org.baderlab.cy3d.internal.layouts.SphericalLayoutAlgorithmTask;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.layout.AbstractLayoutTask;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.work.TaskMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Running each of the Cy3D layout tasks on the whole network, partitioning included.
+ * The tasks move the nodes, every run starts from the positions the previous one left.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Xss64m" })
+public class LayoutBenchmark {
+
+	@Param({ "grid", "spherical", "box", "center", "flatten" })
+	public String layout;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int elements;
+
+	private SyntheticNetwork network;
+	private Set<View<CyNode>> nodesToLayOut;
+	private TaskMonitor taskMonitor;
+
+	@Setup(Level.Trial)
+	public void createNetwork() {
+		network = SyntheticNetwork.create(elements);
+		nodesToLayOut = new HashSet<>(network.getNodeViews());
+		taskMonitor = SyntheticNetwork.noOp(TaskMonitor.class);
+	}
+
+	@Benchmark
+	public void runLayout() {
+		createTask(network.getNetworkView()).run(taskMonitor);
+	}
+
+	private AbstractLayoutTask createTask(CyNetworkView networkView) {
+		switch(layout) {
+			case "grid":      return new GridLayoutAlgorithmTask(layout, networkView, nodesToLayOut, null, null);
+			case "spherical": return new SphericalLayoutAlgorithmTask(layout, networkView, nodesToLayOut, null, null);
+			case "box":       return new BoxLayoutAlgorithmTask(layout, networkView, nodesToLayOut, null, null);
+			case "center":    return new CenterLayoutAlgorithmTask(layout, networkView, nodesToLayOut, null, null);
+			case "flatten":   return new FlattenLayoutAlgorithmTask(layout, networkView, nodesToLayOut, null, null);
+			default: throw new IllegalArgumentException("unknown layout " + layout);
+		}
+	}
+}
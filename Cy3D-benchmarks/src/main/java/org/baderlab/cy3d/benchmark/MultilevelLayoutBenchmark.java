@@ -0,0 +1,84 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.layouts.Adjacency;
+import org.baderlab.cy3d.internal.layouts.MultilevelLayout;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.SnapshotEdgeInfo;
+import org.cytoscape.view.model.View;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A whole force-directed layout, laid out directly (levels = 1) and through coarsened levels (levels = 0).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Xss64m" })
+public class MultilevelLayoutBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int elements;
+
+	/** 0 for as many as the coarsening makes */
+	@Param({ "1", "0" })
+	public int levels;
+
+	private Adjacency adjacency;
+	private double[] positions;
+
+	@Setup(Level.Trial)
+	public void createAdjacency() {
+		SyntheticNetwork network = SyntheticNetwork.create(elements);
+		CyNetworkViewSnapshot networkView = network.getNetworkView();
+
+		List<View<CyNode>> nodeViews = network.getNodeViews();
+		Map<Long,Integer> indices = new HashMap<>();
+		for(View<CyNode> nodeView : nodeViews) {
+			indices.put(nodeView.getSUID(), indices.size());
+		}
+
+		List<View<CyEdge>> edgeViews = network.getEdgeViews();
+		int[] sources = new int[edgeViews.size()];
+		int[] targets = new int[edgeViews.size()];
+		for(int e = 0; e < edgeViews.size(); e++) {
+			SnapshotEdgeInfo edgeInfo = networkView.getEdgeInfo(edgeViews.get(e));
+			sources[e] = indices.get(edgeInfo.getSourceViewSUID());
+			targets[e] = indices.get(edgeInfo.getTargetViewSUID());
+		}
+		adjacency = Adjacency.fromEdges(nodeViews.size(), sources, targets, sources.length);
+	}
+
+	@Setup(Level.Invocation)
+	public void resetPositions() {
+		positions = new double[adjacency.getNodeCount() * 3];
+	}
+
+	@Benchmark
+	public int layout() {
+		MultilevelLayout layout = new MultilevelLayout(positions, adjacency, SyntheticNetwork.DEFAULT_SEED);
+		layout.setIterations(200);
+		layout.setMaxLevels(levels == 0 ? Integer.MAX_VALUE : levels);
+		while(layout.step());
+		return layout.getLevelCount();
+	}
+}
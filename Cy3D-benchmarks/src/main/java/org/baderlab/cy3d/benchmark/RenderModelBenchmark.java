@@ -0,0 +1,87 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotDiffer;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.RenderModel;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the render model from a snapshot, and a pass over the node positions like the one
+ * the procedures make every frame, reading them from the model and from the views.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Xss64m" })
+public class RenderModelBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int elements;
+
+	private SyntheticNetwork network;
+	private SnapshotChanges fullChanges;
+	private EdgeAnalyser edgeAnalyser;
+	private RenderModel model;
+
+	@Setup(Level.Trial)
+	public void createNetwork() {
+		network = SyntheticNetwork.create(elements);
+		fullChanges = new SnapshotDiffer().diff(network.getNetworkView());
+
+		// the analyser caches the edges of the snapshot, only the model is measured
+		edgeAnalyser = new EdgeAnalyser();
+		edgeAnalyser.getAnalyzedEdges(network.getNetworkView(), fullChanges, GraphicsData.DISTANCE_SCALE);
+
+		model = new RenderModel();
+		model.update(network.getNetworkView(), fullChanges, edgeAnalyser);
+	}
+
+	@Benchmark
+	public RenderModel buildModel() {
+		RenderModel model = new RenderModel();
+		model.update(network.getNetworkView(), fullChanges, edgeAnalyser);
+		return model;
+	}
+
+	@Benchmark
+	public double sumPositionsFromModel() {
+		float[] positions = model.getNodePositions();
+		double sum = 0;
+		for(int i = 0; i < model.getNodeCount() * 3; i++) {
+			sum += positions[i];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double sumPositionsFromViews() {
+		float distanceScale = GraphicsData.DISTANCE_SCALE;
+		double sum = 0;
+		for(View<CyNode> nodeView : network.getNodeViews()) {
+			sum += nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION).floatValue() / distanceScale;
+			sum -= nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION).floatValue() / distanceScale;
+			sum += nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION).floatValue() / distanceScale;
+		}
+		return sum;
+	}
+}
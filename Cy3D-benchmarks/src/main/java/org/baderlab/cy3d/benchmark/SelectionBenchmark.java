@@ -0,0 +1,93 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.camera.SimpleCamera;
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotDiffer;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.RenderModel;
+import org.baderlab.cy3d.internal.data.SceneIndex;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.geometric.ViewingVolume;
+import org.baderlab.cy3d.internal.tools.GeometryToolkit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drag selection against the scene index, with the volume under a rectangle covering the middle
+ * quarter of the screen, built the same way the ray cast picking processor builds it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Xss64m" })
+public class SelectionBenchmark {
+
+	private static final int SCREEN_WIDTH = 1600;
+	private static final int SCREEN_HEIGHT = 900;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int elements;
+
+	private SceneIndex sceneIndex;
+	private final ViewingVolume selectionVolume = new ViewingVolume();
+	private final Set<Long> result = new HashSet<>();
+
+	@Setup(Level.Trial)
+	public void createIndex() {
+		SyntheticNetwork network = SyntheticNetwork.create(elements);
+		SnapshotChanges changes = new SnapshotDiffer().diff(network.getNetworkView());
+
+		EdgeAnalyser edgeAnalyser = new EdgeAnalyser();
+		edgeAnalyser.getAnalyzedEdges(network.getNetworkView(), changes, GraphicsData.DISTANCE_SCALE);
+		RenderModel model = new RenderModel();
+		model.update(network.getNetworkView(), changes, edgeAnalyser);
+
+		sceneIndex = new SceneIndex();
+		sceneIndex.update(changes, model, edgeAnalyser);
+
+		// A camera far enough in front of the network to see all of it
+		double extent = 100 * Math.cbrt(network.getNodeCount()) / GraphicsData.DISTANCE_SCALE;
+		SimpleCamera camera = new SimpleCamera(new Vector3(0, 0, extent), new Vector3(0, 0, 0), new Vector3(0, 1, 0));
+
+		int left = SCREEN_WIDTH / 4, right = SCREEN_WIDTH * 3 / 4;
+		int top = SCREEN_HEIGHT / 4, bottom = SCREEN_HEIGHT * 3 / 4;
+		Vector3[] corners = {
+			GeometryToolkit.convertScreenTo3d(left,  top,    SCREEN_WIDTH, SCREEN_HEIGHT, 1.0, camera),
+			GeometryToolkit.convertScreenTo3d(right, top,    SCREEN_WIDTH, SCREEN_HEIGHT, 1.0, camera),
+			GeometryToolkit.convertScreenTo3d(right, bottom, SCREEN_WIDTH, SCREEN_HEIGHT, 1.0, camera),
+			GeometryToolkit.convertScreenTo3d(left,  bottom, SCREEN_WIDTH, SCREEN_HEIGHT, 1.0, camera)
+		};
+		selectionVolume.calculateViewingVolume(camera.getPosition(), camera.getDirection(), corners, GraphicsData.NEAR_Z, GraphicsData.FAR_Z);
+	}
+
+	@Benchmark
+	public int selectNodes() {
+		result.clear();
+		sceneIndex.selectNodes(selectionVolume, result);
+		return result.size();
+	}
+
+	@Benchmark
+	public int selectEdges() {
+		result.clear();
+		sceneIndex.selectEdges(selectionVolume, result);
+		return result.size();
+	}
+}
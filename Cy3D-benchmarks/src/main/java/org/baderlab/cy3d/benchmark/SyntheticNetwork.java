@@ -0,0 +1,465 @@
+package org.baderlab.cy3d.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.SnapshotEdgeInfo;
+import org.cytoscape.view.model.SnapshotNodeInfo;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.VisualProperty;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+
+/**
+ * A randomly generated network with its network view, for benchmarks.
+ *
+ * The network, the views and the snapshot are mocks implemented with dynamic proxies, they only
+ * answer the methods Cy3D uses and keep the visual properties in a map. A proxy costs a few dozen
+ * bytes, so networks with a million elements fit comfortably in memory. The same view object acts
+ * as both the mutable network view and its snapshot.
+ *
+ * The same size, topology and seed always produce the same network so that results can be compared between commits.
+ */
+public class SyntheticNetwork {
+
+	public static final long DEFAULT_SEED = 42;
+
+	public enum Topology {
+		/** Uniformly random node pairs, with some parallel and self edges */
+		RANDOM,
+		/** Preferential attachment, a few hub nodes have most of the edges */
+		SCALE_FREE,
+		/** Nodes on a cubic grid connected to their neighbours along each axis */
+		LATTICE
+	}
+
+	/** Fractions of the edges that repeat the previous node pair or start and end at the same node */
+	private static final double PARALLEL_EDGE_FRACTION = 0.05;
+	private static final double SELF_EDGE_FRACTION = 0.02;
+
+	private static final double NODE_SIZE = 40;
+
+	private long nextSuid = 1;
+
+	private final List<CyNode> nodes = new ArrayList<>();
+	private final List<CyEdge> edges = new ArrayList<>();
+	private final List<View<CyNode>> nodeViews = new ArrayList<>();
+	private final List<View<CyEdge>> edgeViews = new ArrayList<>();
+
+	private final Map<Long,View<CyNode>> nodeViewsBySuid = new HashMap<>();
+	private final Map<Long,View<CyEdge>> edgeViewsBySuid = new HashMap<>();
+	private final Map<CyNode,View<CyNode>> nodeViewsByModel = new HashMap<>();
+	private final Map<CyEdge,View<CyEdge>> edgeViewsByModel = new HashMap<>();
+	private final Map<CyNode,List<CyEdge>> adjacentEdges = new HashMap<>();
+
+	private final CyNetwork network;
+	private final CyNetworkViewSnapshot networkView;
+
+
+	/**
+	 * Creates a network with about one node for every two edges.
+	 *
+	 * @param elements The number of nodes plus edges.
+	 */
+	public static SyntheticNetwork create(int elements) {
+		return create(elements, DEFAULT_SEED);
+	}
+
+	public static SyntheticNetwork create(int elements, long seed) {
+		return create(elements, Topology.RANDOM, seed);
+	}
+
+	public static SyntheticNetwork create(int elements, Topology topology, long seed) {
+		int nodeCount = Math.max(2, elements / 3);
+		return new SyntheticNetwork(nodeCount, Math.max(0, elements - nodeCount), topology, new Random(seed));
+	}
+
+
+	private SyntheticNetwork(int nodeCount, int edgeCount, Topology topology, Random random) {
+		network = proxy(CyNetwork.class, new NetworkHandler(nextSuid++));
+		networkView = proxy(new NetworkViewHandler(nextSuid++), CyNetworkViewSnapshot.class, CyNetworkView.class);
+
+		// spread the nodes so that their density does not depend on the size of the network
+		double extent = 100 * Math.cbrt(nodeCount);
+		int side = (int) Math.ceil(Math.cbrt(nodeCount));
+
+		for(int i = 0; i < nodeCount; i++) {
+			CyNode node = proxy(CyNode.class, new ModelHandler(nextSuid++, null, null));
+			ElementHandler handler = new ElementHandler(nextSuid++, node);
+			View<CyNode> nodeView = handler.createView();
+			handler.createInfo(SnapshotNodeInfo.class);
+
+			if(topology == Topology.LATTICE) {
+				handler.values.put(BasicVisualLexicon.NODE_X_LOCATION, ((i % side) - side / 2.0) * 100);
+				handler.values.put(BasicVisualLexicon.NODE_Y_LOCATION, ((i / side % side) - side / 2.0) * 100);
+				handler.values.put(BasicVisualLexicon.NODE_Z_LOCATION, ((i / side / side) - side / 2.0) * 100);
+			} else {
+				handler.values.put(BasicVisualLexicon.NODE_X_LOCATION, (random.nextDouble() - 0.5) * extent);
+				handler.values.put(BasicVisualLexicon.NODE_Y_LOCATION, (random.nextDouble() - 0.5) * extent);
+				handler.values.put(BasicVisualLexicon.NODE_Z_LOCATION, (random.nextDouble() - 0.5) * extent);
+			}
+			handler.values.put(BasicVisualLexicon.NODE_WIDTH,  NODE_SIZE);
+			handler.values.put(BasicVisualLexicon.NODE_HEIGHT, NODE_SIZE);
+			handler.values.put(BasicVisualLexicon.NODE_DEPTH,  NODE_SIZE);
+			handler.values.put(BasicVisualLexicon.NODE_LABEL, "node " + i);
+
+			nodes.add(node);
+			nodeViews.add(nodeView);
+			nodeViewsBySuid.put(handler.suid, nodeView);
+			nodeViewsByModel.put(node, nodeView);
+			adjacentEdges.put(node, new ArrayList<>(2));
+		}
+
+		// endpoints of the edges created so far, picking one at random is picking a node in proportion to its degree
+		int[] endpoints = topology == Topology.SCALE_FREE ? new int[2 * edgeCount] : null;
+		int[] strides = { 1, side, side * side };
+
+		int source = 0, target = 0;
+		for(int i = 0; i < edgeCount; i++) {
+			if(topology == Topology.LATTICE) {
+				// each node links to its neighbour along x, y and z, then round again with longer links
+				source = (i / 3) % nodeCount;
+				target = (source + strides[i % 3] * (1 + i / (3 * nodeCount))) % nodeCount;
+			} else {
+				double kind = random.nextDouble();
+				if(kind < SELF_EDGE_FRACTION) {
+					source = target = random.nextInt(nodeCount);
+				} else if(i == 0 || kind >= SELF_EDGE_FRACTION + PARALLEL_EDGE_FRACTION) {
+					source = random.nextInt(nodeCount);
+					target = topology == Topology.SCALE_FREE && i > 0 ? endpoints[random.nextInt(2 * i)] : random.nextInt(nodeCount);
+				} // else the same pair as the previous edge
+				if(endpoints != null) {
+					endpoints[2 * i] = source;
+					endpoints[2 * i + 1] = target;
+				}
+			}
+
+			CyNode sourceNode = nodes.get(source);
+			CyNode targetNode = nodes.get(target);
+			CyEdge edge = proxy(CyEdge.class, new ModelHandler(nextSuid++, sourceNode, targetNode));
+			ElementHandler handler = new ElementHandler(nextSuid++, edge);
+			View<CyEdge> edgeView = handler.createView();
+			handler.sourceView = nodeViews.get(source);
+			handler.targetView = nodeViews.get(target);
+			handler.createInfo(SnapshotEdgeInfo.class);
+
+			edges.add(edge);
+			edgeViews.add(edgeView);
+			edgeViewsBySuid.put(handler.suid, edgeView);
+			edgeViewsByModel.put(edge, edgeView);
+			adjacentEdges.get(sourceNode).add(edge);
+			if(source != target)
+				adjacentEdges.get(targetNode).add(edge);
+		}
+	}
+
+
+	public CyNetwork getNetwork() {
+		return network;
+	}
+
+	/**
+	 * The network view, which is also its own snapshot.
+	 */
+	public CyNetworkViewSnapshot getNetworkView() {
+		return networkView;
+	}
+
+	public List<View<CyNode>> getNodeViews() {
+		return nodeViews;
+	}
+
+	public List<View<CyEdge>> getEdgeViews() {
+		return edgeViews;
+	}
+
+	public int getNodeCount() {
+		return nodes.size();
+	}
+
+	public int getEdgeCount() {
+		return edges.size();
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(SyntheticNetwork.class.getClassLoader(), new Class<?>[] { type }, handler);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(InvocationHandler handler, Class<T> type, Class<?>... moreTypes) {
+		Class<?>[] types = new Class<?>[moreTypes.length + 1];
+		types[0] = type;
+		System.arraycopy(moreTypes, 0, types, 1, moreTypes.length);
+		return (T) Proxy.newProxyInstance(SyntheticNetwork.class.getClassLoader(), types, handler);
+	}
+
+	/**
+	 * Returns an object that does nothing for every method of the interface, for example a TaskMonitor.
+	 * Methods that return another Cytoscape interface, like CyNetwork.getRow(), return an object that
+	 * does nothing as well so that callers can chain calls.
+	 */
+	public static <T> T noOp(Class<T> type) {
+		return proxy(type, (proxy, method, args) -> handleObjectMethod(proxy, method, args));
+	}
+
+	private static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+		switch(method.getName()) {
+			case "equals":   return proxy == args[0];
+			case "hashCode": return System.identityHashCode(proxy);
+			case "toString": return proxy.getClass().getInterfaces()[0].getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+			default:         return defaultValue(method.getReturnType());
+		}
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if(type.isInterface() && type.getName().startsWith("org.cytoscape."))
+			return noOp(type);
+		return primitiveDefault(type);
+	}
+
+	private static Object primitiveDefault(Class<?> type) {
+		if(!type.isPrimitive() || type == void.class)
+			return null;
+		if(type == boolean.class)
+			return Boolean.FALSE;
+		if(type == long.class)
+			return 0L;
+		if(type == double.class)
+			return 0.0;
+		if(type == float.class)
+			return 0.0f;
+		if(type == char.class)
+			return '\0';
+		if(type == byte.class)
+			return (byte) 0;
+		if(type == short.class)
+			return (short) 0;
+		return 0;
+	}
+
+	private static <T> T getDefault(Object visualProperty) {
+		@SuppressWarnings("unchecked")
+		VisualProperty<T> vp = (VisualProperty<T>) visualProperty;
+		return vp.getDefault();
+	}
+
+
+	/** CyNode and CyEdge */
+	private static class ModelHandler implements InvocationHandler {
+		final long suid;
+		final CyNode source;
+		final CyNode target;
+
+		ModelHandler(long suid, CyNode source, CyNode target) {
+			this.suid = suid;
+			this.source = source;
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			switch(method.getName()) {
+				case "getSUID":    return suid;
+				case "getSource":  return source;
+				case "getTarget":  return target;
+				case "isDirected": return Boolean.TRUE;
+				default:           return handleObjectMethod(proxy, method, args);
+			}
+		}
+	}
+
+
+	/** A node or edge view and the SnapshotNodeInfo or SnapshotEdgeInfo for it */
+	private class ElementHandler implements InvocationHandler {
+		final long suid;
+		final Object model;
+		final Map<Object,Object> values = new HashMap<>(8);
+
+		Object view;
+		Object info;
+		View<CyNode> sourceView;
+		View<CyNode> targetView;
+
+		ElementHandler(long suid, Object model) {
+			this.suid = suid;
+			this.model = model;
+		}
+
+		@SuppressWarnings("unchecked")
+		<T> View<T> createView() {
+			view = proxy(View.class, this);
+			return (View<T>) view;
+		}
+
+		void createInfo(Class<?> type) {
+			info = proxy(type, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			switch(method.getName()) {
+				case "getSUID":
+				case "getViewSUID":
+					return suid;
+				case "getModel":
+				case "getEdge":
+				case "getNode":
+					return model;
+				case "getModelSUID":
+					return ((ModelHandler) Proxy.getInvocationHandler(model)).suid;
+				case "getNodeView":
+				case "getEdgeView":
+					return view;
+				case "getSourceNodeView":
+					return sourceView;
+				case "getTargetNodeView":
+					return targetView;
+				case "getSourceViewSUID":
+					return sourceView.getSUID();
+				case "getTargetViewSUID":
+					return targetView.getSUID();
+				case "isDirected":
+					return Boolean.TRUE;
+				case "getVisualProperty":
+					return values.containsKey(args[0]) ? values.get(args[0]) : getDefault(args[0]);
+				case "setVisualProperty":
+				case "setLockedValue":
+					values.put(args[0], args[1]);
+					return null;
+				case "isSet":
+				case "isValueLocked":
+				case "isDirectlyLocked":
+					return values.containsKey(args[0]);
+				default:
+					return handleObjectMethod(proxy, method, args);
+			}
+		}
+	}
+
+
+	private class NetworkHandler implements InvocationHandler {
+		final long suid;
+
+		NetworkHandler(long suid) {
+			this.suid = suid;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			switch(method.getName()) {
+				case "getSUID":      return suid;
+				case "getNodeList":  return Collections.unmodifiableList(nodes);
+				case "getEdgeList":  return Collections.unmodifiableList(edges);
+				case "getNodeCount": return nodes.size();
+				case "getEdgeCount": return edges.size();
+				case "containsNode": return adjacentEdges.containsKey(args[0]);
+				case "containsEdge": return args.length == 1 ? edgeViewsByModel.containsKey(args[0]) : !getConnectingEdges((CyNode) args[0], (CyNode) args[1]).isEmpty();
+				case "getAdjacentEdgeList":
+				case "getAdjacentEdgeIterable":
+					return adjacentEdges.getOrDefault(args[0], Collections.emptyList());
+				case "getNeighborList":
+					return getNeighbors((CyNode) args[0]);
+				case "getConnectingEdgeList":
+					return getConnectingEdges((CyNode) args[0], (CyNode) args[1]);
+				default:
+					return handleObjectMethod(proxy, method, args);
+			}
+		}
+
+		private List<CyNode> getNeighbors(CyNode node) {
+			Set<CyNode> neighbors = new LinkedHashSet<>();
+			for(CyEdge edge : adjacentEdges.getOrDefault(node, Collections.emptyList())) {
+				neighbors.add(edge.getSource() == node ? edge.getTarget() : edge.getSource());
+			}
+			return new ArrayList<>(neighbors);
+		}
+
+		private List<CyEdge> getConnectingEdges(CyNode node1, CyNode node2) {
+			List<CyEdge> connecting = new ArrayList<>();
+			for(CyEdge edge : adjacentEdges.getOrDefault(node1, Collections.emptyList())) {
+				if((edge.getSource() == node1 && edge.getTarget() == node2) || (edge.getSource() == node2 && edge.getTarget() == node1))
+					connecting.add(edge);
+			}
+			return connecting;
+		}
+	}
+
+
+	private class NetworkViewHandler implements InvocationHandler {
+		final long suid;
+		final Map<Object,Object> values = new HashMap<>();
+
+		NetworkViewHandler(long suid) {
+			this.suid = suid;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			switch(method.getName()) {
+				case "getSUID":
+					return suid;
+				case "getModel":
+					return network;
+				case "createSnapshot":
+				case "getMutableNetworkView":
+					return proxy;
+				case "getNodeViews":
+					return Collections.unmodifiableList(nodeViews);
+				case "getEdgeViews":
+					return Collections.unmodifiableList(edgeViews);
+				case "getNodeCount":
+					return nodeViews.size();
+				case "getEdgeCount":
+					return edgeViews.size();
+				case "getNodeView":
+					return args[0] instanceof Long ? nodeViewsBySuid.get(args[0]) : nodeViewsByModel.get(args[0]);
+				case "getEdgeView":
+					return args[0] instanceof Long ? edgeViewsBySuid.get(args[0]) : edgeViewsByModel.get(args[0]);
+				case "getNodeInfo":
+				case "getEdgeInfo":
+					return ((ElementHandler) Proxy.getInvocationHandler(args[0])).info;
+				case "getAdjacentEdgeIterable":
+					return getAdjacentEdgeViews(args[0]);
+				case "getVisualProperty":
+					return values.containsKey(args[0]) ? values.get(args[0]) : getDefault(args[0]);
+				case "getViewDefault":
+					return getDefault(args[0]);
+				case "setVisualProperty":
+				case "setLockedValue":
+					values.put(args[0], args[1]);
+					return null;
+				case "getTrackedNodes":
+					return Collections.emptyList();
+				default:
+					return handleObjectMethod(proxy, method, args);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private List<View<CyEdge>> getAdjacentEdgeViews(Object node) {
+			View<CyNode> nodeView = node instanceof Long ? nodeViewsBySuid.get(node) : (View<CyNode>) node;
+			if(nodeView == null)
+				return Collections.emptyList();
+			List<View<CyEdge>> result = new ArrayList<>();
+			for(CyEdge edge : adjacentEdges.get(nodeView.getModel())) {
+				result.add(edgeViewsByModel.get(edge));
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package org.baderlab.cy3d.benchmark.render;
+
+import org.baderlab.cy3d.internal.camera.OriginOrbitCamera;
+
+/**
+ * A scripted camera movement that can be replayed exactly, so that every run renders the same frames.
+ *
+ * Over the length of the path the camera orbits once around its target, tilts up and back down,
+ * and zooms in to a fraction of its starting distance and back out again. The zoom brings nodes
+ * and labels close to the camera half way through the path so that the level of detail and the
+ * label culling are exercised as well as the far view of the whole network.
+ */
+public class CameraPath {
+
+	private static final double MAX_TILT = Math.PI / 4;
+	private static final double CLOSEST_ZOOM = 0.25;
+
+	private final int frames;
+	private double startDistance;
+	private double tilt;
+
+
+	/**
+	 * @param frames The number of frames it takes to go around the path once.
+	 */
+	public CameraPath(int frames) {
+		this.frames = Math.max(1, frames);
+	}
+
+	/**
+	 * Starts the path from the current position of the camera.
+	 */
+	public void start(OriginOrbitCamera camera) {
+		startDistance = camera.getDistance();
+		tilt = 0;
+	}
+
+	/**
+	 * Moves the camera to the given frame, frames must be visited in order.
+	 * Frames after the end of the path go around it again.
+	 */
+	public void moveTo(OriginOrbitCamera camera, int frame) {
+		double t = (double) (frame % frames) / frames;
+
+		// the orbit methods take angles in units of the orbit speed
+		camera.orbitRight(2 * Math.PI / frames / OriginOrbitCamera.DEFAULT_ORBIT_SPEED);
+
+		double newTilt = MAX_TILT * Math.sin(2 * Math.PI * t);
+		camera.orbitUp((newTilt - tilt) / OriginOrbitCamera.DEFAULT_ORBIT_SPEED);
+		tilt = newTilt;
+
+		// cosine ease from the start distance down to the closest zoom and back
+		double zoom = 1 - (1 - CLOSEST_ZOOM) * (1 - Math.cos(2 * Math.PI * t)) / 2;
+		camera.setDistance(startDistance * zoom);
+	}
+}
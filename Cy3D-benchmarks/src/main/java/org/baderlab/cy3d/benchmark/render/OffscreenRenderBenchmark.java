@@ -0,0 +1,324 @@
+package org.baderlab.cy3d.benchmark.render;
+
+import java.awt.Color;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLDrawableFactory;
+import javax.media.opengl.GLEventListener;
+import javax.media.opengl.GLOffscreenAutoDrawable;
+import javax.media.opengl.GLProfile;
+import javax.swing.JPanel;
+
+import org.baderlab.cy3d.benchmark.SyntheticNetwork;
+import org.baderlab.cy3d.benchmark.SyntheticNetwork.Topology;
+import org.baderlab.cy3d.internal.camera.OriginOrbitCamera;
+import org.baderlab.cy3d.internal.cytoscape.view.Cy3DVisualLexicon;
+import org.baderlab.cy3d.internal.data.FrameMetrics;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.eventbus.BoundingBoxUpdateEvent;
+import org.baderlab.cy3d.internal.eventbus.MainCameraChangeEvent;
+import org.baderlab.cy3d.internal.graphics.BirdsEyeGraphicsConfiguration;
+import org.baderlab.cy3d.internal.graphics.GraphicsConfiguration;
+import org.baderlab.cy3d.internal.graphics.MainGraphicsConfiguration;
+import org.baderlab.cy3d.internal.graphics.RenderEventListener;
+import org.baderlab.cy3d.internal.tools.NetworkToolkit;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.cytoscape.view.presentation.property.LineTypeVisualProperty;
+import org.cytoscape.view.presentation.property.NodeShapeVisualProperty;
+import org.cytoscape.view.presentation.property.values.LineType;
+import org.cytoscape.view.presentation.property.values.NodeShape;
+
+import com.google.common.eventbus.EventBus;
+
+/**
+ * Renders a synthetic network with the main or the bird's eye graphics configuration into an
+ * offscreen drawable while the camera follows a {@link CameraPath}, and reports the time, draw calls
+ * and allocations of every frame. Needs no window and no GPU, so rendering throughput can be
+ * tracked on CI machines.
+ *
+ * For numbers that can be compared between machines run it on Mesa's software rasterizer:
+ *
+ * <pre>
+ * LIBGL_ALWAYS_SOFTWARE=1 xvfb-run -a java -cp target/benchmarks.jar \
+ *     org.baderlab.cy3d.benchmark.render.OffscreenRenderBenchmark \
+ *     --config main --elements 100000 --topology scale_free --style labels \
+ *     --require-renderer llvmpipe --json render.json --csv render.csv
+ * </pre>
+ *
+ * The wall time of a frame includes a glFinish so that work queued on the GL is counted.
+ * Allocations are those made on the render thread, the hover picker runs on its own thread.
+ * The network does not change during the run, after the first frame only the camera moves.
+ * Steady state rendering should allocate next to nothing, --max-allocation fails the run with
+ * exit code 1 when the median bytes allocated per frame exceed the given limit.
+ */
+public class OffscreenRenderBenchmark {
+
+	public enum Config { MAIN, BIRDSEYE }
+
+	public enum Style {
+		/** Default visual properties, no labels */
+		PLAIN,
+		/** Default visual properties with labels shown */
+		LABELS,
+		/** Varied node shapes, sizes and colors, dashed and dotted edges, and labels */
+		MIXED
+	}
+
+	private static final NodeShape[] SHAPES = { NodeShapeVisualProperty.ELLIPSE, NodeShapeVisualProperty.RECTANGLE, NodeShapeVisualProperty.TRIANGLE };
+	private static final LineType[] LINE_TYPES = { LineTypeVisualProperty.SOLID, LineTypeVisualProperty.EQUAL_DASH, LineTypeVisualProperty.DOT };
+	private static final Color[] COLORS = { new Color(0x1f77b4), new Color(0xff7f0e), new Color(0x2ca02c), new Color(0xd62728), new Color(0x9467bd) };
+
+	private static final String USAGE =
+		"options: --config main|birdseye  --elements N  --topology random|scale_free|lattice  --style plain|labels|mixed\n" +
+		"         --frames N  --warmup N  --width N  --height N  --seed N  --require-renderer TEXT  --json FILE  --csv FILE\n" +
+		"         --max-allocation BYTES_PER_FRAME";
+
+
+	private Config config = Config.MAIN;
+	private int elements = 10000;
+	private Topology topology = Topology.RANDOM;
+	private Style style = Style.PLAIN;
+	private int frames = 600;
+	private int warmup = 120;
+	private int width = 1280;
+	private int height = 720;
+	private long seed = SyntheticNetwork.DEFAULT_SEED;
+	private String requiredRenderer;
+	private String jsonFile;
+	private String csvFile;
+	private long maxAllocation = -1;
+
+
+	public static void main(String[] args) throws Exception {
+		OffscreenRenderBenchmark benchmark = new OffscreenRenderBenchmark();
+		try {
+			benchmark.parseArguments(args);
+		} catch(IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		RenderReport report = benchmark.run();
+		System.out.println(report.getSummary());
+		if(benchmark.jsonFile != null)
+			report.writeJson(Paths.get(benchmark.jsonFile));
+		if(benchmark.csvFile != null)
+			report.writeCsv(Paths.get(benchmark.csvFile));
+		
+		long allocation = report.getAllocatedBytesPercentile(50);
+		if(benchmark.maxAllocation >= 0 && allocation > benchmark.maxAllocation) {
+			System.err.println("median allocation of " + allocation + " bytes per frame exceeds " + benchmark.maxAllocation);
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+
+	private void parseArguments(String[] args) {
+		Map<String,String> options = new HashMap<>();
+		for(int i = 0; i < args.length; i += 2) {
+			if(!args[i].startsWith("--") || i + 1 >= args.length)
+				throw new IllegalArgumentException("bad argument: " + args[i]);
+			options.put(args[i].substring(2), args[i + 1]);
+		}
+		for(Map.Entry<String,String> option : options.entrySet()) {
+			String value = option.getValue();
+			switch(option.getKey()) {
+				case "config":           config = Config.valueOf(value.toUpperCase(Locale.ROOT)); break;
+				case "elements":         elements = Integer.parseInt(value); break;
+				case "topology":         topology = Topology.valueOf(value.toUpperCase(Locale.ROOT)); break;
+				case "style":            style = Style.valueOf(value.toUpperCase(Locale.ROOT)); break;
+				case "frames":           frames = Integer.parseInt(value); break;
+				case "warmup":           warmup = Integer.parseInt(value); break;
+				case "width":            width = Integer.parseInt(value); break;
+				case "height":           height = Integer.parseInt(value); break;
+				case "seed":             seed = Long.parseLong(value); break;
+				case "require-renderer": requiredRenderer = value; break;
+				case "json":             jsonFile = value; break;
+				case "csv":              csvFile = value; break;
+				case "max-allocation":   maxAllocation = Long.parseLong(value); break;
+				default: throw new IllegalArgumentException("unknown option: --" + option.getKey());
+			}
+		}
+	}
+
+
+	public RenderReport run() {
+		SyntheticNetwork network = SyntheticNetwork.create(elements, topology, seed);
+		applyStyle(network);
+
+		RenderReport report = new RenderReport();
+		report.put("config", config);
+		report.put("elements", elements);
+		report.put("nodes", network.getNodeCount());
+		report.put("edges", network.getEdgeCount());
+		report.put("topology", topology);
+		report.put("style", style);
+		report.put("width", width);
+		report.put("height", height);
+		report.put("frames", frames);
+		report.put("warmup", warmup);
+		report.put("seed", seed);
+		report.put("java", System.getProperty("java.version"));
+
+		GLProfile profile = GLProfile.get(GLProfile.GL2);
+		GLCapabilities capabilities = new GLCapabilities(profile);
+		capabilities.setOnscreen(false);
+		capabilities.setDoubleBuffered(false);
+		GLOffscreenAutoDrawable drawable = GLDrawableFactory.getFactory(profile).createOffscreenAutoDrawable(null, capabilities, null, width, height);
+
+		// The renderers of one network view share an event bus, the camera path talks to the bird's eye view through it
+		EventBus eventBus = new EventBus();
+		JPanel container = new JPanel();
+		JPanel inputComponent = new JPanel();
+		GraphicsData graphicsData = new GraphicsData(new Cy3DVisualLexicon(), eventBus, container, inputComponent);
+		graphicsData.setShowLabels(style != Style.PLAIN);
+
+		GraphicsConfiguration configuration = config == Config.MAIN ? new MainGraphicsConfiguration() : new BirdsEyeGraphicsConfiguration();
+		configuration.initializeFrame(container, inputComponent);
+
+		drawable.addGLEventListener(new RenderEventListener(network.getNetworkView(), configuration, graphicsData));
+		drawable.addGLEventListener(new FinishListener(report, requiredRenderer));
+
+		try {
+			// the first frame initializes the renderer and fits the network in the view
+			drawable.display();
+
+			OriginOrbitCamera camera;
+			if(config == Config.MAIN) {
+				camera = graphicsData.getCamera();
+			} else {
+				// play the part of the main view's camera
+				camera = new OriginOrbitCamera();
+				NetworkToolkit.fitInView(camera, network.getNodeViews(), GraphicsData.DISTANCE_SCALE, 2.3, 1.8);
+			}
+
+			CameraPath path = new CameraPath(frames);
+			path.start(camera);
+
+			FrameMetrics metrics = graphicsData.getFrameMetrics();
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			long thread = Thread.currentThread().getId();
+			long gcCount = 0, gcMillis = 0;
+
+			for(int frame = -warmup; frame < frames; frame++) {
+				if(frame == 0) {
+					metrics.reset();
+					gcCount = -totalGcCount();
+					gcMillis = -totalGcMillis();
+				}
+
+				path.moveTo(camera, frame + warmup);
+				if(config == Config.BIRDSEYE) {
+					eventBus.post(new MainCameraChangeEvent(camera));
+					eventBus.post(new BoundingBoxUpdateEvent(camera));
+				}
+
+				long allocated = threads.getThreadAllocatedBytes(thread);
+				long start = System.nanoTime();
+				drawable.display();
+				double wallMillis = (System.nanoTime() - start) / 1e6;
+				allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+				if(frame >= 0)
+					report.add(new RenderReport.Frame(frame, wallMillis, allocated, metrics));
+			}
+
+			report.setGarbageCollection(gcCount + totalGcCount(), gcMillis + totalGcMillis());
+		} finally {
+			drawable.destroy();
+		}
+		return report;
+	}
+
+
+	private void applyStyle(SyntheticNetwork network) {
+		if(style != Style.MIXED)
+			return;
+
+		Random random = new Random(seed);
+		for(View<CyNode> nodeView : network.getNodeViews()) {
+			double size = 20 + random.nextInt(5) * 10;
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_SHAPE, SHAPES[random.nextInt(SHAPES.length)]);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_FILL_COLOR, COLORS[random.nextInt(COLORS.length)]);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_WIDTH, size);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_HEIGHT, size);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_DEPTH, size);
+		}
+		for(View<CyEdge> edgeView : network.getEdgeViews()) {
+			edgeView.setVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE, LINE_TYPES[random.nextInt(LINE_TYPES.length)]);
+			edgeView.setVisualProperty(BasicVisualLexicon.EDGE_STROKE_UNSELECTED_PAINT, COLORS[random.nextInt(COLORS.length)]);
+			edgeView.setVisualProperty(BasicVisualLexicon.EDGE_WIDTH, 1.0 + random.nextInt(4));
+		}
+	}
+
+	private static long totalGcCount() {
+		long count = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long totalGcMillis() {
+		long millis = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, gc.getCollectionTime());
+		}
+		return millis;
+	}
+
+
+	/**
+	 * Added after the renderer, waits for the GL to finish the frame so that its time is included,
+	 * and records which GL implementation is doing the rendering.
+	 */
+	private static class FinishListener implements GLEventListener {
+
+		private final RenderReport report;
+		private final String requiredRenderer;
+
+		FinishListener(RenderReport report, String requiredRenderer) {
+			this.report = report;
+			this.requiredRenderer = requiredRenderer;
+		}
+
+		@Override
+		public void init(GLAutoDrawable drawable) {
+			GL gl = drawable.getGL();
+			String renderer = gl.glGetString(GL.GL_RENDERER);
+			report.put("gl_vendor", gl.glGetString(GL.GL_VENDOR));
+			report.put("gl_renderer", renderer);
+			report.put("gl_version", gl.glGetString(GL.GL_VERSION));
+
+			if(requiredRenderer != null && (renderer == null || !renderer.toLowerCase(Locale.ROOT).contains(requiredRenderer.toLowerCase(Locale.ROOT))))
+				throw new IllegalStateException("GL renderer is '" + renderer + "', expected '" + requiredRenderer + "'");
+		}
+
+		@Override
+		public void display(GLAutoDrawable drawable) {
+			drawable.getGL().glFinish();
+		}
+
+		@Override
+		public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+		}
+
+		@Override
+		public void dispose(GLAutoDrawable drawable) {
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package org.baderlab.cy3d.benchmark.render;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.baderlab.cy3d.internal.data.FrameMetrics;
+
+/**
+ * The measurements of every frame of an offscreen rendering run, written out as JSON or CSV.
+ *
+ * The JSON report has the settings of the run and the GL implementation it ran on, a summary
+ * with percentiles of the frame times and the allocation rate, and the frames themselves.
+ * The CSV report has one row per frame so it can be loaded straight into a spreadsheet.
+ */
+public class RenderReport {
+
+	/** The measurements of one frame */
+	public static class Frame {
+		final int index;
+		final double wallMillis;
+		final long allocatedBytes;
+		final Map<String,Double> stageMillis = new LinkedHashMap<>();
+		final int drawCalls;
+		final int visibleNodes;
+		final int visibleEdges;
+		final int visibleLabels;
+
+		/**
+		 * @param wallMillis The time from the start of the frame until the GL commands finished executing.
+		 * @param allocatedBytes The memory allocated on the render thread during the frame.
+		 * @param metrics The renderer's metrics, read right after the frame was drawn.
+		 */
+		public Frame(int index, double wallMillis, long allocatedBytes, FrameMetrics metrics) {
+			this.index = index;
+			this.wallMillis = wallMillis;
+			this.allocatedBytes = allocatedBytes;
+			for(String stage : metrics.getStages()) {
+				stageMillis.put(stage, metrics.getLatest(stage));
+			}
+			this.drawCalls = metrics.getDrawCalls();
+			this.visibleNodes = metrics.getVisibleNodes();
+			this.visibleEdges = metrics.getVisibleEdges();
+			this.visibleLabels = metrics.getVisibleLabels();
+		}
+	}
+
+
+	private final Map<String,Object> settings = new LinkedHashMap<>();
+	private final List<Frame> frames = new ArrayList<>();
+	private long gcCount;
+	private long gcMillis;
+
+
+	/**
+	 * Records a setting of the run or a property of the environment, in the order they should be reported.
+	 */
+	public void put(String name, Object value) {
+		settings.put(name, value);
+	}
+
+	public void add(Frame frame) {
+		frames.add(frame);
+	}
+
+	public void setGarbageCollection(long count, long millis) {
+		this.gcCount = count;
+		this.gcMillis = millis;
+	}
+
+	public List<Frame> getFrames() {
+		return frames;
+	}
+
+
+	public double getWallPercentile(double percentile) {
+		if(frames.isEmpty())
+			return Double.NaN;
+		double[] sorted = frames.stream().mapToDouble(frame -> frame.wallMillis).sorted().toArray();
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+
+	public double getTotalWallMillis() {
+		return frames.stream().mapToDouble(frame -> frame.wallMillis).sum();
+	}
+
+	public long getTotalAllocatedBytes() {
+		return frames.stream().mapToLong(frame -> frame.allocatedBytes).sum();
+	}
+
+	/**
+	 * Bytes allocated on the render thread in a frame, the given percentile over all frames.
+	 */
+	public long getAllocatedBytesPercentile(double percentile) {
+		if(frames.isEmpty())
+			return 0;
+		long[] sorted = frames.stream().mapToLong(frame -> frame.allocatedBytes).sorted().toArray();
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+
+	/**
+	 * Megabytes allocated on the render thread per second of rendering.
+	 */
+	public double getAllocationRate() {
+		double seconds = getTotalWallMillis() / 1000;
+		return seconds == 0 ? 0 : getTotalAllocatedBytes() / (1024.0 * 1024.0) / seconds;
+	}
+
+	public double getFramesPerSecond() {
+		double seconds = getTotalWallMillis() / 1000;
+		return seconds == 0 ? 0 : frames.size() / seconds;
+	}
+
+	public String getSummary() {
+		return String.format(Locale.ROOT, "%d frames, %.1f fps, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, %.1f MB/s allocated, p50 %d bytes per frame, %d GCs",
+				frames.size(), getFramesPerSecond(), getWallPercentile(50), getWallPercentile(95), getWallPercentile(99),
+				getAllocationRate(), getAllocatedBytesPercentile(50), gcCount);
+	}
+
+
+	private List<String> getStages() {
+		return frames.isEmpty() ? List.of() : new ArrayList<>(frames.get(frames.size() - 1).stageMillis.keySet());
+	}
+
+	public void writeCsv(Path path) throws IOException {
+		List<String> stages = getStages();
+		try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+			List<String> header = new ArrayList<>(Arrays.asList("frame", "wall_ms", "allocated_bytes", "draw_calls", "nodes", "edges", "labels"));
+			for(String stage : stages) {
+				header.add(stage.replace(' ', '_') + "_ms");
+			}
+			out.println(String.join(",", header));
+
+			for(Frame frame : frames) {
+				StringBuilder row = new StringBuilder();
+				row.append(frame.index).append(',').append(number(frame.wallMillis)).append(',').append(frame.allocatedBytes)
+				   .append(',').append(frame.drawCalls).append(',').append(frame.visibleNodes)
+				   .append(',').append(frame.visibleEdges).append(',').append(frame.visibleLabels);
+				for(String stage : stages) {
+					Double millis = frame.stageMillis.get(stage);
+					row.append(',').append(millis == null ? "" : number(millis));
+				}
+				out.println(row);
+			}
+		}
+	}
+
+	public void writeJson(Path path) throws IOException {
+		try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+			out.println("{");
+			out.println("  \"settings\": {");
+			int i = 0;
+			for(Map.Entry<String,Object> setting : settings.entrySet()) {
+				out.print("    " + string(setting.getKey()) + ": " + value(setting.getValue()));
+				out.println(++i < settings.size() ? "," : "");
+			}
+			out.println("  },");
+
+			out.println("  \"summary\": {");
+			out.println("    \"frames\": " + frames.size() + ",");
+			out.println("    \"fps\": " + number(getFramesPerSecond()) + ",");
+			out.println("    \"wall_ms_p50\": " + number(getWallPercentile(50)) + ",");
+			out.println("    \"wall_ms_p95\": " + number(getWallPercentile(95)) + ",");
+			out.println("    \"wall_ms_p99\": " + number(getWallPercentile(99)) + ",");
+			out.println("    \"allocated_bytes\": " + getTotalAllocatedBytes() + ",");
+			out.println("    \"allocation_mb_per_s\": " + number(getAllocationRate()) + ",");
+			out.println("    \"allocated_bytes_per_frame_p50\": " + getAllocatedBytesPercentile(50) + ",");
+			out.println("    \"allocated_bytes_per_frame_p99\": " + getAllocatedBytesPercentile(99) + ",");
+			out.println("    \"gc_count\": " + gcCount + ",");
+			out.println("    \"gc_ms\": " + gcMillis);
+			out.println("  },");
+
+			out.println("  \"frames\": [");
+			for(int f = 0; f < frames.size(); f++) {
+				Frame frame = frames.get(f);
+				StringBuilder stages = new StringBuilder();
+				for(Map.Entry<String,Double> stage : frame.stageMillis.entrySet()) {
+					if(stages.length() > 0)
+						stages.append(", ");
+					stages.append(string(stage.getKey())).append(": ").append(number(stage.getValue()));
+				}
+				out.print(String.format(Locale.ROOT,
+						"    {\"frame\": %d, \"wall_ms\": %s, \"allocated_bytes\": %d, \"draw_calls\": %d, \"nodes\": %d, \"edges\": %d, \"labels\": %d, \"stages_ms\": {%s}}",
+						frame.index, number(frame.wallMillis), frame.allocatedBytes, frame.drawCalls,
+						frame.visibleNodes, frame.visibleEdges, frame.visibleLabels, stages));
+				out.println(f + 1 < frames.size() ? "," : "");
+			}
+			out.println("  ]");
+			out.println("}");
+		}
+	}
+
+
+	private static String value(Object value) {
+		if(value instanceof Number)
+			return number(((Number) value).doubleValue());
+		if(value instanceof Boolean)
+			return value.toString();
+		return string(String.valueOf(value));
+	}
+
+	private static String number(double value) {
+		if(Double.isNaN(value) || Double.isInfinite(value))
+			return "null";
+		if(value == Math.rint(value) && Math.abs(value) < 1e15)
+			return Long.toString((long) value);
+		return String.format(Locale.ROOT, "%.4f", value);
+	}
+
+	private static String string(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for(char c : s.toCharArray()) {
+			switch(c) {
+				case '"':  sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n");  break;
+				case '\r': sb.append("\\r");  break;
+				case '\t': sb.append("\\t");  break;
+				default:
+					if(c < 0x20)
+						sb.append(String.format("\\u%04x", (int) c));
+					else
+						sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
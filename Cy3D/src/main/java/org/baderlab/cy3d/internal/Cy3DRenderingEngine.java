@@ -1,16 +1,16 @@
 package org.baderlab.cy3d.internal;
 
 import java.awt.BorderLayout;
+import java.awt.Component;
 import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Image;
+import java.awt.KeyboardFocusManager;
+import java.awt.event.HierarchyEvent;
 import java.awt.image.BufferedImage;
 import java.awt.print.Printable;
 import java.util.Properties;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import javax.media.opengl.GLCapabilities;
 import javax.media.opengl.GLProfile;
@@ -18,6 +18,7 @@ import javax.media.opengl.awt.GLJPanel;
 import javax.swing.Icon;
 import javax.swing.JComponent;
 import javax.swing.RootPaneContainer;
+import javax.swing.SwingUtilities;
 
 import org.baderlab.cy3d.internal.data.GraphicsData;
 import org.baderlab.cy3d.internal.eventbus.EventBusProvider;
@@ -51,7 +52,8 @@ class Cy3DRenderingEngine implements RenderingEngine<CyNetwork> {
 	private GLJPanel panel;
 	private Properties props;
 	
-	private ScheduledExecutorService scheduler;
+	private final RenderScheduler renderScheduler;
+	private RenderScheduler.Target renderTarget;
 	
 	
 	public Cy3DRenderingEngine(
@@ -60,12 +62,14 @@ class Cy3DRenderingEngine implements RenderingEngine<CyNetwork> {
 			CyNetworkView viewModel, 
 			VisualLexicon visualLexicon, 
 			EventBusProvider eventBusProvider, 
+			RenderScheduler renderScheduler,
 			GraphicsConfiguration configuration,
 			TaskFactoryListener taskFactoryListener, 
 			DialogTaskManager taskManager) {
 		
 		this.networkView = viewModel;
 		this.visualLexicon = visualLexicon;
+		this.renderScheduler = renderScheduler;
 		this.props = new Properties();
 		
 		setUpCanvas(component, inputComponent, configuration, eventBusProvider, taskFactoryListener, taskManager);
@@ -113,24 +117,32 @@ class Cy3DRenderingEngine implements RenderingEngine<CyNetwork> {
 		
 		configuration.initializeFrame(container, inputComponent);
 		
-		// Check if the view model has changed approximately 60 times per second
-		scheduler = Executors.newScheduledThreadPool(1);
-		scheduler.scheduleAtFixedRate(() -> {
-			if(networkView.dirty(true)) {
-				panel.repaint();
-			}
-		}, 0, 20, TimeUnit.MILLISECONDS);
+		// The shared scheduler repaints the panel when the view model is dirty
+		renderTarget = renderScheduler.add(networkView, panel::repaint, () -> hasFocus(inputComponent), panel::isShowing);
 		
 		// Also update the panel if the renderer's internal state changes, eg on mouse input
 		eventBus.register(new Object() {
 			@Subscribe
 			public void handleUpdateNetworkViewEvent(UpdateNetworkViewEvent e) {
-				panel.repaint();
+				renderScheduler.requestRepaint(renderTarget);
+			}
+		});
+		
+		// The scheduler doesn't poll views that are not showing
+		panel.addHierarchyListener(e -> {
+			if((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && panel.isShowing()) {
+				renderScheduler.requestRepaint(renderTarget);
 			}
 		});
 	}
 	
 	
+	private static boolean hasFocus(JComponent component) {
+		Component focusOwner = KeyboardFocusManager.getCurrentKeyboardFocusManager().getFocusOwner();
+		return focusOwner != null && SwingUtilities.isDescendingFrom(focusOwner, component);
+	}
+	
+	
 	@Override
 	public View<CyNetwork> getViewModel() {
 		return networkView;
@@ -194,11 +206,6 @@ class Cy3DRenderingEngine implements RenderingEngine<CyNetwork> {
 	@Override
 	public void dispose() {
 		System.out.println("Cy3DRenderingEngine.dispose()");
-		try {
-			scheduler.shutdownNow();
-			scheduler.awaitTermination(10, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
+		renderScheduler.remove(renderTarget);
 	}
 }
@@ -28,6 +28,7 @@ public class Cy3DRenderingEngineFactory implements RenderingEngineFactory<CyNetw
 	private final TaskFactoryListener taskFactoryListener;
 	private final DialogTaskManager taskManager;
 	private final EventBusProvider eventBusProvider;
+	private final RenderScheduler renderScheduler;
 	
 	private final GraphicsConfigurationFactory graphicsConfigFactory;
 	
@@ -38,6 +39,7 @@ public class Cy3DRenderingEngineFactory implements RenderingEngineFactory<CyNetw
 			TaskFactoryListener taskFactoryListener,
 			DialogTaskManager taskManager,
 			EventBusProvider eventBusFactory,
+			RenderScheduler renderScheduler,
 			GraphicsConfigurationFactory graphicsConfigFactory) {	
 		
 		this.renderingEngineManager = renderingEngineManager;
@@ -45,6 +47,7 @@ public class Cy3DRenderingEngineFactory implements RenderingEngineFactory<CyNetw
 		this.taskFactoryListener = taskFactoryListener;
 		this.taskManager = taskManager;
 		this.eventBusProvider = eventBusFactory;
+		this.renderScheduler = renderScheduler;
 		this.graphicsConfigFactory = graphicsConfigFactory;
 	}
 	
@@ -70,7 +73,7 @@ public class Cy3DRenderingEngineFactory implements RenderingEngineFactory<CyNetw
 			inputComponent = component; // happens for birds-eye-view
 		
 		Cy3DRenderingEngine engine = new Cy3DRenderingEngine(component, inputComponent, cy3dViewModel, visualLexicon, eventBusProvider,
-				                                             configuration, taskFactoryListener, taskManager);
+				                                             renderScheduler, configuration, taskFactoryListener, taskManager);
 		
 		return engine;
 	}
@@ -21,6 +21,7 @@ import org.baderlab.cy3d.internal.layouts.BoxLayoutAlgorithm;
 import org.baderlab.cy3d.internal.layouts.CenterLayoutAlgorithm;
 import org.baderlab.cy3d.internal.layouts.CyLayoutAlgorithmAdapter;
 import org.baderlab.cy3d.internal.layouts.FlattenLayoutAlgorithm;
+import org.baderlab.cy3d.internal.layouts.ForceDirectedLayoutAlgorithm;
 import org.baderlab.cy3d.internal.layouts.GridLayoutAlgorithm;
 import org.baderlab.cy3d.internal.layouts.SphericalLayoutAlgorithm;
 import org.baderlab.cy3d.internal.task.TaskFactoryListener;
@@ -93,15 +94,18 @@ public class CyActivator extends AbstractCyActivator {
 		registerService(bc, netViewFactory, CyNetworkViewFactory.class, cy3dNetworkViewFactoryProps);
 
 		
+		// One scheduler decides when all the main and bird's eye views repaint
+		RenderScheduler renderScheduler = new RenderScheduler();
+		
 		// Main RenderingEngine factory
 		GraphicsConfigurationFactory mainFactory = GraphicsConfigurationFactory.MAIN_FACTORY;
 		Cy3DRenderingEngineFactory cy3dMainRenderingEngineFactory = new Cy3DRenderingEngineFactory(
-				renderingEngineManager, cy3dVisualLexicon, taskFactoryListener, dialogTaskManager, eventBusProvider, mainFactory);
+				renderingEngineManager, cy3dVisualLexicon, taskFactoryListener, dialogTaskManager, eventBusProvider, renderScheduler, mainFactory);
 		
 		// Bird's Eye RenderingEngine factory
 		GraphicsConfigurationFactory birdsEyeFactory = GraphicsConfigurationFactory.BIRDS_EYE_FACTORY;
 		Cy3DRenderingEngineFactory cy3dBirdsEyeRenderingEngineFactory = new Cy3DRenderingEngineFactory(
-				renderingEngineManager, cy3dVisualLexicon, taskFactoryListener, dialogTaskManager, eventBusProvider, birdsEyeFactory);
+				renderingEngineManager, cy3dVisualLexicon, taskFactoryListener, dialogTaskManager, eventBusProvider, renderScheduler, birdsEyeFactory);
 
 		
 		// NetworkViewRenderer, this is the main entry point that Cytoscape will call into
@@ -119,6 +123,7 @@ public class CyActivator extends AbstractCyActivator {
 		
 		registerLayoutAlgorithms(bc,
 				fr3DAlgorithm,
+				new ForceDirectedLayoutAlgorithm(undoSupport),
 				new SphericalLayoutAlgorithm(undoSupport),
 				new GridLayoutAlgorithm(undoSupport),
 				new BoxLayoutAlgorithm(undoSupport),
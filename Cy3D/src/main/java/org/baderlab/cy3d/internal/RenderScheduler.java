@@ -0,0 +1,214 @@
+package org.baderlab.cy3d.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import org.cytoscape.view.model.CyNetworkView;
+
+/**
+ * Decides when the Cy3D views repaint, one thread shared by all the main and bird's eye views.
+ *
+ * A view repaints when something asks for it, eg an UpdateNetworkViewEvent on mouse input, or
+ * when its network view model is dirty. Requests that arrive before the view is due for its next
+ * frame are coalesced into one repaint. The focused view is repainted first and at most once per
+ * frame budget, the other views at most once every {@link #BACKGROUND_BUDGET_FACTOR} budgets.
+ *
+ * The network view model has no change callback, so its dirty flag has to be polled. The flag of
+ * each network view is polled once for all the views of it, every frame budget while things are
+ * changing, backing off to {@link #MAX_IDLE_POLL_MILLIS} when they are not. When no view is
+ * showing the thread sleeps until it is woken, and it stops when the last view is removed.
+ *
+ * The frame budget in milliseconds can be set with -Dcy3d.frameBudget, the default is 16 (about 60 fps).
+ */
+public class RenderScheduler {
+
+	public static final int DEFAULT_FRAME_BUDGET_MILLIS = 16;
+
+	/** Views that don't have the focus are repainted this many times less often */
+	public static final int BACKGROUND_BUDGET_FACTOR = 4;
+
+	/** The longest time between polls of the network views when nothing is changing */
+	public static final int MAX_IDLE_POLL_MILLIS = 250;
+
+
+	/**
+	 * A registered view, pass to {@link #requestRepaint(Target)} to ask for a frame.
+	 */
+	public static class Target {
+		private final CyNetworkView networkView;
+		private final Runnable repaint;
+		private final BooleanSupplier focused;
+		private final BooleanSupplier showing;
+
+		private volatile boolean requested = true; // the first frame
+		private long lastRepaint; // only touched by the scheduler thread
+
+		private Target(CyNetworkView networkView, Runnable repaint, BooleanSupplier focused, BooleanSupplier showing, long lastRepaint) {
+			this.networkView = networkView;
+			this.repaint = repaint;
+			this.focused = focused;
+			this.showing = showing;
+			this.lastRepaint = lastRepaint;
+		}
+	}
+
+
+	private final long frameBudgetNanos;
+	private final List<Target> targets = new CopyOnWriteArrayList<>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition wakeUp = lock.newCondition();
+	private boolean signalled = false;
+	private Thread thread;
+
+
+	public RenderScheduler() {
+		this(Integer.getInteger("cy3d.frameBudget", DEFAULT_FRAME_BUDGET_MILLIS));
+	}
+
+	public RenderScheduler(int frameBudgetMillis) {
+		this.frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, frameBudgetMillis));
+	}
+
+
+	/**
+	 * Starts scheduling repaints for a view.
+	 *
+	 * @param repaint Called on the scheduler thread, should only ask the toolkit for a repaint.
+	 * @param focused If the view has the keyboard focus, it is then repainted first and more often.
+	 * @param showing If the view is on the screen, views that are not are not repainted.
+	 */
+	public Target add(CyNetworkView networkView, Runnable repaint, BooleanSupplier focused, BooleanSupplier showing) {
+		// due right away
+		long lastRepaint = System.nanoTime() - frameBudgetNanos * BACKGROUND_BUDGET_FACTOR;
+		Target target = new Target(networkView, repaint, focused, showing, lastRepaint);
+		lock.lock();
+		try {
+			targets.add(target);
+			if(thread == null) {
+				thread = new Thread(this::run, "Cy3D render scheduler");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			signalled = true;
+			wakeUp.signal();
+		} finally {
+			lock.unlock();
+		}
+		return target;
+	}
+
+	public void remove(Target target) {
+		lock.lock();
+		try {
+			targets.remove(target);
+			signalled = true;
+			wakeUp.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Asks for the view to be repainted, requests are coalesced until the view's next frame is due.
+	 * Also call this when the view becomes visible so that a sleeping scheduler polls it again.
+	 * Can be called from any thread.
+	 */
+	public void requestRepaint(Target target) {
+		target.requested = true;
+		lock.lock();
+		try {
+			signalled = true;
+			wakeUp.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	private void run() {
+		long pollInterval = frameBudgetNanos;
+		List<Target> ordered = new ArrayList<>();
+		Set<CyNetworkView> dirtyViews = new HashSet<>();
+		Set<CyNetworkView> polledViews = new HashSet<>();
+
+		while(true) {
+			// focused views first
+			ordered.clear();
+			for(Target target : targets) {
+				if(target.focused.getAsBoolean())
+					ordered.add(0, target);
+				else
+					ordered.add(target);
+			}
+
+			// the dirty flag is cleared when read, so read it once per network view for all of its targets
+			dirtyViews.clear();
+			polledViews.clear();
+			boolean anyShowing = false;
+			for(Target target : ordered) {
+				if(target.showing.getAsBoolean()) {
+					anyShowing = true;
+					if(polledViews.add(target.networkView) && target.networkView.dirty(true))
+						dirtyViews.add(target.networkView);
+				}
+			}
+
+			long now = System.nanoTime();
+			long nextDue = Long.MAX_VALUE;
+			boolean active = false;
+			for(Target target : ordered) {
+				if(dirtyViews.contains(target.networkView))
+					target.requested = true;
+				if(!target.requested || !target.showing.getAsBoolean())
+					continue;
+
+				active = true;
+				long budget = target.focused.getAsBoolean() ? frameBudgetNanos : frameBudgetNanos * BACKGROUND_BUDGET_FACTOR;
+				long due = target.lastRepaint + budget;
+				if(now - due >= 0) {
+					target.requested = false;
+					target.lastRepaint = now;
+					try {
+						target.repaint.run();
+					} catch(RuntimeException e) {
+						e.printStackTrace();
+					}
+				} else {
+					nextDue = Math.min(nextDue, due - now);
+				}
+			}
+
+			pollInterval = active ? frameBudgetNanos : Math.min(pollInterval * 2, TimeUnit.MILLISECONDS.toNanos(MAX_IDLE_POLL_MILLIS));
+
+			lock.lock();
+			try {
+				if(targets.isEmpty()) {
+					thread = null;
+					return;
+				}
+				if(!signalled) {
+					if(anyShowing)
+						wakeUp.awaitNanos(Math.min(nextDue, pollInterval));
+					else
+						wakeUp.await(); // nothing to paint until a view is shown
+				}
+				if(signalled)
+					pollInterval = frameBudgetNanos;
+				signalled = false;
+			} catch(InterruptedException e) {
+				thread = null;
+				return;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -17,6 +17,12 @@ public interface CameraPosition {
 	 */
 	Vector3 getDirection();
 	
+	/**
+	 * Same as {@link #getDirection()} but stores the direction in the given vector.
+	 * @return The result vector
+	 */
+	Vector3 getDirection(Vector3 result);
+	
 	Vector3 getLeft();
 	
 	/**
@@ -57,9 +57,14 @@ public class OriginOrbitCamera implements Camera {
 
 	@Override
 	public Vector3 getDirection() {
-		Vector3 direction = target.subtract(position);
-		direction.normalizeLocal();
-		return direction;
+		return getDirection(new Vector3());
+	}
+	
+	@Override
+	public Vector3 getDirection(Vector3 result) {
+		target.subtract(position, result);
+		result.normalizeLocal();
+		return result;
 	}
 
 	@Override
@@ -232,6 +232,11 @@ public class SimpleCamera implements Camera {
 		return direction;
 	}
 	
+	public Vector3 getDirection(Vector3 result) {
+		result.set(direction);
+		return result;
+	}
+	
 	/** Return the distance between the target point and the camera's
 	 * position vector
 	 * 
@@ -4,6 +4,7 @@ import org.baderlab.cy3d.internal.geometric.Vector3;
 import org.baderlab.cy3d.internal.tools.PairIdentifier;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.values.LineType;
 
 /**
  * A container class for View<CyEdge> objects that also contains extra information about the edge,
@@ -11,7 +12,7 @@ import org.cytoscape.view.model.View;
  * edge coordinates that are used for rendering segmented edges.
  */
 public class AugmentedEdgeContainer {
-	private final View<CyEdge> edgeView;
+	private View<CyEdge> edgeView;
 	
 	// Identifies the pair of nodes that the edge connects
 	private PairIdentifier pairIdentifier = null;
@@ -36,7 +37,14 @@ public class AugmentedEdgeContainer {
 	private Vector3 start;
 	private Vector3 end;
 	
+	// The line type the coordinates were generated for, dashed and dotted edges use sparse coordinates
+	private LineType lineType;
+	
+	// Coordinates along the edge in OpenGL space, null if the edge is not long enough to be drawn
 	private Vector3[] coordinates;
+	
+	// Do the coordinates need to be recalculated?
+	private boolean dirty = true;
 
 	public AugmentedEdgeContainer(View<CyEdge> edgeView) {
 		this.edgeView = edgeView;
@@ -45,6 +53,10 @@ public class AugmentedEdgeContainer {
 	public View<CyEdge> getEdgeView() {
 		return edgeView;
 	}
+	
+	public void setEdgeView(View<CyEdge> edgeView) {
+		this.edgeView = edgeView;
+	}
 
 	public PairIdentifier getPairIdentifier() {
 		return pairIdentifier;
@@ -118,4 +130,20 @@ public class AugmentedEdgeContainer {
 		return end;
 	}
 	
+	public void setLineType(LineType lineType) {
+		this.lineType = lineType;
+	}
+	
+	public LineType getLineType() {
+		return lineType;
+	}
+	
+	public void setDirty(boolean dirty) {
+		this.dirty = dirty;
+	}
+	
+	public boolean isDirty() {
+		return dirty;
+	}
+	
 }
@@ -2,10 +2,16 @@ package org.baderlab.cy3d.internal.cytoscape.edges;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
 import org.baderlab.cy3d.internal.geometric.Vector3;
 import org.baderlab.cy3d.internal.tools.EdgeCoordinateCalculator;
 import org.baderlab.cy3d.internal.tools.GeometryToolkit;
@@ -18,6 +24,7 @@ import org.cytoscape.view.model.SnapshotEdgeInfo;
 import org.cytoscape.view.model.View;
 import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.view.presentation.property.LineTypeVisualProperty;
+import org.cytoscape.view.presentation.property.values.LineType;
 
 /**
  * This class is responsible for analyzing the current set of edges in the network and
@@ -41,100 +48,200 @@ public class EdgeAnalyser {
 	private static final int NUM_SEGMENTS = 8;
 	
 	/** 
-	 * A set of {@link AugmentedEdgeContainer} objects containing extra generated data relating to each
-	 * edge as well as a reference to the edge it contains
+	 * The {@link AugmentedEdgeContainer} objects from the last analysis, keyed by edge view SUID. 
+	 * They are kept between frames so that only edges that changed have to be recalculated.
 	 */
+	private final Map<Long, AugmentedEdgeContainer> edgeContainers = new HashMap<>();
+	
+	/** The edges connecting each pair of nodes, in the order the edges were first seen */
+	private final Map<PairIdentifier, List<AugmentedEdgeContainer>> pairGroups = new HashMap<>();
+	
+	private List<AugmentedEdgeContainer> analyzedEdges = Collections.emptyList();
+	
+	/** The containers whose coordinates the last analysis recalculated */
+	private final List<AugmentedEdgeContainer> recalculatedEdges = new ArrayList<>();
+	private CyNetworkViewSnapshot lastSnapshot = null;
+	private double lastDistanceScale = Double.NaN;
+	
 
 	/**
 	 * Return a set of analyzed edges containing edge coordinates to be used for rendering. If an up-to-date
-	 * data set is available, the set is returned. Otherwise, calculations will be done to re-analyze the current edges.
+	 * data set is available, the set is returned. Otherwise, only the edges whose end points, line type or
+	 * group of coincident edges changed since the last call are re-analyzed.
+	 * 
+	 * The returned coordinates are in OpenGL space, that is the Y axis is already negated.
 	 * 
 	 * @param networkView The {@link CyNetworkView} containing the edges to be analyzed
 	 * @param distanceScale The amount of scaling when converting between Cytoscape coordinates and OpenGL coordinates
-	 * @param currentFrame The current frame of rendering.
 	 * @return An up-to-date set of analyzed edge data to be used for rendering.
 	 */
-	public static Collection<AugmentedEdgeContainer> getAnalyzedEdges(CyNetworkViewSnapshot networkView, double distanceScale/*, long currentFrame*/) {
-		List<AugmentedEdgeContainer> edgeContainers = calculateEdgeProperties(networkView, distanceScale);
-		calculateEdgeCoordinates(edgeContainers);
-		return edgeContainers;		
-	}	
+	public Collection<AugmentedEdgeContainer> getAnalyzedEdges(CyNetworkViewSnapshot networkView, double distanceScale) {
+		return getAnalyzedEdges(networkView, null, distanceScale);
+	}
 	
-	private static List<AugmentedEdgeContainer> calculateEdgeProperties(CyNetworkViewSnapshot networkView, double distanceScale) {
-		List<AugmentedEdgeContainer> edgeContainers = new ArrayList<>(networkView.getEdgeCount());
+	/**
+	 * Same as {@link #getAnalyzedEdges(CyNetworkViewSnapshot, double)} but skips looking at the edges 
+	 * altogether when the given changes show that nothing affecting them happened.
+	 * In that case the containers keep the edge views of an earlier snapshot, those have the 
+	 * same values for every visual property that {@link SnapshotChanges} tracks.
+	 * 
+	 * @param changes The changes since the snapshot passed to the previous call, or null if unknown.
+	 */
+	public Collection<AugmentedEdgeContainer> getAnalyzedEdges(CyNetworkViewSnapshot networkView, SnapshotChanges changes, double distanceScale) {
+		// The picking and rendering procedures both ask for the edges of the same snapshot every frame
+		if (networkView == lastSnapshot && distanceScale == lastDistanceScale) {
+			return analyzedEdges;
+		}
 		
-		// This map maps each node-pair identifier to the number of edges between that pair of nodes
-		// The identifier is: max(sourceIndex, targetIndex) * nodeCount + min(sourceIndex, targetIndex)
-		Map<PairIdentifier, Integer> pairCoincidenceCount = new HashMap<>();
+		if (changes != null && !changes.hasEdgeChanges() && lastSnapshot != null && distanceScale == lastDistanceScale) {
+			lastSnapshot = networkView;
+			recalculatedEdges.clear();
+			return analyzedEdges;
+		}
 		
-		PairIdentifier identifier;
-		long sourceIndex, targetIndex;
-		int edgeNumber;
+		if (distanceScale != lastDistanceScale) {
+			edgeContainers.clear();
+			pairGroups.clear();
+		}
+		lastSnapshot = networkView;
+		lastDistanceScale = distanceScale;
+		
+		Set<PairIdentifier> changedPairs = updateEdgeProperties(networkView, distanceScale);
+		updateEdgeNumbers(changedPairs);
+		
+		recalculatedEdges.clear();
+		for (AugmentedEdgeContainer edgeContainer : analyzedEdges) {
+			if (edgeContainer.isDirty()) {
+				calculateEdgeCoordinates(edgeContainer);
+				edgeContainer.setDirty(false);
+				recalculatedEdges.add(edgeContainer);
+			}
+		}
+		return analyzedEdges;
+	}
+	
+	/**
+	 * Returns the edges whose coordinates were recalculated for the last snapshot passed to 
+	 * {@link #getAnalyzedEdges(CyNetworkViewSnapshot, SnapshotChanges, double)}, the coordinates 
+	 * of all other edges are the same arrays as before. Includes every edge that was added.
+	 */
+	public List<AugmentedEdgeContainer> getRecalculatedEdges() {
+		return recalculatedEdges;
+	}
+	
+	
+	/**
+	 * Brings the containers in sync with the snapshot and marks the ones that need new coordinates as dirty.
+	 * @return the node pairs whose set of edges changed
+	 */
+	private Set<PairIdentifier> updateEdgeProperties(CyNetworkViewSnapshot networkView, double distanceScale) {
+		List<AugmentedEdgeContainer> currentEdges = new ArrayList<>(networkView.getEdgeCount());
+		Set<PairIdentifier> changedPairs = new HashSet<>();
 		
 		for (View<CyEdge> edgeView : networkView.getEdgeViews()) {
-			
-			AugmentedEdgeContainer edgeContainer = new AugmentedEdgeContainer(edgeView);
-			edgeContainers.add(edgeContainer);
-			
 			SnapshotEdgeInfo edgeInfo = networkView.getEdgeInfo(edgeView);
+			AugmentedEdgeContainer edgeContainer = edgeContainers.get(edgeView.getSUID());
 			
-			sourceIndex = edgeInfo.getSourceViewSUID();
-			targetIndex = edgeInfo.getTargetViewSUID();
-			
-			// Assign an identifier to each pair of nodes
-			
-			identifier = new PairIdentifier(sourceIndex, targetIndex);
-			
-			// Assign a value that represents how many edges have been found between this pair
-			if (!pairCoincidenceCount.containsKey(identifier)) {
-				edgeNumber = 1;
+			if (edgeContainer == null) {
+				edgeContainer = new AugmentedEdgeContainer(edgeView);
+				
+				long sourceIndex = edgeInfo.getSourceViewSUID();
+				long targetIndex = edgeInfo.getTargetViewSUID();
+				
+				// Assign an identifier to each pair of nodes
+				PairIdentifier identifier = new PairIdentifier(sourceIndex, targetIndex);
+				edgeContainer.setPairIdentifier(identifier);
+				
+				// Check if the edge leads from a node to itself
+				edgeContainer.setSelfEdge(sourceIndex == targetIndex);
+				
+				edgeContainers.put(edgeView.getSUID(), edgeContainer);
+				
+				List<AugmentedEdgeContainer> group = pairGroups.get(identifier);
+				if (group == null) {
+					group = new ArrayList<>(1);
+					pairGroups.put(identifier, group);
+				}
+				group.add(edgeContainer);
+				changedPairs.add(identifier);
 			} else {
-				edgeNumber = pairCoincidenceCount.get(identifier) + 1;
+				// Visual properties have to be read from the view of the current snapshot
+				edgeContainer.setEdgeView(edgeView);
 			}
+			currentEdges.add(edgeContainer);
 			
-			edgeContainer.setPairIdentifier(identifier);
-			edgeContainer.setEdgeNumber(edgeNumber);
-			pairCoincidenceCount.put(identifier, edgeNumber);
+			// Find edge start and end points
+			Vector3 start = NetworkToolkit.obtainNodeCoordinates(edgeInfo.getSourceNodeView(), networkView, distanceScale);
+			Vector3 end   = NetworkToolkit.obtainNodeCoordinates(edgeInfo.getTargetNodeView(), networkView, distanceScale);
 			
-			// Check if the edge leads from a node to itself
-			if (sourceIndex == targetIndex) {
-				edgeContainer.setSelfEdge(true);
-			} else {
-				edgeContainer.setSelfEdge(false);
+			if (!Objects.equals(start, edgeContainer.getStart()) || !Objects.equals(end, edgeContainer.getEnd())) {
+				edgeContainer.setStart(start);
+				edgeContainer.setEnd(end);
+				
+				// Determine if edge has sufficient length to be drawn
+				edgeContainer.setSufficientLength(start != null && end != null && 
+						(end.distance(start) >= MIN_LENGTH || edgeContainer.isSelfEdge()));
+				edgeContainer.setDirty(true);
 			}
 			
-			// Find edge start and end points
-			edgeContainer.setStart(NetworkToolkit.obtainNodeCoordinates(edgeInfo.getSourceNodeView(), networkView, distanceScale));
-			edgeContainer.setEnd  (NetworkToolkit.obtainNodeCoordinates(edgeInfo.getTargetNodeView(), networkView, distanceScale));
-			
-			// Determine if edge has sufficient length to be drawn
-			if (edgeContainer.getStart() != null && edgeContainer.getEnd() != null && 
-					(edgeContainer.getEnd().distance(edgeContainer.getStart()) >= MIN_LENGTH || edgeContainer.isSelfEdge())) {
-				edgeContainer.setSufficientLength(true);
-			} else {
-				edgeContainer.setSufficientLength(false);
+			LineType lineType = edgeView.getVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE);
+			if (!Objects.equals(lineType, edgeContainer.getLineType())) {
+				edgeContainer.setLineType(lineType);
+				edgeContainer.setDirty(true);
 			}
 		}
 		
-		// Update the value for the total number of edges between this pair of nodes
-		for (AugmentedEdgeContainer edgeContainer : edgeContainers) {
-			
-			PairIdentifier pairIdentifier = edgeContainer.getPairIdentifier();
-			Integer totalCoincidentEdgesCount = pairCoincidenceCount.get(pairIdentifier);
+		// Forget about edges that are no longer in the network
+		if (edgeContainers.size() > currentEdges.size()) {
+			Set<AugmentedEdgeContainer> current = new HashSet<>(currentEdges);
+			Iterator<AugmentedEdgeContainer> iter = edgeContainers.values().iterator();
+			while (iter.hasNext()) {
+				AugmentedEdgeContainer edgeContainer = iter.next();
+				if (!current.contains(edgeContainer)) {
+					iter.remove();
+					
+					PairIdentifier identifier = edgeContainer.getPairIdentifier();
+					List<AugmentedEdgeContainer> group = pairGroups.get(identifier);
+					group.remove(edgeContainer);
+					if (group.isEmpty()) {
+						pairGroups.remove(identifier);
+					} else {
+						changedPairs.add(identifier);
+					}
+				}
+			}
+		}
 		
-			if (totalCoincidentEdgesCount != null) {
-				
-				edgeContainer.setTotalCoincidentEdges(totalCoincidentEdgesCount);
+		analyzedEdges = currentEdges;
+		return changedPairs;
+	}
+	
+	
+	/**
+	 * Renumbers the edges between each of the given pairs of nodes, edges whose number 
+	 * or total changed need new coordinates.
+	 */
+	private void updateEdgeNumbers(Set<PairIdentifier> changedPairs) {
+		for (PairIdentifier identifier : changedPairs) {
+			List<AugmentedEdgeContainer> group = pairGroups.get(identifier);
+			if (group == null)
+				continue;
 			
-				// If there was only 1 edge for that pair of nodes, make it a straight edge
-				if (edgeContainer.getTotalCoincidentEdges() == 1 && !edgeContainer.isSelfEdge()) {
-					edgeContainer.setStraightEdge(true);
-				}
+			int totalCoincidentEdges = group.size();
+			int edgeNumber = 0;
 			
+			for (AugmentedEdgeContainer edgeContainer : group) {
+				edgeNumber++;
+				if (edgeContainer.getEdgeNumber() != edgeNumber || edgeContainer.getTotalCoincidentEdges() != totalCoincidentEdges) {
+					edgeContainer.setEdgeNumber(edgeNumber);
+					edgeContainer.setTotalCoincidentEdges(totalCoincidentEdges);
+					
+					// If there is only 1 edge for that pair of nodes, make it a straight edge
+					edgeContainer.setStraightEdge(totalCoincidentEdges == 1 && !edgeContainer.isSelfEdge());
+					edgeContainer.setDirty(true);
+				}
 			}
 		}
-		
-		return edgeContainers;
 	}
 	
 	
@@ -234,72 +341,67 @@ public class EdgeAnalyser {
 		}
 	}
 	
-	private static void calculateEdgeCoordinates(List<AugmentedEdgeContainer> edgeContainers) {
+	private static void calculateEdgeCoordinates(AugmentedEdgeContainer edgeContainer) {
 		
-		boolean selfEdge;
-		Vector3 start, end;
+		// Only perform coordinate calculations if the edge has sufficient length
+		if (!edgeContainer.isSufficientLength()) {
+			edgeContainer.setCoordinates(null);
+			return;
+		}
 		
-		for (AugmentedEdgeContainer edgeContainer : edgeContainers) {
+		Vector3 start = edgeContainer.getStart();
+		Vector3 end = edgeContainer.getEnd();
+		boolean selfEdge = edgeContainer.isSelfEdge();
+		LineType lineType = edgeContainer.getLineType();
+		
+		// General points along the arc
+		Vector3[] points;
+		
+		if (edgeContainer.isStraightEdge()) {
 			
-			// Only perform coordinate calculations if the edge has sufficient length
-			if (edgeContainer.isSufficientLength()) {
-				
-				View<CyEdge> edgeView = edgeContainer.getEdgeView();
-				
-				start = edgeContainer.getStart();
-				end = edgeContainer.getEnd();
-				selfEdge = edgeContainer.isSelfEdge();
+			// Draw the correct type of edge depending on the visual property
+			if (lineType == LineTypeVisualProperty.EQUAL_DASH) {
+				points = EdgeCoordinateCalculator.generateStraightEdgeSparseCoordinates(
+						start, end, DASHED_EDGE_SPACING);
+			
+			} else if (lineType == LineTypeVisualProperty.DOT) {
+				points = EdgeCoordinateCalculator.generateStraightEdgeSparseCoordinates(
+						start, end, DOTTED_EDGE_SPACING);
+		
 				
-				// General points along the arc
-				Vector3[] points;
+			// Draw regular edges for the catch-all case
+			} else {
+				points = EdgeCoordinateCalculator.generateStraightEdgeCoordinates(
+						start, end, 1);
 				
-				if (edgeContainer.isStraightEdge()) {
-					
-					// Draw the correct type of edge depending on the visual property
-					if (edgeView.getVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE)
-							== LineTypeVisualProperty.EQUAL_DASH) {
-						points = EdgeCoordinateCalculator.generateStraightEdgeSparseCoordinates(
-								start, end, DASHED_EDGE_SPACING);
-					
-					} else if (edgeView.getVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE)
-							== LineTypeVisualProperty.DOT) {
-						points = EdgeCoordinateCalculator.generateStraightEdgeSparseCoordinates(
-								start, end, DOTTED_EDGE_SPACING);
+			}
+			
+		} else {
+			// Find the arc circle's center
+			Vector3 circleCenter = findCircleCenter(edgeContainer);
+			
+			// Draw the correct type of edge depending on the visual property
+			if (lineType == LineTypeVisualProperty.EQUAL_DASH) {
+				points = EdgeCoordinateCalculator.generateArcEdgeSparseCoordinates(
+						start, end, circleCenter, DASHED_EDGE_SPACING, selfEdge);
+			
+			} else if (lineType == LineTypeVisualProperty.DOT) {
+				points = EdgeCoordinateCalculator.generateArcEdgeSparseCoordinates(
+						start, end, circleCenter, DOTTED_EDGE_SPACING, selfEdge);
+			
 				
-						
-					// Draw regular edges for the catch-all case
-					} else {
-						points = EdgeCoordinateCalculator.generateStraightEdgeCoordinates(
-								start, end, 1);
-						
-					}
-					
-				} else {
-					// Find the arc circle's center
-					Vector3 circleCenter = findCircleCenter(edgeContainer);
-					
-					// Draw the correct type of edge depending on the visual property
-					if (edgeView.getVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE)
-							== LineTypeVisualProperty.EQUAL_DASH) {
-						points = EdgeCoordinateCalculator.generateArcEdgeSparseCoordinates(
-								start, end, circleCenter, DASHED_EDGE_SPACING, selfEdge);
-					
-					} else if (edgeView.getVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE)
-							== LineTypeVisualProperty.DOT) {
-						points = EdgeCoordinateCalculator.generateArcEdgeSparseCoordinates(
-								start, end, circleCenter, DOTTED_EDGE_SPACING, selfEdge);
-					
-						
-					// Draw regular edges for the catch-all case
-					} else {
-						points = EdgeCoordinateCalculator.generateArcEdgeCoordinates(
-								start, end, circleCenter, NUM_SEGMENTS, selfEdge);
-						
-					}
-				}
+			// Draw regular edges for the catch-all case
+			} else {
+				points = EdgeCoordinateCalculator.generateArcEdgeCoordinates(
+						start, end, circleCenter, NUM_SEGMENTS, selfEdge);
 				
-				edgeContainer.setCoordinates(points);
 			}
 		}
+		
+		// Cytoscape measures Y down from the top, OpenGL measures Y up from the bottom.
+		// This is done once here because the coordinates are reused across frames.
+		GeometryToolkit.negateYCoords(points);
+		
+		edgeContainer.setCoordinates(points);
 	}
 }
@@ -11,8 +11,10 @@ public class DetailLevelVisualProperty extends AbstractVisualProperty<DetailLeve
 	public static final DetailLevel DETAIL_LOW  = new DetailLevel("Low", "DETAIL_LOW");
 	public static final DetailLevel DETAIL_MED  = new DetailLevel("Medium", "DETAIL_MED");
 	public static final DetailLevel DETAIL_HIGH = new DetailLevel("High", "DETAIL_HIGH");
+	/** Chooses the detail of each node from how large it appears on the screen */
+	public static final DetailLevel DETAIL_AUTO = new DetailLevel("Automatic", "DETAIL_AUTO");
 	
-	public static final DiscreteRange<DetailLevel> RANGE = new DiscreteRange<>(DetailLevel.class, Sets.newHashSet(DETAIL_LOW, DETAIL_MED, DETAIL_HIGH));
+	public static final DiscreteRange<DetailLevel> RANGE = new DiscreteRange<>(DetailLevel.class, Sets.newHashSet(DETAIL_LOW, DETAIL_MED, DETAIL_HIGH, DETAIL_AUTO));
 	
 	public DetailLevelVisualProperty(String id, String displayName, Class<? extends CyIdentifiable> targetObjectDataType) {
 		super(DETAIL_MED, RANGE, id, displayName, targetObjectDataType);
@@ -0,0 +1,131 @@
+package org.baderlab.cy3d.internal.cytoscape.view;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The differences between two consecutive {@link org.cytoscape.view.model.CyNetworkViewSnapshot}s,
+ * as computed by {@link SnapshotDiffer}. All the sets contain view SUIDs.
+ *
+ * A full change set is produced for the first snapshot, in that case consumers should rebuild
+ * whatever they cache instead of looking at the individual sets.
+ */
+public class SnapshotChanges {
+
+	public static final SnapshotChanges NONE = new SnapshotChanges(false);
+
+	private final boolean full;
+
+	final Set<Long> addedNodes = new HashSet<>();
+	final Set<Long> removedNodes = new HashSet<>();
+	final Set<Long> movedNodes = new HashSet<>();
+	final Set<Long> restyledNodes = new HashSet<>();
+	final Set<Long> selectionChangedNodes = new HashSet<>();
+
+	final Set<Long> addedEdges = new HashSet<>();
+	final Set<Long> removedEdges = new HashSet<>();
+	final Set<Long> restyledEdges = new HashSet<>();
+	final Set<Long> selectionChangedEdges = new HashSet<>();
+
+	boolean networkRestyled = false;
+
+
+	SnapshotChanges(boolean full) {
+		this.full = full;
+	}
+
+	/**
+	 * Returns true if this is the first snapshot, everything should be considered changed.
+	 */
+	public boolean isFull() {
+		return full;
+	}
+
+	public boolean isEmpty() {
+		return !full && !networkRestyled && !hasNodeChanges() && !hasEdgeChanges();
+	}
+
+	public boolean hasNodeChanges() {
+		return full || !addedNodes.isEmpty() || !removedNodes.isEmpty() || !movedNodes.isEmpty()
+				|| !restyledNodes.isEmpty() || !selectionChangedNodes.isEmpty();
+	}
+
+	/**
+	 * Returns true if anything that affects how edges are drawn changed, this includes nodes
+	 * being moved, added or removed because edges follow their end points.
+	 */
+	public boolean hasEdgeChanges() {
+		return full || !addedEdges.isEmpty() || !removedEdges.isEmpty() || !restyledEdges.isEmpty()
+				|| !selectionChangedEdges.isEmpty() || !movedNodes.isEmpty() || !addedNodes.isEmpty() || !removedNodes.isEmpty();
+	}
+
+	/**
+	 * Like {@link #hasEdgeChanges()} without selection changes, which only change the color of the edges.
+	 */
+	public boolean hasEdgeGeometryChanges() {
+		return full || !addedEdges.isEmpty() || !removedEdges.isEmpty() || !restyledEdges.isEmpty()
+				|| !movedNodes.isEmpty() || !addedNodes.isEmpty() || !removedNodes.isEmpty();
+	}
+
+	/**
+	 * Returns true if nodes or edges were added, removed, moved or restyled, or the network was restyled.
+	 * Only selection changes are left out.
+	 */
+	public boolean hasGeometryChanges() {
+		return networkRestyled || !restyledNodes.isEmpty() || hasEdgeGeometryChanges();
+	}
+
+	/**
+	 * Returns true if a network visual property that affects rendering, for example the detail level, changed.
+	 */
+	public boolean isNetworkRestyled() {
+		return full || networkRestyled;
+	}
+
+	public Set<Long> getAddedNodes() {
+		return Collections.unmodifiableSet(addedNodes);
+	}
+
+	public Set<Long> getRemovedNodes() {
+		return Collections.unmodifiableSet(removedNodes);
+	}
+
+	public Set<Long> getMovedNodes() {
+		return Collections.unmodifiableSet(movedNodes);
+	}
+
+	public Set<Long> getRestyledNodes() {
+		return Collections.unmodifiableSet(restyledNodes);
+	}
+
+	public Set<Long> getSelectionChangedNodes() {
+		return Collections.unmodifiableSet(selectionChangedNodes);
+	}
+
+	public Set<Long> getAddedEdges() {
+		return Collections.unmodifiableSet(addedEdges);
+	}
+
+	public Set<Long> getRemovedEdges() {
+		return Collections.unmodifiableSet(removedEdges);
+	}
+
+	public Set<Long> getRestyledEdges() {
+		return Collections.unmodifiableSet(restyledEdges);
+	}
+
+	public Set<Long> getSelectionChangedEdges() {
+		return Collections.unmodifiableSet(selectionChangedEdges);
+	}
+
+	@Override
+	public String toString() {
+		if(full)
+			return "SnapshotChanges[full]";
+		return "SnapshotChanges[nodes +" + addedNodes.size() + " -" + removedNodes.size() + " moved " + movedNodes.size()
+				+ " restyled " + restyledNodes.size() + " selection " + selectionChangedNodes.size()
+				+ ", edges +" + addedEdges.size() + " -" + removedEdges.size() + " restyled " + restyledEdges.size()
+				+ " selection " + selectionChangedEdges.size() + ", network " + networkRestyled + "]";
+	}
+}
@@ -0,0 +1,199 @@
+package org.baderlab.cy3d.internal.cytoscape.view;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.VisualProperty;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+
+/**
+ * Compares consecutive {@link CyNetworkViewSnapshot}s and produces a {@link SnapshotChanges}
+ * describing which views were added, removed, moved, restyled or had their selection changed.
+ *
+ * Only the visual properties that the renderer actually uses are compared. The last value of
+ * each of them is kept per view and compared with equals(), values are immutable so keeping
+ * the reference is enough.
+ *
+ * The diff itself is a full scan, every view of every snapshot is read. The 3.8 snapshot API
+ * does not tell which views changed, and it hands out new view objects every time, so there
+ * is nothing to skip unchanged views by. What the diff buys is that the consumers of the
+ * changes, the render model, the edge analyser, the scene index and the meshes, only do work
+ * in proportion to the number of changes.
+ *
+ * Not thread safe, meant to be used by one renderer on its display thread.
+ */
+public class SnapshotDiffer {
+
+	private static final VisualProperty<?>[] NODE_STYLE = {
+		BasicVisualLexicon.NODE_VISIBLE,
+		BasicVisualLexicon.NODE_FILL_COLOR,
+		BasicVisualLexicon.NODE_SHAPE,
+		BasicVisualLexicon.NODE_WIDTH,
+		BasicVisualLexicon.NODE_HEIGHT,
+		BasicVisualLexicon.NODE_DEPTH,
+		BasicVisualLexicon.NODE_LABEL,
+		BasicVisualLexicon.NODE_LABEL_COLOR,
+		BasicVisualLexicon.NODE_LABEL_FONT_FACE,
+		BasicVisualLexicon.NODE_LABEL_FONT_SIZE
+	};
+
+	private static final VisualProperty<?>[] EDGE_STYLE = {
+		BasicVisualLexicon.EDGE_VISIBLE,
+		BasicVisualLexicon.EDGE_WIDTH,
+		BasicVisualLexicon.EDGE_STROKE_UNSELECTED_PAINT,
+		BasicVisualLexicon.EDGE_LINE_TYPE
+	};
+
+	private static final VisualProperty<?>[] NETWORK_STYLE = {
+		Cy3DVisualLexicon.DETAIL_LEVEL,
+		BasicVisualLexicon.NETWORK_BACKGROUND_PAINT
+	};
+
+	private static class NodeState {
+		double x, y, z;
+		boolean selected;
+		final Object[] style = new Object[NODE_STYLE.length];
+		int generation;
+	}
+
+	private static class EdgeState {
+		boolean selected;
+		final Object[] style = new Object[EDGE_STYLE.length];
+		int generation;
+	}
+
+	private final Map<Long, NodeState> nodeStates = new HashMap<>();
+	private final Map<Long, EdgeState> edgeStates = new HashMap<>();
+	private final Object[] networkStyle = new Object[NETWORK_STYLE.length];
+
+	private CyNetworkViewSnapshot lastSnapshot = null;
+	private int generation = 0;
+
+
+	/**
+	 * Returns the changes since the snapshot passed to the previous call.
+	 */
+	public SnapshotChanges diff(CyNetworkViewSnapshot snapshot) {
+		if(snapshot == lastSnapshot)
+			return SnapshotChanges.NONE;
+
+		boolean first = lastSnapshot == null;
+		lastSnapshot = snapshot;
+		generation++;
+
+		SnapshotChanges changes = new SnapshotChanges(first);
+
+		changes.networkRestyled = updateStyle(snapshot, NETWORK_STYLE, networkStyle);
+
+		diffNodes(snapshot, changes);
+		diffEdges(snapshot, changes);
+		return changes;
+	}
+
+
+	private void diffNodes(CyNetworkViewSnapshot snapshot, SnapshotChanges changes) {
+		for(View<CyNode> nodeView : snapshot.getNodeViews()) {
+			if(nodeView == null)
+				continue;
+
+			Long suid = nodeView.getSUID();
+			double x = nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION);
+			double y = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION);
+			double z = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION);
+			boolean selected = Boolean.TRUE.equals(nodeView.getVisualProperty(BasicVisualLexicon.NODE_SELECTED));
+
+			NodeState state = nodeStates.get(suid);
+			if(state == null) {
+				state = new NodeState();
+				nodeStates.put(suid, state);
+				changes.addedNodes.add(suid);
+				updateStyle(nodeView, NODE_STYLE, state.style);
+			} else {
+				if(state.x != x || state.y != y || state.z != z)
+					changes.movedNodes.add(suid);
+				if(state.selected != selected)
+					changes.selectionChangedNodes.add(suid);
+				if(updateStyle(nodeView, NODE_STYLE, state.style))
+					changes.restyledNodes.add(suid);
+			}
+
+			state.x = x;
+			state.y = y;
+			state.z = z;
+			state.selected = selected;
+			state.generation = generation;
+		}
+
+		if(nodeStates.size() > snapshot.getNodeCount() || !changes.addedNodes.isEmpty()) {
+			Iterator<Map.Entry<Long,NodeState>> iter = nodeStates.entrySet().iterator();
+			while(iter.hasNext()) {
+				Map.Entry<Long,NodeState> entry = iter.next();
+				if(entry.getValue().generation != generation) {
+					iter.remove();
+					changes.removedNodes.add(entry.getKey());
+				}
+			}
+		}
+	}
+
+
+	private void diffEdges(CyNetworkViewSnapshot snapshot, SnapshotChanges changes) {
+		for(View<CyEdge> edgeView : snapshot.getEdgeViews()) {
+			if(edgeView == null)
+				continue;
+
+			Long suid = edgeView.getSUID();
+			boolean selected = Boolean.TRUE.equals(edgeView.getVisualProperty(BasicVisualLexicon.EDGE_SELECTED));
+
+			EdgeState state = edgeStates.get(suid);
+			if(state == null) {
+				state = new EdgeState();
+				edgeStates.put(suid, state);
+				changes.addedEdges.add(suid);
+				updateStyle(edgeView, EDGE_STYLE, state.style);
+			} else {
+				if(state.selected != selected)
+					changes.selectionChangedEdges.add(suid);
+				if(updateStyle(edgeView, EDGE_STYLE, state.style))
+					changes.restyledEdges.add(suid);
+			}
+
+			state.selected = selected;
+			state.generation = generation;
+		}
+
+		if(edgeStates.size() > snapshot.getEdgeCount() || !changes.addedEdges.isEmpty()) {
+			Iterator<Map.Entry<Long,EdgeState>> iter = edgeStates.entrySet().iterator();
+			while(iter.hasNext()) {
+				Map.Entry<Long,EdgeState> entry = iter.next();
+				if(entry.getValue().generation != generation) {
+					iter.remove();
+					changes.removedEdges.add(entry.getKey());
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Reads the given properties of the view into the style array, returns true if any of them is not
+	 * equal to the value that was there.
+	 */
+	private static boolean updateStyle(View<?> view, VisualProperty<?>[] properties, Object[] style) {
+		boolean changed = false;
+		for(int i = 0; i < properties.length; i++) {
+			Object value = view.getVisualProperty(properties[i]);
+			if(!Objects.equals(style[i], value)) {
+				style[i] = value;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,116 @@
+package org.baderlab.cy3d.internal.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Items kept in slots of fixed size chunks. After {@link #publish()} the published chunks are never
+ * written again, a chunk is copied before its first write instead. So one thread can keep changing
+ * the items while other threads read a published array of chunks without locking.
+ *
+ * Publishing costs nothing, a write costs at most one chunk copy per chunk and publish.
+ * The slots of removed items are reused, so a slot index identifies an item as long as it is in the table.
+ */
+class CopyOnWriteSlots<T> {
+
+	static final int CHUNK_BITS = 10;
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private Object[][] chunks = new Object[0][];
+	private boolean chunksPublished = false;
+	/** Chunks that were copied or created since the last publish */
+	private final BitSet writableChunks = new BitSet();
+	private boolean modified = false;
+
+	private final Map<Long,Integer> slots = new HashMap<>();
+	private int[] freeSlots = new int[16];
+	private int freeCount = 0;
+	private int slotCount = 0;
+
+
+	void put(Long key, T item) {
+		Integer slot = slots.get(key);
+		if(slot == null) {
+			slot = allocate();
+			slots.put(key, slot);
+		}
+		chunkForWrite(slot >>> CHUNK_BITS)[slot & CHUNK_MASK] = item;
+	}
+
+	void remove(Long key) {
+		Integer slot = slots.remove(key);
+		if(slot == null)
+			return;
+		chunkForWrite(slot >>> CHUNK_BITS)[slot & CHUNK_MASK] = null;
+		if(freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		}
+		freeSlots[freeCount++] = slot;
+	}
+
+	void clear() {
+		if(chunks.length > 0) {
+			modified = true;
+		}
+		chunks = new Object[0][];
+		chunksPublished = false;
+		writableChunks.clear();
+		slots.clear();
+		freeCount = 0;
+		slotCount = 0;
+	}
+
+	int size() {
+		return slots.size();
+	}
+
+	/**
+	 * If the items changed since the last publish.
+	 */
+	boolean isModified() {
+		return modified;
+	}
+
+	/**
+	 * Returns the chunks, index with {@link #CHUNK_BITS} and {@link #CHUNK_MASK}, empty slots are null.
+	 * Neither the returned array nor the chunks in it are changed afterwards.
+	 */
+	Object[][] publish() {
+		writableChunks.clear();
+		chunksPublished = true;
+		modified = false;
+		return chunks;
+	}
+
+
+	private int allocate() {
+		if(freeCount > 0)
+			return freeSlots[--freeCount];
+
+		int slot = slotCount++;
+		int chunk = slot >>> CHUNK_BITS;
+		if(chunk == chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunk + 1);
+			chunksPublished = false;
+			chunks[chunk] = new Object[CHUNK_SIZE];
+			writableChunks.set(chunk);
+		}
+		return slot;
+	}
+
+	private Object[] chunkForWrite(int chunk) {
+		modified = true;
+		if(!writableChunks.get(chunk)) {
+			if(chunksPublished) {
+				chunks = chunks.clone();
+				chunksPublished = false;
+			}
+			chunks[chunk] = chunks[chunk].clone();
+			writableChunks.set(chunk);
+		}
+		return chunks[chunk];
+	}
+}
@@ -0,0 +1,210 @@
+package org.baderlab.cy3d.internal.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times the stages of each frame and counts what was drawn.
+ *
+ * The {@link org.baderlab.cy3d.internal.graphics.RenderEventListener} times the whole frame, snapshot
+ * creation, edge analysis, the render model and scene index updates and picking, the graphics configuration times every
+ * GraphicsProcedure, and the procedures report their draw calls and the number of nodes, edges and
+ * labels they drew. The last {@link #WINDOW_SIZE} times of each stage are kept to compute percentiles.
+ *
+ * Measurements are taken on the render thread, the getters can be called from any thread.
+ * Times are CPU times on the render thread, GL commands still queued on the GPU at the end
+ * of a stage are not included.
+ */
+public class FrameMetrics {
+
+	public static final String FRAME = "frame";
+	public static final String SNAPSHOT = "snapshot";
+	public static final String EDGE_ANALYSIS = "edge analysis";
+	public static final String RENDER_MODEL = "render model";
+	public static final String SCENE_INDEX = "scene index";
+	public static final String PICKING = "picking";
+
+	/** The number of frames the percentiles are computed over */
+	public static final int WINDOW_SIZE = 240;
+
+
+	/** The last WINDOW_SIZE times of a stage in nanoseconds, oldest overwritten first */
+	private static class RollingTimes {
+		final long[] times = new long[WINDOW_SIZE];
+		int next = 0;
+		int count = 0;
+
+		void add(long time) {
+			times[next] = time;
+			next = (next + 1) % WINDOW_SIZE;
+			count = Math.min(count + 1, WINDOW_SIZE);
+		}
+
+		long[] sorted() {
+			long[] sorted = Arrays.copyOf(times, count);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+	}
+
+
+	private final Map<String,RollingTimes> stages = new LinkedHashMap<>();
+
+	private long frameCount = 0;
+	private long frameStart;
+
+	// counted during the current frame
+	private int drawCalls;
+	private int visibleNodes;
+	private int visibleEdges;
+	private int visibleLabels;
+
+	// the counts of the last finished frame
+	private int lastDrawCalls;
+	private int lastVisibleNodes;
+	private int lastVisibleEdges;
+	private int lastVisibleLabels;
+
+
+	public FrameMetrics() {
+		stages.put(FRAME, new RollingTimes());
+	}
+
+
+	public synchronized void beginFrame() {
+		frameStart = System.nanoTime();
+		drawCalls = 0;
+		visibleNodes = 0;
+		visibleEdges = 0;
+		visibleLabels = 0;
+	}
+
+	public synchronized void endFrame() {
+		stages.get(FRAME).add(System.nanoTime() - frameStart);
+		lastDrawCalls = drawCalls;
+		lastVisibleNodes = visibleNodes;
+		lastVisibleEdges = visibleEdges;
+		lastVisibleLabels = visibleLabels;
+		frameCount++;
+	}
+
+	/**
+	 * Starts timing a stage, pass the result to {@link #stop(String, long)} at the end of the stage.
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	public synchronized void stop(String stage, long start) {
+		stages.computeIfAbsent(stage, s -> new RollingTimes()).add(System.nanoTime() - start);
+	}
+
+	public synchronized void addDrawCalls(int count) {
+		drawCalls += count;
+	}
+
+	public synchronized void addVisibleNodes(int count) {
+		visibleNodes += count;
+	}
+
+	public synchronized void addVisibleEdges(int count) {
+		visibleEdges += count;
+	}
+
+	public synchronized void addVisibleLabels(int count) {
+		visibleLabels += count;
+	}
+
+
+	/**
+	 * Returns the names of the stages that have been timed, the whole frame first and then in the order they were first timed.
+	 */
+	public synchronized List<String> getStages() {
+		return new ArrayList<>(stages.keySet());
+	}
+
+	/**
+	 * Returns the given percentile, between 0 and 100, of the recent times of the stage in milliseconds,
+	 * or NaN if the stage has not been timed.
+	 */
+	public synchronized double getPercentile(String stage, double percentile) {
+		RollingTimes times = stages.get(stage);
+		if(times == null || times.count == 0)
+			return Double.NaN;
+		return percentile(times.sorted(), percentile);
+	}
+
+	/**
+	 * Returns the 50th, 95th and 99th percentiles of the recent times of the stage in milliseconds.
+	 */
+	public synchronized double[] getPercentiles(String stage) {
+		RollingTimes times = stages.get(stage);
+		if(times == null || times.count == 0)
+			return new double[] { Double.NaN, Double.NaN, Double.NaN };
+		long[] sorted = times.sorted();
+		return new double[] { percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99) };
+	}
+
+	/**
+	 * Returns the most recent time of the stage in milliseconds, or NaN if the stage has not been timed.
+	 */
+	public synchronized double getLatest(String stage) {
+		RollingTimes times = stages.get(stage);
+		if(times == null || times.count == 0)
+			return Double.NaN;
+		return times.times[(times.next + WINDOW_SIZE - 1) % WINDOW_SIZE] / 1e6;
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		index = Math.max(0, Math.min(sorted.length - 1, index));
+		return sorted[index] / 1e6;
+	}
+
+	public synchronized long getFrameCount() {
+		return frameCount;
+	}
+
+	public synchronized int getDrawCalls() {
+		return lastDrawCalls;
+	}
+
+	public synchronized int getVisibleNodes() {
+		return lastVisibleNodes;
+	}
+
+	public synchronized int getVisibleEdges() {
+		return lastVisibleEdges;
+	}
+
+	public synchronized int getVisibleLabels() {
+		return lastVisibleLabels;
+	}
+
+	public synchronized void reset() {
+		stages.clear();
+		stages.put(FRAME, new RollingTimes());
+		frameCount = 0;
+	}
+
+	/**
+	 * Returns one line per stage with its percentiles followed by a line with the counts of the last frame.
+	 */
+	public synchronized List<String> getSummary() {
+		List<String> lines = new ArrayList<>();
+		for(String stage : stages.keySet()) {
+			double[] percentiles = getPercentiles(stage);
+			lines.add(String.format("%-30s p50 %6.2f  p95 %6.2f  p99 %6.2f ms", stage, percentiles[0], percentiles[1], percentiles[2]));
+		}
+		lines.add(String.format("draw calls %d  nodes %d  edges %d  labels %d", lastDrawCalls, lastVisibleNodes, lastVisibleEdges, lastVisibleLabels));
+		return lines;
+	}
+
+	@Override
+	public String toString() {
+		return String.join("\n", getSummary());
+	}
+}
@@ -5,6 +5,7 @@ import javax.swing.JComponent;
 
 import org.baderlab.cy3d.internal.camera.OriginOrbitCamera;
 import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
 import org.baderlab.cy3d.internal.geometric.ViewingVolume;
 import org.baderlab.cy3d.internal.task.TaskFactoryListener;
 import org.cytoscape.view.model.CyNetworkViewSnapshot;
@@ -44,6 +45,7 @@ public class GraphicsData {
 	// updated on every frame
 	private GL2 glContext;
 	private CyNetworkViewSnapshot networkSnapshot;
+	private SnapshotChanges snapshotChanges = SnapshotChanges.NONE;
 	
 	private ViewingVolume viewingVolume;
 	
@@ -58,6 +60,10 @@ public class GraphicsData {
 	private TaskFactoryListener taskFactoryListener;
 	private DialogTaskManager taskManager;
 	private EdgeAnalyser edgeAnalyser;
+	private RenderModel renderModel;
+	private SceneIndex sceneIndex;
+	private FrameMetrics frameMetrics;
+	private QualityGovernor qualityGovernor;
 	private PixelConverter pixelConverter;
 	private GraphicsSelectionData selectionData;
 	private PickingData pickingData;
@@ -76,6 +82,10 @@ public class GraphicsData {
 		camera = new OriginOrbitCamera();
 		viewingVolume = new ViewingVolume();
 		edgeAnalyser = new EdgeAnalyser();
+		renderModel = new RenderModel();
+		sceneIndex = new SceneIndex();
+		frameMetrics = new FrameMetrics();
+		qualityGovernor = new QualityGovernor();
 	}
 	
 	
@@ -102,6 +112,17 @@ public class GraphicsData {
 	public CyNetworkViewSnapshot getNetworkSnapshot() {
 		return networkSnapshot;
 	}
+	
+	public void setSnapshotChanges(SnapshotChanges snapshotChanges) {
+		this.snapshotChanges = snapshotChanges;
+	}
+	
+	/**
+	 * The changes between the current network snapshot and the one from the previous frame.
+	 */
+	public SnapshotChanges getSnapshotChanges() {
+		return snapshotChanges;
+	}
 
 	public OriginOrbitCamera getCamera() {
 		return camera;
@@ -162,6 +183,28 @@ public class GraphicsData {
 	public EdgeAnalyser getEdgeAnalyser() {
 		return edgeAnalyser;
 	}
+	
+	/**
+	 * The spatial index of the current network snapshot, used for culling and picking.
+	 */
+	public RenderModel getRenderModel() {
+		return renderModel;
+	}
+	
+	public SceneIndex getSceneIndex() {
+		return sceneIndex;
+	}
+
+	/**
+	 * Timings and counts of the recent frames.
+	 */
+	public QualityGovernor getQualityGovernor() {
+		return qualityGovernor;
+	}
+	
+	public FrameMetrics getFrameMetrics() {
+		return frameMetrics;
+	}
 
 	public PixelConverter getPixelConverter() {
 		return pixelConverter;
@@ -9,11 +9,28 @@ import java.util.Set;
  * of the object that was found under the current mouse cursor.
  */
 public class PickingData {
+	
+	/** Stands for no node or edge being picked, SUIDs are never negative */
+	public static final int NO_INDEX = -1;
+	
 	private Set<Long> pickedNodeIndices;
 	private Set<Long> pickedEdgeIndices;
 	
-	private long closestPickedNodeIndex;
-	private long closestPickedEdgeIndex;
+	/** 
+	 * The closest node and edge are replaced together, hover picking runs on its own
+	 * thread and readers must never see the node from one pick with the edge from another.
+	 */
+	private static class ClosestPicked {
+		final long nodeIndex;
+		final long edgeIndex;
+		
+		ClosestPicked(long nodeIndex, long edgeIndex) {
+			this.nodeIndex = nodeIndex;
+			this.edgeIndex = edgeIndex;
+		}
+	}
+	
+	private volatile ClosestPicked closestPicked = new ClosestPicked(0, 0);
 	
 	public PickingData() {
 		pickedNodeIndices = new LinkedHashSet<Long>();
@@ -37,19 +54,26 @@ public class PickingData {
 	}
 	
 	public long getClosestPickedNodeIndex() {
-		return closestPickedNodeIndex;
+		return closestPicked.nodeIndex;
 	}
 	
 	public void setClosestPickedNodeIndex(long closestPickedNodeIndex) {
-		this.closestPickedNodeIndex = closestPickedNodeIndex;
+		this.closestPicked = new ClosestPicked(closestPickedNodeIndex, closestPicked.edgeIndex);
 	}
 	
 	public long getClosestPickedEdgeIndex() {
-		return closestPickedEdgeIndex;
+		return closestPicked.edgeIndex;
 	}
 	
 	public void setClosestPickedEdgeIndex(long closestPickedEdgeIndex) {
-		this.closestPickedEdgeIndex = closestPickedEdgeIndex;
+		this.closestPicked = new ClosestPicked(closestPicked.nodeIndex, closestPickedEdgeIndex);
+	}
+	
+	/**
+	 * Sets the closest node and edge at the same time.
+	 */
+	public void setClosestPicked(long closestPickedNodeIndex, long closestPickedEdgeIndex) {
+		this.closestPicked = new ClosestPicked(closestPickedNodeIndex, closestPickedEdgeIndex);
 	}
 	
 }
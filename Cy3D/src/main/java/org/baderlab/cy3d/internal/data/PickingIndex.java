@@ -0,0 +1,87 @@
+package org.baderlab.cy3d.internal.data;
+
+import org.baderlab.cy3d.internal.data.SceneIndex.EdgeShape;
+import org.baderlab.cy3d.internal.data.SceneIndex.NodeShape;
+import org.baderlab.cy3d.internal.geometric.Octree;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+
+/**
+ * Ray picking against the latest {@link PickingScene}, for a thread other than the render thread.
+ *
+ * The index has its own trees, which only the thread that owns the index touches. {@link #update(PickingScene)}
+ * brings them up to date by comparing the chunks of the new scene with the chunks of the previous one,
+ * only the shapes in chunks that were copied since are moved.
+ *
+ * Not thread safe, each picking thread needs its own index.
+ */
+public class PickingIndex {
+
+	private final Octree nodeTree = new Octree();
+	private final Octree edgeTree = new Octree();
+	private PickingScene scene = PickingScene.EMPTY;
+
+
+	public void update(PickingScene newScene) {
+		if(newScene == scene)
+			return;
+		updateTree(nodeTree, scene.nodeChunks, newScene.nodeChunks);
+		updateTree(edgeTree, scene.edgeChunks, newScene.edgeChunks);
+		scene = newScene;
+	}
+
+	private static void updateTree(Octree tree, Object[][] previous, Object[][] current) {
+		if(previous == current)
+			return;
+
+		int chunkCount = Math.max(previous.length, current.length);
+		for(int c = 0; c < chunkCount; c++) {
+			Object[] before = c < previous.length ? previous[c] : null;
+			Object[] after  = c < current.length  ? current[c]  : null;
+			if(before == after)
+				continue;
+
+			for(int i = 0; i < CopyOnWriteSlots.CHUNK_SIZE; i++) {
+				Object shapeBefore = before == null ? null : before[i];
+				Object shapeAfter  = after  == null ? null : after[i];
+				if(shapeBefore == shapeAfter)
+					continue;
+
+				long slot = ((long) c << CopyOnWriteSlots.CHUNK_BITS) | i;
+				if(shapeAfter == null) {
+					tree.remove(slot);
+				} else if(shapeAfter instanceof NodeShape) {
+					NodeShape node = (NodeShape) shapeAfter;
+					tree.put(slot, node.x, node.y, node.z, node.boundingRadius);
+				} else {
+					EdgeShape edge = (EdgeShape) shapeAfter;
+					tree.put(slot, edge.x, edge.y, edge.z, edge.boundingRadius);
+				}
+			}
+		}
+	}
+
+	private static Object get(Object[][] chunks, long slot) {
+		return chunks[(int) (slot >>> CopyOnWriteSlots.CHUNK_BITS)][(int) (slot & CopyOnWriteSlots.CHUNK_MASK)];
+	}
+
+
+	/**
+	 * Returns the model SUID of the first node hit by the ray, or {@link PickingData#NO_INDEX}.
+	 */
+	public long pickNode(Vector3 origin, Vector3 direction) {
+		final Vector3 d = direction.normalize();
+		final Object[][] chunks = scene.nodeChunks;
+		long slot = nodeTree.raycast(origin, d, s -> ((NodeShape) get(chunks, s)).intersect(origin, d));
+		return slot == Octree.NO_ITEM ? PickingData.NO_INDEX : ((NodeShape) get(chunks, slot)).modelSuid;
+	}
+
+	/**
+	 * Returns the model SUID of the first edge hit by the ray, or {@link PickingData#NO_INDEX}.
+	 */
+	public long pickEdge(Vector3 origin, Vector3 direction) {
+		final Vector3 d = direction.normalize();
+		final Object[][] chunks = scene.edgeChunks;
+		long slot = edgeTree.raycast(origin, d, s -> ((EdgeShape) get(chunks, s)).intersect(origin, d));
+		return slot == Octree.NO_ITEM ? PickingData.NO_INDEX : ((EdgeShape) get(chunks, slot)).modelSuid;
+	}
+}
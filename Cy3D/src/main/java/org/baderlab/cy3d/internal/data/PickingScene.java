@@ -0,0 +1,22 @@
+package org.baderlab.cy3d.internal.data;
+
+/**
+ * An immutable copy of the visible nodes and edges of the {@link SceneIndex}, published after
+ * every update that changed them, for picking on other threads without holding up the render thread.
+ *
+ * The shapes are kept in the chunks of {@link CopyOnWriteSlots}, an update only copies the chunks
+ * it changed and the new scene shares all the other chunks with the previous one. A {@link PickingIndex}
+ * uses that to move only the shapes in the changed chunks.
+ */
+public final class PickingScene {
+
+	public static final PickingScene EMPTY = new PickingScene(new Object[0][], new Object[0][]);
+
+	final Object[][] nodeChunks; // SceneIndex.NodeShape
+	final Object[][] edgeChunks; // SceneIndex.EdgeShape
+
+	PickingScene(Object[][] nodeChunks, Object[][] edgeChunks) {
+		this.nodeChunks = nodeChunks;
+		this.edgeChunks = edgeChunks;
+	}
+}
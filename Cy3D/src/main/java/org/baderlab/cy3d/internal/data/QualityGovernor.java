@@ -0,0 +1,152 @@
+package org.baderlab.cy3d.internal.data;
+
+import org.baderlab.cy3d.internal.camera.CameraPosition;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+
+/**
+ * Lowers the rendering quality while the camera or the nodes are moving and restores it when they stop.
+ *
+ * While the camera moves nodes are drawn at low detail, edges are drawn as lines and edges that are
+ * only a few pixels long on the screen are not drawn at all, and labels are hidden. The length below
+ * which edges are culled adapts to the frame time so that interaction stays near the target frame rate.
+ * Once the camera has been still for a moment the quality is refined back one step per frame, nodes
+ * first, then edges, then labels. The renderer asks for another frame until the quality is back to full.
+ *
+ * Set -Dcy3d.adaptiveQuality=false to always render at full quality, -Dcy3d.targetFps sets the
+ * target frame rate during motion, the default is 30.
+ */
+public class QualityGovernor {
+
+	public static final int DEFAULT_TARGET_FPS = 30;
+
+	public enum Level {
+		/** The camera is moving, everything is at its cheapest */
+		MOTION,
+		/** Nodes are back at full detail */
+		REFINE_NODES,
+		/** Edges are back to full meshes */
+		REFINE_EDGES,
+		/** Labels are back */
+		FULL
+	}
+
+	/** How long the camera has to be still before refining starts */
+	private static final long SETTLE_NANOS = 100_000_000L;
+
+	private static final double MIN_CULL_PIXELS = 2;
+	private static final double MAX_CULL_PIXELS = 64;
+	private static final double CULL_STEP = 1.5;
+
+	private static final Level[] LEVELS = Level.values();
+
+	private final boolean enabled;
+	private final double targetFrameMillis;
+
+	private Level level = Level.FULL;
+	private long lastMotion;
+	private double cullPixels = MIN_CULL_PIXELS;
+
+	private boolean cameraMoved = false;
+	private boolean hasLastCamera = false;
+	private final Vector3 lastPosition = new Vector3();
+	private final Vector3 lastTarget = new Vector3();
+	private final Vector3 lastUp = new Vector3();
+
+
+	public QualityGovernor() {
+		this(!"false".equalsIgnoreCase(System.getProperty("cy3d.adaptiveQuality")), Integer.getInteger("cy3d.targetFps", DEFAULT_TARGET_FPS));
+	}
+
+	public QualityGovernor(boolean enabled, int targetFps) {
+		this.enabled = enabled;
+		this.targetFrameMillis = 1000.0 / Math.max(1, targetFps);
+	}
+
+
+	/**
+	 * Called at the start of every frame once the camera is in place for the frame.
+	 */
+	public void beginFrame(CameraPosition camera) {
+		beginFrame(camera, false);
+	}
+
+	/**
+	 * @param nodesMoving If the nodes are being animated to new positions, which counts as motion like the camera moving.
+	 */
+	public void beginFrame(CameraPosition camera, boolean nodesMoving) {
+		Vector3 position = camera.getPosition();
+		Vector3 target = camera.getTarget();
+		Vector3 up = camera.getUp();
+		cameraMoved = hasLastCamera && (!position.equals(lastPosition) || !target.equals(lastTarget) || !up.equals(lastUp));
+		lastPosition.set(position);
+		lastTarget.set(target);
+		lastUp.set(up);
+		hasLastCamera = true;
+
+		if(!enabled)
+			return;
+
+		boolean moved = nodesMoving || cameraMoved;
+		long now = System.nanoTime();
+		if(moved) {
+			lastMotion = now;
+			level = Level.MOTION;
+		} else if(level != Level.FULL && now - lastMotion >= SETTLE_NANOS) {
+			level = LEVELS[level.ordinal() + 1];
+		}
+	}
+
+	/**
+	 * Called at the end of every frame with the time it took, adapts the culling during motion.
+	 *
+	 * @return true if another frame should be drawn, either to notice that the camera has
+	 * stopped or to refine the quality further.
+	 */
+	public boolean endFrame(double frameMillis) {
+		if(level == Level.MOTION && !Double.isNaN(frameMillis)) {
+			if(frameMillis > targetFrameMillis)
+				cullPixels = Math.min(MAX_CULL_PIXELS, cullPixels * CULL_STEP);
+			else if(frameMillis < targetFrameMillis / 2)
+				cullPixels = Math.max(MIN_CULL_PIXELS, cullPixels / CULL_STEP);
+		}
+		return level != Level.FULL;
+	}
+
+
+	/**
+	 * If the camera is not where it was in the previous frame, tracked even when adaptive quality is off.
+	 */
+	public boolean isCameraMoved() {
+		return cameraMoved;
+	}
+
+	public Level getLevel() {
+		return level;
+	}
+
+	public boolean isLowDetailNodes() {
+		return level == Level.MOTION;
+	}
+
+	public boolean isLineEdges() {
+		return level.compareTo(Level.REFINE_EDGES) < 0;
+	}
+
+	public boolean isLabelsShown() {
+		return level == Level.FULL;
+	}
+
+	/**
+	 * Edges shorter than this on the screen are not drawn while they are drawn as lines.
+	 */
+	public double getEdgeCullPixels() {
+		return cullPixels;
+	}
+
+	/**
+	 * Nodes with a smaller radius on the screen are drawn as points while at low detail.
+	 */
+	public double getNodePointPixels() {
+		return cullPixels / 4;
+	}
+}
@@ -0,0 +1,806 @@
+package org.baderlab.cy3d.internal.data;
+
+import java.awt.Color;
+import java.awt.Paint;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.baderlab.cy3d.internal.cytoscape.edges.AugmentedEdgeContainer;
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.rendering.RenderNodesProcedure;
+import org.baderlab.cy3d.internal.rendering.shapes.ScalableShapeDrawer.Shape;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.SnapshotEdgeInfo;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.cytoscape.view.presentation.property.LineTypeVisualProperty;
+
+/**
+ * The visual properties of the nodes and edges that the renderer uses, kept in primitive arrays
+ * so that the procedures can loop over them without map lookups and boxing.
+ *
+ * Node i has its position at positions[3*i] to positions[3*i+2] in OpenGL coordinates, its shape
+ * scale in the same place in the scales array and its fill color as red, green, blue in the colors
+ * array. Edges have their colors laid out the same way, and their end points as node indices.
+ * Indices are dense, 0 to count - 1, but they are not stable: removing an element moves the
+ * last one into its place. Look elements up by view SUID with {@link #indexOfNode(long)} and
+ * {@link #indexOfEdge(long)}.
+ *
+ * The model is built from the first snapshot and then updated from {@link SnapshotChanges}, only
+ * the elements that changed are read from their views. The getters return the arrays themselves,
+ * they must not be modified and may be replaced by the next update.
+ *
+ * Nodes that move, eg when a layout commits its positions, are animated from where they were drawn to
+ * their new positions instead of jumping there. The animation runs in the position array over the frames
+ * drawn during -Dcy3d.layoutAnimation milliseconds (default 500, 0 turns it off), the view model only ever
+ * holds the final positions. Edges follow their end points by shifting the points of their final arc.
+ * Removing nodes or edges while nodes are animating finishes the animation at once.
+ *
+ * Not thread safe, it is updated and read on the render thread.
+ */
+public class RenderModel {
+
+	public static final int NO_INDEX = -1;
+
+	/** Flags of nodes and edges */
+	public static final int VISIBLE  = 1;
+	public static final int SELECTED = 2;
+
+	/** Edge line types */
+	public static final int LINE_SOLID = 0;
+	public static final int LINE_DASH  = 1;
+	public static final int LINE_DOT   = 2;
+
+	/** The color of nodes and edges that don't have one */
+	public static final float DEFAULT_COLOR = 0.67f;
+
+	/** The width of edges that don't have one, the edge procedures scale their radius by width / 2 */
+	public static final float DEFAULT_EDGE_WIDTH = 2.0f;
+
+	/** How long moved nodes take to get to their new positions */
+	public static final int DEFAULT_ANIMATION_MILLIS = 500;
+
+	private static final Shape[] SHAPES = Shape.values();
+
+	private static final int INITIAL_CAPACITY = 16;
+
+
+	/**
+	 * Maps SUIDs to indices without boxing, open addressing with linear probing.
+	 */
+	private static class SuidIndex {
+		private static final long EMPTY = Long.MIN_VALUE; // not a valid SUID
+
+		private long[] keys;
+		private int[] values;
+		private int size;
+
+		SuidIndex() {
+			allocate(INITIAL_CAPACITY);
+		}
+
+		private void allocate(int capacity) {
+			keys = new long[capacity];
+			values = new int[capacity];
+			Arrays.fill(keys, EMPTY);
+			size = 0;
+		}
+
+		private static int hash(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+
+		int get(long key) {
+			int mask = keys.length - 1;
+			for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+				long k = keys[slot];
+				if(k == key)
+					return values[slot];
+				if(k == EMPTY)
+					return NO_INDEX;
+			}
+		}
+
+		void put(long key, int value) {
+			if((size + 1) * 2 > keys.length) {
+				long[] oldKeys = keys;
+				int[] oldValues = values;
+				allocate(keys.length * 2);
+				for(int i = 0; i < oldKeys.length; i++) {
+					if(oldKeys[i] != EMPTY)
+						put(oldKeys[i], oldValues[i]);
+				}
+			}
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			while(keys[slot] != EMPTY && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			if(keys[slot] == EMPTY) {
+				keys[slot] = key;
+				size++;
+			}
+			values[slot] = value;
+		}
+
+		void remove(long key) {
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			while(keys[slot] != key) {
+				if(keys[slot] == EMPTY)
+					return;
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = EMPTY;
+			size--;
+
+			// Shift the following entries back so that lookups don't stop at the gap
+			int gap = slot;
+			for(int s = (gap + 1) & mask; keys[s] != EMPTY; s = (s + 1) & mask) {
+				int ideal = hash(keys[s]) & mask;
+				if(((s - ideal) & mask) >= ((s - gap) & mask)) {
+					keys[gap] = keys[s];
+					values[gap] = values[s];
+					keys[s] = EMPTY;
+					gap = s;
+				}
+			}
+		}
+
+		void clear() {
+			Arrays.fill(keys, EMPTY);
+			size = 0;
+		}
+	}
+
+
+	// Nodes
+	private int nodeCount = 0;
+	private long[] nodeSuids = new long[INITIAL_CAPACITY];
+	private long[] nodeModelSuids = new long[INITIAL_CAPACITY];
+	private float[] nodePositions = new float[INITIAL_CAPACITY * 3];
+	private float[] nodeScales = new float[INITIAL_CAPACITY * 3];
+	private float[] nodeColors = new float[INITIAL_CAPACITY * 3];
+	private int[] nodeShapes = new int[INITIAL_CAPACITY];
+	private int[] nodeFlags = new int[INITIAL_CAPACITY];
+	private final SuidIndex nodeIndex = new SuidIndex();
+
+	// Edges
+	private int edgeCount = 0;
+	private long[] edgeSuids = new long[INITIAL_CAPACITY];
+	private long[] edgeModelSuids = new long[INITIAL_CAPACITY];
+	private long[] edgeSourceSuids = new long[INITIAL_CAPACITY];
+	private long[] edgeTargetSuids = new long[INITIAL_CAPACITY];
+	private int[] edgeSources = new int[INITIAL_CAPACITY];
+	private int[] edgeTargets = new int[INITIAL_CAPACITY];
+	private float[] edgeColors = new float[INITIAL_CAPACITY * 3];
+	private float[] edgeWidths = new float[INITIAL_CAPACITY];
+	private int[] edgeLineTypes = new int[INITIAL_CAPACITY];
+	private int[] edgeFlags = new int[INITIAL_CAPACITY];
+	private Vector3[][] edgeCoordinates = new Vector3[INITIAL_CAPACITY][];
+	private final SuidIndex edgeIndex = new SuidIndex();
+
+	// Animation, the node positions above are where the nodes are drawn, the targets are where the snapshot has them
+	private final long animationNanos;
+	private boolean animating = false;
+	private boolean animationFrame = false;
+	private long animationStart;
+	private float animationMargin = 0;
+	private float[] animationStarts = new float[0];
+	private float[] animationTargets = new float[0];
+	private final BitSet animatedNodeSet = new BitSet();
+	private int[] animatedNodes = new int[INITIAL_CAPACITY];
+	private int animatedNodeCount = 0;
+	private int[] animatedEdges = new int[INITIAL_CAPACITY];
+	private int animatedEdgeCount = 0;
+	private Vector3[][] animatedEdgeCoordinates = new Vector3[INITIAL_CAPACITY][];
+
+
+	public RenderModel() {
+		this(Integer.getInteger("cy3d.layoutAnimation", DEFAULT_ANIMATION_MILLIS));
+	}
+
+	/**
+	 * @param animationMillis How long moved nodes take to get to their new positions, 0 to move them at once.
+	 */
+	public RenderModel(int animationMillis) {
+		this.animationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, animationMillis));
+	}
+
+
+	/**
+	 * Brings the model up to date with the given snapshot.
+	 *
+	 * @param changes the changes since the snapshot passed to the previous call
+	 * @param edgeAnalyser Provides the points along the edges, the model keeps the arrays of the edge containers.
+	 */
+	public void update(CyNetworkViewSnapshot networkView, SnapshotChanges changes, EdgeAnalyser edgeAnalyser) {
+		animationFrame = false;
+		boolean animationStarted = false;
+
+		if(changes.isFull()) {
+			stopAnimation();
+			nodeCount = 0;
+			edgeCount = 0;
+			nodeIndex.clear();
+			edgeIndex.clear();
+			for(View<CyNode> nodeView : networkView.getNodeViews()) {
+				if(nodeView != null) {
+					putNode(networkView, nodeView);
+				}
+			}
+			for(View<CyEdge> edgeView : networkView.getEdgeViews()) {
+				if(edgeView != null) {
+					putEdge(networkView, edgeView);
+				}
+			}
+		} else {
+			// Removing moves elements to other indices, the animation doesn't follow them
+			boolean removing = !changes.getRemovedNodes().isEmpty() || !changes.getRemovedEdges().isEmpty();
+			if(removing) {
+				stopAnimation();
+			}
+
+			for(Long suid : changes.getRemovedEdges()) {
+				removeEdge(suid);
+			}
+			boolean nodesMoved = false;
+			for(Long suid : changes.getRemovedNodes()) {
+				nodesMoved |= removeNode(suid);
+			}
+			updateNodes(networkView, changes.getAddedNodes());
+			if(animationNanos > 0 && !removing && !changes.getMovedNodes().isEmpty()) {
+				startAnimation(changes.getMovedNodes());
+				animationStarted = true;
+			}
+			updateNodes(networkView, changes.getMovedNodes());
+			updateNodes(networkView, changes.getRestyledNodes());
+			updateNodes(networkView, changes.getSelectionChangedNodes());
+
+			// Edges keep the indices of their end points
+			if(nodesMoved) {
+				for(int e = 0; e < edgeCount; e++) {
+					edgeSources[e] = nodeIndex.get(edgeSourceSuids[e]);
+					edgeTargets[e] = nodeIndex.get(edgeTargetSuids[e]);
+				}
+			}
+			updateEdges(networkView, changes.getAddedEdges());
+			updateEdges(networkView, changes.getRestyledEdges());
+			updateEdges(networkView, changes.getSelectionChangedEdges());
+		}
+
+		if(changes.hasEdgeChanges()) {
+			updateEdgeCoordinates(networkView, changes, edgeAnalyser);
+		}
+
+		if(animating) {
+			if(animationStarted || changes.hasEdgeChanges()) {
+				findAnimatedEdges();
+			}
+			animate(System.nanoTime());
+		}
+	}
+
+
+	private void updateNodes(CyNetworkViewSnapshot networkView, Set<Long> suids) {
+		for(Long suid : suids) {
+			View<CyNode> nodeView = networkView.getNodeView(suid);
+			if(nodeView != null) {
+				putNode(networkView, nodeView);
+			}
+		}
+	}
+
+	private void putNode(CyNetworkViewSnapshot networkView, View<CyNode> nodeView) {
+		long suid = nodeView.getSUID();
+		int i = nodeIndex.get(suid);
+		if(i == NO_INDEX) {
+			i = nodeCount++;
+			ensureNodeCapacity(nodeCount);
+			nodeIndex.put(suid, i);
+			nodeSuids[i] = suid;
+			nodeModelSuids[i] = networkView.getNodeInfo(nodeView).getModelSUID();
+		}
+
+		float distanceScale = GraphicsData.DISTANCE_SCALE;
+		float x =  nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION).floatValue() / distanceScale;
+		float y = -nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION).floatValue() / distanceScale;
+		float z =  nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION).floatValue() / distanceScale;
+		if(animating) {
+			animationTargets[i*3]   = x;
+			animationTargets[i*3+1] = y;
+			animationTargets[i*3+2] = z;
+		}
+		if(!animating || !animatedNodeSet.get(i)) {
+			nodePositions[i*3]   = x;
+			nodePositions[i*3+1] = y;
+			nodePositions[i*3+2] = z;
+		}
+
+		Double width  = nodeView.getVisualProperty(BasicVisualLexicon.NODE_WIDTH);
+		Double height = nodeView.getVisualProperty(BasicVisualLexicon.NODE_HEIGHT);
+		Double depth  = nodeView.getVisualProperty(BasicVisualLexicon.NODE_DEPTH);
+
+		// Avoid flat pancake nodes
+		if(depth == null || depth.doubleValue() == 0.0) {
+			depth = width;
+		}
+
+		float radius = RenderNodesProcedure.NODE_SIZE_RADIUS;
+		float sizeScale = RenderNodesProcedure.NODE_SIZE_SCALE;
+		if(width != null && height != null && depth != null) {
+			nodeScales[i*3]   = radius * width.floatValue() / sizeScale;
+			nodeScales[i*3+1] = radius * height.floatValue() / sizeScale;
+			nodeScales[i*3+2] = radius * depth.floatValue() / sizeScale;
+		} else {
+			nodeScales[i*3] = nodeScales[i*3+1] = nodeScales[i*3+2] = radius;
+		}
+
+		setColor(nodeColors, i, nodeView.getVisualProperty(BasicVisualLexicon.NODE_FILL_COLOR));
+		nodeShapes[i] = RenderNodesProcedure.mapNodeShape(nodeView.getVisualProperty(BasicVisualLexicon.NODE_SHAPE)).ordinal();
+		nodeFlags[i] = flags(nodeView.getVisualProperty(BasicVisualLexicon.NODE_VISIBLE), nodeView.getVisualProperty(BasicVisualLexicon.NODE_SELECTED));
+	}
+
+	/**
+	 * @return true if another node was moved into the place of the removed one
+	 */
+	private boolean removeNode(long suid) {
+		int i = nodeIndex.get(suid);
+		if(i == NO_INDEX)
+			return false;
+		nodeIndex.remove(suid);
+
+		int last = --nodeCount;
+		if(i == last)
+			return false;
+
+		nodeSuids[i] = nodeSuids[last];
+		nodeModelSuids[i] = nodeModelSuids[last];
+		System.arraycopy(nodePositions, last * 3, nodePositions, i * 3, 3);
+		System.arraycopy(nodeScales, last * 3, nodeScales, i * 3, 3);
+		System.arraycopy(nodeColors, last * 3, nodeColors, i * 3, 3);
+		nodeShapes[i] = nodeShapes[last];
+		nodeFlags[i] = nodeFlags[last];
+		nodeIndex.put(nodeSuids[i], i);
+		return true;
+	}
+
+	private void ensureNodeCapacity(int count) {
+		if(count <= nodeSuids.length)
+			return;
+		int capacity = Math.max(count, nodeSuids.length * 2);
+		nodeSuids = Arrays.copyOf(nodeSuids, capacity);
+		nodeModelSuids = Arrays.copyOf(nodeModelSuids, capacity);
+		nodePositions = Arrays.copyOf(nodePositions, capacity * 3);
+		nodeScales = Arrays.copyOf(nodeScales, capacity * 3);
+		nodeColors = Arrays.copyOf(nodeColors, capacity * 3);
+		nodeShapes = Arrays.copyOf(nodeShapes, capacity);
+		nodeFlags = Arrays.copyOf(nodeFlags, capacity);
+		if(animating) {
+			animationStarts = Arrays.copyOf(animationStarts, capacity * 3);
+			animationTargets = Arrays.copyOf(animationTargets, capacity * 3);
+		}
+	}
+
+
+	private void updateEdges(CyNetworkViewSnapshot networkView, Set<Long> suids) {
+		for(Long suid : suids) {
+			View<CyEdge> edgeView = networkView.getEdgeView(suid);
+			if(edgeView != null) {
+				putEdge(networkView, edgeView);
+			}
+		}
+	}
+
+	private void putEdge(CyNetworkViewSnapshot networkView, View<CyEdge> edgeView) {
+		long suid = edgeView.getSUID();
+		int i = edgeIndex.get(suid);
+		if(i == NO_INDEX) {
+			i = edgeCount++;
+			ensureEdgeCapacity(edgeCount);
+			edgeIndex.put(suid, i);
+			SnapshotEdgeInfo edgeInfo = networkView.getEdgeInfo(edgeView);
+			edgeSuids[i] = suid;
+			edgeModelSuids[i] = edgeInfo.getModelSUID();
+			edgeSourceSuids[i] = edgeInfo.getSourceViewSUID();
+			edgeTargetSuids[i] = edgeInfo.getTargetViewSUID();
+			edgeSources[i] = nodeIndex.get(edgeSourceSuids[i]);
+			edgeTargets[i] = nodeIndex.get(edgeTargetSuids[i]);
+			edgeCoordinates[i] = null;
+		}
+
+		Number width = edgeView.getVisualProperty(BasicVisualLexicon.EDGE_WIDTH);
+		edgeWidths[i] = width == null ? DEFAULT_EDGE_WIDTH : width.floatValue();
+		setColor(edgeColors, i, edgeView.getVisualProperty(BasicVisualLexicon.EDGE_STROKE_UNSELECTED_PAINT));
+
+		Object lineType = edgeView.getVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE);
+		if(lineType == LineTypeVisualProperty.EQUAL_DASH)
+			edgeLineTypes[i] = LINE_DASH;
+		else if(lineType == LineTypeVisualProperty.DOT)
+			edgeLineTypes[i] = LINE_DOT;
+		else
+			edgeLineTypes[i] = LINE_SOLID;
+
+		edgeFlags[i] = flags(edgeView.getVisualProperty(BasicVisualLexicon.EDGE_VISIBLE), edgeView.getVisualProperty(BasicVisualLexicon.EDGE_SELECTED));
+	}
+
+	private void removeEdge(long suid) {
+		int i = edgeIndex.get(suid);
+		if(i == NO_INDEX)
+			return;
+		edgeIndex.remove(suid);
+
+		int last = --edgeCount;
+		if(i != last) {
+			edgeSuids[i] = edgeSuids[last];
+			edgeModelSuids[i] = edgeModelSuids[last];
+			edgeSourceSuids[i] = edgeSourceSuids[last];
+			edgeTargetSuids[i] = edgeTargetSuids[last];
+			edgeSources[i] = edgeSources[last];
+			edgeTargets[i] = edgeTargets[last];
+			System.arraycopy(edgeColors, last * 3, edgeColors, i * 3, 3);
+			edgeWidths[i] = edgeWidths[last];
+			edgeLineTypes[i] = edgeLineTypes[last];
+			edgeFlags[i] = edgeFlags[last];
+			edgeCoordinates[i] = edgeCoordinates[last];
+			edgeIndex.put(edgeSuids[i], i);
+		}
+		edgeCoordinates[last] = null;
+	}
+
+	private void ensureEdgeCapacity(int count) {
+		if(count <= edgeSuids.length)
+			return;
+		int capacity = Math.max(count, edgeSuids.length * 2);
+		edgeSuids = Arrays.copyOf(edgeSuids, capacity);
+		edgeModelSuids = Arrays.copyOf(edgeModelSuids, capacity);
+		edgeSourceSuids = Arrays.copyOf(edgeSourceSuids, capacity);
+		edgeTargetSuids = Arrays.copyOf(edgeTargetSuids, capacity);
+		edgeSources = Arrays.copyOf(edgeSources, capacity);
+		edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+		edgeColors = Arrays.copyOf(edgeColors, capacity * 3);
+		edgeWidths = Arrays.copyOf(edgeWidths, capacity);
+		edgeLineTypes = Arrays.copyOf(edgeLineTypes, capacity);
+		edgeFlags = Arrays.copyOf(edgeFlags, capacity);
+		edgeCoordinates = Arrays.copyOf(edgeCoordinates, capacity);
+		animatedEdgeCoordinates = Arrays.copyOf(animatedEdgeCoordinates, capacity);
+	}
+
+	private void updateEdgeCoordinates(CyNetworkViewSnapshot networkView, SnapshotChanges changes, EdgeAnalyser edgeAnalyser) {
+		// The analyser caches the containers, after the first snapshot only the arrays it recalculated are picked up
+		Collection<AugmentedEdgeContainer> edgeContainers = edgeAnalyser.getAnalyzedEdges(networkView, changes, GraphicsData.DISTANCE_SCALE);
+		if(changes.isFull()) {
+			Arrays.fill(edgeCoordinates, 0, edgeCount, null);
+		} else {
+			edgeContainers = edgeAnalyser.getRecalculatedEdges();
+		}
+		for(AugmentedEdgeContainer container : edgeContainers) {
+			int i = edgeIndex.get(container.getEdgeView().getSUID());
+			if(i != NO_INDEX) {
+				Vector3[] coordinates = container.isSufficientLength() ? container.getCoordinates() : null;
+				edgeCoordinates[i] = coordinates != null && coordinates.length > 1 ? coordinates : null;
+			}
+		}
+	}
+
+
+	/**
+	 * Starts animating the given nodes from where they are drawn now, nodes that are animating already
+	 * start again from where they are. Must be called before the moved nodes are read from their views.
+	 */
+	private void startAnimation(Set<Long> movedNodes) {
+		if(!animating) {
+			int capacity = nodeSuids.length * 3;
+			if(animationTargets.length < capacity) {
+				animationStarts = new float[capacity];
+				animationTargets = new float[capacity];
+			}
+			// the targets of the nodes that don't move are where they are
+			System.arraycopy(nodePositions, 0, animationTargets, 0, nodeCount * 3);
+			animatedNodeCount = 0;
+			animatedNodeSet.clear();
+			animating = true;
+		}
+
+		for(int k = 0; k < animatedNodeCount; k++) {
+			int i = animatedNodes[k];
+			System.arraycopy(nodePositions, i * 3, animationStarts, i * 3, 3);
+		}
+		for(Long suid : movedNodes) {
+			int i = nodeIndex.get(suid);
+			if(i != NO_INDEX && !animatedNodeSet.get(i)) {
+				animatedNodeSet.set(i);
+				if(animatedNodeCount == animatedNodes.length) {
+					animatedNodes = Arrays.copyOf(animatedNodes, animatedNodeCount * 2);
+				}
+				animatedNodes[animatedNodeCount++] = i;
+				System.arraycopy(nodePositions, i * 3, animationStarts, i * 3, 3);
+			}
+		}
+		animationStart = System.nanoTime();
+	}
+
+	/**
+	 * Finds the edges with an animated end point, their arcs have to be shifted along with the nodes.
+	 */
+	private void findAnimatedEdges() {
+		for(int k = 0; k < animatedEdgeCount; k++) {
+			animatedEdgeCoordinates[animatedEdges[k]] = null;
+		}
+		animatedEdgeCount = 0;
+		for(int e = 0; e < edgeCount; e++) {
+			int source = edgeSources[e];
+			int target = edgeTargets[e];
+			if((source != NO_INDEX && animatedNodeSet.get(source)) || (target != NO_INDEX && animatedNodeSet.get(target))) {
+				if(animatedEdgeCount == animatedEdges.length) {
+					animatedEdges = Arrays.copyOf(animatedEdges, animatedEdgeCount * 2);
+				}
+				animatedEdges[animatedEdgeCount++] = e;
+			}
+		}
+	}
+
+	/**
+	 * Moves the animated nodes and edges to where they are at the given time, finishes the animation when it is over.
+	 */
+	private void animate(long now) {
+		animationFrame = true;
+		double t = Math.min(1, (now - animationStart) / (double) animationNanos);
+		float s = (float) (t * t * (3 - 2 * t)); // eases in and out
+
+		float maxDistanceSquared = 0;
+		float[] starts = animationStarts;
+		float[] targets = animationTargets;
+		for(int k = 0; k < animatedNodeCount; k++) {
+			int i = animatedNodes[k] * 3;
+			float x = starts[i]   + (targets[i]   - starts[i])   * s;
+			float y = starts[i+1] + (targets[i+1] - starts[i+1]) * s;
+			float z = starts[i+2] + (targets[i+2] - starts[i+2]) * s;
+			nodePositions[i]   = x;
+			nodePositions[i+1] = y;
+			nodePositions[i+2] = z;
+			float dx = targets[i] - x, dy = targets[i+1] - y, dz = targets[i+2] - z;
+			maxDistanceSquared = Math.max(maxDistanceSquared, dx * dx + dy * dy + dz * dz);
+		}
+		animationMargin = (float) Math.sqrt(maxDistanceSquared);
+
+		for(int k = 0; k < animatedEdgeCount; k++) {
+			shiftEdge(animatedEdges[k]);
+		}
+
+		if(t >= 1) {
+			stopAnimation();
+		}
+	}
+
+	/**
+	 * Shifts the points of the edge's final arc by the offsets of its end points from their final positions,
+	 * blended along the arc, so that it stays attached to the nodes and keeps its shape.
+	 */
+	private void shiftEdge(int e) {
+		Vector3[] arc = edgeCoordinates[e];
+		if(arc == null) {
+			animatedEdgeCoordinates[e] = null;
+			return;
+		}
+		Vector3[] shifted = animatedEdgeCoordinates[e];
+		if(shifted == null || shifted.length != arc.length) {
+			shifted = new Vector3[arc.length];
+			for(int k = 0; k < arc.length; k++) {
+				shifted[k] = new Vector3();
+			}
+			animatedEdgeCoordinates[e] = shifted;
+		}
+
+		int source = edgeSources[e] * 3;
+		int target = edgeTargets[e] * 3;
+		float sx = 0, sy = 0, sz = 0, tx = 0, ty = 0, tz = 0;
+		if(source >= 0) {
+			sx = nodePositions[source]   - animationTargets[source];
+			sy = nodePositions[source+1] - animationTargets[source+1];
+			sz = nodePositions[source+2] - animationTargets[source+2];
+		}
+		if(target >= 0) {
+			tx = nodePositions[target]   - animationTargets[target];
+			ty = nodePositions[target+1] - animationTargets[target+1];
+			tz = nodePositions[target+2] - animationTargets[target+2];
+		}
+
+		int last = arc.length - 1;
+		for(int k = 0; k <= last; k++) {
+			float f = last == 0 ? 0 : (float) k / last;
+			Vector3 point = arc[k];
+			shifted[k].set(point.x() + sx + (tx - sx) * f, point.y() + sy + (ty - sy) * f, point.z() + sz + (tz - sz) * f);
+		}
+	}
+
+	/**
+	 * Puts the animated nodes at their final positions.
+	 */
+	private void stopAnimation() {
+		if(!animating)
+			return;
+		for(int k = 0; k < animatedNodeCount; k++) {
+			int i = animatedNodes[k];
+			System.arraycopy(animationTargets, i * 3, nodePositions, i * 3, 3);
+		}
+		for(int k = 0; k < animatedEdgeCount; k++) {
+			animatedEdgeCoordinates[animatedEdges[k]] = null;
+		}
+		animatedNodeCount = 0;
+		animatedEdgeCount = 0;
+		animatedNodeSet.clear();
+		animationMargin = 0;
+		animating = false;
+	}
+
+
+	private static void setColor(float[] colors, int i, Paint paint) {
+		if(paint instanceof Color) {
+			Color color = (Color) paint;
+			colors[i*3]   = color.getRed()   / 255f;
+			colors[i*3+1] = color.getGreen() / 255f;
+			colors[i*3+2] = color.getBlue()  / 255f;
+		} else {
+			colors[i*3] = colors[i*3+1] = colors[i*3+2] = DEFAULT_COLOR;
+		}
+	}
+
+	private static int flags(Boolean visible, Boolean selected) {
+		return (Boolean.TRUE.equals(visible) ? VISIBLE : 0) | (Boolean.TRUE.equals(selected) ? SELECTED : 0);
+	}
+
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return the index of the node with the given view SUID, or {@link #NO_INDEX}
+	 */
+	public int indexOfNode(long viewSuid) {
+		return nodeIndex.get(viewSuid);
+	}
+
+	public long getNodeSuid(int node) {
+		return nodeSuids[node];
+	}
+
+	public long getNodeModelSuid(int node) {
+		return nodeModelSuids[node];
+	}
+
+	/** x, y, z of each node in OpenGL coordinates, where the node is drawn in this frame */
+	public float[] getNodePositions() {
+		return nodePositions;
+	}
+
+	/** x, y, z of each node in OpenGL coordinates, where the snapshot has the node. Only differs from {@link #getNodePositions()} while animating. */
+	public float[] getNodeTargetPositions() {
+		return animating ? animationTargets : nodePositions;
+	}
+
+	/** True while moved nodes are on their way to their new positions */
+	public boolean isAnimating() {
+		return animating;
+	}
+
+	/**
+	 * True if the nodes were animated by the last update, this includes the update that finished the animation.
+	 * Anything that caches node or edge positions has to be refreshed for such frames.
+	 */
+	public boolean isAnimationFrame() {
+		return animationFrame;
+	}
+
+	/** No node is drawn further than this from where the snapshot has it, 0 when not animating */
+	public float getAnimationMargin() {
+		return animationMargin;
+	}
+
+	/** The scale of each node's shape along x, y and z, the shapes have a diameter of 1 before being scaled */
+	public float[] getNodeScales() {
+		return nodeScales;
+	}
+
+	/** red, green, blue of each node's fill color, between 0 and 1 */
+	public float[] getNodeColors() {
+		return nodeColors;
+	}
+
+	public Shape getNodeShape(int node) {
+		return SHAPES[nodeShapes[node]];
+	}
+
+	public int[] getNodeFlags() {
+		return nodeFlags;
+	}
+
+	public boolean isNodeVisible(int node) {
+		return (nodeFlags[node] & VISIBLE) != 0;
+	}
+
+	public boolean isNodeSelected(int node) {
+		return (nodeFlags[node] & SELECTED) != 0;
+	}
+
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * @return the index of the edge with the given view SUID, or {@link #NO_INDEX}
+	 */
+	public int indexOfEdge(long viewSuid) {
+		return edgeIndex.get(viewSuid);
+	}
+
+	public long getEdgeSuid(int edge) {
+		return edgeSuids[edge];
+	}
+
+	public long getEdgeModelSuid(int edge) {
+		return edgeModelSuids[edge];
+	}
+
+	/** The node index of each edge's source, or {@link #NO_INDEX} */
+	public int[] getEdgeSources() {
+		return edgeSources;
+	}
+
+	/** The node index of each edge's target, or {@link #NO_INDEX} */
+	public int[] getEdgeTargets() {
+		return edgeTargets;
+	}
+
+	/** red, green, blue of each edge's unselected color, between 0 and 1 */
+	public float[] getEdgeColors() {
+		return edgeColors;
+	}
+
+	public float[] getEdgeWidths() {
+		return edgeWidths;
+	}
+
+	/** {@link #LINE_SOLID}, {@link #LINE_DASH} or {@link #LINE_DOT} for each edge */
+	public int[] getEdgeLineTypes() {
+		return edgeLineTypes;
+	}
+
+	public int[] getEdgeFlags() {
+		return edgeFlags;
+	}
+
+	public boolean isEdgeVisible(int edge) {
+		return (edgeFlags[edge] & VISIBLE) != 0;
+	}
+
+	public boolean isEdgeSelected(int edge) {
+		return (edgeFlags[edge] & SELECTED) != 0;
+	}
+
+	/**
+	 * Returns the points along the edge in OpenGL coordinates as drawn in this frame, or null if the edge is too short to be drawn.
+	 */
+	public Vector3[] getEdgeCoordinates(int edge) {
+		Vector3[] shifted = animatedEdgeCoordinates[edge];
+		return shifted != null ? shifted : edgeCoordinates[edge];
+	}
+
+	/**
+	 * Returns the points along the edge where the snapshot has its end points, the array of the edge container.
+	 * Only differs from {@link #getEdgeCoordinates(int)} while animating.
+	 */
+	public Vector3[] getEdgeTargetCoordinates(int edge) {
+		return edgeCoordinates[edge];
+	}
+}
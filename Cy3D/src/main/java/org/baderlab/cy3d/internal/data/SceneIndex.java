@@ -0,0 +1,440 @@
+package org.baderlab.cy3d.internal.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.baderlab.cy3d.internal.cytoscape.edges.AugmentedEdgeContainer;
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.geometric.Octree;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.geometric.ViewingVolume;
+import org.baderlab.cy3d.internal.rendering.RenderArcEdgesProcedure;
+
+/**
+ * Spatial index of the visible nodes and edges, shared by culling, label drawing and picking
+ * so that they only look at the part of the network that the camera or the mouse is on.
+ *
+ * The index is kept in sync with the {@link RenderModel} by {@link #update(SnapshotChanges, RenderModel, EdgeAnalyser)}
+ * once per frame, only the nodes and edges that changed are looked at and moved in the trees.
+ * Nodes are indexed by their bounding spheres, edges by a sphere around all of their segments.
+ * All coordinates are in OpenGL space.
+ *
+ * While the render model animates moved nodes the index keeps their final positions, node queries
+ * grow the spheres by the model's animation margin so that culling still finds the nodes where they
+ * are drawn. Picking hits the nodes and edges at their final positions.
+ *
+ * The index is not thread safe, it is updated and queried on the render thread. Other threads pick
+ * with a {@link PickingIndex} over the immutable {@link PickingScene} that every update publishes,
+ * so the render thread never waits for them.
+ */
+public class SceneIndex {
+
+	/** Edges are very thin, make them a bit easier to hit than they look */
+	private static final double MIN_EDGE_PICK_RADIUS = 0.01;
+
+	/** Immutable, a node that changes gets a new shape so that a published scene never changes */
+	static final class NodeShape {
+		final long modelSuid;
+		final double x, y, z;
+		final double pickRadius;
+		final double boundingRadius;
+
+		NodeShape(long modelSuid, double x, double y, double z, double pickRadius, double boundingRadius) {
+			this.modelSuid = modelSuid;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.pickRadius = pickRadius;
+			this.boundingRadius = boundingRadius;
+		}
+
+		/**
+		 * @param d must be normalized
+		 */
+		double intersect(Vector3 o, Vector3 d) {
+			return intersectSphere(o, d, x, y, z, pickRadius);
+		}
+	}
+
+	/** Immutable like {@link NodeShape} */
+	static final class EdgeShape {
+		final long modelSuid;
+		final Vector3[] coordinates; // the array from the edge container, to notice when it was recalculated
+		final boolean visible;
+		final float width;
+		final double[] points;       // x, y, z of each point, null if not visible
+		final double radius;
+		final double x, y, z;        // the bounding sphere
+		final double boundingRadius;
+
+		EdgeShape(long modelSuid, Vector3[] coordinates, boolean visible, float width) {
+			this.modelSuid = modelSuid;
+			this.coordinates = coordinates;
+			this.visible = visible;
+			this.width = width;
+
+			if(!visible) {
+				points = null;
+				radius = x = y = z = boundingRadius = 0;
+				return;
+			}
+
+			float radiusFactor = width / 2;
+			radius = Math.max(MIN_EDGE_PICK_RADIUS, RenderArcEdgesProcedure.SEGMENT_RADIUS * radiusFactor / 2);
+
+			points = new double[coordinates.length * 3];
+			double[] bounds = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+					Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+			for(int i = 0; i < coordinates.length; i++) {
+				points[i*3]   = coordinates[i].x();
+				points[i*3+1] = coordinates[i].y();
+				points[i*3+2] = coordinates[i].z();
+				for(int axis = 0; axis < 3; axis++) {
+					bounds[axis]   = Math.min(bounds[axis],   points[i*3 + axis]);
+					bounds[axis+3] = Math.max(bounds[axis+3], points[i*3 + axis]);
+				}
+			}
+
+			double dx = (bounds[3] - bounds[0]) / 2;
+			double dy = (bounds[4] - bounds[1]) / 2;
+			double dz = (bounds[5] - bounds[2]) / 2;
+			x = bounds[0] + dx;
+			y = bounds[1] + dy;
+			z = bounds[2] + dz;
+			boundingRadius = Math.sqrt(dx * dx + dy * dy + dz * dz) + radius;
+		}
+
+		/**
+		 * Edges are tested as capsules (cylinders with rounded ends) around each of their straight segments.
+		 * @param d must be normalized
+		 */
+		double intersect(Vector3 o, Vector3 d) {
+			double closest = Double.POSITIVE_INFINITY;
+			for(int i = 0; i + 5 < points.length; i += 3) {
+				closest = Math.min(closest, intersectCapsule(o, d, points, i, radius));
+			}
+			return closest;
+		}
+	}
+
+	// All keyed by view SUID like SnapshotChanges, picking results are model SUIDs
+	private final Octree nodeTree = new Octree();
+	private final Map<Long,NodeShape> nodes = new HashMap<>();
+	private final Octree edgeTree = new Octree();
+	private final Map<Long,EdgeShape> edges = new HashMap<>();
+
+	// The visible shapes again, for the picking scene
+	private final CopyOnWriteSlots<NodeShape> nodeSlots = new CopyOnWriteSlots<>();
+	private final CopyOnWriteSlots<EdgeShape> edgeSlots = new CopyOnWriteSlots<>();
+	private volatile PickingScene pickingScene = PickingScene.EMPTY;
+
+	private boolean edgesBuilt = false;
+	private double nodeMargin = 0;
+
+
+	/**
+	 * Brings the index up to date with the render model, which must already have been updated for the snapshot.
+	 *
+	 * @param changes the changes since the previous call
+	 * @param edgeAnalyser the analyser that the model was updated from, tells which edges got new coordinates
+	 */
+	public void update(SnapshotChanges changes, RenderModel model, EdgeAnalyser edgeAnalyser) {
+		nodeMargin = model.getAnimationMargin();
+		updateNodes(changes, model);
+		updateEdges(changes, model, edgeAnalyser);
+
+		if(nodeSlots.isModified() || edgeSlots.isModified()) {
+			pickingScene = new PickingScene(nodeSlots.publish(), edgeSlots.publish());
+		}
+	}
+
+	/**
+	 * The visible nodes and edges as of the last update, safe to use from any thread.
+	 */
+	public PickingScene getPickingScene() {
+		return pickingScene;
+	}
+
+	private void updateNodes(SnapshotChanges changes, RenderModel model) {
+		if(changes.isFull()) {
+			nodeTree.clear();
+			nodes.clear();
+			nodeSlots.clear();
+			for(int node = 0; node < model.getNodeCount(); node++) {
+				putNode(model, node);
+			}
+			return;
+		}
+
+		for(Long suid : changes.getRemovedNodes()) {
+			removeNode(suid);
+		}
+		updateNodes(changes.getAddedNodes(), model);
+		updateNodes(changes.getMovedNodes(), model);
+		updateNodes(changes.getRestyledNodes(), model);
+	}
+
+	private void updateNodes(Set<Long> suids, RenderModel model) {
+		for(Long suid : suids) {
+			int node = model.indexOfNode(suid);
+			if(node == RenderModel.NO_INDEX) {
+				removeNode(suid);
+			} else {
+				putNode(model, node);
+			}
+		}
+	}
+
+	private void putNode(RenderModel model, int node) {
+		Long suid = model.getNodeSuid(node);
+		if(!model.isNodeVisible(node)) {
+			removeNode(suid);
+			return;
+		}
+
+		float[] positions = model.getNodeTargetPositions();
+		double x = positions[node*3];
+		double y = positions[node*3+1];
+		double z = positions[node*3+2];
+
+		// The node shapes have a diameter of 1 before being scaled
+		float[] scales = model.getNodeScales();
+		double w = 0.5 * scales[node*3];
+		double h = 0.5 * scales[node*3+1];
+		double d = 0.5 * scales[node*3+2];
+		double pickRadius = Math.max(w, Math.max(h, d));
+		// The bounding sphere has to hold the corners of cube shaped nodes
+		double boundingRadius = Math.sqrt(w * w + h * h + d * d);
+
+		NodeShape shape = nodes.get(suid);
+		if(shape != null && shape.x == x && shape.y == y && shape.z == z && shape.pickRadius == pickRadius && shape.boundingRadius == boundingRadius)
+			return;
+
+		shape = new NodeShape(model.getNodeModelSuid(node), x, y, z, pickRadius, boundingRadius);
+		nodes.put(suid, shape);
+		nodeSlots.put(suid, shape);
+		nodeTree.put(suid, x, y, z, boundingRadius);
+	}
+
+	private void removeNode(Long suid) {
+		if(nodes.remove(suid) != null) {
+			nodeSlots.remove(suid);
+			nodeTree.remove(suid);
+		}
+	}
+
+
+	private void updateEdges(SnapshotChanges changes, RenderModel model, EdgeAnalyser edgeAnalyser) {
+		if(!edgesBuilt || changes.isFull()) {
+			edgesBuilt = true;
+			edgeTree.clear();
+			edges.clear();
+			edgeSlots.clear();
+			for(int e = 0; e < model.getEdgeCount(); e++) {
+				updateEdge(model, e);
+			}
+			return;
+		}
+		if(!changes.hasEdgeChanges()) {
+			return;
+		}
+
+		// Edges only move when the analyser gave them new coordinates, which it does for the edges of moved nodes
+		for(Long suid : changes.getRemovedEdges()) {
+			removeEdge(suid);
+		}
+		updateEdges(changes.getAddedEdges(), model);
+		updateEdges(changes.getRestyledEdges(), model);
+		for(AugmentedEdgeContainer container : edgeAnalyser.getRecalculatedEdges()) {
+			updateEdge(model, container.getEdgeView().getSUID());
+		}
+	}
+
+	private void updateEdges(Set<Long> suids, RenderModel model) {
+		for(Long suid : suids) {
+			updateEdge(model, suid);
+		}
+	}
+
+	private void updateEdge(RenderModel model, Long suid) {
+		int e = model.indexOfEdge(suid);
+		if(e == RenderModel.NO_INDEX) {
+			removeEdge(suid);
+		} else {
+			updateEdge(model, e);
+		}
+	}
+
+	private void updateEdge(RenderModel model, int e) {
+		Long suid = model.getEdgeSuid(e);
+		EdgeShape edge = edges.get(suid);
+
+		// The model keeps the coordinate arrays of edges that did not change, so only those with new coordinates are moved
+		Vector3[] coordinates = model.getEdgeTargetCoordinates(e);
+		boolean visible = coordinates != null && model.isEdgeVisible(e);
+		float width = model.getEdgeWidths()[e];
+		if(edge != null && edge.coordinates == coordinates && edge.visible == visible && edge.width == width)
+			return;
+
+		edge = new EdgeShape(model.getEdgeModelSuid(e), coordinates, visible, width);
+		edges.put(suid, edge);
+		if(visible) {
+			edgeSlots.put(suid, edge);
+			edgeTree.put(suid, edge.x, edge.y, edge.z, edge.boundingRadius);
+		} else {
+			edgeSlots.remove(suid);
+			edgeTree.remove(suid);
+		}
+	}
+
+	private void removeEdge(Long suid) {
+		if(edges.remove(suid) != null) {
+			edgeSlots.remove(suid);
+			edgeTree.remove(suid);
+		}
+	}
+
+
+	public int getNodeCount() {
+		return nodes.size();
+	}
+
+	public int getEdgeCount() {
+		return edgeTree.size();
+	}
+
+	/**
+	 * Visits the view SUIDs of the visible nodes whose bounding spheres, grown by the given margin, intersect the volume.
+	 * The visitor must not call {@link #update(SnapshotChanges, RenderModel, EdgeAnalyser)}.
+	 */
+	public void queryNodes(ViewingVolume volume, double margin, Octree.ItemVisitor visitor) {
+		nodeTree.query(volume, margin + nodeMargin, visitor);
+	}
+
+	/**
+	 * Finds the visible nodes whose centers are closest to the given point.
+	 *
+	 * @param result Filled with node view SUIDs, nearest first.
+	 * @return the number of nodes put in the result array
+	 */
+	public int findNearestNodes(double x, double y, double z, long[] result) {
+		return nodeTree.nearest(x, y, z, result);
+	}
+
+
+	/**
+	 * Returns the model SUID of the first node hit by the ray, or {@link PickingData#NO_INDEX}.
+	 */
+	public long pickNode(Vector3 origin, Vector3 direction) {
+		final Vector3 d = direction.normalize();
+		long node = nodeTree.raycast(origin, d, suid -> nodes.get(suid).intersect(origin, d));
+		return node == Octree.NO_ITEM ? PickingData.NO_INDEX : nodes.get(node).modelSuid;
+	}
+
+	/**
+	 * Returns the model SUID of the first edge hit by the ray, or {@link PickingData#NO_INDEX}.
+	 */
+	public long pickEdge(Vector3 origin, Vector3 direction) {
+		final Vector3 d = direction.normalize();
+		long edge = edgeTree.raycast(origin, d, suid -> edges.get(suid).intersect(origin, d));
+		return edge == Octree.NO_ITEM ? PickingData.NO_INDEX : edges.get(edge).modelSuid;
+	}
+
+	/**
+	 * Adds the model SUIDs of the nodes whose centers are inside the volume to the given set.
+	 */
+	public void selectNodes(ViewingVolume volume, Set<Long> result) {
+		nodeTree.query(volume, suid -> {
+			NodeShape node = nodes.get(suid);
+			if(volume.intersectsSphere(node.x, node.y, node.z, 0)) {
+				result.add(node.modelSuid);
+			}
+		});
+	}
+
+	/**
+	 * Adds the model SUIDs of the edges that have at least one segment crossing the volume to the given set.
+	 */
+	public void selectEdges(ViewingVolume volume, Set<Long> result) {
+		Vector3 start = new Vector3();
+		Vector3 end = new Vector3();
+		edgeTree.query(volume, suid -> {
+			EdgeShape edge = edges.get(suid);
+			double[] p = edge.points;
+			for(int i = 0; i + 5 < p.length; i += 3) {
+				start.set(p[i],   p[i+1], p[i+2]);
+				end.set(  p[i+3], p[i+4], p[i+5]);
+				if(volume.intersectsSegment(start, end)) {
+					result.add(edge.modelSuid);
+					return;
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * @param d must be normalized
+	 */
+	private static double intersectSphere(Vector3 o, Vector3 d, double x, double y, double z, double r) {
+		double ocx = x - o.x();
+		double ocy = y - o.y();
+		double ocz = z - o.z();
+
+		double tc = ocx * d.x() + ocy * d.y() + ocz * d.z();
+		double distanceSquared = ocx * ocx + ocy * ocy + ocz * ocz - tc * tc;
+		if(distanceSquared > r * r)
+			return Double.POSITIVE_INFINITY;
+
+		double th = Math.sqrt(r * r - distanceSquared);
+		if(tc + th < 0) // behind the ray
+			return Double.POSITIVE_INFINITY;
+		return Math.max(0, tc - th);
+	}
+
+	/**
+	 * Finds the closest points between the ray and the segment, the segment is hit if they are within the radius.
+	 * The returned distance is where the ray enters an infinite cylinder through the closest point,
+	 * which is exact enough to order the hits.
+	 *
+	 * @param d must be normalized
+	 * @param i offset of the segment start point, the end point follows it
+	 */
+	private static double intersectCapsule(Vector3 o, Vector3 d, double[] p, int i, double r) {
+		double ux = p[i+3] - p[i];
+		double uy = p[i+4] - p[i+1];
+		double uz = p[i+5] - p[i+2];
+		double wx = o.x() - p[i];
+		double wy = o.y() - p[i+1];
+		double wz = o.z() - p[i+2];
+
+		double b = d.x() * ux + d.y() * uy + d.z() * uz;
+		double c = ux * ux + uy * uy + uz * uz;
+		double dw = d.x() * wx + d.y() * wy + d.z() * wz;
+		double uw = ux * wx + uy * wy + uz * wz;
+		double denominator = c - b * b;
+
+		// position along the segment (0 to 1) and along the ray (0 to infinity) of the closest points
+		double s = denominator > 1e-12 ? clamp((uw - b * dw) / denominator) : 0;
+		double t = s * b - dw;
+		if(t < 0) {
+			t = 0;
+			s = c > 0 ? clamp(uw / c) : 0;
+		}
+
+		double dx = wx + t * d.x() - s * ux;
+		double dy = wy + t * d.y() - s * uy;
+		double dz = wz + t * d.z() - s * uz;
+		double distanceSquared = dx * dx + dy * dy + dz * dz;
+		if(distanceSquared > r * r)
+			return Double.POSITIVE_INFINITY;
+
+		return Math.max(0, t - Math.sqrt(r * r - distanceSquared));
+	}
+
+	private static double clamp(double s) {
+		return Math.max(0, Math.min(1, s));
+	}
+}
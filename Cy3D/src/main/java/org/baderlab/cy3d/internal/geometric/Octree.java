@@ -0,0 +1,465 @@
+package org.baderlab.cy3d.internal.geometric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A loose octree of bounding spheres that can be updated one item at a time.
+ *
+ * Every cell is a cube, but the items stored in it may stick out by up to half the cell size
+ * on each side (the loose bounds are twice as large as the cell). An item is stored in the
+ * deepest cell that contains its center and whose loose bounds contain the whole sphere,
+ * so moving an item only touches the cells on the path between its old and new place,
+ * which is O(log N) for reasonably spread out items. The root grows when an item is put
+ * outside of it, empty cells are removed.
+ *
+ * Items are identified by a long id chosen by the caller, usually a SUID. The tree does not
+ * know what the items are, exact intersection tests are done by the caller through the
+ * visitor interfaces.
+ */
+public class Octree {
+
+	/** Returned by the queries when nothing is found */
+	public static final long NO_ITEM = -1;
+
+	private static final int MAX_ITEMS_PER_CELL = 8;
+	/** Cells are not split below this size so that many items at the same position do not make the tree too deep */
+	private static final double MIN_HALF_SIZE = 1e-4;
+
+	/**
+	 * Exact intersection test between the query ray and an item.
+	 */
+	public static interface RayVisitor {
+		/**
+		 * @return the distance along the ray to the item, or Double.POSITIVE_INFINITY if the ray misses it
+		 */
+		double intersect(long item);
+	}
+
+	public static interface ItemVisitor {
+		void visit(long item);
+	}
+
+	private static class Item {
+		final long id;
+		double x, y, z, radius;
+		Cell cell;
+		int slot; // position in the cell's item list
+
+		Item(long id) {
+			this.id = id;
+		}
+	}
+
+	private static class Cell {
+		final double x, y, z, half;
+		Cell parent;
+		Cell[] children; // null for leaves, may contain nulls
+		final List<Item> items = new ArrayList<>(2);
+		int count; // items in this cell and below
+
+		Cell(double x, double y, double z, double half) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.half = half;
+		}
+
+		boolean containsCenter(double px, double py, double pz) {
+			return Math.abs(px - x) <= half && Math.abs(py - y) <= half && Math.abs(pz - z) <= half;
+		}
+
+		int octant(double px, double py, double pz) {
+			return (px > x ? 1 : 0) | (py > y ? 2 : 0) | (pz > z ? 4 : 0);
+		}
+
+		Cell child(int octant) {
+			Cell child = children[octant];
+			if(child == null) {
+				double h = half / 2;
+				child = new Cell(
+					(octant & 1) == 0 ? x - h : x + h,
+					(octant & 2) == 0 ? y - h : y + h,
+					(octant & 4) == 0 ? z - h : z + h,
+					h);
+				child.parent = this;
+				children[octant] = child;
+			}
+			return child;
+		}
+
+		/** The loose bounds, twice the size of the cell */
+		void getLooseBounds(double[] bounds) {
+			double h = half * 2;
+			bounds[0] = x - h;
+			bounds[1] = y - h;
+			bounds[2] = z - h;
+			bounds[3] = x + h;
+			bounds[4] = y + h;
+			bounds[5] = z + h;
+		}
+	}
+
+	private final Map<Long,Item> items = new HashMap<>();
+	private Cell root = null;
+
+
+	public int size() {
+		return items.size();
+	}
+
+	public boolean contains(long id) {
+		return items.containsKey(id);
+	}
+
+	public void clear() {
+		items.clear();
+		root = null;
+	}
+
+
+	/**
+	 * Adds an item or moves it if it is already in the tree.
+	 * Items with a position that is not finite are removed instead, they could never be found anyway.
+	 */
+	public void put(long id, double x, double y, double z, double radius) {
+		if(!Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(z) || !Double.isFinite(radius)) {
+			remove(id);
+			return;
+		}
+		radius = Math.max(0, radius);
+
+		Item item = items.get(id);
+		if(item == null) {
+			item = new Item(id);
+			items.put(id, item);
+		} else if(item.cell.containsCenter(x, y, z) && radius <= item.cell.half && !fitsChild(item.cell, radius)) {
+			// Still belongs in the same cell, this is the common case for small moves
+			item.x = x;
+			item.y = y;
+			item.z = z;
+			item.radius = radius;
+			return;
+		} else {
+			unlink(item);
+		}
+
+		item.x = x;
+		item.y = y;
+		item.z = z;
+		item.radius = radius;
+		insert(item);
+	}
+
+	public void remove(long id) {
+		Item item = items.remove(id);
+		if(item != null) {
+			unlink(item);
+		}
+	}
+
+
+	private static boolean fitsChild(Cell cell, double radius) {
+		return cell.children != null && radius <= cell.half / 2;
+	}
+
+	private void insert(Item item) {
+		if(root == null) {
+			root = new Cell(item.x, item.y, item.z, Math.max(1, item.radius * 2));
+		}
+		while(!root.containsCenter(item.x, item.y, item.z) || item.radius > root.half) {
+			growRoot(item);
+		}
+
+		Cell cell = root;
+		while(true) {
+			if(cell.children == null && cell.items.size() >= MAX_ITEMS_PER_CELL && cell.half / 2 >= MIN_HALF_SIZE) {
+				split(cell);
+			}
+			if(!fitsChild(cell, item.radius))
+				break;
+			cell = cell.child(cell.octant(item.x, item.y, item.z));
+		}
+		add(cell, item);
+	}
+
+	/**
+	 * Doubles the size of the root towards the item, the old root becomes one of the octants of the new one.
+	 */
+	private void growRoot(Item item) {
+		Cell old = root;
+		if(old.count == 0) {
+			root = new Cell(item.x, item.y, item.z, Math.max(old.half * 2, item.radius * 2));
+			return;
+		}
+		double x = item.x >= old.x ? old.x + old.half : old.x - old.half;
+		double y = item.y >= old.y ? old.y + old.half : old.y - old.half;
+		double z = item.z >= old.z ? old.z + old.half : old.z - old.half;
+		root = new Cell(x, y, z, old.half * 2);
+		root.children = new Cell[8];
+		root.children[root.octant(old.x, old.y, old.z)] = old;
+		root.count = old.count;
+		old.parent = root;
+	}
+
+	/**
+	 * Moves the items that are small enough down into the new children of the cell.
+	 */
+	private void split(Cell cell) {
+		cell.children = new Cell[8];
+		List<Item> stay = new ArrayList<>(2);
+		for(Item item : cell.items) {
+			if(fitsChild(cell, item.radius)) {
+				Cell child = cell.child(cell.octant(item.x, item.y, item.z));
+				link(child, item);
+				child.count++;
+			} else {
+				stay.add(item);
+			}
+		}
+		cell.items.clear();
+		for(Item item : stay) {
+			link(cell, item);
+		}
+	}
+
+	private static void link(Cell cell, Item item) {
+		item.cell = cell;
+		item.slot = cell.items.size();
+		cell.items.add(item);
+	}
+
+	private static void add(Cell cell, Item item) {
+		link(cell, item);
+		for(Cell c = cell; c != null; c = c.parent) {
+			c.count++;
+		}
+	}
+
+	private void unlink(Item item) {
+		Cell cell = item.cell;
+		// Swap with the last item so that removing from cells with many items stays cheap
+		Item last = cell.items.remove(cell.items.size() - 1);
+		if(last != item) {
+			cell.items.set(item.slot, last);
+			last.slot = item.slot;
+		}
+		item.cell = null;
+		for(Cell c = cell; c != null; c = c.parent) {
+			c.count--;
+		}
+
+		// Prune the cells that became empty
+		while(cell.count == 0 && cell.parent != null) {
+			Cell parent = cell.parent;
+			Cell[] siblings = parent.children;
+			for(int i = 0; i < 8; i++) {
+				if(siblings[i] == cell) {
+					siblings[i] = null;
+				}
+			}
+			cell.parent = null;
+			cell = parent;
+		}
+		if(cell.children != null && cell.count == cell.items.size()) {
+			cell.children = null;
+		}
+		if(root.count == 0) {
+			root = null;
+		}
+	}
+
+
+	/**
+	 * Finds the item closest to the origin of the ray, the direction does not have to be normalized
+	 * but the distances returned by the visitor must be in the same units as the direction.
+	 *
+	 * @return the id of the closest item, or {@link #NO_ITEM} if the ray does not hit anything
+	 */
+	public long raycast(Vector3 origin, Vector3 direction, RayVisitor visitor) {
+		if(root == null)
+			return NO_ITEM;
+
+		double[] ray = {
+			origin.x(), origin.y(), origin.z(),
+			1 / direction.x(), 1 / direction.y(), 1 / direction.z()
+		};
+		double[] closest = { Double.POSITIVE_INFINITY };
+		long[] closestItem = { NO_ITEM };
+		raycast(root, ray, visitor, closest, closestItem, new double[6]);
+		return closestItem[0];
+	}
+
+	private static void raycast(Cell cell, double[] ray, RayVisitor visitor, double[] closest, long[] closestItem, double[] bounds) {
+		for(Item item : cell.items) {
+			sphereBounds(item, bounds);
+			if(intersectBox(bounds, ray) < closest[0]) {
+				double distance = visitor.intersect(item.id);
+				if(distance < closest[0]) {
+					closest[0] = distance;
+					closestItem[0] = item.id;
+				}
+			}
+		}
+		if(cell.children == null)
+			return;
+
+		// Visit the nearest children first so that the farther ones can be skipped
+		double[] distances = new double[8];
+		Integer[] order = new Integer[8];
+		for(int octant = 0; octant < 8; octant++) {
+			Cell child = cell.children[octant];
+			if(child == null) {
+				distances[octant] = Double.POSITIVE_INFINITY;
+			} else {
+				child.getLooseBounds(bounds);
+				distances[octant] = intersectBox(bounds, ray);
+			}
+			order[octant] = octant;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+
+		for(int octant : order) {
+			if(distances[octant] >= closest[0])
+				break;
+			raycast(cell.children[octant], ray, visitor, closest, closestItem, bounds);
+		}
+	}
+
+
+	/**
+	 * Visits every item whose bounding sphere intersects the given volume.
+	 */
+	public void query(ViewingVolume volume, ItemVisitor visitor) {
+		query(volume, 0, visitor);
+	}
+
+	/**
+	 * Visits every item whose bounding sphere, grown by the given margin, intersects the given volume.
+	 */
+	public void query(ViewingVolume volume, double margin, ItemVisitor visitor) {
+		if(root != null) {
+			query(root, volume, margin, visitor, new double[6]);
+		}
+	}
+
+	private static void query(Cell cell, ViewingVolume volume, double margin, ItemVisitor visitor, double[] bounds) {
+		cell.getLooseBounds(bounds);
+		for(int i = 0; i < 3; i++) {
+			bounds[i] -= margin;
+			bounds[i+3] += margin;
+		}
+		if(!volume.intersectsBox(bounds, 0))
+			return;
+
+		for(Item item : cell.items) {
+			if(volume.intersectsSphere(item.x, item.y, item.z, item.radius + margin)) {
+				visitor.visit(item.id);
+			}
+		}
+		if(cell.children != null) {
+			for(Cell child : cell.children) {
+				if(child != null) {
+					query(child, volume, margin, visitor, bounds);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Finds the items whose centers are closest to the given point.
+	 *
+	 * @param result Filled with the ids of the closest items, nearest first. At most result.length items are found.
+	 * @return the number of items put in the result array
+	 */
+	public int nearest(double x, double y, double z, long[] result) {
+		if(root == null || result.length == 0)
+			return 0;
+
+		// Best first search, cells are ordered by the distance to their cube since the item centers are inside it
+		PriorityQueue<Candidate> queue = new PriorityQueue<>();
+		queue.add(new Candidate(distanceSquaredToCell(root, x, y, z), root, null));
+
+		int found = 0;
+		while(!queue.isEmpty() && found < result.length) {
+			Candidate next = queue.poll();
+			if(next.item != null) {
+				result[found++] = next.item.id;
+				continue;
+			}
+
+			Cell cell = next.cell;
+			for(Item item : cell.items) {
+				double dx = item.x - x, dy = item.y - y, dz = item.z - z;
+				queue.add(new Candidate(dx * dx + dy * dy + dz * dz, null, item));
+			}
+			if(cell.children != null) {
+				for(Cell child : cell.children) {
+					if(child != null) {
+						queue.add(new Candidate(distanceSquaredToCell(child, x, y, z), child, null));
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	private static class Candidate implements Comparable<Candidate> {
+		final double distanceSquared;
+		final Cell cell;
+		final Item item;
+
+		Candidate(double distanceSquared, Cell cell, Item item) {
+			this.distanceSquared = distanceSquared;
+			this.cell = cell;
+			this.item = item;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			return Double.compare(distanceSquared, other.distanceSquared);
+		}
+	}
+
+	private static double distanceSquaredToCell(Cell cell, double x, double y, double z) {
+		double dx = Math.max(0, Math.abs(x - cell.x) - cell.half);
+		double dy = Math.max(0, Math.abs(y - cell.y) - cell.half);
+		double dz = Math.max(0, Math.abs(z - cell.z) - cell.half);
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static void sphereBounds(Item item, double[] bounds) {
+		bounds[0] = item.x - item.radius;
+		bounds[1] = item.y - item.radius;
+		bounds[2] = item.z - item.radius;
+		bounds[3] = item.x + item.radius;
+		bounds[4] = item.y + item.radius;
+		bounds[5] = item.z + item.radius;
+	}
+
+	/**
+	 * Slab test, returns the distance at which the ray enters the box (0 if it starts inside)
+	 * or Double.POSITIVE_INFINITY if it misses.
+	 */
+	private static double intersectBox(double[] bounds, double[] ray) {
+		double tNear = 0;
+		double tFar = Double.POSITIVE_INFINITY;
+		for(int axis = 0; axis < 3; axis++) {
+			double t1 = (bounds[axis]     - ray[axis]) * ray[axis + 3];
+			double t2 = (bounds[axis + 3] - ray[axis]) * ray[axis + 3];
+			if(Double.isNaN(t1) || Double.isNaN(t2)) {
+				// the ray is parallel to this slab and lies exactly on its boundary
+				continue;
+			}
+			tNear = Math.max(tNear, Math.min(t1, t2));
+			tFar  = Math.min(tFar,  Math.max(t1, t2));
+		}
+		return tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+	}
+
+}
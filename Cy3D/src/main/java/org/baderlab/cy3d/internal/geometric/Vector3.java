@@ -5,6 +5,10 @@ import java.util.Objects;
 /**
  * This class represents a 3-dimensional vector object, which can be useful
  * for certain vector calculations
+ * 
+ * The methods that take a result vector store the result in it instead of 
+ * creating a new vector, so that they can be used on paths that run every frame. 
+ * The result vector may be this vector or one of the arguments.
  */
 public class Vector3 {
 	
@@ -109,6 +113,17 @@ public class Vector3 {
 		return new Vector3(x + other.x, y + other.y, z + other.z);
 	}
 	
+	/** Store the result of this plus another vector in the result vector
+	 * 
+	 * @param other The vector to add
+	 * @param result The vector to store the sum in
+	 * @return The result vector
+	 */
+	public Vector3 plus(Vector3 other, Vector3 result) {
+		result.set(x + other.x, y + other.y, z + other.z);
+		return result;
+	}
+	
 	/** Return a new vector equal to the result of this plus a vector
 	 * with the given coordinates
 	 * 
@@ -155,6 +170,17 @@ public class Vector3 {
 		return new Vector3(x - other.x, y - other.y, z - other.z);
 	}
 	
+	/** Store the result of this minus another vector in the result vector
+	 * 
+	 * @param other The vector to subtract
+	 * @param result The vector to store the difference in
+	 * @return The result vector
+	 */
+	public Vector3 subtract(Vector3 other, Vector3 result) {
+		result.set(x - other.x, y - other.y, z - other.z);
+		return result;
+	}
+	
 	/** Subtract a 3-vector with the specified coordinates from this vector
 	 * 
 	 * @param x The x-coordinate of the vector to subtract
@@ -228,6 +254,18 @@ public class Vector3 {
 				z * other.x - x * other.z, x * other.y - y * other.x);
 	}
 	
+	/** Store the cross product between this vector and another vector in the result vector
+	 * 
+	 * @param other The other vector used to find the cross product
+	 * @param result The vector to store the cross product in
+	 * @return The result vector
+	 */
+	public Vector3 cross(Vector3 other, Vector3 result) {
+		result.set(y * other.z - z * other.y,
+				z * other.x - x * other.z, x * other.y - y * other.x);
+		return result;
+	}
+	
 	/** Find the cross product between this vector and a vector with the
 	 * specified coordinates
 	 * 
@@ -270,6 +308,17 @@ public class Vector3 {
 		return new Vector3(x * scalar, y * scalar, z * scalar);
 	}
 	
+	/** Store the result of this vector multiplied by a scalar in the result vector
+	 * 
+	 * @param scalar The scalar used to perform the multiplication
+	 * @param result The vector to store the product in
+	 * @return The result vector
+	 */
+	public Vector3 multiply(double scalar, Vector3 result) {
+		result.set(x * scalar, y * scalar, z * scalar);
+		return result;
+	}
+	
 	/** Set this vector to be equal to the result of itself multiplied by
 	 * a scalar
 	 * 
@@ -421,6 +470,18 @@ public class Vector3 {
 	 * @return The rotated vector.
 	 */
 	public Vector3 rotate(Vector3 normal, double angle) {
+		return rotate(normal, angle, new Vector3());
+	}
+	
+	/**
+	 * Same as {@link #rotate(Vector3, double)}, but stores the rotated vector in the result vector.
+	 * 
+	 * @param normal The normal vector used to perform the rotation
+	 * @param angle The angle, in radians, to rotate about the normal
+	 * @param result The vector to store the rotated vector in
+	 * @return The result vector
+	 */
+	public Vector3 rotate(Vector3 normal, double angle, Vector3 result) {
     	// Parametric equation for circle in 3D space:
     	// P = Rcos(t)u + Rsin(t)nxu + c
     	//
@@ -430,25 +491,35 @@ public class Vector3 {
     	//  -R is the radius
     	//  -n is a unit vector perpendicular to the plane
         //  -c is the centre of the circle.
-    	
-		//TODO: obtain a more efficient sin function
-    	Vector3 rotated;
-    	
-    	// Decompose vector to be rotated into 2 components:
-    	// 1. perpendicular to normal
-    	// 2. parallel to normal
-    	Vector3 perpendicularOffset = this.projectNormal(normal);
-    	Vector3 parallelOffset = this.subtract(perpendicularOffset);
-    	
-    	rotated = normal.normalize();
-    	rotated.crossLocal(perpendicularOffset);
-    	rotated.multiplyLocal(Math.sin(angle));
-    	rotated.addLocal(perpendicularOffset.multiply(Math.cos(angle)));
-    	
-    	// Add back the parallel component
-    	rotated.addLocal(parallelOffset);
-    	
-    	return rotated;
+		
+		// Decompose vector to be rotated into 2 components:
+		// 1. perpendicular to normal
+		// 2. parallel to normal
+		double dot = x * normal.x + y * normal.y + z * normal.z;
+		double parallelX = normal.x * dot;
+		double parallelY = normal.y * dot;
+		double parallelZ = normal.z * dot;
+		double perpendicularX = x - parallelX;
+		double perpendicularY = y - parallelY;
+		double perpendicularZ = z - parallelZ;
+		
+		double unitX = 0, unitY = 0, unitZ = 0;
+		double length = Math.sqrt(normal.x * normal.x + normal.y * normal.y + normal.z * normal.z);
+		if (length > Double.MIN_NORMAL) {
+			unitX = normal.x / length;
+			unitY = normal.y / length;
+			unitZ = normal.z / length;
+		}
+		
+		double sin = Math.sin(angle);
+		double cos = Math.cos(angle);
+		
+		// Add back the parallel component
+		result.set(
+				(unitY * perpendicularZ - unitZ * perpendicularY) * sin + perpendicularX * cos + parallelX,
+				(unitZ * perpendicularX - unitX * perpendicularZ) * sin + perpendicularY * cos + parallelY,
+				(unitX * perpendicularY - unitY * perpendicularX) * sin + perpendicularZ * cos + parallelZ);
+		return result;
     }
 	
 	/** Treating this and the given vector as position vectors,
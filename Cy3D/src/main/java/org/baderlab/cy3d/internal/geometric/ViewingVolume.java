@@ -31,6 +31,16 @@ public class ViewingVolume {
 	private Plane top, bottom;
 	private Plane left, right;
 	
+	private final Plane[] planes;
+	
+	// Scratch vectors so that the volume can be recalculated every frame without creating garbage
+	private final Vector3 cameraLeft = new Vector3();
+	private final Vector3 nearCenter = new Vector3();
+	private final Vector3 normal = new Vector3();
+	private final Vector3 point = new Vector3();
+	private final Vector3 firstOffset = new Vector3();
+	private final Vector3 secondOffset = new Vector3();
+	
 	public ViewingVolume() {
 		near = new Plane();
 		far = new Plane();
@@ -38,6 +48,7 @@ public class ViewingVolume {
 		bottom = new Plane();
 		left = new Plane();
 		right = new Plane();
+		planes = new Plane[] { near, far, top, bottom, left, right };
 	}
 	
 	/**
@@ -70,17 +81,77 @@ public class ViewingVolume {
 	 * @return <code>true</code> If the point is inside or within a certain distance from 
 	 */
 	public boolean inside(Vector3 point, double distance) {
-		if (isInsidePlane(point, near, distance) &&
-				isInsidePlane(point, far, distance) &&
-				isInsidePlane(point, top, distance) &&
-				isInsidePlane(point, bottom, distance) &&
-				isInsidePlane(point, left, distance) &&
-				isInsidePlane(point, right, distance)) {
-				
-				return true;
-			} else {
+		return intersectsSphere(point.x(), point.y(), point.z(), distance);
+	}
+	
+	/**
+	 * Same as {@link #inside(Vector3, double)}, but does not need a {@link Vector3} so it can
+	 * be called for every node of a large network without creating garbage.
+	 * 
+	 * @return <code>true</code> if the sphere with the given center and radius is at least partly inside the volume
+	 */
+	public boolean intersectsSphere(double x, double y, double z, double radius) {
+		return isInsidePlane(x, y, z, near, radius) &&
+				isInsidePlane(x, y, z, far, radius) &&
+				isInsidePlane(x, y, z, top, radius) &&
+				isInsidePlane(x, y, z, bottom, radius) &&
+				isInsidePlane(x, y, z, left, radius) &&
+				isInsidePlane(x, y, z, right, radius);
+	}
+	
+	/**
+	 * Tests if an axis aligned box may intersect the viewing volume. The test is conservative,
+	 * some boxes near the corners of the volume are reported as intersecting even though they are outside.
+	 * 
+	 * @param bounds The box as minX, minY, minZ, maxX, maxY, maxZ starting at the given offset
+	 * @return <code>false</code> if the box is certainly outside the volume
+	 */
+	public boolean intersectsBox(double[] bounds, int offset) {
+		return isBoxInsidePlane(bounds, offset, near) &&
+				isBoxInsidePlane(bounds, offset, far) &&
+				isBoxInsidePlane(bounds, offset, top) &&
+				isBoxInsidePlane(bounds, offset, bottom) &&
+				isBoxInsidePlane(bounds, offset, left) &&
+				isBoxInsidePlane(bounds, offset, right);
+	}
+	
+	/**
+	 * Tests if any part of the line segment between the given points lies inside the viewing volume.
+	 */
+	public boolean intersectsSegment(Vector3 start, Vector3 end) {
+		// The range of the segment parameter (0 at the start, 1 at the end) that is inside the planes so far
+		double rangeStart = 0;
+		double rangeEnd = 1;
+		
+		for (Plane plane : planes) {
+			double startDistance = plane.normal.dot(start) + plane.parameterD;
+			double endDistance = plane.normal.dot(end) + plane.parameterD;
+			
+			if (startDistance > 0 && endDistance > 0) {
 				return false;
 			}
+			if (startDistance > 0) {
+				rangeStart = Math.max(rangeStart, startDistance / (startDistance - endDistance));
+			} else if (endDistance > 0) {
+				rangeEnd = Math.min(rangeEnd, startDistance / (startDistance - endDistance));
+			}
+			if (rangeStart > rangeEnd) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks if the corner of the box that is furthest along the plane's inward direction is inside the plane.
+	 */
+	private boolean isBoxInsidePlane(double[] bounds, int offset, Plane plane) {
+		Vector3 normal = plane.normal;
+		double x = normal.x() > 0 ? bounds[offset]     : bounds[offset + 3];
+		double y = normal.y() > 0 ? bounds[offset + 1] : bounds[offset + 4];
+		double z = normal.z() > 0 ? bounds[offset + 2] : bounds[offset + 5];
+		
+		return normal.x() * x + normal.y() * y + normal.z() * z + plane.parameterD <= 0;
 	}
 	
 	/**
@@ -107,14 +178,14 @@ public class ViewingVolume {
 	 * Checks if a point is inside the given plane. If it is not, this method still returns <code>true</code>
 	 * as long as the point is within a certain distance from the plane.
 	 * 
-	 * @param point The test point
 	 * @param plane The plane to test against
-	 * @param radius The maximum distance the point can be to the plane before it is considered to be outside the plane
+	 * @param distance The maximum distance the point can be to the plane before it is considered to be outside the plane
 	 * @return <code>true</code> if the point lies on the opposite side of the plane's normal, within the given distance.
 	 * Returns <code>false</code> otherwise.
 	 */
-	private boolean isInsidePlane(Vector3 point, Plane plane, double distance) {
-		double signedDistance = plane.normal.dot(point) + plane.parameterD;
+	private boolean isInsidePlane(double x, double y, double z, Plane plane, double distance) {
+		Vector3 normal = plane.normal;
+		double signedDistance = normal.x() * x + normal.y() * y + normal.z() * z + plane.parameterD;
 		
 		if (signedDistance > distance) {
 			return false;
@@ -139,61 +210,104 @@ public class ViewingVolume {
 			double zNear, double zFar, double verticalFieldOfView, double horizontalFieldOfView) {
 		
 		// Calculate the camera's left vector
-		Vector3 cameraLeft = cameraUp.cross(cameraDirection);
+		cameraUp.cross(cameraDirection, cameraLeft);
 		
 		// Calculate near z plane
-		Vector3 nearNormal = cameraDirection.invert();
-		nearNormal.normalize();
+		cameraDirection.multiply(-1, normal);
+		cameraDirection.multiply(zNear, point).addLocal(cameraPosition);
+		near.set(normal, -normal.dot(point));
 		
-		double nearParameterD = -nearNormal.dot(cameraPosition.plus(cameraDirection.multiply(zNear)));
-		near.set(nearNormal, nearParameterD);
+		// Find the center point on the near plane for later use
+		nearCenter.set(point);
 		
 		// Calculate far z plane
-		Vector3 farNormal = nearNormal.invert();
+		normal.multiplyLocal(-1);
+		cameraDirection.multiply(zFar, point).addLocal(cameraPosition);
+		far.set(normal, -normal.dot(point));
 		
-		double farParameterD = -farNormal.dot(cameraPosition.plus(cameraDirection.multiply(zFar)));
-		far.set(farNormal, farParameterD);
-		
-		// Find the center point on the near plane for later use
-		Vector3 nearCenterPoint = cameraPosition.plus(cameraDirection.multiply(zNear));
+		double halfWidth = Math.tan(Math.toRadians(horizontalFieldOfView) / 2) * zNear;
+		double halfHeight = Math.tan(Math.toRadians(verticalFieldOfView) / 2) * zNear;
 		
 		// Calculate left plane
 		
 		// Rotate 90 degrees past the left plane to obtain the normal
-		Vector3 leftNormal = cameraDirection.rotate(cameraUp, Math.toRadians(horizontalFieldOfView / 2 + 90));
+		cameraDirection.rotate(cameraUp, Math.toRadians(horizontalFieldOfView / 2 + 90), normal);
 		
 		// Find a point on the plane to find the D parameter
-		Vector3 leftSamplePosition = cameraLeft.multiply(Math.tan(Math.toRadians(horizontalFieldOfView) / 2) * zNear).plus(nearCenterPoint);
-		double leftParameterD = -leftNormal.dot(leftSamplePosition);
-		left.set(leftNormal, leftParameterD);
+		cameraLeft.multiply(halfWidth, point).addLocal(nearCenter);
+		left.set(normal, -normal.dot(point));
 		
 		// Calculate right plane
 		
 		// Rotate 90 degrees past the right plane to obtain the normal
-		Vector3 rightNormal = cameraDirection.rotate(cameraUp, Math.toRadians(horizontalFieldOfView / 2 + 90));
+		cameraDirection.rotate(cameraUp, -Math.toRadians(horizontalFieldOfView / 2 + 90), normal);
 		
 		// Find a point on the plane to find the D parameter
-		Vector3 rightSamplePosition = cameraLeft.multiply(Math.tan(Math.toRadians(horizontalFieldOfView) / 2) * -zNear).plus(nearCenterPoint);
-		double rightParameterD = -rightNormal.dot(rightSamplePosition);
-		right.set(rightNormal, rightParameterD);
+		cameraLeft.multiply(-halfWidth, point).addLocal(nearCenter);
+		right.set(normal, -normal.dot(point));
 		
 		// Calculate top plane
 		
-		Vector3 topNormal = cameraDirection.rotate(cameraLeft, -Math.toRadians(verticalFieldOfView / 2 + 90));
+		cameraDirection.rotate(cameraLeft, -Math.toRadians(verticalFieldOfView / 2 + 90), normal);
 		
 		// Find a point on the plane
-		Vector3 topSamplePosition = cameraUp.multiply(Math.tan(Math.toRadians(verticalFieldOfView) / 2) * zNear).plus(nearCenterPoint);
-		double topParameterD = -topNormal.dot(topSamplePosition);
-		top.set(topNormal, topParameterD);
+		cameraUp.multiply(halfHeight, point).addLocal(nearCenter);
+		top.set(normal, -normal.dot(point));
 		
 		// Calculate bottom plane
 		
-		Vector3 bottomNormal = cameraDirection.rotate(cameraLeft, Math.toRadians(verticalFieldOfView / 2 + 90));
+		cameraDirection.rotate(cameraLeft, Math.toRadians(verticalFieldOfView / 2 + 90), normal);
 		
 		// Find a point on the plane
-		Vector3 bottomSamplePosition = cameraUp.multiply(Math.tan(Math.toRadians(verticalFieldOfView) / 2) * -zNear).plus(nearCenterPoint);
-		double bottomParameterD = -bottomNormal.dot(bottomSamplePosition);
-		bottom.set(bottomNormal, bottomParameterD);
+		cameraUp.multiply(-halfHeight, point).addLocal(nearCenter);
+		bottom.set(normal, -normal.dot(point));
+	}
+	
+	/**
+	 * Calculate the boundaries of a viewing volume whose sides pass through the camera position and
+	 * the given points, for example the corners of a selection rectangle projected into the scene.
+	 * 
+	 * @param cameraPosition The position of the camera or eye
+	 * @param cameraDirection The camera's direction vector
+	 * @param corners 4 points in front of the camera, given in order around the rectangle
+	 * @param zNear The distance between the camera and the near clipping plane
+	 * @param zFar The distance between the camera and the far clipping plane
+	 */
+	public void calculateViewingVolume(Vector3 cameraPosition, Vector3 cameraDirection, Vector3[] corners, double zNear, double zFar) {
+		normal.set(cameraDirection);
+		normal.normalizeLocal();
+		normal.multiplyLocal(-1);
+		cameraDirection.multiply(zNear, point).addLocal(cameraPosition);
+		near.set(normal, -normal.dot(point));
+		
+		normal.multiplyLocal(-1);
+		cameraDirection.multiply(zFar, point).addLocal(cameraPosition);
+		far.set(normal, -normal.dot(point));
+		
+		nearCenter.set(0, 0, 0);
+		for (Vector3 corner : corners) {
+			nearCenter.addLocal(corner.x() * 0.25, corner.y() * 0.25, corner.z() * 0.25);
+		}
+		
+		setSidePlane(top,    cameraPosition, corners[0], corners[1], nearCenter);
+		setSidePlane(right,  cameraPosition, corners[1], corners[2], nearCenter);
+		setSidePlane(bottom, cameraPosition, corners[2], corners[3], nearCenter);
+		setSidePlane(left,   cameraPosition, corners[3], corners[0], nearCenter);
+	}
+	
+	/**
+	 * Sets the plane through the 3 given points, with the normal facing away from the inside point.
+	 */
+	private void setSidePlane(Plane plane, Vector3 cameraPosition, Vector3 first, Vector3 second, Vector3 insidePoint) {
+		first.subtract(cameraPosition, firstOffset);
+		second.subtract(cameraPosition, secondOffset);
+		firstOffset.cross(secondOffset, normal);
+		normal.normalizeLocal();
+		
+		if (normal.dot(insidePoint.subtract(cameraPosition, point)) > 0) {
+			normal.multiplyLocal(-1);
+		}
+		plane.set(normal, -normal.dot(cameraPosition));
 	}
 
 }
@@ -7,6 +7,7 @@ import java.util.List;
 import javax.media.opengl.GL2;
 import javax.swing.JComponent;
 
+import org.baderlab.cy3d.internal.data.FrameMetrics;
 import org.baderlab.cy3d.internal.data.GraphicsData;
 import org.baderlab.cy3d.internal.rendering.GraphicsProcedure;
 
@@ -53,8 +54,11 @@ public abstract class AbstractGraphicsConfiguration implements GraphicsConfigura
 	
 	@Override
 	public void drawScene() {
+		FrameMetrics metrics = graphicsData.getFrameMetrics();
 		for (GraphicsProcedure proc : renderProcedures) {
+			long start = metrics.start();
 			proc.execute(graphicsData);
+			metrics.stop(proc.getClass().getSimpleName(), start);
 		}
 	}
 	
@@ -15,11 +15,15 @@ import org.baderlab.cy3d.internal.input.handler.MainEventBusListener;
 import org.baderlab.cy3d.internal.input.handler.MainInputEventListener;
 import org.baderlab.cy3d.internal.input.handler.MouseZoneInputListener;
 import org.baderlab.cy3d.internal.input.handler.ToolPanel;
-import org.baderlab.cy3d.internal.picking.DefaultShapePickingProcessor;
+import org.baderlab.cy3d.internal.picking.AsyncHoverPicker;
+import org.baderlab.cy3d.internal.picking.ColorIdPickingProcessor;
+import org.baderlab.cy3d.internal.picking.RayCastPickingProcessor;
 import org.baderlab.cy3d.internal.picking.ShapePickingProcessor;
 import org.baderlab.cy3d.internal.rendering.PositionCameraProcedure;
+import org.baderlab.cy3d.internal.rendering.RenderFrameMetricsProcedure;
 import org.baderlab.cy3d.internal.rendering.RenderArcEdgesProcedure;
 import org.baderlab.cy3d.internal.rendering.RenderNodeLabelsProcedure;
+import org.baderlab.cy3d.internal.rendering.RenderNodeLabelsSdfProcedure;
 import org.baderlab.cy3d.internal.rendering.RenderNodesProcedure;
 import org.baderlab.cy3d.internal.rendering.RenderSelectionBoxProcedure;
 import org.baderlab.cy3d.internal.rendering.ResetSceneProcedure;
@@ -37,7 +41,8 @@ import com.google.common.eventbus.EventBus;
  */
 public class MainGraphicsConfiguration extends AbstractGraphicsConfiguration {
 	
-	private final ShapePickingProcessor shapePickingProcessor;
+	private ShapePickingProcessor shapePickingProcessor;
+	private AsyncHoverPicker hoverPicker;
 	
 	private JComponent frame;
 	private InputEventListener inputHandler;
@@ -45,15 +50,22 @@ public class MainGraphicsConfiguration extends AbstractGraphicsConfiguration {
 			
 	
 	public MainGraphicsConfiguration() {
-		shapePickingProcessor = new DefaultShapePickingProcessor(new RenderNodesProcedure(), new RenderArcEdgesProcedure());
-		
 		add(new ResetSceneProcedure());
 		add(new PositionCameraProcedure());
 		
 		add(new RenderNodesProcedure());
 		add(new RenderArcEdgesProcedure());
 		add(new RenderSelectionBoxProcedure());
-		add(new RenderNodeLabelsProcedure());
+		
+		// -Dcy3d.sdfLabels=true draws the labels in the scene from a distance field glyph atlas
+		if(Boolean.getBoolean("cy3d.sdfLabels"))
+			add(new RenderNodeLabelsSdfProcedure(new RenderNodeLabelsProcedure()));
+		else
+			add(new RenderNodeLabelsProcedure());
+		
+		// -Dcy3d.hud=true shows the frame timings over the scene
+		if(Boolean.getBoolean("cy3d.hud"))
+			add(new RenderFrameMetricsProcedure());
 	}
 	
 	@Override
@@ -68,12 +80,22 @@ public class MainGraphicsConfiguration extends AbstractGraphicsConfiguration {
 	@Override
 	public void initialize(GraphicsData graphicsData) {
 		super.initialize(graphicsData);
-		shapePickingProcessor.initialize(graphicsData);
 		
 		// Input handler
 		MouseZoneInputListener mouseZoneListener = MouseZoneInputListener.attach(frame, graphicsData.getInputComponent(), graphicsData);
 		inputHandler = MainInputEventListener.attach(graphicsData.getInputComponent(), graphicsData, mouseZoneListener);
 		
+		// -Dcy3d.colorIdPicking=true picks with the offscreen id buffer instead of ray casting,
+		// that has to be done on the render thread so hover picking is not done in the background.
+		if(Boolean.getBoolean("cy3d.colorIdPicking")) {
+			shapePickingProcessor = new ColorIdPickingProcessor(new RayCastPickingProcessor());
+		} else {
+			hoverPicker = new AsyncHoverPicker(graphicsData.getPickingData(), graphicsData.getSceneIndex(), inputHandler::hoverPickChanged);
+			inputHandler.setHoverPicker(hoverPicker);
+			shapePickingProcessor = new RayCastPickingProcessor(hoverPicker);
+		}
+		shapePickingProcessor.initialize(graphicsData);
+		
 		// EventBus
 		EventBus eventBus = graphicsData.getEventBus();
 		if(toolPanel != null) {
@@ -92,11 +114,11 @@ public class MainGraphicsConfiguration extends AbstractGraphicsConfiguration {
 		double x = getCameraValue(Cy3DVisualLexicon.NETWORK_CAMERA_ORIGIN_X);
 		double y = getCameraValue(Cy3DVisualLexicon.NETWORK_CAMERA_ORIGIN_Y);
 		double z = getCameraValue(Cy3DVisualLexicon.NETWORK_CAMERA_ORIGIN_Z);
-		Vector3 vpOrigin = new Vector3(x,y,z);
 		
 		OriginOrbitCamera camera = graphicsData.getCamera();
-		if(!camera.getTarget().equals(vpOrigin)) {
-			camera.setTarget(vpOrigin);
+		Vector3 target = camera.getTarget();
+		if(target.x() != x || target.y() != y || target.z() != z) {
+			camera.setTarget(new Vector3(x, y, z));
 		}
 	}
 	
@@ -115,6 +137,9 @@ public class MainGraphicsConfiguration extends AbstractGraphicsConfiguration {
 	@Override
 	public void dispose() {
 		inputHandler.dispose();
+		if(hoverPicker != null) {
+			hoverPicker.dispose();
+		}
 	}
 	
 
@@ -15,11 +15,19 @@ import javax.media.opengl.GLEventListener;
 import javax.media.opengl.glu.GLU;
 
 import org.baderlab.cy3d.internal.camera.CameraPosition;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotDiffer;
+import org.baderlab.cy3d.internal.data.FrameMetrics;
 import org.baderlab.cy3d.internal.data.GraphicsData;
 import org.baderlab.cy3d.internal.data.PixelConverter;
+import org.baderlab.cy3d.internal.data.QualityGovernor;
+import org.baderlab.cy3d.internal.data.RenderModel;
+import org.baderlab.cy3d.internal.eventbus.UpdateNetworkViewEvent;
+import org.baderlab.cy3d.internal.geometric.Vector3;
 import org.baderlab.cy3d.internal.tools.GeometryToolkit;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
 import org.cytoscape.view.model.View;
 import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 
@@ -46,6 +54,8 @@ public class RenderEventListener implements GLEventListener {
 	private final GraphicsData graphicsData;
 	private final GraphicsConfiguration configuration;
 	private final CyNetworkView networkView;
+	private final SnapshotDiffer snapshotDiffer = new SnapshotDiffer();
+	private final Vector3 cameraDirection = new Vector3();
 	
 	
 	public RenderEventListener(CyNetworkView networkView, GraphicsConfiguration configuration, GraphicsData graphicsData) {
@@ -108,14 +118,36 @@ public class RenderEventListener implements GLEventListener {
 	public void display(GLAutoDrawable drawable) {
 //		System.out.println("RenderEventListener.display() " + System.currentTimeMillis());
 		GL2 gl = drawable.getGL().getGL2();
+		FrameMetrics metrics = graphicsData.getFrameMetrics();
+		metrics.beginFrame();
+		
 		graphicsData.setGlContext(gl);
-		graphicsData.setNetworkSnapshot(networkView.createSnapshot());
+		long start = metrics.start();
+		CyNetworkViewSnapshot snapshot = networkView.createSnapshot();
+		graphicsData.setNetworkSnapshot(snapshot);
+		SnapshotChanges changes = snapshotDiffer.diff(snapshot);
+		graphicsData.setSnapshotChanges(changes);
+		metrics.stop(FrameMetrics.SNAPSHOT, start);
+		
+		// The procedures get the edges of this snapshot from the analyser's cache
+		start = metrics.start();
+		graphicsData.getEdgeAnalyser().getAnalyzedEdges(snapshot, changes, GraphicsData.DISTANCE_SCALE);
+		metrics.stop(FrameMetrics.EDGE_ANALYSIS, start);
+		
+		// The procedures read the visual properties of the nodes and edges from the render model
+		start = metrics.start();
+		graphicsData.getRenderModel().update(snapshot, changes, graphicsData.getEdgeAnalyser());
+		metrics.stop(FrameMetrics.RENDER_MODEL, start);
+		
+		start = metrics.start();
+		graphicsData.getSceneIndex().update(changes, graphicsData.getRenderModel(), graphicsData.getEdgeAnalyser());
+		metrics.stop(FrameMetrics.SCENE_INDEX, start);
 		
 		// Re-calculate the viewing volume
 		CameraPosition camera = graphicsData.getCamera();
 		graphicsData.getViewingVolume().calculateViewingVolume(
 				camera.getPosition(), 
-				camera.getDirection(), 
+				camera.getDirection(cameraDirection), 
 				camera.getUp(), 
 				GraphicsData.NEAR_Z, 
 				GraphicsData.FAR_Z, 
@@ -127,13 +159,28 @@ public class RenderEventListener implements GLEventListener {
 		// Doesn't really need to be split into two methods, but it allows GrapicsConfigurations to 
 		// only override update() and leave the drawing to AbstractGraphicsConfiguration.
 		
+		// Nodes animating to the positions of a layout are drawn at motion quality like a moving camera,
+		// the governor goes first so that picking can see if the camera moved
+		RenderModel model = graphicsData.getRenderModel();
+		QualityGovernor governor = graphicsData.getQualityGovernor();
+		governor.beginFrame(camera, model.isAnimationFrame());
+		
+		start = metrics.start();
 		configuration.update();
+		metrics.stop(FrameMetrics.PICKING, start);
+		
 		configuration.drawScene();
 		
 		int errorCode = gl.glGetError();
 		if(errorCode != GL2.GL_NO_ERROR) {
 			System.err.println("Error Code: " + errorCode);
 		}
+		metrics.endFrame();
+		
+		// Keep drawing frames until the animation is over and the quality is back to full after the camera stops
+		if(governor.endFrame(metrics.getLatest(FrameMetrics.FRAME)) || model.isAnimating()) {
+			graphicsData.getEventBus().post(new UpdateNetworkViewEvent());
+		}
 	}
 
 
@@ -19,6 +19,7 @@ import javax.swing.Timer;
 
 import org.baderlab.cy3d.internal.data.GraphicsData;
 import org.baderlab.cy3d.internal.eventbus.UpdateNetworkViewEvent;
+import org.baderlab.cy3d.internal.picking.AsyncHoverPicker;
 
 /**
  * Provides reusable input event listening with pluggable Commands.
@@ -44,6 +45,8 @@ public class InputEventListener implements MouseListener, MouseMotionListener, M
 	private KeyCommand keyCommand = KeyCommand.EMPTY;
 	
 	private MouseCommand currentDragCommand;
+	
+	private AsyncHoverPicker hoverPicker;
 
 	
 	public InputEventListener(GraphicsData graphicsData) {
@@ -66,6 +69,14 @@ public class InputEventListener implements MouseListener, MouseMotionListener, M
 	public void setKeyCommand(KeyCommand keyCommand) {
 		this.keyCommand = keyCommand;
 	}
+	
+	/**
+	 * If set, mouse movement starts a hover pick in the background.
+	 * The picker's result listener should call {@link #hoverPickChanged()}.
+	 */
+	public void setHoverPicker(AsyncHoverPicker hoverPicker) {
+		this.hoverPicker = hoverPicker;
+	}
 
 	
 	public void attachAll(JComponent component) {
@@ -96,6 +107,7 @@ public class InputEventListener implements MouseListener, MouseMotionListener, M
 	@Override
 	public void mouseWheelMoved(MouseWheelEvent e) {
 		mouseWheelCommand.execute(e.getWheelRotation());
+		repeatHoverPick();
 		updateBothRenderers();
 	}
 
@@ -129,6 +141,10 @@ public class InputEventListener implements MouseListener, MouseMotionListener, M
 	public void mouseDragged(MouseEvent e) {
 		graphicsData.getPixelConverter().convertMouse(e, coords);
 		currentDragCommand.dragMove(coords[0], coords[1]);
+		// the drag may move the camera, pick where the mouse is now
+		if(hoverPicker != null) {
+			hoverPicker.requestPick(coords[0], coords[1], graphicsData.getScreenWidth(), graphicsData.getScreenHeight(), graphicsData.getCamera());
+		}
 		updateBothRenderers();
 	}
 
@@ -153,9 +169,31 @@ public class InputEventListener implements MouseListener, MouseMotionListener, M
 		// needed for hover highlight
 		graphicsData.setMouseCurrentX(coords[0]);
 		graphicsData.setMouseCurrentY(coords[1]);
+		if(hoverPicker != null) {
+			hoverPicker.requestPick(coords[0], coords[1], graphicsData.getScreenWidth(), graphicsData.getScreenHeight(), graphicsData.getCamera());
+		}
 		primaryMouseCommand.moved(coords[0], coords[1]);
 		updateBothRenderers();
 	}
+	
+	/**
+	 * The camera moved under a mouse that did not, what is under the mouse may have changed.
+	 */
+	private void repeatHoverPick() {
+		if(hoverPicker != null) {
+			hoverPicker.repeatLastPick(graphicsData.getCamera());
+		}
+	}
+	
+	/**
+	 * Lets the current command see the result of a background hover pick, may be called from any thread.
+	 */
+	public void hoverPickChanged() {
+		SwingUtilities.invokeLater(() -> {
+			primaryMouseCommand.moved(graphicsData.getMouseCurrentX(), graphicsData.getMouseCurrentY());
+			updateBothRenderers();
+		});
+	}
 
 	@Override
 	public void mouseEntered(MouseEvent e) {
@@ -165,6 +203,9 @@ public class InputEventListener implements MouseListener, MouseMotionListener, M
 
 	@Override
 	public void mouseExited(MouseEvent e) {
+		if(hoverPicker != null) {
+			hoverPicker.clear();
+		}
 		primaryMouseCommand.exited();
 		updateBothRenderers();
 	}
@@ -200,6 +241,7 @@ public class InputEventListener implements MouseListener, MouseMotionListener, M
 			keyCommand.right();
 		
 		if(key[UP] || key[DOWN] || key[LEFT] || key[RIGHT]) {
+			repeatHoverPick();
 			updateBothRenderers();
 		}
 		else {
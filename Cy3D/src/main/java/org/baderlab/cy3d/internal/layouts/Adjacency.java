@@ -0,0 +1,63 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import java.util.Arrays;
+
+/**
+ * Compressed adjacency lists of an undirected graph with weighted edges, used by the force layouts.
+ * The neighbours of node i are neighbours[offsets[i]] to neighbours[offsets[i+1]-1], every edge is
+ * listed at both of its nodes. Self loops are left out.
+ */
+public class Adjacency {
+
+	final int nodeCount;
+	final int[] offsets;
+	final int[] neighbours;
+	/** The weight of each entry in neighbours, null if all edges weigh 1 */
+	final float[] weights;
+
+	Adjacency(int nodeCount, int[] offsets, int[] neighbours, float[] weights) {
+		this.nodeCount = nodeCount;
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+		this.weights = weights;
+	}
+
+	/**
+	 * Builds the adjacency lists from the end points of the edges, parallel edges are listed once each.
+	 */
+	public static Adjacency fromEdges(int nodeCount, int[] edgeSources, int[] edgeTargets, int edgeCount) {
+		int[] offsets = new int[nodeCount + 1];
+		for(int e = 0; e < edgeCount; e++) {
+			if(edgeSources[e] != edgeTargets[e]) {
+				offsets[edgeSources[e] + 1]++;
+				offsets[edgeTargets[e] + 1]++;
+			}
+		}
+		for(int i = 0; i < nodeCount; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] neighbours = new int[offsets[nodeCount]];
+		int[] next = Arrays.copyOf(offsets, nodeCount);
+		for(int e = 0; e < edgeCount; e++) {
+			int s = edgeSources[e], t = edgeTargets[e];
+			if(s != t) {
+				neighbours[next[s]++] = t;
+				neighbours[next[t]++] = s;
+			}
+		}
+		return new Adjacency(nodeCount, offsets, neighbours, null);
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/** The number of entries in the lists, twice the number of edges */
+	public int getEntryCount() {
+		return offsets[nodeCount];
+	}
+
+	float weight(int entry) {
+		return weights == null ? 1 : weights[entry];
+	}
+}
@@ -0,0 +1,210 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import java.util.Arrays;
+
+import org.baderlab.cy3d.internal.tools.PositionToolkit;
+
+/**
+ * Octree over a set of points with the total mass and center of mass of every cell, so that the
+ * repulsion of a far away group of points can be approximated by a single point (Barnes-Hut).
+ *
+ * The cells are kept in flat arrays and reused between builds. The tree is built on one thread,
+ * after that any number of threads can call {@link #addRepulsion(int, double[], double, double, int[])}.
+ */
+public class BarnesHutTree {
+
+	private static final int EMPTY = -1;
+	private static final int INTERNAL = -2;
+
+	/** Points closer than this share a leaf instead of being split further */
+	private static final double MIN_HALF_SIZE = 1e-6;
+
+	/** Points closer than this don't push each other, there is no direction to push in */
+	private static final double MIN_DISTANCE_SQUARED = 1e-12;
+
+	private int cellCount;
+	private double[] centerOfMass = new double[0]; // sums of the weighted positions while building
+	private double[] mass = new double[0];
+	private double[] bounds = new double[0]; // x, y, z of the cell center and the half size
+	private int[] children = new int[0];     // 8 per cell, EMPTY for no child
+	private int[] body = new int[0];         // the point in a leaf, EMPTY or INTERNAL
+
+	private double[] positions;
+	private double[] masses;
+	private final double[] extent = new double[6];
+
+
+	/**
+	 * Builds the tree over the first count points of the positions array, x, y, z of each point.
+	 * The arrays are kept until the next build.
+	 *
+	 * @param masses the mass of each point, or null if they all weigh 1
+	 */
+	public void build(double[] positions, double[] masses, int count) {
+		this.positions = positions;
+		this.masses = masses;
+		cellCount = 0;
+		ensureCapacity(Math.max(16, count * 2));
+
+		PositionToolkit.findBounds(positions, count, extent);
+		double minX = extent[0], minY = extent[1], minZ = extent[2];
+		double maxX = extent[3], maxY = extent[4], maxZ = extent[5];
+		double half = Math.max(MIN_HALF_SIZE, Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ)) / 2) * 1.0001;
+		int root = newCell((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2, half);
+
+		for(int i = 0; i < count; i++) {
+			insert(root, i);
+		}
+
+		for(int c = 0; c < cellCount; c++) {
+			double m = mass[c];
+			if(m > 0) {
+				centerOfMass[c*3]   /= m;
+				centerOfMass[c*3+1] /= m;
+				centerOfMass[c*3+2] /= m;
+			}
+		}
+	}
+
+	private void insert(int cell, int point) {
+		double x = positions[point*3];
+		double y = positions[point*3+1];
+		double z = positions[point*3+2];
+		double m = masses == null ? 1 : masses[point];
+
+		while(true) {
+			mass[cell] += m;
+			centerOfMass[cell*3]   += x * m;
+			centerOfMass[cell*3+1] += y * m;
+			centerOfMass[cell*3+2] += z * m;
+
+			if(body[cell] == EMPTY) {
+				body[cell] = point;
+				return;
+			}
+			if(body[cell] >= 0) {
+				if(bounds[cell*4+3] < MIN_HALF_SIZE)
+					return; // the points are on top of each other, the leaf holds all of them
+
+				// push the point that was here down a level, then carry on with the new one
+				int other = body[cell];
+				body[cell] = INTERNAL;
+				int child = childFor(cell, positions[other*3], positions[other*3+1], positions[other*3+2]);
+				double otherMass = masses == null ? 1 : masses[other];
+				mass[child] = otherMass;
+				centerOfMass[child*3]   = positions[other*3]   * otherMass;
+				centerOfMass[child*3+1] = positions[other*3+1] * otherMass;
+				centerOfMass[child*3+2] = positions[other*3+2] * otherMass;
+				body[child] = other;
+			}
+			cell = childFor(cell, x, y, z);
+		}
+	}
+
+	/**
+	 * Returns the child cell of the octant the point is in, creating an empty one if there is none.
+	 */
+	private int childFor(int cell, double x, double y, double z) {
+		double cx = bounds[cell*4], cy = bounds[cell*4+1], cz = bounds[cell*4+2];
+		int octant = (x >= cx ? 1 : 0) | (y >= cy ? 2 : 0) | (z >= cz ? 4 : 0);
+		int child = children[cell*8 + octant];
+		if(child == EMPTY) {
+			double half = bounds[cell*4+3] / 2;
+			child = newCell(cx + ((octant & 1) != 0 ? half : -half),
+			                cy + ((octant & 2) != 0 ? half : -half),
+			                cz + ((octant & 4) != 0 ? half : -half), half);
+			children[cell*8 + octant] = child; // after newCell, it may have grown the arrays
+		}
+		return child;
+	}
+
+	private int newCell(double x, double y, double z, double half) {
+		int cell = cellCount++;
+		ensureCapacity(cellCount);
+		centerOfMass[cell*3] = centerOfMass[cell*3+1] = centerOfMass[cell*3+2] = 0;
+		mass[cell] = 0;
+		bounds[cell*4]   = x;
+		bounds[cell*4+1] = y;
+		bounds[cell*4+2] = z;
+		bounds[cell*4+3] = half;
+		Arrays.fill(children, cell*8, cell*8 + 8, EMPTY);
+		body[cell] = EMPTY;
+		return cell;
+	}
+
+	private void ensureCapacity(int cells) {
+		if(cells <= mass.length)
+			return;
+		int capacity = Math.max(cells, mass.length * 2);
+		centerOfMass = Arrays.copyOf(centerOfMass, capacity * 3);
+		mass = Arrays.copyOf(mass, capacity);
+		bounds = Arrays.copyOf(bounds, capacity * 4);
+		children = Arrays.copyOf(children, capacity * 8);
+		body = Arrays.copyOf(body, capacity);
+	}
+
+
+	/**
+	 * Adds the repulsion of all other points on the given point to its force, a point of mass m at
+	 * distance d pushes with m * strength / d. Cells that look smaller than theta from the point are treated as one point.
+	 *
+	 * @param force x, y, z of each point, only the entries of the given point are changed
+	 * @param stack Scratch space of the calling thread, returned grown if it was too small.
+	 * @return the stack
+	 */
+	public int[] addRepulsion(int point, double[] force, double strength, double theta, int[] stack) {
+		if(cellCount == 0)
+			return stack;
+
+		double x = positions[point*3];
+		double y = positions[point*3+1];
+		double z = positions[point*3+2];
+		double thetaSquared = theta * theta;
+		double fx = 0, fy = 0, fz = 0;
+
+		int top = 0;
+		stack[top++] = 0;
+		while(top > 0) {
+			int cell = stack[--top];
+			double dx = x - centerOfMass[cell*3];
+			double dy = y - centerOfMass[cell*3+1];
+			double dz = z - centerOfMass[cell*3+2];
+			double distanceSquared = dx * dx + dy * dy + dz * dz;
+
+			if(body[cell] == INTERNAL) {
+				double size = bounds[cell*4+3] * 2;
+				if(size * size >= thetaSquared * distanceSquared) {
+					if(top + 8 > stack.length) {
+						stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + 8));
+					}
+					for(int octant = 0; octant < 8; octant++) {
+						int child = children[cell*8 + octant];
+						if(child != EMPTY)
+							stack[top++] = child;
+					}
+					continue;
+				}
+			} else if(body[cell] == point || body[cell] == EMPTY) {
+				continue; // the point's own leaf, anything else in it is on top of the point
+			}
+
+			if(distanceSquared < MIN_DISTANCE_SQUARED)
+				continue;
+
+			// strength / d along the unit vector from the cell to the point
+			double f = mass[cell] * strength / distanceSquared;
+			fx += dx * f;
+			fy += dy * f;
+			fz += dz * f;
+		}
+
+		force[point*3]   += fx;
+		force[point*3+1] += fy;
+		force[point*3+2] += fz;
+		return stack;
+	}
+
+	public int getCellCount() {
+		return cellCount;
+	}
+}
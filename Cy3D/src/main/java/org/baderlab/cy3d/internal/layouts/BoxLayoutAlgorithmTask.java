@@ -1,20 +1,18 @@
 package org.baderlab.cy3d.internal.layouts;
 
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.baderlab.cy3d.internal.geometric.Vector3;
 import org.baderlab.cy3d.internal.tools.LayoutToolkit;
+import org.baderlab.cy3d.internal.tools.NodePositionBuffer;
+import org.baderlab.cy3d.internal.tools.PositionToolkit;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.view.layout.AbstractLayoutTask;
-import org.cytoscape.view.layout.LayoutNode;
 import org.cytoscape.view.layout.LayoutPartition;
 import org.cytoscape.view.layout.PartitionUtil;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.View;
-import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.work.TaskMonitor;
 import org.cytoscape.work.undo.UndoSupport;
 
@@ -31,36 +29,27 @@ public class BoxLayoutAlgorithmTask extends AbstractLayoutTask {
 		// Break graph into partitions
 		List<LayoutPartition> layoutPartitions = PartitionUtil.partition(networkView, false, null);
 		
-		Collection<Collection<View<CyNode>>> partitions = new HashSet<Collection<View<CyNode>>>(layoutPartitions.size());
+		// Positions are worked out in the buffers and written to the views once at the end
+		List<NodePositionBuffer> partitions = LayoutToolkit.createBuffers(layoutPartitions);
 		
-		Collection<View<CyNode>> partitionNodeViews;
-		
-		for (LayoutPartition partition : layoutPartitions) {
-			partitionNodeViews = new HashSet<View<CyNode>>();
-			
-			for (LayoutNode layoutNode : partition.getNodeList()) {
-				View<CyNode> nodeView = layoutNode.getNodeView();
-				partitionNodeViews.add(nodeView);
-			}
-			
-			partitions.add(partitionNodeViews);
-		}
-		
-		for (Collection<View<CyNode>> partition : partitions) {
+		for (NodePositionBuffer partition : partitions) {
 			arrangeAsBox(partition, 270);
 		}
 		
 		LayoutToolkit.arrangePartitions(partitions);
+		LayoutToolkit.commitAll(partitions);
 	}
 	
-	private void arrangeAsBox(Collection<View<CyNode>> nodeViews, double nodeSpacing) {		
-		int nodeCount = nodeViews.size();
+	private void arrangeAsBox(NodePositionBuffer nodes, double nodeSpacing) {		
+		int nodeCount = nodes.size();
 		int nodesPerFace = (int) Math.ceil(nodeCount / 6.0);
 		
 		int sideLength = (int) Math.ceil(Math.sqrt(nodesPerFace));
 		double halfSideLength = sideLength / 2.0;
 		
-		Vector3 center = LayoutToolkit.findCenter(nodeViews);
+		double[] centerPosition = new double[3];
+		PositionToolkit.findCenter(nodes.getPositions(), nodeCount, centerPosition);
+		Vector3 center = new Vector3(centerPosition[0], centerPosition[1], centerPosition[2]);
 		
 		// The position of the top-left corner of a face
 		Vector3 faceCorner;
@@ -69,8 +58,7 @@ public class BoxLayoutAlgorithmTask extends AbstractLayoutTask {
 		// A unit vector pointing downwards from the current corner
 		Vector3 faceDown = new Vector3();
 		
-		int count = 0;
-		for (View<CyNode> nodeView : nodeViews) {
+		for (int count = 0; count < nodeCount; count++) {
 			int face = count / nodesPerFace;
 		
 			switch (face) {
@@ -132,14 +120,10 @@ public class BoxLayoutAlgorithmTask extends AbstractLayoutTask {
 			// The column that this node belongs to on the current face
 			int column = (count % nodesPerFace) / sideLength + 1;
 			
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, 
-					faceCorner.x() + faceRight.x() * nodeSpacing * column + faceDown.x() * nodeSpacing * row);
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, 
-					faceCorner.y() + faceRight.y() * nodeSpacing * column + faceDown.y() * nodeSpacing * row);
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, 
+			nodes.set(count, 
+					faceCorner.x() + faceRight.x() * nodeSpacing * column + faceDown.x() * nodeSpacing * row,
+					faceCorner.y() + faceRight.y() * nodeSpacing * column + faceDown.y() * nodeSpacing * row,
 					faceCorner.z() + faceRight.z() * nodeSpacing * column + faceDown.z() * nodeSpacing * row);
-			
-			count++;
 		}
 	}
 }
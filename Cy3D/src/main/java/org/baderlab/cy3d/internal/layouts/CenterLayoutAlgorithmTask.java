@@ -1,13 +1,13 @@
 package org.baderlab.cy3d.internal.layouts;
 
-import java.util.Collection;
 import java.util.Set;
 
+import org.baderlab.cy3d.internal.tools.NodePositionBuffer;
+import org.baderlab.cy3d.internal.tools.PositionToolkit;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.view.layout.AbstractLayoutTask;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.View;
-import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.work.TaskMonitor;
 import org.cytoscape.work.undo.UndoSupport;
 
@@ -19,29 +19,15 @@ public class CenterLayoutAlgorithmTask extends AbstractLayoutTask {
 
 	@Override
 	protected void doLayout(TaskMonitor taskMonitor) {
-		Collection<View<CyNode>> nodeViews = networkView.getNodeViews();
-		int n = nodeViews.size();
+		NodePositionBuffer nodes = new NodePositionBuffer(networkView.getNodeViews());
+		int n = nodes.size();
 		
-		// MKTODO This duplicates the logic found in LayoutToolkit.findCenter()
-		
-		double sumX = 0, sumY = 0, sumZ = 0;
-		
-		for(View<CyNode> nodeView : nodeViews) {
-			sumX += nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION);
-			sumY += nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION);
-			sumZ += nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION);
-		}
-		
-		double originX = sumX / n;
-		double originY = sumY / n;
-		double originZ = sumZ / n;
+		double[] origin = new double[3];
+		PositionToolkit.findCenter(nodes.getPositions(), n, origin);
 		
 		// Translate graph to new origin
-		for(View<CyNode> nodeView : nodeViews) {
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION) - originX);
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION) - originY);
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION) - originZ);
-		}
+		PositionToolkit.translate(nodes.getPositions(), n, -origin[0], -origin[1], -origin[2]);
+		nodes.commit();
 		
 	}
 
@@ -19,7 +19,9 @@ public class FlattenLayoutAlgorithmTask extends AbstractLayoutTask {
 	@Override
 	protected void doLayout(TaskMonitor taskMonitor) {
 		for(View<CyNode> nodeView : networkView.getNodeViews()) {
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, 0.0d);
+			// every write is tracked as a change, skip the nodes that are flat already
+			if(nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION) != 0.0d)
+				nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, 0.0d);
 		}
 	}
 
@@ -0,0 +1,241 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.baderlab.cy3d.internal.tools.PositionToolkit;
+
+/**
+ * A 3D force-directed (Fruchterman-Reingold) simulation over plain arrays, one {@link #step()} at a time.
+ *
+ * Every pair of nodes pushes apart with k^2 / d, the Barnes-Hut octree approximates this for far away
+ * groups of nodes. Nodes joined by an edge pull together with d^2 / k, so that the edges settle near the
+ * ideal length k. Each node moves along the sum of its forces, but no further than the temperature, which
+ * cools down on every step. The forces on each node are summed on the fork/join common pool, every task
+ * only writes the entries of its own nodes.
+ *
+ * Nodes can have a mass and edges a weight, which is how the {@link MultilevelLayout} lays out clusters
+ * of nodes as one. Repulsion is scaled by the masses of both nodes, attraction by the edge weight, and a
+ * node moves by its force divided by its mass.
+ */
+public class ForceDirectedLayout {
+
+	/** Nodes per fork/join task, below this the forces are summed on the calling thread */
+	private static final int TASK_SIZE = 256;
+
+	/** The final temperature as a fraction of the starting temperature */
+	private static final double FINAL_TEMPERATURE = 0.01;
+
+	/** Stops early when the average move is below this fraction of the edge length */
+	private static final double CONVERGED_MOVE = 0.001;
+
+	private final int nodeCount;
+	private final double[] positions;
+	private final Adjacency adjacency;
+	private double[] masses = null;
+
+	private final double[] forces;
+	private final BarnesHutTree tree = new BarnesHutTree();
+	private final ForkJoinPool pool;
+
+	private double edgeLength = 80;
+	private double theta = 1.0;
+	private int iterations = 500;
+	private double initialTemperature = Double.NaN;
+
+	private int step = 0;
+	private double temperature;
+	private double cooling;
+	private double lastMove = Double.POSITIVE_INFINITY;
+
+
+	/**
+	 * @param positions x, y, z of each node, moved in place by {@link #step()}
+	 * @param edgeSources the source node index of each edge
+	 * @param edgeTargets the target node index of each edge, self loops are left out
+	 */
+	public ForceDirectedLayout(double[] positions, int nodeCount, int[] edgeSources, int[] edgeTargets, int edgeCount) {
+		this(positions, Adjacency.fromEdges(nodeCount, edgeSources, edgeTargets, edgeCount), ForkJoinPool.commonPool());
+	}
+
+	public ForceDirectedLayout(double[] positions, int nodeCount, int[] edgeSources, int[] edgeTargets, int edgeCount, ForkJoinPool pool) {
+		this(positions, Adjacency.fromEdges(nodeCount, edgeSources, edgeTargets, edgeCount), pool);
+	}
+
+	public ForceDirectedLayout(double[] positions, Adjacency adjacency, ForkJoinPool pool) {
+		this.positions = positions;
+		this.nodeCount = adjacency.nodeCount;
+		this.adjacency = adjacency;
+		this.pool = pool;
+		this.forces = new double[nodeCount * 3];
+	}
+
+	public void setEdgeLength(double edgeLength) {
+		this.edgeLength = edgeLength;
+	}
+
+	/** Cells that look smaller than theta (in radians, roughly) are treated as one node, 0 compares every pair */
+	public void setTheta(double theta) {
+		this.theta = theta;
+	}
+
+	public void setIterations(int iterations) {
+		this.iterations = Math.max(1, iterations);
+	}
+
+	/**
+	 * The furthest a node can move on the first step, by default enough to cross the whole layout in a few steps.
+	 * Lower it to only refine a layout that is roughly right already.
+	 */
+	public void setInitialTemperature(double initialTemperature) {
+		this.initialTemperature = initialTemperature;
+	}
+
+	/**
+	 * @param masses the mass of each node, or null if they all weigh 1
+	 */
+	public void setMasses(double[] masses) {
+		this.masses = masses;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public int getStep() {
+		return step;
+	}
+
+	public double[] getPositions() {
+		return positions;
+	}
+
+
+	/**
+	 * Spreads the nodes out if they start on top of each other or in a plane, nothing pushes
+	 * them apart along an axis that they all share the same value on.
+	 */
+	public void jitter(long seed) {
+		Random random = new Random(seed);
+		double[] bounds = new double[6];
+		PositionToolkit.findBounds(positions, nodeCount, bounds);
+		for(int axis = 0; axis < 3; axis++) {
+			double spread = bounds[axis+3] - bounds[axis] < edgeLength ? edgeLength * Math.cbrt(nodeCount) : edgeLength * 0.01;
+			for(int i = 0; i < nodeCount; i++) {
+				positions[i*3 + axis] += (random.nextDouble() - 0.5) * spread;
+			}
+		}
+	}
+
+	/**
+	 * Moves every node once.
+	 *
+	 * @return false if the layout is done, either because it ran all its iterations or because the nodes stopped moving
+	 */
+	public boolean step() {
+		if(isDone())
+			return false;
+
+		if(step == 0) {
+			// cooling down to a fraction of where it started
+			temperature = Double.isNaN(initialTemperature) ? edgeLength * Math.max(1, Math.cbrt(nodeCount)) : initialTemperature;
+			cooling = Math.pow(FINAL_TEMPERATURE, 1.0 / iterations);
+		}
+
+		tree.build(positions, masses, nodeCount);
+		Arrays.fill(forces, 0);
+		if(nodeCount <= TASK_SIZE)
+			addForces(0, nodeCount, new int[64]);
+		else
+			pool.invoke(new ForceTask(0, nodeCount));
+
+		double totalMove = 0;
+		for(int i = 0; i < nodeCount; i++) {
+			double fx = forces[i*3], fy = forces[i*3+1], fz = forces[i*3+2];
+			double length = Math.sqrt(fx * fx + fy * fy + fz * fz);
+			if(length > 0) {
+				double move = Math.min(length, temperature);
+				double scale = move / length;
+				positions[i*3]   += fx * scale;
+				positions[i*3+1] += fy * scale;
+				positions[i*3+2] += fz * scale;
+				totalMove += move;
+			}
+		}
+
+		lastMove = nodeCount == 0 ? 0 : totalMove / nodeCount;
+		temperature *= cooling;
+		step++;
+		return !isDone();
+	}
+
+	public boolean isDone() {
+		return step >= iterations || lastMove < CONVERGED_MOVE * edgeLength;
+	}
+
+	/**
+	 * Sums the forces on each node in the range, divided by the node's mass.
+	 */
+	private void addForces(int from, int to, int[] stack) {
+		double k = edgeLength;
+		double repulsion = k * k;
+		int[] offsets = adjacency.offsets;
+		int[] neighbours = adjacency.neighbours;
+		float[] weights = adjacency.weights;
+
+		for(int i = from; i < to; i++) {
+			// the node's own mass cancels out of its repulsion when moving by force / mass
+			stack = tree.addRepulsion(i, forces, repulsion, theta, stack);
+
+			double x = positions[i*3], y = positions[i*3+1], z = positions[i*3+2];
+			double fx = 0, fy = 0, fz = 0;
+			for(int n = offsets[i]; n < offsets[i+1]; n++) {
+				int j = neighbours[n];
+				double dx = positions[j*3] - x;
+				double dy = positions[j*3+1] - y;
+				double dz = positions[j*3+2] - z;
+				// d^2 / k along the unit vector towards the neighbour
+				double f = Math.sqrt(dx * dx + dy * dy + dz * dz) / k;
+				if(weights != null)
+					f *= weights[n];
+				fx += dx * f;
+				fy += dy * f;
+				fz += dz * f;
+			}
+			if(masses != null) {
+				double m = masses[i];
+				fx /= m;
+				fy /= m;
+				fz /= m;
+			}
+			forces[i*3]   += fx;
+			forces[i*3+1] += fy;
+			forces[i*3+2] += fz;
+		}
+	}
+
+
+	/**
+	 * Sums the forces of a range of nodes, splitting it in half until it is small enough.
+	 */
+	private class ForceTask extends RecursiveAction {
+		private final int from, to;
+
+		ForceTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= TASK_SIZE) {
+				addForces(from, to, new int[64]);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ForceTask(from, middle), new ForceTask(middle, to));
+			}
+		}
+	}
+}
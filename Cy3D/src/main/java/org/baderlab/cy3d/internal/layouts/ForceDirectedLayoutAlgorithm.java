@@ -0,0 +1,28 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import java.util.Set;
+
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.layout.AbstractLayoutAlgorithm;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.undo.UndoSupport;
+
+public class ForceDirectedLayoutAlgorithm extends AbstractLayoutAlgorithm {
+
+	public ForceDirectedLayoutAlgorithm(UndoSupport undo) {
+		super("force-directed-3D", "3D Force Directed (Barnes-Hut)", undo);
+	}
+
+	@Override
+	public Object createLayoutContext() {
+		return new ForceDirectedLayoutContext();
+	}
+
+	@Override
+	public TaskIterator createTaskIterator(CyNetworkView networkView, Object context, Set<View<CyNode>> nodesToLayOut, String layoutAttribute) {
+		return new TaskIterator(new ForceDirectedLayoutAlgorithmTask(getName(), networkView, nodesToLayOut, (ForceDirectedLayoutContext) context, layoutAttribute, undoSupport));
+	}
+	
+}
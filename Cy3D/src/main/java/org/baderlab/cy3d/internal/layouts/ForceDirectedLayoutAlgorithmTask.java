@@ -0,0 +1,135 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.baderlab.cy3d.internal.tools.LayoutToolkit;
+import org.baderlab.cy3d.internal.tools.NodePositionBuffer;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.layout.AbstractLayoutTask;
+import org.cytoscape.view.layout.LayoutEdge;
+import org.cytoscape.view.layout.LayoutNode;
+import org.cytoscape.view.layout.LayoutPartition;
+import org.cytoscape.view.layout.PartitionUtil;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.undo.UndoSupport;
+
+/**
+ * Lays out each partition with a {@link MultilevelLayout}, or directly with a {@link ForceDirectedLayout} when
+ * the multilevel tunable is off, starting from the current node positions. The nodes are only moved when all
+ * the partitions are done, cancelling leaves them where they were.
+ */
+public class ForceDirectedLayoutAlgorithmTask extends AbstractLayoutTask {
+
+	private static final long SEED = 42;
+
+	private final ForceDirectedLayoutContext context;
+
+	public ForceDirectedLayoutAlgorithmTask(String name, CyNetworkView networkView, Set<View<CyNode>> nodesToLayOut, ForceDirectedLayoutContext context, String layoutAttribute, UndoSupport undo) {
+		super(name, networkView, nodesToLayOut, layoutAttribute, undo);
+		this.context = context;
+	}
+
+	@Override
+	protected void doLayout(TaskMonitor taskMonitor) {
+		taskMonitor.setTitle("3D Force Directed Layout");
+
+		// Break graph into partitions
+		List<LayoutPartition> layoutPartitions = PartitionUtil.partition(networkView, false, null);
+
+		// in the order of the partitions' node lists, the adjacency uses the same indices
+		List<NodePositionBuffer> partitions = LayoutToolkit.createBuffers(layoutPartitions);
+
+		// The progress is shared between the partitions by their number of nodes
+		double totalNodes = 0;
+		for (NodePositionBuffer partition : partitions) {
+			totalNodes += partition.size();
+		}
+		double doneNodes = 0;
+
+		for (int p = 0; p < partitions.size(); p++) {
+			if (cancelled)
+				return;
+
+			NodePositionBuffer partition = partitions.get(p);
+			if (partition.size() > 1) {
+				taskMonitor.setStatusMessage("Laying out " + partition.size() + " nodes");
+				if (!arrangeByForces(layoutPartitions.get(p), partition, taskMonitor, doneNodes / totalNodes, partition.size() / totalNodes))
+					return;
+			}
+			doneNodes += partition.size();
+		}
+
+		LayoutToolkit.arrangePartitions(partitions);
+		LayoutToolkit.commitAll(partitions);
+	}
+
+	/**
+	 * @param progress the progress before this partition
+	 * @param share the part of the progress that this partition takes
+	 * @return false if the task was cancelled
+	 */
+	private boolean arrangeByForces(LayoutPartition partition, NodePositionBuffer nodes, TaskMonitor taskMonitor, double progress, double share) {
+		MultilevelLayout layout = new MultilevelLayout(nodes.getPositions(), toAdjacency(partition), SEED);
+		layout.setIterations(context.iterations);
+		layout.setEdgeLength(context.edgeLength);
+		layout.setTheta(context.theta);
+		if (!context.multilevel)
+			layout.setMaxLevels(1);
+
+		while (layout.step()) {
+			if (cancelled)
+				return false;
+			taskMonitor.setProgress(progress + layout.getProgress() * share);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the edges of the partition between the indices of its node list.
+	 */
+	private static Adjacency toAdjacency(LayoutPartition partition) {
+		List<LayoutNode> nodes = partition.getNodeList();
+		List<LayoutEdge> edges = partition.getEdgeList();
+
+		// The partition numbers its nodes in list order, only fall back to a map if it doesn't
+		Map<LayoutNode, Integer> indices = null;
+		for (int i = 0; i < nodes.size(); i++) {
+			int index = nodes.get(i).getIndex();
+			if (index < 0 || index >= nodes.size() || nodes.get(index) != nodes.get(i)) {
+				indices = new IdentityHashMap<LayoutNode, Integer>(nodes.size());
+				for (int j = 0; j < nodes.size(); j++) {
+					indices.put(nodes.get(j), j);
+				}
+				break;
+			}
+		}
+
+		int[] edgeSources = new int[edges.size()];
+		int[] edgeTargets = new int[edges.size()];
+		int edgeCount = 0;
+		for (LayoutEdge edge : edges) {
+			int source = indexOf(edge.getSource(), nodes, indices);
+			int target = indexOf(edge.getTarget(), nodes, indices);
+			if (source >= 0 && target >= 0) {
+				edgeSources[edgeCount] = source;
+				edgeTargets[edgeCount] = target;
+				edgeCount++;
+			}
+		}
+		return Adjacency.fromEdges(nodes.size(), edgeSources, edgeTargets, edgeCount);
+	}
+
+	private static int indexOf(LayoutNode node, List<LayoutNode> nodes, Map<LayoutNode, Integer> indices) {
+		if (indices == null) {
+			int index = node.getIndex();
+			return index >= 0 && index < nodes.size() && nodes.get(index) == node ? index : -1;
+		}
+		Integer index = indices.get(node);
+		return index == null ? -1 : index;
+	}
+}
@@ -0,0 +1,19 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import org.cytoscape.work.Tunable;
+
+public class ForceDirectedLayoutContext {
+
+	@Tunable(description="Number of iterations", gravity=1.0)
+	public int iterations = 500;
+
+	@Tunable(description="Ideal edge length", gravity=2.0)
+	public double edgeLength = 80;
+
+	@Tunable(description="Barnes-Hut accuracy (0 compares every pair of nodes, larger is faster)", gravity=3.0)
+	public double theta = 1.0;
+
+	@Tunable(description="Lay out coarsened versions of the network first (faster on large networks)", gravity=4.0)
+	public boolean multilevel = true;
+
+}
@@ -0,0 +1,350 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lays out a large graph by first laying out smaller and smaller approximations of it.
+ *
+ * The graph is coarsened by heavy edge matching, each node is merged with the neighbour it shares the
+ * heaviest edge with relative to their masses, and nodes with a single neighbour join that neighbour's
+ * cluster so that stars shrink too. This repeats until the graph is small or stops shrinking. The coarsest
+ * graph gets the full {@link ForceDirectedLayout}, then each finer level starts with its nodes around their
+ * cluster's position and is only refined for a few steps with a low temperature.
+ *
+ * Each level keeps its adjacency lists, masses and the cluster of each node, the memory used is about
+ * twice that of the finest level. The given positions are the finest level's, they are
+ * overwritten when the layout reaches that level.
+ *
+ * Call {@link #step()} until it returns false, like the {@link ForceDirectedLayout}.
+ */
+public class MultilevelLayout {
+
+	/** Coarsening stops at this many nodes */
+	private static final int COARSEST_SIZE = 64;
+
+	/** Coarsening stops when a level keeps more than this fraction of the nodes of the level before */
+	private static final double MIN_REDUCTION = 0.8;
+
+	/** Steps at each level but the coarsest, as a fraction of the iterations */
+	private static final double REFINE_FRACTION = 0.1;
+	private static final int MIN_REFINE_ITERATIONS = 20;
+
+
+	private static class Level {
+		final Adjacency adjacency;
+		final double[] masses;
+		/** The node of the next coarser level that each node was merged into, null for the coarsest level */
+		int[] clusters;
+		double[] positions;
+
+		Level(Adjacency adjacency, double[] masses) {
+			this.adjacency = adjacency;
+			this.masses = masses;
+		}
+	}
+
+
+	private final double[] positions;
+	private final List<Level> levels = new ArrayList<>(); // finest first
+	private final ForkJoinPool pool;
+	private final Random random;
+
+	private double edgeLength = 80;
+	private double theta = 1.0;
+	private int iterations = 500;
+	private int maxLevels = Integer.MAX_VALUE;
+
+	private int currentLevel = -1;
+	private ForceDirectedLayout current;
+	private double totalWork;
+	private double doneWork;
+
+
+	/**
+	 * @param positions x, y, z of each node, the starting positions are used for the coarse levels too
+	 * @param seed for breaking ties when matching and placing nodes around their cluster
+	 */
+	public MultilevelLayout(double[] positions, Adjacency adjacency, long seed) {
+		this(positions, adjacency, seed, ForkJoinPool.commonPool());
+	}
+
+	public MultilevelLayout(double[] positions, Adjacency adjacency, long seed, ForkJoinPool pool) {
+		this.positions = positions;
+		this.pool = pool;
+		this.random = new Random(seed);
+		levels.add(new Level(adjacency, null));
+	}
+
+	public void setEdgeLength(double edgeLength) {
+		this.edgeLength = edgeLength;
+	}
+
+	public void setTheta(double theta) {
+		this.theta = theta;
+	}
+
+	/** The iterations of the coarsest level, the finer levels get a fraction of them */
+	public void setIterations(int iterations) {
+		this.iterations = Math.max(1, iterations);
+	}
+
+	/** 1 lays out the graph directly */
+	public void setMaxLevels(int maxLevels) {
+		this.maxLevels = Math.max(1, maxLevels);
+	}
+
+	public int getLevelCount() {
+		return levels.size();
+	}
+
+	/**
+	 * Returns the fraction of the work done so far, between 0 and 1.
+	 */
+	public double getProgress() {
+		if(current == null)
+			return currentLevel < 0 ? 0 : 1;
+		double levelWork = (double) current.getStep() * levels.get(currentLevel).adjacency.nodeCount;
+		return Math.min(1, (doneWork + levelWork) / totalWork);
+	}
+
+
+	/**
+	 * Runs one step of the layout, the first call coarsens the graph.
+	 *
+	 * @return false if the layout is done and the positions have been written
+	 */
+	public boolean step() {
+		if(currentLevel < 0) {
+			coarsen();
+			currentLevel = levels.size() - 1;
+			startLevel(true);
+		}
+		if(current == null)
+			return false;
+
+		if(current.step())
+			return true;
+
+		// Done with this level, carry its positions to the next finer one
+		Level level = levels.get(currentLevel);
+		doneWork += (double) current.getIterations() * level.adjacency.nodeCount;
+		if(currentLevel == 0) {
+			current = null;
+			return false;
+		}
+
+		Level finer = levels.get(currentLevel - 1);
+		prolong(level, finer);
+		level.positions = null;
+		currentLevel--;
+		startLevel(false);
+		return true;
+	}
+
+	private void startLevel(boolean coarsest) {
+		Level level = levels.get(currentLevel);
+		current = new ForceDirectedLayout(level.positions, level.adjacency, pool);
+		current.setMasses(level.masses);
+		current.setEdgeLength(edgeLength);
+		current.setTheta(theta);
+		if(coarsest) {
+			current.setIterations(iterations);
+			current.jitter(random.nextLong());
+		} else {
+			current.setIterations(refineIterations());
+			// about the spacing of the clusters of the level before
+			current.setInitialTemperature(edgeLength * Math.cbrt(levels.get(0).adjacency.nodeCount / (double) level.adjacency.nodeCount));
+		}
+	}
+
+	private int refineIterations() {
+		return Math.max(MIN_REFINE_ITERATIONS, (int) (iterations * REFINE_FRACTION));
+	}
+
+
+	private void coarsen() {
+		Level finest = levels.get(0);
+		finest.positions = positions;
+
+		Level level = finest;
+		while(levels.size() < maxLevels && level.adjacency.nodeCount > COARSEST_SIZE) {
+			Level coarser = coarsen(level);
+			if(coarser.adjacency.nodeCount > level.adjacency.nodeCount * MIN_REDUCTION) {
+				level.clusters = null;
+				break;
+			}
+			levels.add(coarser);
+			level = coarser;
+		}
+
+		totalWork = (double) iterations * level.adjacency.nodeCount;
+		for(int l = 0; l < levels.size() - 1; l++) {
+			totalWork += (double) refineIterations() * levels.get(l).adjacency.nodeCount;
+		}
+	}
+
+	/**
+	 * Merges the nodes of the level into clusters, sets the clusters of the level and returns the
+	 * coarser level with one node per cluster at the average position of its nodes.
+	 */
+	private Level coarsen(Level level) {
+		Adjacency adjacency = level.adjacency;
+		int n = adjacency.nodeCount;
+		int[] offsets = adjacency.offsets;
+		int[] neighbours = adjacency.neighbours;
+
+		int[] clusters = new int[n];
+		Arrays.fill(clusters, -1);
+		int clusterCount = 0;
+
+		// Match in random order so that the clusters are spread evenly over the graph
+		int[] order = new int[n];
+		for(int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		for(int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		for(int u : order) {
+			if(clusters[u] >= 0 || offsets[u+1] - offsets[u] == 1)
+				continue; // nodes with one neighbour are folded into it below
+			int best = -1;
+			double bestScore = 0;
+			for(int e = offsets[u]; e < offsets[u+1]; e++) {
+				int v = neighbours[e];
+				if(clusters[v] >= 0 || v == u)
+					continue;
+				// prefer heavy edges between light nodes, which keeps the clusters about the same size
+				double score = adjacency.weight(e) / (mass(level, u) * mass(level, v));
+				if(score > bestScore) {
+					bestScore = score;
+					best = v;
+				}
+			}
+			clusters[u] = clusterCount;
+			if(best >= 0)
+				clusters[best] = clusterCount;
+			clusterCount++;
+		}
+
+		// Leaves join the cluster of their neighbour, unless the neighbour is a leaf too
+		for(int u = 0; u < n; u++) {
+			if(clusters[u] < 0) {
+				int v = neighbours[offsets[u]];
+				if(clusters[v] >= 0) {
+					clusters[u] = clusters[v];
+				} else {
+					clusters[u] = clusterCount;
+					clusters[v] = clusterCount;
+					clusterCount++;
+				}
+			}
+		}
+
+		// Masses and positions are the sums and the weighted averages of the clusters' nodes
+		double[] masses = new double[clusterCount];
+		double[] positions = new double[clusterCount * 3];
+		for(int u = 0; u < n; u++) {
+			int c = clusters[u];
+			double m = mass(level, u);
+			masses[c] += m;
+			positions[c*3]   += level.positions[u*3]   * m;
+			positions[c*3+1] += level.positions[u*3+1] * m;
+			positions[c*3+2] += level.positions[u*3+2] * m;
+		}
+		for(int c = 0; c < clusterCount; c++) {
+			positions[c*3]   /= masses[c];
+			positions[c*3+1] /= masses[c];
+			positions[c*3+2] /= masses[c];
+		}
+
+		level.clusters = clusters;
+		Level coarser = new Level(mergeEdges(adjacency, clusters, clusterCount), masses);
+		coarser.positions = positions;
+		return coarser;
+	}
+
+	/**
+	 * Returns the adjacency lists between the clusters, the weight of an edge between two clusters
+	 * is the sum of the weights of the edges between their nodes.
+	 */
+	private static Adjacency mergeEdges(Adjacency adjacency, int[] clusters, int clusterCount) {
+		int n = adjacency.nodeCount;
+
+		// The nodes of each cluster
+		int[] memberOffsets = new int[clusterCount + 1];
+		for(int u = 0; u < n; u++) {
+			memberOffsets[clusters[u] + 1]++;
+		}
+		for(int c = 0; c < clusterCount; c++) {
+			memberOffsets[c + 1] += memberOffsets[c];
+		}
+		int[] members = new int[n];
+		int[] next = Arrays.copyOf(memberOffsets, clusterCount);
+		for(int u = 0; u < n; u++) {
+			members[next[clusters[u]]++] = u;
+		}
+
+		// The coarse lists can't be longer than the fine ones, they are trimmed at the end
+		int[] offsets = new int[clusterCount + 1];
+		int[] neighbours = new int[adjacency.getEntryCount()];
+		float[] weights = new float[adjacency.getEntryCount()];
+		int[] lastSeen = next; // reused, the cluster that last listed each cluster as a neighbour
+		Arrays.fill(lastSeen, -1);
+		int[] entry = new int[clusterCount];
+		int count = 0;
+
+		for(int c = 0; c < clusterCount; c++) {
+			offsets[c] = count;
+			for(int m = memberOffsets[c]; m < memberOffsets[c+1]; m++) {
+				int u = members[m];
+				for(int e = adjacency.offsets[u]; e < adjacency.offsets[u+1]; e++) {
+					int d = clusters[adjacency.neighbours[e]];
+					if(d == c)
+						continue;
+					if(lastSeen[d] != c) {
+						lastSeen[d] = c;
+						entry[d] = count;
+						neighbours[count] = d;
+						weights[count] = 0;
+						count++;
+					}
+					weights[entry[d]] += adjacency.weight(e);
+				}
+			}
+		}
+		offsets[clusterCount] = count;
+
+		return new Adjacency(clusterCount, offsets, Arrays.copyOf(neighbours, count), Arrays.copyOf(weights, count));
+	}
+
+	/**
+	 * Places the nodes of the finer level around the position of their cluster.
+	 */
+	private void prolong(Level coarse, Level fine) {
+		int n = fine.adjacency.nodeCount;
+		// a fraction of the spacing of the fine level, so that the nodes of a cluster don't start on top of each other
+		double spread = 0.3 * edgeLength * Math.cbrt(levels.get(0).adjacency.nodeCount / (double) n);
+		if(fine.positions == null) {
+			fine.positions = new double[n * 3];
+		}
+		for(int u = 0; u < n; u++) {
+			int c = fine.clusters[u];
+			fine.positions[u*3]   = coarse.positions[c*3]   + (random.nextDouble() - 0.5) * spread;
+			fine.positions[u*3+1] = coarse.positions[c*3+1] + (random.nextDouble() - 0.5) * spread;
+			fine.positions[u*3+2] = coarse.positions[c*3+2] + (random.nextDouble() - 0.5) * spread;
+		}
+	}
+
+	private static double mass(Level level, int node) {
+		return level.masses == null ? 1 : level.masses[node];
+	}
+}
@@ -1,20 +1,17 @@
 package org.baderlab.cy3d.internal.layouts;
 
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import org.baderlab.cy3d.internal.geometric.Vector3;
 import org.baderlab.cy3d.internal.tools.LayoutToolkit;
+import org.baderlab.cy3d.internal.tools.NodePositionBuffer;
+import org.baderlab.cy3d.internal.tools.PositionToolkit;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.view.layout.AbstractLayoutTask;
-import org.cytoscape.view.layout.LayoutNode;
 import org.cytoscape.view.layout.LayoutPartition;
 import org.cytoscape.view.layout.PartitionUtil;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.View;
-import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.work.TaskMonitor;
 import org.cytoscape.work.undo.UndoSupport;
 
@@ -31,38 +28,27 @@ public class SphericalLayoutAlgorithmTask extends AbstractLayoutTask {
 		// Break graph into partitions
 		List<LayoutPartition> layoutPartitions = PartitionUtil.partition(networkView, false, null);
 		
-		Collection<Collection<View<CyNode>>> partitions = new HashSet<Collection<View<CyNode>>>(layoutPartitions.size());
+		// Positions are worked out in the buffers and written to the views once at the end
+		List<NodePositionBuffer> partitions = LayoutToolkit.createBuffers(layoutPartitions);
 		
-		Collection<View<CyNode>> partitionNodeViews;
-		
-		for (LayoutPartition partition : layoutPartitions) {
-			partitionNodeViews = new HashSet<View<CyNode>>();
-			
-			for (LayoutNode layoutNode : partition.getNodeList()) {
-				View<CyNode> nodeView = layoutNode.getNodeView();
-				partitionNodeViews.add(nodeView);
-			}
-			
-			partitions.add(partitionNodeViews);
-		}
-		
-		for (Collection<View<CyNode>> partition : partitions) {
+		for (NodePositionBuffer partition : partitions) {
 			arrangeAsSphere(partition);
 		}
 		
 		LayoutToolkit.arrangePartitions(partitions);
+		LayoutToolkit.commitAll(partitions);
 	}
 	
-	private void arrangeAsSphere(Collection<View<CyNode>> nodeViews) {
-		int nodeCount = nodeViews.size();
-		int current = 0;
+	private void arrangeAsSphere(NodePositionBuffer nodes) {
+		int nodeCount = nodes.size();
 		
 		double sphereRadius = findSphereRadius(nodeCount);
 		double x, y, z;
 		
-		Vector3 sphereCenter = LayoutToolkit.findCenter(nodeViews);
+		double[] sphereCenter = new double[3];
+		PositionToolkit.findCenter(nodes.getPositions(), nodeCount, sphereCenter);
 		
-		for (View<CyNode> nodeView : nodeViews) {
+		for (int current = 0; current < nodeCount; current++) {
 			
 			int nodesPerLevel = (int) Math.max(Math.sqrt(nodeCount), 3);
 			
@@ -86,11 +72,7 @@ public class SphericalLayoutAlgorithmTask extends AbstractLayoutTask {
 			y *= sphereRadius;
 			z *= sphereRadius;
 			
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, x + sphereCenter.x());
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, y + sphereCenter.y());
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, z + sphereCenter.z());	
-			
-			current++;
+			nodes.set(current, x + sphereCenter[0], y + sphereCenter[1], z + sphereCenter[2]);
 		}
 	}
 	
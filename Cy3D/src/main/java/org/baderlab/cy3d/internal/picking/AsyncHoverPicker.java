@@ -0,0 +1,143 @@
+package org.baderlab.cy3d.internal.picking;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.baderlab.cy3d.internal.camera.CameraPosition;
+import org.baderlab.cy3d.internal.camera.SimpleCamera;
+import org.baderlab.cy3d.internal.data.PickingData;
+import org.baderlab.cy3d.internal.data.PickingIndex;
+import org.baderlab.cy3d.internal.data.PickingScene;
+import org.baderlab.cy3d.internal.data.SceneIndex;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.tools.GeometryToolkit;
+
+/**
+ * Finds the node or edge under the mouse on a background thread, so that mouse movement
+ * never makes the render loop wait for picking and frames where the mouse did not move
+ * do not pick at all.
+ *
+ * Requests are made from the input handlers with {@link #requestPick(int, int, int, int, CameraPosition)},
+ * if several requests arrive while the worker is busy only the latest one is picked.
+ * The worker picks against the latest {@link PickingScene} that the {@link SceneIndex} published,
+ * with its own {@link PickingIndex}, so the render thread never waits for a pick.
+ */
+public class AsyncHoverPicker {
+
+	private static class Request {
+		final int x, y, screenWidth, screenHeight;
+		final CameraPosition camera;
+		final int generation;
+
+		Request(int x, int y, int screenWidth, int screenHeight, CameraPosition camera, int generation) {
+			this.x = x;
+			this.y = y;
+			this.screenWidth = screenWidth;
+			this.screenHeight = screenHeight;
+			// The camera is changed on the EDT, the worker needs its own copy
+			this.camera = new SimpleCamera(camera.getPosition(), camera.getTarget(), camera.getUp());
+			this.generation = generation;
+		}
+	}
+
+	private final PickingData pickingData;
+	private final SceneIndex sceneIndex;
+	/** Only used on the worker thread */
+	private final PickingIndex pickingIndex = new PickingIndex();
+	private final Runnable resultListener;
+
+	private final ExecutorService executor;
+	private final AtomicReference<Request> pendingRequest = new AtomicReference<>();
+	/** Guarded by this like the generation, so that {@link #clear()} can't be undone by a request in flight */
+	private Request lastRequest;
+	/** Counts the calls to {@link #clear()}, a pick from an older generation is thrown away */
+	private int generation = 0;
+
+
+	/**
+	 * @param resultListener Called on the worker thread when the picked node or edge changes.
+	 */
+	public AsyncHoverPicker(PickingData pickingData, SceneIndex sceneIndex, Runnable resultListener) {
+		this.pickingData = pickingData;
+		this.sceneIndex = sceneIndex;
+		this.resultListener = resultListener;
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Cy3D hover picking");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+
+	/**
+	 * Picks at the given mouse position, in window coordinates.
+	 */
+	public synchronized void requestPick(int x, int y, int screenWidth, int screenHeight, CameraPosition camera) {
+		submit(new Request(x, y, screenWidth, screenHeight, camera, generation));
+	}
+
+	/**
+	 * Picks again at the last mouse position, for when the scene or the camera changed under the mouse.
+	 */
+	public synchronized void repeatLastPick(CameraPosition camera) {
+		Request request = lastRequest;
+		if(request != null) {
+			submit(new Request(request.x, request.y, request.screenWidth, request.screenHeight, camera, request.generation));
+		}
+	}
+
+	/**
+	 * Forgets the last mouse position and clears the result, for when the mouse leaves the window.
+	 */
+	public synchronized void clear() {
+		generation++;
+		lastRequest = null;
+		pendingRequest.set(null);
+		pickingData.setClosestPicked(PickingData.NO_INDEX, PickingData.NO_INDEX);
+	}
+
+	/**
+	 * Must hold the monitor.
+	 */
+	private void submit(Request request) {
+		if(request.generation != generation)
+			return;
+		lastRequest = request;
+		if(pendingRequest.getAndSet(request) == null && !executor.isShutdown()) {
+			executor.execute(this::pickPending);
+		}
+	}
+
+	public void dispose() {
+		executor.shutdownNow();
+	}
+
+
+	private void pickPending() {
+		Request request = pendingRequest.getAndSet(null);
+		if(request == null || request.screenWidth <= 0 || request.screenHeight <= 0)
+			return;
+
+		Vector3 origin = request.camera.getPosition();
+		Vector3 direction = GeometryToolkit.convertScreenTo3d(request.x, request.y,
+				request.screenWidth, request.screenHeight, 1.0, request.camera).subtract(origin);
+
+		pickingIndex.update(sceneIndex.getPickingScene());
+		long node = pickingIndex.pickNode(origin, direction);
+		long edge = node == PickingData.NO_INDEX ? pickingIndex.pickEdge(origin, direction) : PickingData.NO_INDEX;
+
+		boolean changed;
+		synchronized(this) {
+			// The mouse left the window while this was picking, the cleared result has to stay
+			if(request.generation != generation)
+				return;
+			changed = node != pickingData.getClosestPickedNodeIndex() || edge != pickingData.getClosestPickedEdgeIndex();
+			pickingData.setClosestPicked(node, edge);
+		}
+
+		if(changed) {
+			resultListener.run();
+		}
+	}
+}
@@ -0,0 +1,416 @@
+package org.baderlab.cy3d.internal.picking;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import javax.media.opengl.glu.GLU;
+
+import org.baderlab.cy3d.internal.camera.CameraPosition;
+import org.baderlab.cy3d.internal.cytoscape.view.Cy3DVisualLexicon;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.GraphicsSelectionData;
+import org.baderlab.cy3d.internal.data.PickingData;
+import org.baderlab.cy3d.internal.data.RenderModel;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.rendering.RenderArcEdgesProcedure;
+import org.baderlab.cy3d.internal.rendering.RenderNodesProcedure;
+import org.baderlab.cy3d.internal.rendering.shapes.EdgeMeshDrawer;
+import org.baderlab.cy3d.internal.rendering.shapes.ScalableShapeDrawer;
+import org.baderlab.cy3d.internal.rendering.shapes.ScalableShapeDrawer.Detail;
+import org.baderlab.cy3d.internal.tools.RenderColor;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+
+/**
+ * Picks by rendering the nodes and edges into an offscreen framebuffer with each shape's
+ * id encoded as a flat color, and then reading back only the pixels under the mouse or
+ * inside the selection rectangle through a pixel buffer object.
+ *
+ * The id buffer is only rendered again when the camera, the screen size or the shapes in the
+ * network change, so most frames, including the ones where only the selection changed, only
+ * cost a tiny read back. Drag selection only finds shapes that are not hidden behind others,
+ * unlike ray casting.
+ *
+ * Only needs framebuffer and buffer objects (OpenGL 2.1 with ARB_framebuffer_object),
+ * which software renderers like Mesa's llvmpipe provide. When they are not available
+ * the fallback processor is used instead, as it is for networks with more nodes or edges
+ * than there are ids.
+ */
+public class ColorIdPickingProcessor implements ShapePickingProcessor {
+
+	/** The size of the square read around the mouse, so that thin edges are easier to hit */
+	private static final int PICK_SIZE = 5;
+
+	private static final int NO_ID = 0;
+
+	/** Set in the ids of edges, the remaining bits are the index of the node or edge plus one */
+	private static final int EDGE_ID_BIT = 1 << 23;
+
+	/** The most nodes or edges that get an id, each id is the index plus one below {@link #EDGE_ID_BIT} */
+	private static final int MAX_IDS = EDGE_ID_BIT - 1;
+
+	private final ShapePickingProcessor fallback;
+	private boolean supported = false;
+
+	private final ScalableShapeDrawer shapeDrawer = new ScalableShapeDrawer();
+	private final EdgeMeshDrawer edgeMeshDrawer = new EdgeMeshDrawer();
+	private GLU glu;
+
+	/** Filled in with the id of each edge, so that no color object is created per edge */
+	private final RenderColor idColor = new RenderColor();
+
+	private int framebuffer;
+	private int colorRenderbuffer;
+	private int depthRenderbuffer;
+	private int pixelBuffer;
+	private int pixelBufferSize = 0;
+	private int bufferWidth = 0;
+	private int bufferHeight = 0;
+
+	private long[] nodeSuids = new long[1024];
+	private long[] edgeSuids = new long[1024];
+	private int nodeCount = 0;
+	private int edgeCount = 0;
+
+	private boolean idBufferValid = false;
+	private boolean edgeMeshValid = false;
+	private Vector3 lastCameraPosition, lastCameraTarget, lastCameraUp;
+
+
+	/**
+	 * @param fallback Used when the OpenGL context does not support offscreen rendering.
+	 */
+	public ColorIdPickingProcessor(ShapePickingProcessor fallback) {
+		this.fallback = fallback;
+	}
+
+	public static boolean isSupported(GL2 gl) {
+		return gl.isFunctionAvailable("glGenFramebuffers") && gl.isFunctionAvailable("glMapBuffer") && EdgeMeshDrawer.isSupported(gl);
+	}
+
+	@Override
+	public void initialize(GraphicsData graphicsData) {
+		GL2 gl = graphicsData.getGlContext();
+		supported = isSupported(gl);
+		fallback.initialize(graphicsData);
+		if(!supported)
+			return;
+
+		glu = GLU.createGLU(gl);
+		shapeDrawer.initialize(gl);
+		edgeMeshDrawer.initialize(gl);
+
+		int[] names = new int[2];
+		gl.glGenFramebuffers(1, names, 0);
+		framebuffer = names[0];
+		gl.glGenRenderbuffers(2, names, 0);
+		colorRenderbuffer = names[0];
+		depthRenderbuffer = names[1];
+		gl.glGenBuffers(1, names, 0);
+		pixelBuffer = names[0];
+	}
+
+
+	@Override
+	public void processPicking(GraphicsData graphicsData) {
+		RenderModel model = graphicsData.getRenderModel();
+		if(!supported || model.getNodeCount() > MAX_IDS || model.getEdgeCount() > MAX_IDS) {
+			// Whatever is in the id buffer is stale by the time the network is small enough again
+			idBufferValid = false;
+			edgeMeshValid = false;
+			fallback.processPicking(graphicsData);
+			return;
+		}
+
+		int screenWidth = graphicsData.getScreenWidth();
+		int screenHeight = graphicsData.getScreenHeight();
+		if(screenWidth <= 0 || screenHeight <= 0)
+			return;
+
+		GL2 gl = graphicsData.getGlContext();
+		SnapshotChanges changes = graphicsData.getSnapshotChanges();
+
+		if(screenWidth != bufferWidth || screenHeight != bufferHeight) {
+			resizeFramebuffer(gl, screenWidth, screenHeight);
+		}
+		// Selection changes don't change the ids
+		boolean animated = model.isAnimationFrame();
+		boolean cameraMoved = cameraMoved(graphicsData.getCamera());
+		if(changes.hasEdgeGeometryChanges() || animated) {
+			edgeMeshValid = false;
+		}
+		if(changes.hasGeometryChanges() || animated || cameraMoved) {
+			idBufferValid = false;
+		}
+		if(!idBufferValid) {
+			renderIdBuffer(graphicsData);
+			idBufferValid = true;
+		}
+
+		GraphicsSelectionData selectionData = graphicsData.getSelectionData();
+		if(selectionData.isDragSelectMode()) {
+			int left   = Math.min(selectionData.getSelectTopLeftX(), selectionData.getSelectBottomRightX());
+			int right  = Math.max(selectionData.getSelectTopLeftX(), selectionData.getSelectBottomRightX());
+			int top    = Math.min(selectionData.getSelectTopLeftY(), selectionData.getSelectBottomRightY());
+			int bottom = Math.max(selectionData.getSelectTopLeftY(), selectionData.getSelectBottomRightY());
+			pickRectangle(gl, graphicsData.getPickingData(), left, top, right, bottom);
+		} else {
+			pickClosest(gl, graphicsData.getPickingData(), graphicsData.getMouseCurrentX(), graphicsData.getMouseCurrentY());
+		}
+	}
+
+
+	private boolean cameraMoved(CameraPosition camera) {
+		boolean moved = !camera.getPosition().equals(lastCameraPosition)
+				|| !camera.getTarget().equals(lastCameraTarget)
+				|| !camera.getUp().equals(lastCameraUp);
+		if(moved) {
+			lastCameraPosition = camera.getPosition().copy();
+			lastCameraTarget = camera.getTarget().copy();
+			lastCameraUp = camera.getUp().copy();
+		}
+		return moved;
+	}
+
+
+	private void resizeFramebuffer(GL2 gl, int width, int height) {
+		gl.glBindRenderbuffer(GL.GL_RENDERBUFFER, colorRenderbuffer);
+		gl.glRenderbufferStorage(GL.GL_RENDERBUFFER, GL.GL_RGBA8, width, height);
+		gl.glBindRenderbuffer(GL.GL_RENDERBUFFER, depthRenderbuffer);
+		gl.glRenderbufferStorage(GL.GL_RENDERBUFFER, GL.GL_DEPTH_COMPONENT24, width, height);
+		gl.glBindRenderbuffer(GL.GL_RENDERBUFFER, 0);
+
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, framebuffer);
+		gl.glFramebufferRenderbuffer(GL.GL_FRAMEBUFFER, GL.GL_COLOR_ATTACHMENT0, GL.GL_RENDERBUFFER, colorRenderbuffer);
+		gl.glFramebufferRenderbuffer(GL.GL_FRAMEBUFFER, GL.GL_DEPTH_ATTACHMENT, GL.GL_RENDERBUFFER, depthRenderbuffer);
+		int status = gl.glCheckFramebufferStatus(GL.GL_FRAMEBUFFER);
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, 0);
+
+		if(status != GL.GL_FRAMEBUFFER_COMPLETE) {
+			System.err.println("Picking framebuffer is incomplete, status: " + status);
+		}
+
+		bufferWidth = width;
+		bufferHeight = height;
+		idBufferValid = false;
+	}
+
+
+	private void renderIdBuffer(GraphicsData graphicsData) {
+		GL2 gl = graphicsData.getGlContext();
+		CameraPosition camera = graphicsData.getCamera();
+
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, framebuffer);
+		gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_VIEWPORT_BIT | GL2.GL_COLOR_BUFFER_BIT | GL2.GL_CURRENT_BIT | GL2.GL_LIGHTING_BIT);
+
+		gl.glViewport(0, 0, bufferWidth, bufferHeight);
+		gl.glDisable(GL2.GL_LIGHTING);
+		gl.glDisable(GL.GL_BLEND);
+		gl.glDisable(GL.GL_DITHER);
+		gl.glDisable(GL.GL_MULTISAMPLE);
+		gl.glDisable(GL.GL_TEXTURE_2D);
+		gl.glEnable(GL.GL_DEPTH_TEST);
+		gl.glShadeModel(GL2.GL_FLAT);
+
+		gl.glClearColor(0, 0, 0, 0);
+		gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
+
+		gl.glMatrixMode(GL2.GL_PROJECTION);
+		gl.glPushMatrix();
+		gl.glLoadIdentity();
+		glu.gluPerspective(GraphicsData.VERTICAL_VOF, (float) bufferWidth / bufferHeight, GraphicsData.NEAR_Z, GraphicsData.FAR_Z);
+
+		gl.glMatrixMode(GL2.GL_MODELVIEW);
+		gl.glPushMatrix();
+		gl.glLoadIdentity();
+		Vector3 position = camera.getPosition();
+		Vector3 target = camera.getTarget();
+		Vector3 up = camera.getUp();
+		glu.gluLookAt(position.x(), position.y(), position.z(), target.x(), target.y(), target.z(), up.x(), up.y(), up.z());
+
+		drawNodes(gl, graphicsData);
+		drawEdges(gl, graphicsData);
+
+		gl.glMatrixMode(GL2.GL_PROJECTION);
+		gl.glPopMatrix();
+		gl.glMatrixMode(GL2.GL_MODELVIEW);
+		gl.glPopMatrix();
+
+		gl.glPopAttrib();
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, 0);
+	}
+
+
+	private void drawNodes(GL2 gl, GraphicsData graphicsData) {
+		CyNetworkViewSnapshot networkView = graphicsData.getNetworkSnapshot();
+		Detail detail = RenderNodesProcedure.mapDetailLevel(networkView.getVisualProperty(Cy3DVisualLexicon.DETAIL_LEVEL));
+		RenderModel model = graphicsData.getRenderModel();
+
+		nodeCount = 0;
+
+		graphicsData.getSceneIndex().queryNodes(graphicsData.getViewingVolume(), 0, suid -> {
+			int node = model.indexOfNode(suid);
+			if(node != RenderModel.NO_INDEX) {
+				drawNode(gl, model, node, detail);
+			}
+		});
+	}
+
+	private void drawNode(GL2 gl, RenderModel model, int node, Detail detail) {
+		float[] positions = model.getNodePositions();
+		float[] scales = model.getNodeScales();
+
+		if(nodeCount == nodeSuids.length) {
+			nodeSuids = Arrays.copyOf(nodeSuids, nodeCount * 2);
+		}
+		nodeSuids[nodeCount++] = model.getNodeModelSuid(node);
+		int id = nodeCount;
+		gl.glColor3ub((byte) (id >> 16), (byte) (id >> 8), (byte) id);
+
+		gl.glPushMatrix();
+		gl.glTranslatef(positions[node*3], positions[node*3+1], positions[node*3+2]);
+		gl.glScalef(scales[node*3], scales[node*3+1], scales[node*3+2]);
+		shapeDrawer.drawShape(gl, model.getNodeShape(node), detail);
+		gl.glPopMatrix();
+	}
+
+	private void drawEdges(GL2 gl, GraphicsData graphicsData) {
+		// Edges have their own range of ids so that the mesh can be kept when only the nodes or the camera change
+		if(!edgeMeshValid) {
+			RenderModel model = graphicsData.getRenderModel();
+			float[] widths = model.getEdgeWidths();
+			int[] lineTypes = model.getEdgeLineTypes();
+
+			edgeMeshDrawer.clear();
+			edgeCount = 0;
+
+			for(int edge = 0; edge < model.getEdgeCount(); edge++) {
+				Vector3[] points = model.getEdgeCoordinates(edge);
+				if(points == null || !model.isEdgeVisible(edge))
+					continue;
+
+				if(edgeCount == edgeSuids.length) {
+					edgeSuids = Arrays.copyOf(edgeSuids, edgeCount * 2);
+				}
+				edgeSuids[edgeCount++] = model.getEdgeModelSuid(edge);
+				int id = EDGE_ID_BIT | edgeCount;
+				idColor.set(((id >> 16) & 0xFF) / 255.0, ((id >> 8) & 0xFF) / 255.0, (id & 0xFF) / 255.0);
+				RenderArcEdgesProcedure.addToMesh(edgeMeshDrawer, points, widths[edge], lineTypes[edge], idColor);
+			}
+
+			edgeMeshDrawer.upload(gl);
+			edgeMeshValid = true;
+		}
+		edgeMeshDrawer.draw(gl);
+	}
+
+	/**
+	 * Returns the SUID for an id read from the buffer, or {@link PickingData#NO_INDEX}.
+	 */
+	private long toSuid(int id) {
+		int index = (id & ~EDGE_ID_BIT) - 1;
+		if((id & EDGE_ID_BIT) != 0) {
+			return index >= 0 && index < edgeCount ? edgeSuids[index] : PickingData.NO_INDEX;
+		} else {
+			return index >= 0 && index < nodeCount ? nodeSuids[index] : PickingData.NO_INDEX;
+		}
+	}
+
+
+	/**
+	 * Reads a rectangle of the id buffer, in window coordinates with (0, 0) at the top left.
+	 * The rectangle must be inside the window.
+	 * @return the ids, row by row starting from the bottom row
+	 */
+	private int[] readIds(GL2 gl, int left, int top, int width, int height) {
+		int size = width * height * 4;
+
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, framebuffer);
+		gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pixelBuffer);
+		if(size > pixelBufferSize) {
+			gl.glBufferData(GL2.GL_PIXEL_PACK_BUFFER, size, null, GL2.GL_STREAM_READ);
+			pixelBufferSize = size;
+		}
+		gl.glPixelStorei(GL.GL_PACK_ALIGNMENT, 1);
+		gl.glReadPixels(left, bufferHeight - top - height, width, height, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, 0L);
+
+		int[] ids = new int[width * height];
+		ByteBuffer pixels = gl.glMapBuffer(GL2.GL_PIXEL_PACK_BUFFER, GL2.GL_READ_ONLY);
+		if(pixels != null) {
+			for(int i = 0; i < ids.length; i++) {
+				ids[i] = ((pixels.get(i*4) & 0xFF) << 16) | ((pixels.get(i*4 + 1) & 0xFF) << 8) | (pixels.get(i*4 + 2) & 0xFF);
+			}
+			gl.glUnmapBuffer(GL2.GL_PIXEL_PACK_BUFFER);
+		}
+
+		gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, 0);
+		gl.glBindFramebuffer(GL.GL_FRAMEBUFFER, 0);
+		return ids;
+	}
+
+	private void pickClosest(GL2 gl, PickingData pickingData, int mouseX, int mouseY) {
+		pickingData.setClosestPicked(PickingData.NO_INDEX, PickingData.NO_INDEX);
+
+		int left   = Math.max(0, mouseX - PICK_SIZE / 2);
+		int top    = Math.max(0, mouseY - PICK_SIZE / 2);
+		int right  = Math.min(bufferWidth,  mouseX + PICK_SIZE / 2 + 1);
+		int bottom = Math.min(bufferHeight, mouseY + PICK_SIZE / 2 + 1);
+		if(right <= left || bottom <= top)
+			return;
+
+		int width = right - left;
+		int[] ids = readIds(gl, left, top, width, bottom - top);
+
+		// Take the id nearest to the mouse
+		int closestId = NO_ID;
+		int closestDistance = Integer.MAX_VALUE;
+		for(int i = 0; i < ids.length; i++) {
+			int dx = left + i % width - mouseX;
+			int dy = bottom - 1 - i / width - mouseY;
+			if(ids[i] != NO_ID && dx * dx + dy * dy < closestDistance) {
+				closestId = ids[i];
+				closestDistance = dx * dx + dy * dy;
+			}
+		}
+
+		if(closestId == NO_ID)
+			return;
+		if((closestId & EDGE_ID_BIT) == 0) {
+			pickingData.setClosestPicked(toSuid(closestId), PickingData.NO_INDEX);
+		} else {
+			pickingData.setClosestPicked(PickingData.NO_INDEX, toSuid(closestId));
+		}
+	}
+
+	private void pickRectangle(GL2 gl, PickingData pickingData, int left, int top, int right, int bottom) {
+		pickingData.getPickedNodeIndices().clear();
+		pickingData.getPickedEdgeIndices().clear();
+
+		left   = Math.max(0, left);
+		top    = Math.max(0, top);
+		right  = Math.min(bufferWidth,  right + 1);
+		bottom = Math.min(bufferHeight, bottom + 1);
+		if(right <= left || bottom <= top)
+			return;
+
+		int[] ids = readIds(gl, left, top, right - left, bottom - top);
+
+		int lastId = NO_ID;
+		for(int id : ids) {
+			if(id == NO_ID || id == lastId)
+				continue;
+			lastId = id;
+			long suid = toSuid(id);
+			if(suid == PickingData.NO_INDEX)
+				continue;
+			if((id & EDGE_ID_BIT) == 0) {
+				pickingData.getPickedNodeIndices().add(suid);
+			} else {
+				pickingData.getPickedEdgeIndices().add(suid);
+			}
+		}
+	}
+
+}
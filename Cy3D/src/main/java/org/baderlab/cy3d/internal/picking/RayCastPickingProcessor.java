@@ -0,0 +1,115 @@
+package org.baderlab.cy3d.internal.picking;
+
+import org.baderlab.cy3d.internal.camera.CameraPosition;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.GraphicsSelectionData;
+import org.baderlab.cy3d.internal.data.PickingData;
+import org.baderlab.cy3d.internal.data.SceneIndex;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.geometric.ViewingVolume;
+import org.baderlab.cy3d.internal.tools.GeometryToolkit;
+
+/**
+ * Finds the node or edge under the mouse by casting a ray from the camera through the
+ * mouse position into the {@link SceneIndex}, instead of rendering the scene again to pick.
+ * Drag selection is done the same way by testing the index against the volume that the
+ * selection rectangle covers.
+ *
+ * When an {@link AsyncHoverPicker} is given, hover picking is left to it and this processor
+ * only asks it to pick again when the scene or the camera changed under the mouse.
+ */
+public class RayCastPickingProcessor implements ShapePickingProcessor {
+
+	private final AsyncHoverPicker hoverPicker;
+	private final ViewingVolume selectionVolume = new ViewingVolume();
+
+
+	public RayCastPickingProcessor() {
+		this(null);
+	}
+
+	/**
+	 * @param hoverPicker If not null it is used for hover picking instead of picking on every frame.
+	 */
+	public RayCastPickingProcessor(AsyncHoverPicker hoverPicker) {
+		this.hoverPicker = hoverPicker;
+	}
+
+	@Override
+	public void initialize(GraphicsData graphicsData) {
+	}
+
+	@Override
+	public void processPicking(GraphicsData graphicsData) {
+		SnapshotChanges changes = graphicsData.getSnapshotChanges();
+		boolean cameraMoved = graphicsData.getQualityGovernor().isCameraMoved();
+		if(hoverPicker != null && (cameraMoved || changes.hasNodeChanges() || changes.hasEdgeChanges())) {
+			hoverPicker.repeatLastPick(graphicsData.getCamera());
+		}
+
+		if(graphicsData.getSelectionData().isDragSelectMode()) {
+			pickRectangle(graphicsData);
+		} else if(hoverPicker == null) {
+			pickMouse(graphicsData);
+		}
+	}
+
+
+	private void pickMouse(GraphicsData graphicsData) {
+		PickingData pickingData = graphicsData.getPickingData();
+		pickingData.setClosestPicked(PickingData.NO_INDEX, PickingData.NO_INDEX);
+
+		int screenWidth = graphicsData.getScreenWidth();
+		int screenHeight = graphicsData.getScreenHeight();
+		if(screenWidth <= 0 || screenHeight <= 0)
+			return;
+
+		CameraPosition camera = graphicsData.getCamera();
+		Vector3 origin = camera.getPosition();
+		Vector3 direction = GeometryToolkit.convertScreenTo3d(graphicsData.getMouseCurrentX(), graphicsData.getMouseCurrentY(),
+				screenWidth, screenHeight, 1.0, camera).subtract(origin);
+
+		// Nodes are drawn over the end points of their edges, so they take priority like they do on the screen
+		SceneIndex sceneIndex = graphicsData.getSceneIndex();
+		long node = sceneIndex.pickNode(origin, direction);
+		long edge = node == PickingData.NO_INDEX ? sceneIndex.pickEdge(origin, direction) : PickingData.NO_INDEX;
+		pickingData.setClosestPicked(node, edge);
+	}
+
+
+	private void pickRectangle(GraphicsData graphicsData) {
+		PickingData pickingData = graphicsData.getPickingData();
+		pickingData.getPickedNodeIndices().clear();
+		pickingData.getPickedEdgeIndices().clear();
+
+		int screenWidth = graphicsData.getScreenWidth();
+		int screenHeight = graphicsData.getScreenHeight();
+		if(screenWidth <= 0 || screenHeight <= 0)
+			return;
+
+		GraphicsSelectionData selectionData = graphicsData.getSelectionData();
+		int left   = Math.min(selectionData.getSelectTopLeftX(), selectionData.getSelectBottomRightX());
+		int right  = Math.max(selectionData.getSelectTopLeftX(), selectionData.getSelectBottomRightX());
+		int top    = Math.min(selectionData.getSelectTopLeftY(), selectionData.getSelectBottomRightY());
+		int bottom = Math.max(selectionData.getSelectTopLeftY(), selectionData.getSelectBottomRightY());
+
+		// Keep the volume from collapsing when the mouse has not moved yet
+		right  = Math.max(right, left + 1);
+		bottom = Math.max(bottom, top + 1);
+
+		CameraPosition camera = graphicsData.getCamera();
+		Vector3[] corners = {
+			GeometryToolkit.convertScreenTo3d(left,  top,    screenWidth, screenHeight, 1.0, camera),
+			GeometryToolkit.convertScreenTo3d(right, top,    screenWidth, screenHeight, 1.0, camera),
+			GeometryToolkit.convertScreenTo3d(right, bottom, screenWidth, screenHeight, 1.0, camera),
+			GeometryToolkit.convertScreenTo3d(left,  bottom, screenWidth, screenHeight, 1.0, camera)
+		};
+		selectionVolume.calculateViewingVolume(camera.getPosition(), camera.getDirection(), corners, GraphicsData.NEAR_Z, GraphicsData.FAR_Z);
+
+		SceneIndex sceneIndex = graphicsData.getSceneIndex();
+		sceneIndex.selectNodes(selectionVolume, pickingData.getPickedNodeIndices());
+		sceneIndex.selectEdges(selectionVolume, pickingData.getPickedEdgeIndices());
+	}
+
+}
@@ -0,0 +1,227 @@
+package org.baderlab.cy3d.internal.rendering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.media.opengl.GL2;
+
+/**
+ * Decides which labels to draw so that they do not overlap on the screen.
+ *
+ * Candidate labels are added with their box in screen pixels, then {@link #place()} accepts them
+ * in priority order, selected nodes first and then the nodes closest to the camera, skipping any
+ * label that would overlap one already accepted or fall outside the screen. Accepted boxes are kept
+ * in a coarse screen grid so each test only looks at the labels in the cells the box covers.
+ * At most maxLabels labels are accepted.
+ *
+ * The placer also projects points to the screen, {@link #setView(GL2)} tells when the view changed
+ * so the label procedures only have to place labels again when the camera moves or the labels change.
+ */
+public class LabelPlacer<T> {
+
+	public static final int DEFAULT_MAX_LABELS = 1000;
+
+	private static final int CELL_SIZE = 64;
+
+	private static final Comparator<Candidate<?>> BY_PRIORITY =
+		Comparator.<Candidate<?>,Boolean>comparing(candidate -> !candidate.selected).thenComparingDouble(candidate -> candidate.depth);
+
+	private static class Candidate<T> {
+		final T label;
+		final float left, bottom, right, top;
+		final float depth;
+		final boolean selected;
+
+		Candidate(T label, float left, float bottom, float width, float height, float depth, boolean selected) {
+			this.label = label;
+			this.left = left;
+			this.bottom = bottom;
+			this.right = left + width;
+			this.top = bottom + height;
+			this.depth = depth;
+			this.selected = selected;
+		}
+
+		boolean overlaps(Candidate<?> other) {
+			return left < other.right && other.left < right && bottom < other.top && other.bottom < top;
+		}
+	}
+
+	private final int maxLabels;
+
+	private final double[] modelView = new double[16];
+	private final double[] projection = new double[16];
+	private final int[] viewPort = new int[4];
+
+	private final double[] lastModelView = new double[16];
+	private final double[] lastProjection = new double[16];
+	private final int[] lastViewPort = new int[4];
+
+	private final List<Candidate<T>> candidates = new ArrayList<>();
+	private final List<T> placed = new ArrayList<>();
+
+	// accepted candidates per grid cell
+	private final ArrayList<List<Candidate<T>>> grid = new ArrayList<>();
+	private int gridColumns;
+	private int gridRows;
+
+
+	public LabelPlacer() {
+		this(DEFAULT_MAX_LABELS);
+	}
+
+	public LabelPlacer(int maxLabels) {
+		this.maxLabels = maxLabels;
+	}
+
+
+	/**
+	 * Reads the current modelview and projection matrices and the viewport, they are used by
+	 * {@link #project} and {@link #place()}.
+	 *
+	 * @return true if the view is different from the one last time this method was called.
+	 */
+	public boolean setView(GL2 gl) {
+		gl.glGetDoublev(GL2.GL_MODELVIEW_MATRIX, modelView, 0);
+		gl.glGetDoublev(GL2.GL_PROJECTION_MATRIX, projection, 0);
+		gl.glGetIntegerv(GL2.GL_VIEWPORT, viewPort, 0);
+
+		if(Arrays.equals(modelView, lastModelView) && Arrays.equals(projection, lastProjection) && Arrays.equals(viewPort, lastViewPort))
+			return false;
+
+		System.arraycopy(modelView, 0, lastModelView, 0, 16);
+		System.arraycopy(projection, 0, lastProjection, 0, 16);
+		System.arraycopy(viewPort, 0, lastViewPort, 0, 4);
+		return true;
+	}
+
+	/**
+	 * Projects a point to window coordinates like gluProject.
+	 *
+	 * @param result Receives the window x and y and the number of pixels per world unit at the depth of the point.
+	 * @return false if the point is behind the camera.
+	 */
+	public boolean project(double x, double y, double z, double[] result) {
+		double eyeX = modelView[0] * x + modelView[4] * y + modelView[8]  * z + modelView[12];
+		double eyeY = modelView[1] * x + modelView[5] * y + modelView[9]  * z + modelView[13];
+		double eyeZ = modelView[2] * x + modelView[6] * y + modelView[10] * z + modelView[14];
+		double eyeW = modelView[3] * x + modelView[7] * y + modelView[11] * z + modelView[15];
+
+		double clipX = projection[0] * eyeX + projection[4] * eyeY + projection[8]  * eyeZ + projection[12] * eyeW;
+		double clipY = projection[1] * eyeX + projection[5] * eyeY + projection[9]  * eyeZ + projection[13] * eyeW;
+		double clipW = projection[3] * eyeX + projection[7] * eyeY + projection[11] * eyeZ + projection[15] * eyeW;
+		if(clipW <= 0)
+			return false;
+
+		result[0] = viewPort[0] + (clipX / clipW + 1) * viewPort[2] / 2;
+		result[1] = viewPort[1] + (clipY / clipW + 1) * viewPort[3] / 2;
+		result[2] = projection[5] * viewPort[3] / (2 * clipW);
+		return true;
+	}
+
+
+	public void clear() {
+		candidates.clear();
+		placed.clear();
+	}
+
+	/**
+	 * Adds a candidate label.
+	 *
+	 * @param left The left edge of the label in window coordinates.
+	 * @param bottom The bottom edge of the label in window coordinates.
+	 * @param depth The distance to the camera, nearer labels win.
+	 * @param selected Labels of selected nodes win over all others.
+	 */
+	public void add(T label, float left, float bottom, float width, float height, float depth, boolean selected) {
+		candidates.add(new Candidate<>(label, left, bottom, width, height, depth, selected));
+	}
+
+	/**
+	 * Accepts the candidate labels that do not overlap, in priority order.
+	 *
+	 * @return The accepted labels, valid until the next call to {@link #clear()}.
+	 */
+	public List<T> place() {
+		placed.clear();
+		int screenWidth = viewPort[2];
+		int screenHeight = viewPort[3];
+		if(screenWidth <= 0 || screenHeight <= 0)
+			return placed;
+
+		resetGrid(screenWidth, screenHeight);
+		candidates.sort(BY_PRIORITY);
+
+		for(Candidate<T> candidate : candidates) {
+			if(placed.size() >= maxLabels)
+				break;
+
+			float left   = candidate.left   - viewPort[0];
+			float right  = candidate.right  - viewPort[0];
+			float bottom = candidate.bottom - viewPort[1];
+			float top    = candidate.top    - viewPort[1];
+			if(right <= 0 || top <= 0 || left >= screenWidth || bottom >= screenHeight)
+				continue; // off screen
+
+			int column0 = clamp((int) (left / CELL_SIZE), gridColumns);
+			int column1 = clamp((int) (right / CELL_SIZE), gridColumns);
+			int row0 = clamp((int) (bottom / CELL_SIZE), gridRows);
+			int row1 = clamp((int) (top / CELL_SIZE), gridRows);
+
+			if(overlapsPlaced(candidate, column0, column1, row0, row1))
+				continue;
+
+			for(int row = row0; row <= row1; row++) {
+				for(int column = column0; column <= column1; column++) {
+					int index = row * gridColumns + column;
+					List<Candidate<T>> cell = grid.get(index);
+					if(cell == null) {
+						cell = new ArrayList<>();
+						grid.set(index, cell);
+					}
+					cell.add(candidate);
+				}
+			}
+			placed.add(candidate.label);
+		}
+		return placed;
+	}
+
+	private boolean overlapsPlaced(Candidate<T> candidate, int column0, int column1, int row0, int row1) {
+		for(int row = row0; row <= row1; row++) {
+			for(int column = column0; column <= column1; column++) {
+				List<Candidate<T>> cell = grid.get(row * gridColumns + column);
+				if(cell != null) {
+					for(Candidate<T> other : cell) {
+						if(candidate.overlaps(other))
+							return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private void resetGrid(int screenWidth, int screenHeight) {
+		int columns = (screenWidth  + CELL_SIZE - 1) / CELL_SIZE;
+		int rows    = (screenHeight + CELL_SIZE - 1) / CELL_SIZE;
+		if(columns != gridColumns || rows != gridRows) {
+			gridColumns = columns;
+			gridRows = rows;
+			grid.clear();
+			grid.addAll(Collections.nCopies(columns * rows, null));
+		} else {
+			for(List<Candidate<T>> cell : grid) {
+				if(cell != null)
+					cell.clear();
+			}
+		}
+	}
+
+	private static int clamp(int index, int size) {
+		return Math.max(0, Math.min(size - 1, index));
+	}
+}
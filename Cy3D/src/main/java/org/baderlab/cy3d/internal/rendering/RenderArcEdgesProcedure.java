@@ -1,41 +1,36 @@
 package org.baderlab.cy3d.internal.rendering;
 
-import java.awt.Color;
-import java.nio.FloatBuffer;
-import java.util.Collection;
-
 import javax.media.opengl.GL2;
 
 import org.baderlab.cy3d.internal.cytoscape.edges.AugmentedEdgeContainer;
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
 import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.QualityGovernor;
+import org.baderlab.cy3d.internal.data.RenderModel;
 import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.geometric.ViewingVolume;
+import org.baderlab.cy3d.internal.rendering.shapes.EdgeLineDrawer;
+import org.baderlab.cy3d.internal.rendering.shapes.EdgeMeshDrawer;
 import org.baderlab.cy3d.internal.rendering.shapes.EdgeShapeDrawer;
 import org.baderlab.cy3d.internal.rendering.shapes.EdgeShapeDrawer.EdgeShapeType;
-import org.baderlab.cy3d.internal.tools.GeometryToolkit;
 import org.baderlab.cy3d.internal.tools.RenderColor;
 import org.baderlab.cy3d.internal.tools.RenderToolkit;
-import org.baderlab.cy3d.internal.tools.SUIDToolkit;
-import org.cytoscape.model.CyEdge;
-import org.cytoscape.view.model.CyNetworkViewSnapshot;
-import org.cytoscape.view.model.View;
-import org.cytoscape.view.presentation.property.BasicVisualLexicon;
-import org.cytoscape.view.presentation.property.LineTypeVisualProperty;
 
 public class RenderArcEdgesProcedure implements GraphicsProcedure {
 
-	private static final float SEGMENT_RADIUS = 0.013f; // 0.007 default
+	public static final float SEGMENT_RADIUS = 0.013f; // 0.007 default
 	private static final int SEGMENT_SLICES = 4;
 	private static final int SEGMENT_STACKS = 1;
 	
 	private static final double MIN_LENGTH = Double.MIN_NORMAL;
 	
-	private static final RenderColor DEFAULT_COLOR = 
-		new RenderColor(0.67, 0.67, 0.67);
-	
 	private static final float DASHED_EDGE_RADIUS = 0.012f;
 	private static final float DASHED_EDGE_LENGTH = 0.05f;
 	
 	private static final float DOTTED_EDGE_RADIUS = 0.017f;
+	
+	private static final float[] SPECULAR_REFLECTION = { 0.1f, 0.1f, 0.1f, 1.0f };
 
 	
 	/**
@@ -43,122 +38,274 @@ public class RenderArcEdgesProcedure implements GraphicsProcedure {
 	 */
 	private static final int NUM_SEGMENTS = 8;
 	
-	private EdgeShapeDrawer shapeDrawer;
+	private final EdgeShapeDrawer shapeDrawer = new EdgeShapeDrawer();
+	
+	/** Only set when vertex buffers are available, otherwise the display lists are used. */
+	private EdgeMeshDrawer meshDrawer = null;
+	
+	private boolean meshBuilt = false;
+	
+	/** The mesh was built from animated coordinates, it has to be built again once the animation is over */
+	private boolean meshAnimated = false;
+	
+	// Where each edge starts in the mesh by edge index, with one more entry for the end of the last edge
+	private int[] edgeFirstVertex = new int[1];
+	private int[] edgeFirstIndex = new int[1];
+	
+	/** Draws the edges as lines while the camera is moving. */
+	private final EdgeLineDrawer lineDrawer = new EdgeLineDrawer();
+	
+	/** The number of edges in the mesh, for the frame metrics */
+	private int meshEdgeCount = 0;
 	
 	private float edgeRadiusFactor = 1.0f;
-		
-	public RenderArcEdgesProcedure() {
-		shapeDrawer = new EdgeShapeDrawer();
-	}
 	
+	/** Filled in by chooseColor(), so that no color object is created per edge */
+	private final RenderColor color = new RenderColor();
+		
 	@Override
 	public void initialize(GraphicsData graphicsData) {
-		shapeDrawer.initialize(graphicsData.getGlContext());
+		GL2 gl = graphicsData.getGlContext();
+		shapeDrawer.initialize(gl);
+		
+		if(EdgeMeshDrawer.isSupported(gl)) {
+			meshDrawer = new EdgeMeshDrawer();
+			meshDrawer.initialize(gl);
+		}
 	}
 
 	@Override
 	public void execute(GraphicsData graphicsData) {
-		CyNetworkViewSnapshot networkView = graphicsData.getNetworkSnapshot();
 		GL2 gl = graphicsData.getGlContext();
 		
-		float[] specularReflection = { 0.1f, 0.1f, 0.1f, 1.0f };
-		gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_SPECULAR, FloatBuffer.wrap(specularReflection));
+		gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_SPECULAR, SPECULAR_REFLECTION, 0);
 		gl.glMateriali(GL2.GL_FRONT, GL2.GL_SHININESS, 1);
 		
-		Collection<AugmentedEdgeContainer> edgeContainers = graphicsData.getEdgeAnalyser().getAnalyzedEdges(networkView, GraphicsData.DISTANCE_SCALE);
-		View<CyEdge> edgeView;
-
-		Number edgeWidth;
+		SnapshotChanges changes = graphicsData.getSnapshotChanges();
+		RenderModel model = graphicsData.getRenderModel();
+		
+		QualityGovernor governor = graphicsData.getQualityGovernor();
+		if(governor.isLineEdges()) {
+			// The mesh is left alone, it is rebuilt on the first full quality frame if the edges changed meanwhile
+			if(changes.hasEdgeChanges() || model.isAnimationFrame()) {
+				meshBuilt = false;
+			}
+			drawLines(gl, model, graphicsData, governor.getEdgeCullPixels());
+			return;
+		}
+		
+		if(meshDrawer != null) {
+			// Edges that changed are updated in place, the whole mesh is only built again when edges
+			// come or go, or everything moves with the animation
+			if(!meshBuilt || meshAnimated || model.isAnimationFrame() || hasAddedOrRemoved(changes)) {
+				buildMesh(gl, model);
+				meshBuilt = true;
+				meshAnimated = model.isAnimationFrame();
+			} else if(changes.hasEdgeChanges()) {
+				updateMesh(gl, model, changes, graphicsData.getEdgeAnalyser());
+			}
+			int drawCalls = meshDrawer.draw(gl);
+			graphicsData.getFrameMetrics().addVisibleEdges(meshEdgeCount);
+			graphicsData.getFrameMetrics().addDrawCalls(drawCalls);
+			return;
+		}
+		
+		int edgeCount = 0;
+		int drawCalls = 0;
+		
+		int[] lineTypes = model.getEdgeLineTypes();
+		float[] widths = model.getEdgeWidths();
 		
-		for (AugmentedEdgeContainer container : edgeContainers) {
-			edgeView = container.getEdgeView();
+		for (int edge = 0; edge < model.getEdgeCount(); edge++) {
+			// General points along the arc, already in OpenGL coordinates, null if the edge is too short
+			Vector3[] points = model.getEdgeCoordinates(edge);
 			
-			if (container.isSufficientLength() && edgeView.getVisualProperty(BasicVisualLexicon.EDGE_VISIBLE)) {
-				
-				edgeWidth = edgeView.getVisualProperty(BasicVisualLexicon.EDGE_WIDTH);
-				
-				if (edgeWidth != null) {
-					edgeRadiusFactor = edgeWidth.floatValue() / 2;
-				} else {
-					edgeRadiusFactor = 1.0f;
-				}
+			if (points != null && model.isEdgeVisible(edge)) {
+				edgeRadiusFactor = widths[edge] / 2;
 				
 				// Set color
-				chooseColor(gl, edgeView, graphicsData);
+				RenderColor.setNonAlphaColors(gl, chooseColor(model, edge, color));
 				
-				// Load name for edge picking
-				long suid = networkView.getEdgeInfo(edgeView).getModelSUID();
-				
-				int upper = SUIDToolkit.upperInt(suid);
-				int lower = SUIDToolkit.lowerInt(suid);
-				
-				gl.glLoadName(upper);
-				gl.glPushName(lower);
-				
-				// General points along the arc
-				Vector3[] points = container.getCoordinates();
-				GeometryToolkit.negateYCoords(points);
-				
-				// Draw the correct type of edge depending on the visual property
-				if (edgeView.getVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE) == LineTypeVisualProperty.EQUAL_DASH) {
+				// Draw the correct type of edge depending on the visual property, one display list per segment
+				if (lineTypes[edge] == RenderModel.LINE_DASH) {
 					drawDashedArc(gl, points);
-				} else if (edgeView.getVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE) == LineTypeVisualProperty.DOT) {
+					drawCalls += Math.max(0, points.length - 2);
+				} else if (lineTypes[edge] == RenderModel.LINE_DOT) {
 					drawDottedArc(gl, points);
+					drawCalls += Math.max(0, points.length - 2);
 				} else { // Draw regular edges for the catch-all case
 					drawRegularArc(gl, points);
+					drawCalls += Math.max(0, points.length - 1);
 				}
-				
-				gl.glPopName();
-				
+				edgeCount++;
 			}
 		}
+		
+		graphicsData.getFrameMetrics().addVisibleEdges(edgeCount);
+		graphicsData.getFrameMetrics().addDrawCalls(drawCalls);
 	}
 	
-	// Picks a color according to the edgeView and passes it to OpenGL
-	private void chooseColor(GL2 gl, View<CyEdge> edgeView, GraphicsData graphicsData) {
-		Color visualPropertyColor = null;
-		visualPropertyColor = (Color) edgeView.getVisualProperty(BasicVisualLexicon.EDGE_STROKE_UNSELECTED_PAINT);
+	private static boolean hasAddedOrRemoved(SnapshotChanges changes) {
+		return changes.isFull() 
+			|| !changes.getAddedEdges().isEmpty() || !changes.getRemovedEdges().isEmpty()
+			|| !changes.getAddedNodes().isEmpty() || !changes.getRemovedNodes().isEmpty();
+	}
+	
+	private void buildMesh(GL2 gl, RenderModel model) {
+		meshDrawer.clear();
+		meshEdgeCount = 0;
 		
-		RenderColor color = new RenderColor(DEFAULT_COLOR);
+		int edgeCount = model.getEdgeCount();
+		if(edgeFirstVertex.length < edgeCount + 1) {
+			edgeFirstVertex = new int[edgeCount + 1];
+			edgeFirstIndex = new int[edgeCount + 1];
+		}
 		
-		if (visualPropertyColor != null) {
-			color.set((double) visualPropertyColor.getRed() / 255, 
-					(double) visualPropertyColor.getGreen() / 255, 
-					(double) visualPropertyColor.getBlue() / 255);
+		for (int edge = 0; edge < edgeCount; edge++) {
+			edgeFirstVertex[edge] = meshDrawer.getVertexCount();
+			edgeFirstIndex[edge] = meshDrawer.getIndexCount();
+			if (addToMesh(model, edge)) {
+				meshEdgeCount++;
+			}
 		}
+		edgeFirstVertex[edgeCount] = meshDrawer.getVertexCount();
+		edgeFirstIndex[edgeCount] = meshDrawer.getIndexCount();
 		
-		if (edgeView.getVisualProperty(BasicVisualLexicon.EDGE_SELECTED)) {
+		meshDrawer.upload(gl);
+	}
+	
+	private boolean addToMesh(RenderModel model, int edge) {
+		Vector3[] points = model.getEdgeCoordinates(edge);
+		if (points == null || !model.isEdgeVisible(edge))
+			return false;
+		addToMesh(meshDrawer, points, model.getEdgeWidths()[edge], model.getEdgeLineTypes()[edge], chooseColor(model, edge, color));
+		return true;
+	}
+	
+	/**
+	 * Tessellates the restyled edges and the edges that got new coordinates again in place, and only recolors
+	 * the edges whose selection changed. Falls back to building the whole mesh if an edge changes its number
+	 * of vertices, the edge indices are the ones of the last build because no edge was added or removed since.
+	 */
+	private void updateMesh(GL2 gl, RenderModel model, SnapshotChanges changes, EdgeAnalyser edgeAnalyser) {
+		for (Long suid : changes.getRestyledEdges()) {
+			if (!replaceInMesh(model, model.indexOfEdge(suid))) {
+				buildMesh(gl, model);
+				return;
+			}
+		}
+		for (AugmentedEdgeContainer container : edgeAnalyser.getRecalculatedEdges()) {
+			if (!replaceInMesh(model, model.indexOfEdge(container.getEdgeView().getSUID()))) {
+				buildMesh(gl, model);
+				return;
+			}
+		}
+		for (Long suid : changes.getSelectionChangedEdges()) {
+			int edge = model.indexOfEdge(suid);
+			if (edge != RenderModel.NO_INDEX) {
+				meshDrawer.setColor(edgeFirstVertex[edge], edgeFirstVertex[edge + 1], chooseColor(model, edge, color));
+			}
+		}
+		meshDrawer.uploadChanged(gl);
+	}
+	
+	private boolean replaceInMesh(RenderModel model, int edge) {
+		if (edge == RenderModel.NO_INDEX)
+			return true;
+		meshDrawer.beginReplace(edgeFirstVertex[edge], edgeFirstIndex[edge]);
+		addToMesh(model, edge);
+		return meshDrawer.endReplace(edgeFirstVertex[edge + 1], edgeFirstIndex[edge + 1]);
+	}
+	
+	/**
+	 * Draws the visible edges as lines, leaving out the ones shorter than minPixels on the screen.
+	 */
+	private void drawLines(GL2 gl, RenderModel model, GraphicsData graphicsData, double minPixels) {
+		ViewingVolume viewingVolume = graphicsData.getViewingVolume();
+		Vector3 cameraPosition = graphicsData.getCamera().getPosition();
+		
+		// The height in pixels of something 1 unit tall, 1 unit away from the camera
+		double pixelsPerUnit = graphicsData.getScreenHeight() / (2 * Math.tan(Math.toRadians(GraphicsData.VERTICAL_VOF / 2)));
+		
+		lineDrawer.clear();
+		int edgeCount = 0;
+		
+		for (int edge = 0; edge < model.getEdgeCount(); edge++) {
+			Vector3[] points = model.getEdgeCoordinates(edge);
+			if (points == null || !model.isEdgeVisible(edge))
+				continue;
+			
+			Vector3 start = points[0];
+			Vector3 middle = points[points.length / 2];
+			Vector3 end = points[points.length - 1];
+			if (!viewingVolume.intersectsSegment(start, end) && !viewingVolume.intersectsSegment(start, middle))
+				continue;
+			
+			// self edges start and end at the same point, use the middle of the loop for their size
+			double length = Math.max(start.distance(end), start.distance(middle));
+			double distance = Math.max(GraphicsData.NEAR_Z, middle.distance(cameraPosition));
+			if (length * pixelsPerUnit / distance < minPixels)
+				continue;
+			
+			chooseColor(model, edge, color);
+			lineDrawer.addArc(points, (float) color.getRed(), (float) color.getGreen(), (float) color.getBlue());
+			edgeCount++;
+		}
+		
+		int drawCalls = lineDrawer.draw(gl);
+		graphicsData.getFrameMetrics().addVisibleEdges(edgeCount);
+		graphicsData.getFrameMetrics().addDrawCalls(drawCalls);
+	}
+	
+	/**
+	 * Adds the shape of an edge, with the same dimensions that this procedure draws it, to the mesh.
+	 * 
+	 * @param width the edge width from the {@link RenderModel}
+	 * @param lineType one of the line types of the {@link RenderModel}
+	 */
+	public static void addToMesh(EdgeMeshDrawer meshDrawer, Vector3[] points, float width, int lineType, RenderColor color) {
+		float radiusFactor = width / 2;
+		
+		// The display list shapes have radius 0.5 before scaling
+		if (lineType == RenderModel.LINE_DASH) {
+			meshDrawer.addDashedArc(points, DASHED_EDGE_RADIUS * radiusFactor / 2, DASHED_EDGE_LENGTH, color);
+		} else if (lineType == RenderModel.LINE_DOT) {
+			meshDrawer.addDottedArc(points, (float) (DOTTED_EDGE_RADIUS * radiusFactor / Math.sqrt(2) / 2), color);
+		} else {
+			meshDrawer.addRegularArc(points, SEGMENT_RADIUS * radiusFactor / 2, color);
+		}
+	}
+	
+	// Picks a color for the edge, the given color is filled in and returned
+	private RenderColor chooseColor(RenderModel model, int edge, RenderColor color) {
+		float[] colors = model.getEdgeColors();
+		color.set(colors[edge*3], colors[edge*3+1], colors[edge*3+2]);
+		
+		if (model.isEdgeSelected(edge)) {
 			
 			// Make selected edges appear greener
 			color.multiplyRed(0.7, 0, 0.7);
 			color.multiplyGreen(1.5, 0.5, 1);
 			color.multiplyBlue(0.7, 0, 0.7);
-		} 
-		// MKTODO
-//		else if (edgeView.getModel().getIndex() == graphicsData.getSelectionData().getHoverEdgeIndex()) {
-//			
-//			// Make hovered edges appear bluer
-//			color.multiplyRed(0.7, 0, 0.7);
-//			color.multiplyGreen(0.7, 0, 0.7);
-//			color.multiplyBlue(1.5, 0.5, 1);
-//		}
-//		
-		RenderColor.setNonAlphaColors(gl, color);
+		}
+		return color;
 	}
 	
 	private void drawRegularArc(GL2 gl, Vector3[] points) {
-		Vector3 displacement;
-		
 		for (int i = 0; i < points.length - 1; i++) {
-			displacement = points[i + 1].subtract(points[i]);
+			Vector3 point = points[i];
+			Vector3 next = points[i + 1];
+			double dx = next.x() - point.x();
+			double dy = next.y() - point.y();
+			double dz = next.z() - point.z();
 			
 			gl.glPushMatrix();
 			
 			// Setup transformations to draw the shape
-			RenderToolkit.setUpFacingTransformation(gl, points[i], displacement);
+			RenderToolkit.setUpFacingTransformation(gl, point.x(), point.y(), point.z(), dx, dy, dz);
 			gl.glScalef(SEGMENT_RADIUS * edgeRadiusFactor, 
 					SEGMENT_RADIUS * edgeRadiusFactor, 
-					(float) displacement.magnitude());
+					(float) Math.sqrt(dx * dx + dy * dy + dz * dz));
 			
 			// Perform drawing
 			shapeDrawer.drawSegment(gl, EdgeShapeType.REGULAR);
@@ -168,14 +315,10 @@ public class RenderArcEdgesProcedure implements GraphicsProcedure {
 	}
 	
 	private void drawDashedArc(GL2 gl, Vector3[] points) {
-		Vector3 facing;
-		
 		for (int i = 1; i < points.length - 1; i++) {
-			facing = points[i + 1].subtract(points[i - 1]);
-			
 			gl.glPushMatrix();
 			
-			RenderToolkit.setUpFacingTransformation(gl, points[i], facing);
+			setUpFacingTransformation(gl, points[i - 1], points[i], points[i + 1]);
 			gl.glTranslatef(0, 0, -DASHED_EDGE_LENGTH / 2);
 			
 			gl.glScalef(DASHED_EDGE_RADIUS * edgeRadiusFactor,
@@ -190,14 +333,10 @@ public class RenderArcEdgesProcedure implements GraphicsProcedure {
 	}
 	
 	private void drawDottedArc(GL2 gl, Vector3[] points) {
-		Vector3 facing;
-		
 		for (int i = 1; i < points.length - 1; i++) {
-			facing = points[i + 1].subtract(points[i - 1]);
-			
 			gl.glPushMatrix();
 			
-			RenderToolkit.setUpFacingTransformation(gl, points[i], facing);
+			setUpFacingTransformation(gl, points[i - 1], points[i], points[i + 1]);
 			gl.glScalef(DOTTED_EDGE_RADIUS  * edgeRadiusFactor,
 					DOTTED_EDGE_RADIUS * edgeRadiusFactor,
 					DOTTED_EDGE_RADIUS * edgeRadiusFactor);
@@ -208,4 +347,12 @@ public class RenderArcEdgesProcedure implements GraphicsProcedure {
 			gl.glPopMatrix();
 		}
 	}
+	
+	/**
+	 * Places the shape at the given point, facing along the line from the previous to the next point.
+	 */
+	private static void setUpFacingTransformation(GL2 gl, Vector3 previous, Vector3 point, Vector3 next) {
+		RenderToolkit.setUpFacingTransformation(gl, point.x(), point.y(), point.z(), 
+				next.x() - previous.x(), next.y() - previous.y(), next.z() - previous.z());
+	}
 }
@@ -0,0 +1,62 @@
+package org.baderlab.cy3d.internal.rendering;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.Collections;
+import java.util.List;
+
+import org.baderlab.cy3d.internal.data.FrameMetrics;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+
+import com.jogamp.opengl.util.awt.TextRenderer;
+
+/**
+ * Draws the {@link FrameMetrics} in the top left corner of the window, the percentiles of the
+ * time taken by each stage of the frame and the counts of what was drawn in the last frame.
+ *
+ * Should be added last so that it is drawn over everything else. The text is only updated
+ * a couple of times per second so that it can be read.
+ */
+public class RenderFrameMetricsProcedure implements GraphicsProcedure {
+
+	private static final Font HUD_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+	private static final Color HUD_COLOR = new Color(0.2f, 0.2f, 0.2f);
+	private static final int MARGIN = 6;
+
+	private static final long UPDATE_INTERVAL_MILLIS = 500;
+
+	private TextRenderer textRenderer;
+	private List<String> lines = Collections.emptyList();
+	private long lastUpdate = 0;
+
+
+	@Override
+	public void initialize(GraphicsData graphicsData) {
+		textRenderer = new TextRenderer(HUD_FONT);
+	}
+
+	@Override
+	public void execute(GraphicsData graphicsData) {
+		long now = System.currentTimeMillis();
+		if(now - lastUpdate >= UPDATE_INTERVAL_MILLIS) {
+			lines = graphicsData.getFrameMetrics().getSummary();
+			lastUpdate = now;
+		}
+
+		int screenWidth = graphicsData.getScreenWidth();
+		int screenHeight = graphicsData.getScreenHeight();
+		int lineHeight = HUD_FONT.getSize() + 2;
+
+		textRenderer.beginRendering(screenWidth, screenHeight, true);
+		try {
+			textRenderer.setColor(HUD_COLOR);
+			int y = screenHeight - MARGIN - lineHeight;
+			for(String line : lines) {
+				textRenderer.draw(line, MARGIN, y);
+				y -= lineHeight;
+			}
+		} finally {
+			textRenderer.endRendering();
+		}
+	}
+}
@@ -10,12 +10,21 @@ import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphVector;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.media.opengl.GL2;
 
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
 import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.RenderModel;
 import org.baderlab.cy3d.internal.geometric.Vector3;
-import org.baderlab.cy3d.internal.tools.RenderToolkit;
+import org.baderlab.cy3d.internal.geometric.ViewingVolume;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.view.model.CyNetworkViewSnapshot;
 import org.cytoscape.view.model.View;
@@ -31,6 +40,14 @@ import com.jogamp.graph.curve.opengl.GLRegion;
 import com.jogamp.graph.font.FontFactory;
 */
 
+/**
+ * Draws the node labels in two stages. First the labels of the nodes in view are collected,
+ * decluttered by a {@link LabelPlacer} and grouped by font, then each group is drawn between
+ * a single beginRendering() and endRendering() of the TextRenderer for that font, so the GL
+ * state and the glyph cache are only set up once per font instead of once per label.
+ * 
+ * The first stage is only repeated when the camera moves or the nodes change.
+ */
 public class RenderNodeLabelsProcedure implements GraphicsProcedure {
 
 	private static final int TEXT_FONT_SIZE = 9;
@@ -39,8 +56,54 @@ public class RenderNodeLabelsProcedure implements GraphicsProcedure {
 	
 	private static final Font TEXT_DEFAULT_FONT = new Font(DEFAULT_FONT_NAME, Font.PLAIN, TEXT_FONT_SIZE);
 	
+	/** Changing the color flushes the TextRenderer, so labels with the same color are drawn together */
+	private static final Comparator<Label> BY_COLOR = Comparator.comparingInt(label -> label.color.getRGB());
+	
 	private final TextRendererCache textRendererCache = new TextRendererCache();
 	
+	private final LabelPlacer<Label> labelPlacer = new LabelPlacer<>();
+	
+	/** The labels to draw, grouped by font and sorted by color, kept until the labels have to be placed again */
+	private final Map<Font,List<Label>> batches = new LinkedHashMap<>();
+	
+	private boolean labelsPlaced = false;
+	private int labelCount = 0;
+	
+	/** The font and width of the label of each node, keyed by node view SUID, only measured again when the text or font changes */
+	private final Map<Long,MeasuredLabel> measuredLabels = new HashMap<>();
+	
+	
+	private static class Label {
+		final String text;
+		final Font font;
+		final Color color;
+		final int x, y;
+		
+		Label(String text, Font font, Color color, int x, int y) {
+			this.text = text;
+			this.font = font;
+			this.color = color;
+			this.x = x;
+			this.y = y;
+		}
+	}
+	
+	private static class MeasuredLabel {
+		final String text;
+		final Font fontFace;
+		final Number fontSize;
+		final Font font;
+		final int width;
+		
+		MeasuredLabel(String text, Font fontFace, Number fontSize, Font font, int width) {
+			this.text = text;
+			this.fontFace = fontFace;
+			this.fontSize = fontSize;
+			this.font = font;
+			this.width = width;
+		}
+	}
+	
 	
 	public RenderNodeLabelsProcedure() {		
 	}
@@ -51,65 +114,153 @@ public class RenderNodeLabelsProcedure implements GraphicsProcedure {
 
 	@Override
 	public void execute(GraphicsData graphicsData) {
-		if(!graphicsData.getShowLabels())
+		if(!graphicsData.getShowLabels() || !graphicsData.getQualityGovernor().isLabelsShown()) {
+			labelsPlaced = false;
 			return;
+		}
 		
 		GL2 gl = graphicsData.getGlContext();
+		SnapshotChanges changes = graphicsData.getSnapshotChanges();
 		
-		CyNetworkViewSnapshot networkView = graphicsData.getNetworkSnapshot();
-		float distanceScale = GraphicsData.DISTANCE_SCALE;
-
-		// Store the current modelview, projection, and viewport matrices
-		double modelView[] = new double[16];
-		double projection[] = new double[16];
-		int viewPort[] = new int[4];
+		if(changes.isFull()) {
+			measuredLabels.clear();
+		}
 		
-        gl.glGetDoublev(GL2.GL_MODELVIEW_MATRIX, modelView, 0);
-        gl.glGetDoublev(GL2.GL_PROJECTION_MATRIX, projection, 0);
-        gl.glGetIntegerv(GL2.GL_VIEWPORT, viewPort, 0);
+		boolean viewChanged = labelPlacer.setView(gl);
+		if(viewChanged || !labelsPlaced || changes.hasNodeChanges() || changes.isNetworkRestyled() || graphicsData.getRenderModel().isAnimationFrame()) {
+			placeLabels(graphicsData);
+			labelsPlaced = true;
+			removeDeletedNodes(graphicsData.getNetworkSnapshot());
+		}
 		
 		gl.glPushMatrix();
+		int drawCalls = drawLabels(graphicsData.getScreenWidth(), graphicsData.getScreenHeight());
+		gl.glPopMatrix();
 		
+		graphicsData.getFrameMetrics().addDrawCalls(drawCalls);
+		graphicsData.getFrameMetrics().addVisibleLabels(labelCount);
+	}
+	
+	
+	private void placeLabels(GraphicsData graphicsData) {
+		CyNetworkViewSnapshot networkView = graphicsData.getNetworkSnapshot();
+		RenderModel model = graphicsData.getRenderModel();
+		float[] positions = model.getNodePositions();
+		Vector3 cameraPosition = graphicsData.getCamera().getPosition();
+		double screenCoordinates[] = new double[3];
 		
-		for(View<CyNode> nodeView : networkView.getNodeViews()) {
-			// Draw it only if the visual property says it is visible
-			if (nodeView.getVisualProperty(BasicVisualLexicon.NODE_VISIBLE)) {
-				float x = nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION).floatValue() / distanceScale;
-				float y = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION).floatValue() / distanceScale;
-				float z = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION).floatValue() / distanceScale;
-				y = -y; // Cytoscape measures Y down from the top, OpenGL measures Y up from the bottom
+		labelPlacer.clear();
+		
+		// Only the nodes near the viewing volume are looked at, the index leaves out hidden nodes
+		ViewingVolume viewingVolume = graphicsData.getViewingVolume();
+		graphicsData.getSceneIndex().queryNodes(viewingVolume, GraphicsData.NEAR_Z / 2, suid -> {
+			int node = model.indexOfNode(suid);
+			View<CyNode> nodeView = networkView.getNodeView(suid);
+			if(node == RenderModel.NO_INDEX || nodeView == null)
+				return;
+			
+			float x = positions[node*3];
+			float y = positions[node*3+1];
+			float z = positions[node*3+2];
 
-				String text = nodeView.getVisualProperty(BasicVisualLexicon.NODE_LABEL);
-				if(text != null) {
-					Vector3 text3dPosition = new Vector3(x, y, z);
-					Vector3 screenCoordinates = RenderToolkit.convert3dToScreen(gl, text3dPosition, modelView, projection, viewPort);
-					Vector3 offsetFromCamera = text3dPosition.subtract(graphicsData.getCamera().getPosition());
-					
-					// Only draw the text if the front side of the camera faces it
-					if (offsetFromCamera.magnitudeSquared() > Double.MIN_NORMAL && graphicsData.getViewingVolume().inside(text3dPosition, GraphicsData.NEAR_Z / 2)) {
-						Font font = getLabelFont(nodeView);
-						Color color = getLabelColor(nodeView);
-						
-						TextRenderer textRenderer = textRendererCache.get(font);
-						textRenderer.beginRendering(graphicsData.getScreenWidth(), graphicsData.getScreenHeight(), true);
-						try {
-							textRenderer.setColor(color);
-							int width = findTextScreenWidth(textRenderer, font, text);
-							textRenderer.draw(text, (int) screenCoordinates.x() - width / 2, (int) screenCoordinates.y());
-						} finally {
-							// textRenderer.flush();
-							textRenderer.endRendering();
-						}
+			String text = nodeView.getVisualProperty(BasicVisualLexicon.NODE_LABEL);
+			// Only draw the text if the front side of the camera faces it
+			if(text == null || text.isEmpty() || !viewingVolume.intersectsSphere(x, y, z, GraphicsData.NEAR_Z / 2))
+				return;
+			
+			double dx = x - cameraPosition.x();
+			double dy = y - cameraPosition.y();
+			double dz = z - cameraPosition.z();
+			if(dx * dx + dy * dy + dz * dz <= Double.MIN_NORMAL)
+				return;
+			
+			MeasuredLabel measured = measureLabel(suid, nodeView, text);
+			if(measured == null)
+				return;
+			
+			if(!labelPlacer.project(x, y, z, screenCoordinates))
+				return;
+			
+			int labelX = (int) screenCoordinates[0] - measured.width / 2;
+			int labelY = (int) screenCoordinates[1];
+			Label label = new Label(text, measured.font, getLabelColor(nodeView), labelX, labelY);
+			
+			boolean selected = model.isNodeSelected(node);
+			labelPlacer.add(label, labelX, labelY, measured.width, measured.font.getSize2D(), (float) Math.sqrt(dx * dx + dy * dy + dz * dz), selected);
+		});
+		
+		batches.clear();
+		List<Label> placed = labelPlacer.place();
+		for(Label label : placed) {
+			batches.computeIfAbsent(label.font, font -> new ArrayList<>()).add(label);
+		}
+		labelCount = placed.size();
+		for(List<Label> labels : batches.values()) {
+			labels.sort(BY_COLOR);
+		}
+		labelPlacer.clear();
+	}
+	
+	
+	/**
+	 * @return the number of batches drawn, the TextRenderer flushes at least once for each
+	 */
+	private int drawLabels(int screenWidth, int screenHeight) {
+		int drawCalls = 0;
+		for(Map.Entry<Font,List<Label>> batch : batches.entrySet()) {
+			List<Label> labels = batch.getValue();
+			TextRenderer textRenderer = textRendererCache.get(batch.getKey());
+			if(textRenderer == null)
+				continue;
+			
+			textRenderer.beginRendering(screenWidth, screenHeight, true);
+			try {
+				Color color = null;
+				for(Label label : labels) {
+					if(!label.color.equals(color)) {
+						color = label.color;
+						textRenderer.setColor(color);
 					}
+					textRenderer.draw(label.text, label.x, label.y);
 				}
+			} finally {
+				textRenderer.endRendering();
 			}
+			drawCalls++;
 		}
+		return drawCalls;
+	}
+	
+	
+	/**
+	 * Returns the font and width of the node's label, measuring it only if the text or the font changed since the last time.
+	 */
+	private MeasuredLabel measureLabel(Long suid, View<CyNode> nodeView, String text) {
+		Font fontFace = nodeView.getVisualProperty(NODE_LABEL_FONT_FACE);
+		Number fontSize = nodeView.getVisualProperty(NODE_LABEL_FONT_SIZE);
 		
-		gl.glPopMatrix();
+		MeasuredLabel measured = measuredLabels.get(suid);
+		if(measured != null && measured.text.equals(text) && Objects.equals(measured.fontFace, fontFace) && Objects.equals(measured.fontSize, fontSize))
+			return measured;
+		
+		Font font = getLabelFont(fontFace, fontSize);
+		TextRenderer textRenderer = textRendererCache.get(font);
+		if(textRenderer == null)
+			return null;
+		
+		measured = new MeasuredLabel(text, fontFace, fontSize, font, findTextScreenWidth(textRenderer, font, text));
+		measuredLabels.put(suid, measured);
+		return measured;
+	}
+	
+	private void removeDeletedNodes(CyNetworkViewSnapshot networkView) {
+		if(measuredLabels.size() > networkView.getNodeCount()) {
+			measuredLabels.keySet().removeIf(suid -> networkView.getNodeView(suid) == null);
+		}
 	}
 	
 	
-	private static Color getLabelColor(View<CyNode> nodeView) {
+	static Color getLabelColor(View<CyNode> nodeView) {
 		Paint textPaint = nodeView.getVisualProperty(BasicVisualLexicon.NODE_LABEL_COLOR);
 		if(textPaint instanceof Color) {
 			return (Color) textPaint;
@@ -117,11 +268,9 @@ public class RenderNodeLabelsProcedure implements GraphicsProcedure {
 		return TEXT_DEFAULT_COLOR; // Use black as default if no node label color was found
 	}
 	
-	private static Font getLabelFont(View<CyNode> nodeView) {
-		Font font = nodeView.getVisualProperty(NODE_LABEL_FONT_FACE);
+	static Font getLabelFont(Font font, Number size) {
 		if(font == null)
 			return TEXT_DEFAULT_FONT;
-		Number size = nodeView.getVisualProperty(NODE_LABEL_FONT_SIZE);
 		if(size == null)
 			return font;
 		return font.deriveFont(size.floatValue());
@@ -0,0 +1,168 @@
+package org.baderlab.cy3d.internal.rendering;
+
+import static org.cytoscape.view.presentation.property.BasicVisualLexicon.NODE_LABEL_FONT_FACE;
+import static org.cytoscape.view.presentation.property.BasicVisualLexicon.NODE_LABEL_FONT_SIZE;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.List;
+
+import javax.media.opengl.GL2;
+
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.RenderModel;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.rendering.shapes.SdfTextDrawer;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+
+/**
+ * Draws the node labels as text in the scene using a signed distance field glyph atlas,
+ * instead of projecting every label to the screen and drawing it with a TextRenderer.
+ *
+ * Labels are sized in world units relative to the nodes, like in the 2D renderer, so they
+ * scale smoothly with zoom. The labels that a {@link LabelPlacer} lets through are kept in one
+ * vertex buffer that is only rebuilt when the camera moves or the nodes change, every other
+ * frame costs a single draw call.
+ *
+ * If the shaders are not supported the given fallback procedure is used instead.
+ */
+public class RenderNodeLabelsSdfProcedure implements GraphicsProcedure {
+
+	/** World units per point of font size, a label with the same font size as the node size is as tall as the node */
+	private static final float FONT_SCALE = RenderNodesProcedure.NODE_SIZE_RADIUS / RenderNodesProcedure.NODE_SIZE_SCALE;
+
+	/** Labels smaller than this on the screen are not readable and are left out */
+	private static final float MIN_LABEL_HEIGHT_PIXELS = 3;
+	
+	private final GraphicsProcedure fallback;
+	private final SdfTextDrawer textDrawer = new SdfTextDrawer();
+	private final LabelPlacer<Label> labelPlacer = new LabelPlacer<>();
+
+	private boolean useFallback = false;
+	private boolean initialized = false;
+	private boolean labelsShown = false;
+	private int labelCount = 0;
+
+
+	private static class Label {
+		final String text;
+		final Font font;
+		final float height;
+		final float x, y, z;
+		final Color color;
+
+		Label(String text, Font font, float height, float x, float y, float z, Color color) {
+			this.text = text;
+			this.font = font;
+			this.height = height;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.color = color;
+		}
+	}
+
+	public RenderNodeLabelsSdfProcedure(GraphicsProcedure fallback) {
+		this.fallback = fallback;
+	}
+
+	@Override
+	public void initialize(GraphicsData graphicsData) {
+		fallback.initialize(graphicsData);
+	}
+
+	@Override
+	public void execute(GraphicsData graphicsData) {
+		if(useFallback) {
+			fallback.execute(graphicsData);
+			return;
+		}
+
+		GL2 gl = graphicsData.getGlContext();
+		if(!initialized) {
+			initialized = true;
+			if(!textDrawer.initialize(gl)) {
+				System.err.println("Distance field labels are not supported, falling back to TextRenderer labels");
+				useFallback = true;
+				fallback.execute(graphicsData);
+				return;
+			}
+			labelsShown = false;
+		}
+
+		if(!graphicsData.getShowLabels() || !graphicsData.getQualityGovernor().isLabelsShown()) {
+			labelsShown = false;
+			return;
+		}
+
+		SnapshotChanges changes = graphicsData.getSnapshotChanges();
+		boolean viewChanged = labelPlacer.setView(gl);
+		if(viewChanged || !labelsShown || changes.hasNodeChanges() || changes.isNetworkRestyled() || graphicsData.getRenderModel().isAnimationFrame()) {
+			placeLabels(graphicsData);
+			textDrawer.upload(gl);
+			labelsShown = true;
+		}
+
+		int drawCalls = textDrawer.draw(gl);
+		graphicsData.getFrameMetrics().addDrawCalls(drawCalls);
+		graphicsData.getFrameMetrics().addVisibleLabels(labelCount);
+	}
+
+
+	private void placeLabels(GraphicsData graphicsData) {
+		CyNetworkViewSnapshot networkView = graphicsData.getNetworkSnapshot();
+		RenderModel model = graphicsData.getRenderModel();
+		float[] positions = model.getNodePositions();
+		Vector3 cameraPosition = graphicsData.getCamera().getPosition();
+		double screenCoordinates[] = new double[3];
+
+		labelPlacer.clear();
+
+		// the index leaves out hidden nodes
+		graphicsData.getSceneIndex().queryNodes(graphicsData.getViewingVolume(), 0, suid -> {
+			int node = model.indexOfNode(suid);
+			View<CyNode> nodeView = networkView.getNodeView(suid);
+			if(node == RenderModel.NO_INDEX || nodeView == null)
+				return;
+
+			String text = nodeView.getVisualProperty(BasicVisualLexicon.NODE_LABEL);
+			if(text == null || text.isEmpty())
+				return;
+
+			float x = positions[node*3];
+			float y = positions[node*3+1];
+			float z = positions[node*3+2];
+
+			if(!labelPlacer.project(x, y, z, screenCoordinates))
+				return;
+
+			Font font = RenderNodeLabelsProcedure.getLabelFont(nodeView.getVisualProperty(NODE_LABEL_FONT_FACE), nodeView.getVisualProperty(NODE_LABEL_FONT_SIZE));
+			float height = font.getSize2D() * FONT_SCALE;
+			float pixelsPerUnit = (float) screenCoordinates[2];
+			float screenHeight = height * pixelsPerUnit;
+			if(screenHeight < MIN_LABEL_HEIGHT_PIXELS)
+				return;
+
+			float screenWidth = textDrawer.getTextWidth(text, font, height) * pixelsPerUnit;
+			Label label = new Label(text, font, height, x, y, z, RenderNodeLabelsProcedure.getLabelColor(nodeView));
+
+			double dx = x - cameraPosition.x();
+			double dy = y - cameraPosition.y();
+			double dz = z - cameraPosition.z();
+			boolean selected = model.isNodeSelected(node);
+			labelPlacer.add(label, (float) screenCoordinates[0] - screenWidth / 2, (float) screenCoordinates[1], screenWidth, screenHeight, (float) Math.sqrt(dx * dx + dy * dy + dz * dz), selected);
+		});
+
+		textDrawer.clear();
+		List<Label> placed = labelPlacer.place();
+		for(Label label : placed) {
+			textDrawer.addText(label.text, label.font, label.height, label.x, label.y, label.z, label.color);
+		}
+		labelCount = placed.size();
+		labelPlacer.clear();
+	}
+}
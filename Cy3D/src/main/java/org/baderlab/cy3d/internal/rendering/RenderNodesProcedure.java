@@ -1,48 +1,111 @@
 package org.baderlab.cy3d.internal.rendering;
 
-import java.awt.Color;
-import java.nio.FloatBuffer;
+import java.util.Set;
 
 import javax.media.opengl.GL2;
 
 import org.baderlab.cy3d.internal.cytoscape.view.Cy3DVisualLexicon;
 import org.baderlab.cy3d.internal.cytoscape.view.DetailLevel;
 import org.baderlab.cy3d.internal.cytoscape.view.DetailLevelVisualProperty;
+import org.baderlab.cy3d.internal.data.FrameMetrics;
 import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.QualityGovernor;
+import org.baderlab.cy3d.internal.data.RenderModel;
+import org.baderlab.cy3d.internal.geometric.Octree;
 import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.rendering.shapes.InstancedShapeDrawer;
+import org.baderlab.cy3d.internal.rendering.shapes.PointSpriteDrawer;
 import org.baderlab.cy3d.internal.rendering.shapes.ScalableShapeDrawer;
 import org.baderlab.cy3d.internal.rendering.shapes.ScalableShapeDrawer.Detail;
 import org.baderlab.cy3d.internal.rendering.shapes.ScalableShapeDrawer.Shape;
 import org.baderlab.cy3d.internal.tools.RenderColor;
-import org.baderlab.cy3d.internal.tools.SUIDToolkit;
-import org.cytoscape.model.CyNode;
 import org.cytoscape.view.model.CyNetworkViewSnapshot;
-import org.cytoscape.view.model.View;
-import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.view.presentation.property.NodeShapeVisualProperty;
 import org.cytoscape.view.presentation.property.values.NodeShape;
 
 public class RenderNodesProcedure implements GraphicsProcedure {
 
-	private static final RenderColor DEFAULT_COLOR = new RenderColor(0.67, 0.67, 0.67);
 	private static final RenderColor DEFAULT_SELECTED_COLOR = new RenderColor(0.73, 0.73, 0.6);
 	private static final RenderColor DEFAULT_HOVER_COLOR = new RenderColor(0.5, 0.5, 0.7);
 	
 	/** The default radius of the spherical nodes */
-	private static final float NODE_SIZE_RADIUS = 0.322f; // 0.015f
+	public static final float NODE_SIZE_RADIUS = 0.322f; // 0.015f
+	
+	/** The node width, height and depth that corresponds to {@link #NODE_SIZE_RADIUS} */
+	public static final float NODE_SIZE_SCALE = 60;
+	
+	// Screen radius in pixels below which the automatic detail level switches to a point or a coarser mesh
+	private static final double AUTO_POINT_MAX_RADIUS = 1.0;
+	private static final double AUTO_LOW_MAX_RADIUS = 6.0;
+	private static final double AUTO_MED_MAX_RADIUS = 20.0;
+	
+	private static final float[] SPECULAR_REFLECTION = { 0.46f, 0.46f, 0.46f, 1.0f };
 	
 	private ScalableShapeDrawer shapeDrawer = new ScalableShapeDrawer();
 	
+	private final boolean allowInstancing;
+	
+	/** Only set when the context supports instanced rendering, otherwise the display lists are used. */
+	private InstancedShapeDrawer instancedDrawer = null;
+	
+	/** Only set when instancing is allowed, otherwise the nodes too small for a mesh are drawn as low detail meshes. */
+	private PointSpriteDrawer pointDrawer = null;
+	
+	// Set at the start of each frame when the detail level is DETAIL_AUTO or the camera is moving
+	private boolean autoDetail;
+	private boolean lowDetail;
+	private double pointMaxRadius;
+	private double pixelsPerUnit;
+	private Vector3 cameraPosition;
+	
+	// Set at the start of each frame for the node visitor, so that no lambda is created every frame
+	private GL2 gl;
+	private GraphicsData graphicsData;
+	private RenderModel model;
+	private Detail detail;
+	private final Octree.ItemVisitor nodeVisitor = this::visitNode;
+	
+	/** Filled in by chooseColor(), so that no color object is created per node */
+	private final RenderColor color = new RenderColor();
+	
+	// Counted for the frame metrics
+	private int nodeCount;
+	private int drawCalls;
+	
+	
+	/**
+	 * Set -Dcy3d.instancing=false to draw the nodes one display list at a time even when the
+	 * context supports instanced rendering, for drivers where instancing misbehaves.
+	 */
+	public RenderNodesProcedure() {
+		this.allowInstancing = !"false".equalsIgnoreCase(System.getProperty("cy3d.instancing"));
+	}
 	
 	
 	@Override
 	public void initialize(GraphicsData graphicsData) {
 		GL2 gl = graphicsData.getGlContext();
 		shapeDrawer.initialize(gl);
+		
+		if(allowInstancing) {
+			InstancedShapeDrawer drawer = new InstancedShapeDrawer();
+			if(drawer.initialize(gl)) {
+				instancedDrawer = drawer;
+			}
+			pointDrawer = new PointSpriteDrawer();
+		}
+	}
+	
+	
+	/**
+	 * If the nodes are drawn with instanced rendering, known after {@link #initialize(GraphicsData)}.
+	 */
+	public boolean isInstancing() {
+		return instancedDrawer != null;
 	}
 	
 	
-	private static Shape mapNodeShape(NodeShape nodeShape) {
+	public static Shape mapNodeShape(NodeShape nodeShape) {
 		if(NodeShapeVisualProperty.TRIANGLE.equals(nodeShape))
 			return Shape.SHAPE_TETRAHEDRON;
 		if(NodeShapeVisualProperty.ELLIPSE.equals(nodeShape))
@@ -50,8 +113,11 @@ public class RenderNodesProcedure implements GraphicsProcedure {
 		return Shape.SHAPE_CUBE;
 	}
 
-	private static Detail mapDetailLevel(DetailLevel detailLevel) {
-		if(DetailLevelVisualProperty.DETAIL_MED.equals(detailLevel))
+	/**
+	 * DETAIL_AUTO is mapped to DETAIL_MED, callers that support the automatic level have to check for it first.
+	 */
+	public static Detail mapDetailLevel(DetailLevel detailLevel) {
+		if(DetailLevelVisualProperty.DETAIL_MED.equals(detailLevel) || DetailLevelVisualProperty.DETAIL_AUTO.equals(detailLevel))
 			return Detail.DETAIL_MED;
 		if(DetailLevelVisualProperty.DETAIL_HIGH.equals(detailLevel))
 			return Detail.DETAIL_HIGH;
@@ -62,106 +128,163 @@ public class RenderNodesProcedure implements GraphicsProcedure {
 	public void execute(GraphicsData graphicsData) {
 		GL2 gl = graphicsData.getGlContext();
 
-		float[] specularReflection = { 0.46f, 0.46f, 0.46f, 1.0f };
-		gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_SPECULAR, FloatBuffer.wrap(specularReflection));
+		gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_SPECULAR, SPECULAR_REFLECTION, 0);
 		gl.glMateriali(GL2.GL_FRONT, GL2.GL_SHININESS, 13);
 		
 		CyNetworkViewSnapshot networkView = graphicsData.getNetworkSnapshot();
+		DetailLevel detailLevel = networkView.getVisualProperty(Cy3DVisualLexicon.DETAIL_LEVEL);
+		Detail detail = mapDetailLevel(detailLevel);
 		
-		float distanceScale = GraphicsData.DISTANCE_SCALE;
-		float nodeSizeScale = 60;
-
-		// networkView.updateView();
-		for (View<CyNode> nodeView : networkView.getNodeViews()) {
-			if(nodeView == null) {
-				// MKTODO why does this happen?
-				System.err.println("nodeView is null: networkView.getNodeViews() returns: " + networkView.getNodeViews());
-				continue;
-			}
-			
-			float x = nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION).floatValue() / distanceScale;
-			float y = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION).floatValue() / distanceScale;
-			float z = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION).floatValue() / distanceScale;
-			
-//			System.out.println("x = " + x);
-			
-			y = -y; // Cytoscape measures Y down from the top, OpenGL measures Y up from the bottom
+		// While the camera moves everything is low detail and more of the small nodes become points,
+		// without the point drawer the small nodes stay low detail meshes
+		QualityGovernor governor = graphicsData.getQualityGovernor();
+		lowDetail = governor.isLowDetailNodes();
+		pointMaxRadius = lowDetail && pointDrawer != null ? Math.max(AUTO_POINT_MAX_RADIUS, governor.getNodePointPixels()) : AUTO_POINT_MAX_RADIUS;
+		
+		autoDetail = DetailLevelVisualProperty.DETAIL_AUTO.equals(detailLevel) || lowDetail;
+		if(autoDetail) {
+			// The height in pixels of something 1 unit tall, 1 unit away from the camera
+			pixelsPerUnit = graphicsData.getScreenHeight() / (2 * Math.tan(Math.toRadians(GraphicsData.VERTICAL_VOF / 2)));
+			cameraPosition = graphicsData.getCamera().getPosition();
+		}
+		
+		if(instancedDrawer != null) {
+			instancedDrawer.clear();
+		}
+		if(pointDrawer != null) {
+			pointDrawer.clear();
+		}
+		nodeCount = 0;
+		drawCalls = 0;
 
-			Double width  = nodeView.getVisualProperty(BasicVisualLexicon.NODE_WIDTH);
-			Double height = nodeView.getVisualProperty(BasicVisualLexicon.NODE_HEIGHT);
-			Double depth  = nodeView.getVisualProperty(BasicVisualLexicon.NODE_DEPTH);
-			
-			// Avoid flat pancake nodes
-			if(depth == null || depth.doubleValue() == 0.0) {
-				depth = width;
-			}
-			
-			// Draw it only if the visual property says it is visible
-			if (nodeView.getVisualProperty(BasicVisualLexicon.NODE_VISIBLE) && graphicsData .getViewingVolume().inside(new Vector3(x, y, z), 1)) {
-				
-				long suid = networkView.getNodeInfo(nodeView).getModelSUID();
-				
-				// glLoadName() and glPushName() only support int, so we need to break the long SUID into two parts
-				int upper = SUIDToolkit.upperInt(suid);
-				int lower = SUIDToolkit.lowerInt(suid);
-				
-				gl.glPushMatrix();
-				gl.glTranslatef(x, y, z);
-				gl.glLoadName(upper);
-				gl.glPushName(lower);
-				
-				chooseColor(gl, nodeView, graphicsData);
-				//gl.glCallList(nodeListIndex);
-				
-				gl.glScalef(NODE_SIZE_RADIUS, NODE_SIZE_RADIUS, NODE_SIZE_RADIUS);
-				
-				
-				
-				if (width != null && height != null && depth != null) {
-					gl.glScalef(width.floatValue() / nodeSizeScale, 
-							height.floatValue() / nodeSizeScale, 
-							depth.floatValue() / nodeSizeScale);
-				}
-				
-				Shape shapeType = mapNodeShape(nodeView.getVisualProperty(BasicVisualLexicon.NODE_SHAPE));
-				Detail detail = mapDetailLevel(networkView.getVisualProperty(Cy3DVisualLexicon.DETAIL_LEVEL)); 
-				
-				shapeDrawer.drawShape(gl, shapeType, detail);
-				
-				gl.glPopName();
-				gl.glPopMatrix();
-			}
+		// Only the nodes in front of the camera are looked at, the index leaves out hidden nodes
+		this.gl = gl;
+		this.graphicsData = graphicsData;
+		this.model = graphicsData.getRenderModel();
+		this.detail = detail;
+		try {
+			graphicsData.getSceneIndex().queryNodes(graphicsData.getViewingVolume(), 0, nodeVisitor);
+		} finally {
+			this.gl = null;
+			this.graphicsData = null;
+			this.model = null;
+		}
+		
+		if(instancedDrawer != null) {
+			drawCalls += instancedDrawer.draw(gl);
+		}
+		if(pointDrawer != null) {
+			drawCalls += pointDrawer.draw(gl);
+		}
+		
+		FrameMetrics metrics = graphicsData.getFrameMetrics();
+		metrics.addVisibleNodes(nodeCount);
+		metrics.addDrawCalls(drawCalls);
+	}
+	
+	private void visitNode(long suid) {
+		int node = model.indexOfNode(suid);
+		if(node != RenderModel.NO_INDEX) {
+			drawNode(gl, graphicsData, model, node, detail);
 		}
 	}
 	
-	private void chooseColor(GL2 gl, View<CyNode> nodeView, GraphicsData graphicsData) {
-		Color visualPropertyColor = null;
-		visualPropertyColor = (Color) nodeView.getVisualProperty(BasicVisualLexicon.NODE_FILL_COLOR);
+	/**
+	 * Chooses the detail from the radius of the node on the screen, returns null if the node is smaller than a pixel.
+	 */
+	private Detail chooseAutoDetail(float x, float y, float z, float scaleX, float scaleY, float scaleZ) {
+		double dx = x - cameraPosition.x();
+		double dy = y - cameraPosition.y();
+		double dz = z - cameraPosition.z();
+		double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		if(distance < GraphicsData.NEAR_Z)
+			return Detail.DETAIL_HIGH;
+		
+		// The shapes have a diameter of 1 before being scaled
+		double radius = 0.5 * Math.max(scaleX, Math.max(scaleY, scaleZ));
+		double screenRadius = radius * pixelsPerUnit / distance;
+		
+		if(screenRadius < pointMaxRadius)
+			return null;
+		if(screenRadius < AUTO_LOW_MAX_RADIUS)
+			return Detail.DETAIL_LOW;
+		if(screenRadius < AUTO_MED_MAX_RADIUS)
+			return Detail.DETAIL_MED;
+		return Detail.DETAIL_HIGH;
+	}
+	
+	private void drawNode(GL2 gl, GraphicsData graphicsData, RenderModel model, int node, Detail detail) {
+		float[] positions = model.getNodePositions();
+		float x = positions[node*3];
+		float y = positions[node*3+1];
+		float z = positions[node*3+2];
+		
+		float[] scales = model.getNodeScales();
+		float scaleX = scales[node*3];
+		float scaleY = scales[node*3+1];
+		float scaleZ = scales[node*3+2];
 		
-		RenderColor color = new RenderColor(DEFAULT_COLOR);
+		Shape shapeType = model.getNodeShape(node);
+		RenderColor color = chooseColor(model, node, graphicsData, this.color);
+		nodeCount++;
 		
-		if (visualPropertyColor != null) {
-			color.set((double) visualPropertyColor.getRed() / 255, 
-					(double) visualPropertyColor.getGreen() / 255, 
-					(double) visualPropertyColor.getBlue() / 255);
+		if(autoDetail) {
+			detail = chooseAutoDetail(x, y, z, scaleX, scaleY, scaleZ);
+			if(detail == null) {
+				if(pointDrawer != null) {
+					pointDrawer.addPoint(x, y, z, (float) color.getRed(), (float) color.getGreen(), (float) color.getBlue());
+					return;
+				}
+				detail = Detail.DETAIL_LOW;
+			}
+			if(lowDetail) {
+				detail = Detail.DETAIL_LOW;
+			}
 		}
 		
-		Long suid = nodeView.getSUID();
+		if(instancedDrawer != null) {
+			instancedDrawer.addInstance(shapeType, detail, x, y, z, scaleX, scaleY, scaleZ, 
+					(float) color.getRed(), (float) color.getGreen(), (float) color.getBlue());
+			return;
+		}
+		
+		gl.glPushMatrix();
+		gl.glTranslatef(x, y, z);
+		
+		RenderColor.setNonAlphaColors(gl, color);
+		
+		gl.glScalef(scaleX, scaleY, scaleZ);
+		
+		shapeDrawer.drawShape(gl, shapeType, detail);
+		drawCalls++;
 		
-		if (nodeView.getVisualProperty(BasicVisualLexicon.NODE_SELECTED)) {
+		gl.glPopMatrix();
+	}
+	
+	/**
+	 * Fills in and returns the given color.
+	 */
+	private RenderColor chooseColor(RenderModel model, int node, GraphicsData graphicsData, RenderColor color) {
+		float[] colors = model.getNodeColors();
+		color.set(colors[node*3], colors[node*3+1], colors[node*3+2]);
+		
+		long suid = model.getNodeSuid(node);
+		Set<Long> pickedNodes = graphicsData.getPickingData().getPickedNodeIndices();
+		
+		if (model.isNodeSelected(node)) {
 			// Make selected nodes appear greener
 			color.multiplyRed(0.7, 0, 0.3);
 			color.multiplyGreen(1.5, 0.5, 1);
 			color.multiplyBlue(0.7, 0, 0.3);
 		} 
-		else if (suid.equals(graphicsData.getSelectionData().getHoverNodeIndex()) || graphicsData.getPickingData().getPickedNodeIndices().contains(suid)) {
+		else if (suid == graphicsData.getSelectionData().getHoverNodeIndex() || (!pickedNodes.isEmpty() && pickedNodes.contains(suid))) {
 			// Make hovered nodes appear bluer
 			color.multiplyRed(0.7, 0, 0.7);
 			color.multiplyGreen(0.7, 0, 0.7);
 			color.multiplyBlue(1.5, 0.5, 1);
 		}
 		
-		RenderColor.setNonAlphaColors(gl, color);
+		return color;
 	}
 
 }
@@ -0,0 +1,102 @@
+package org.baderlab.cy3d.internal.rendering.shapes;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+
+import org.baderlab.cy3d.internal.geometric.Vector3;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Draws edges as one pixel wide lines following their arcs, all of them with one glDrawArrays call.
+ * Used instead of the cylinder meshes while the camera is moving.
+ *
+ * Arcs are accumulated with {@link #addArc} and drawn by {@link #draw(GL2)}, the lines are not lit.
+ * Only client side vertex arrays are used so this works on every context.
+ */
+public class EdgeLineDrawer {
+
+	private static final int FLOATS_PER_VERTEX = 6; // x, y, z, red, green, blue
+
+	private float[] vertices = new float[FLOATS_PER_VERTEX * 512];
+	private int vertexCount = 0;
+	private FloatBuffer uploadBuffer = Buffers.newDirectFloatBuffer(FLOATS_PER_VERTEX * 512);
+
+
+	public void clear() {
+		vertexCount = 0;
+	}
+
+	/**
+	 * Adds one line for each segment of the arc.
+	 */
+	public void addArc(Vector3[] points, float red, float green, float blue) {
+		int segments = points.length - 1;
+		if(segments <= 0)
+			return;
+
+		int needed = (vertexCount + 2 * segments) * FLOATS_PER_VERTEX;
+		if(needed > vertices.length) {
+			vertices = Arrays.copyOf(vertices, Math.max(needed, vertices.length * 2));
+		}
+		for(int s = 0; s < segments; s++) {
+			addVertex(points[s], red, green, blue);
+			addVertex(points[s + 1], red, green, blue);
+		}
+	}
+
+	private void addVertex(Vector3 point, float red, float green, float blue) {
+		int i = vertexCount * FLOATS_PER_VERTEX;
+		vertices[i]   = (float) point.x();
+		vertices[i+1] = (float) point.y();
+		vertices[i+2] = (float) point.z();
+		vertices[i+3] = red;
+		vertices[i+4] = green;
+		vertices[i+5] = blue;
+		vertexCount++;
+	}
+
+
+	/**
+	 * Draws all the lines added since the last call to {@link #clear()}.
+	 * 
+	 * @return the number of draw calls made
+	 */
+	public int draw(GL2 gl) {
+		if(vertexCount == 0)
+			return 0;
+
+		int floats = vertexCount * FLOATS_PER_VERTEX;
+		if(uploadBuffer.capacity() < floats) {
+			uploadBuffer = Buffers.newDirectFloatBuffer(vertices.length);
+		}
+		uploadBuffer.clear();
+		uploadBuffer.put(vertices, 0, floats);
+
+		int stride = FLOATS_PER_VERTEX * Buffers.SIZEOF_FLOAT;
+		uploadBuffer.position(0);
+		FloatBuffer positions = uploadBuffer.slice();
+		uploadBuffer.position(3);
+		FloatBuffer colors = uploadBuffer.slice();
+
+		gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_LINE_BIT);
+		gl.glPushClientAttrib(GL2.GL_CLIENT_VERTEX_ARRAY_BIT);
+		gl.glDisable(GL2.GL_LIGHTING);
+		gl.glLineWidth(1.0f);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+		gl.glVertexPointer(3, GL.GL_FLOAT, stride, positions);
+		gl.glColorPointer(3, GL.GL_FLOAT, stride, colors);
+
+		gl.glDrawArrays(GL.GL_LINES, 0, vertexCount);
+
+		gl.glPopClientAttrib();
+		gl.glPopAttrib();
+		return 1;
+	}
+}
@@ -0,0 +1,370 @@
+package org.baderlab.cy3d.internal.rendering.shapes;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.tools.RenderColor;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Tessellates all the edges of the network into a single indexed triangle mesh that is kept in
+ * vertex buffer objects, so that the edges can be drawn with one glDrawElements call.
+ *
+ * The mesh is built on the CPU by calling {@link #clear()}, then one of the add methods
+ * for every edge, then {@link #upload(GL2)}. After that {@link #draw(GL2)} can be called
+ * every frame until the edges change. An edge that keeps its number of points and line type
+ * also keeps its number of vertices, so it can be tessellated again in place between
+ * {@link #beginReplace(int, int)} and {@link #endReplace(int, int)}, or just get a new color
+ * with {@link #setColor(int, int, RenderColor)}, and {@link #uploadChanged(GL2)} then only copies
+ * the vertices that changed.
+ *
+ * The shapes have the same dimensions as the display lists in {@link EdgeShapeDrawer},
+ * the vertex format is (x, y, z, nx, ny, nz, red, green, blue) and is drawn using
+ * the fixed function pipeline so the usual lighting and GL_COLOR_MATERIAL apply.
+ */
+public class EdgeMeshDrawer {
+
+	private static final int FLOATS_PER_VERTEX = 9;
+
+	private static final int TUBE_SLICES = 3;
+	private static final int DOT_SLICES = 4;
+	private static final int DOT_STACKS = 4;
+
+	private float[] vertices = new float[FLOATS_PER_VERTEX * 1024];
+	private int[] indices = new int[3 * 1024];
+	private int vertexCount = 0;
+	private int indexCount = 0;
+
+	private int vertexBuffer;
+	private int indexBuffer;
+	private int uploadedIndexCount = 0;
+
+	// The vertices changed since the last upload
+	private int changedFirst = Integer.MAX_VALUE;
+	private int changedEnd = 0;
+
+	// The size of the mesh and the first vertex of the edge while an edge is being replaced
+	private int replacedVertexCount;
+	private int replacedIndexCount;
+	private int replacedFirstVertex;
+
+	// The basis of the rings being added and scratch vectors, so that rebuilding the mesh does not create garbage
+	private final Vector3 basisU = new Vector3();
+	private final Vector3 basisV = new Vector3();
+	private final Vector3 basisW = new Vector3();
+	private final Vector3 tangent = new Vector3();
+	private final Vector3 offset = new Vector3();
+	private final Vector3 ringCenter = new Vector3();
+	private final Vector3 ringAxis = new Vector3();
+
+
+	public static boolean isSupported(GL2 gl) {
+		return gl.isFunctionAvailable("glGenBuffers") && gl.isFunctionAvailable("glBufferData");
+	}
+
+	public void initialize(GL2 gl) {
+		int[] buffers = new int[2];
+		gl.glGenBuffers(2, buffers, 0);
+		vertexBuffer = buffers[0];
+		indexBuffer  = buffers[1];
+	}
+
+
+	public void clear() {
+		vertexCount = 0;
+		indexCount = 0;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	public int getIndexCount() {
+		return indexCount;
+	}
+
+	/**
+	 * Makes the next add method write over the vertices and indices of an edge that is already in the mesh,
+	 * starting at the given vertex and index.
+	 */
+	public void beginReplace(int firstVertex, int firstIndex) {
+		replacedVertexCount = vertexCount;
+		replacedIndexCount = indexCount;
+		replacedFirstVertex = firstVertex;
+		vertexCount = firstVertex;
+		indexCount = firstIndex;
+	}
+
+	/**
+	 * Ends the replacement started with {@link #beginReplace(int, int)}.
+	 * @param vertexEnd the vertex after the last one of the edge that was replaced
+	 * @param indexEnd the index after the last one of the edge that was replaced
+	 * @return false if the new shape does not have as many vertices as the old one, the vertices of the
+	 * next edges were overwritten then and the whole mesh has to be built again
+	 */
+	public boolean endReplace(int vertexEnd, int indexEnd) {
+		// The indices are the same when the number of vertices is, they only depend on the first vertex
+		boolean sameSize = vertexCount == vertexEnd && indexCount == indexEnd;
+		changedFirst = Math.min(changedFirst, replacedFirstVertex);
+		changedEnd = Math.max(changedEnd, vertexEnd);
+		vertexCount = replacedVertexCount;
+		indexCount = replacedIndexCount;
+		return sameSize;
+	}
+
+	/**
+	 * Changes the color of the vertices from firstVertex up to vertexEnd.
+	 */
+	public void setColor(int firstVertex, int vertexEnd, RenderColor color) {
+		float red   = (float) color.getRed();
+		float green = (float) color.getGreen();
+		float blue  = (float) color.getBlue();
+		for(int i = firstVertex * FLOATS_PER_VERTEX; i < vertexEnd * FLOATS_PER_VERTEX; i += FLOATS_PER_VERTEX) {
+			vertices[i+6] = red;
+			vertices[i+7] = green;
+			vertices[i+8] = blue;
+		}
+		changedFirst = Math.min(changedFirst, firstVertex);
+		changedEnd = Math.max(changedEnd, vertexEnd);
+	}
+
+	/**
+	 * Adds a continuous tube running through all the given points.
+	 * @param radius The radius of the tube (half the scale used with the display list).
+	 */
+	public void addRegularArc(Vector3[] points, float radius, RenderColor color) {
+		if(points.length < 2)
+			return;
+
+		setBasis(points[1].subtract(points[0], tangent));
+		int previousRing = addRing(points[0], basisU, basisV, radius, color);
+
+		for(int i = 1; i < points.length; i++) {
+			int next = Math.min(i + 1, points.length - 1);
+			points[next].subtract(points[i - 1], tangent);
+
+			// Carry the previous ring's orientation along the tube so that it does not twist
+			if(tangent.magnitudeSquared() > Double.MIN_NORMAL) {
+				tangent.normalizeLocal();
+				basisU.subtract(tangent.multiply(basisU.dot(tangent), offset), offset);
+				if(offset.magnitudeSquared() > Double.MIN_NORMAL) {
+					offset.normalizeLocal();
+					basisU.set(offset);
+					tangent.cross(basisU, basisV);
+				}
+			}
+
+			int ring = addRing(points[i], basisU, basisV, radius, color);
+			connectRings(previousRing, ring, TUBE_SLICES);
+			previousRing = ring;
+		}
+	}
+
+	/**
+	 * Adds a short cylinder centered on every interior point.
+	 */
+	public void addDashedArc(Vector3[] points, float radius, float length, RenderColor color) {
+		for (int i = 1; i < points.length - 1; i++) {
+			setBasis(points[i + 1].subtract(points[i - 1], tangent));
+			basisW.multiply(length / 2, offset);
+
+			int startRing = addRing(points[i].subtract(offset, ringCenter), basisU, basisV, radius, color);
+			int endRing   = addRing(points[i].plus(offset, ringCenter), basisU, basisV, radius, color);
+			connectRings(startRing, endRing, TUBE_SLICES);
+		}
+	}
+
+	/**
+	 * Adds a small sphere on every interior point.
+	 */
+	public void addDottedArc(Vector3[] points, float radius, RenderColor color) {
+		for (int i = 1; i < points.length - 1; i++) {
+			setBasis(points[i + 1].subtract(points[i - 1], tangent));
+
+			int firstRing = vertexCount;
+			for(int stack = 0; stack <= DOT_STACKS; stack++) {
+				double phi = Math.PI * stack / DOT_STACKS;
+				basisW.multiply(radius * Math.cos(phi), ringCenter).addLocal(points[i]);
+				addRing(ringCenter, basisU, basisV, (float) (radius * Math.sin(phi)), (float) Math.cos(phi), DOT_SLICES, color);
+			}
+			for(int stack = 0; stack < DOT_STACKS; stack++) {
+				// rings run from the +z pole towards -z, so connect them in reverse to face outwards
+				connectRings(firstRing + (stack + 1) * DOT_SLICES, firstRing + stack * DOT_SLICES, DOT_SLICES);
+			}
+		}
+	}
+
+
+	/**
+	 * Sets { u, v, w } where w is the normalized direction and u x v = w.
+	 * This is the same orientation that RenderToolkit.setUpFacingTransformation() produces.
+	 */
+	private void setBasis(Vector3 direction) {
+		if(direction.magnitudeSquared() <= Double.MIN_NORMAL) {
+			basisU.set(1, 0, 0);
+			basisV.set(0, 1, 0);
+			basisW.set(0, 0, 1);
+			return;
+		}
+		basisW.set(direction);
+		basisW.normalizeLocal();
+		double c = basisW.z();
+		if(c < -0.999999) {
+			// rotating 180 degrees around the x axis
+			basisU.set(1, 0, 0);
+			basisV.set(0, -1, 0);
+			return;
+		}
+
+		// Rodrigues' rotation of the x and y axes by the rotation taking the z axis onto w
+		double k = 1 / (1 + c);
+		double x = basisW.x();
+		double y = basisW.y();
+		basisU.set(1 - x * x * k, -x * y * k, -x);
+		basisV.set(-x * y * k, 1 - y * y * k, -y);
+	}
+
+	private int addRing(Vector3 center, Vector3 u, Vector3 v, float radius, RenderColor color) {
+		return addRing(center, u, v, radius, 0, TUBE_SLICES, color);
+	}
+
+	/**
+	 * @param axialNormal The component of the normal along u x v, used for spheres
+	 * @return the index of the first vertex of the ring
+	 */
+	private int addRing(Vector3 center, Vector3 u, Vector3 v, float radius, float axialNormal, int slices, RenderColor color) {
+		int first = vertexCount;
+		Vector3 w = u.cross(v, ringAxis);
+		float radialNormal = (float) Math.sqrt(Math.max(0, 1 - axialNormal * axialNormal));
+
+		for(int k = 0; k < slices; k++) {
+			double angle = 2 * Math.PI * k / slices;
+			double cos = Math.cos(angle);
+			double sin = Math.sin(angle);
+
+			double nx = u.x() * cos + v.x() * sin;
+			double ny = u.y() * cos + v.y() * sin;
+			double nz = u.z() * cos + v.z() * sin;
+
+			addVertex(
+				(float) (center.x() + radius * nx),
+				(float) (center.y() + radius * ny),
+				(float) (center.z() + radius * nz),
+				(float) (nx * radialNormal + w.x() * axialNormal),
+				(float) (ny * radialNormal + w.y() * axialNormal),
+				(float) (nz * radialNormal + w.z() * axialNormal),
+				color);
+		}
+		return first;
+	}
+
+	private void connectRings(int ring, int nextRing, int slices) {
+		for(int k = 0; k < slices; k++) {
+			int k1 = (k + 1) % slices;
+			addTriangle(ring + k, ring + k1, nextRing + k1);
+			addTriangle(ring + k, nextRing + k1, nextRing + k);
+		}
+	}
+
+	private void addVertex(float x, float y, float z, float nx, float ny, float nz, RenderColor color) {
+		int i = vertexCount * FLOATS_PER_VERTEX;
+		if(i + FLOATS_PER_VERTEX > vertices.length) {
+			vertices = Arrays.copyOf(vertices, vertices.length * 2);
+		}
+		vertices[i]   = x;
+		vertices[i+1] = y;
+		vertices[i+2] = z;
+		vertices[i+3] = nx;
+		vertices[i+4] = ny;
+		vertices[i+5] = nz;
+		vertices[i+6] = (float) color.getRed();
+		vertices[i+7] = (float) color.getGreen();
+		vertices[i+8] = (float) color.getBlue();
+		vertexCount++;
+	}
+
+	private void addTriangle(int a, int b, int c) {
+		if(indexCount + 3 > indices.length) {
+			indices = Arrays.copyOf(indices, indices.length * 2);
+		}
+		indices[indexCount++] = a;
+		indices[indexCount++] = b;
+		indices[indexCount++] = c;
+	}
+
+
+	/**
+	 * Copies the mesh built since the last {@link #clear()} into the vertex buffers.
+	 */
+	public void upload(GL2 gl) {
+		FloatBuffer vertexData = Buffers.newDirectFloatBuffer(vertices, 0, vertexCount * FLOATS_PER_VERTEX);
+		IntBuffer indexData = Buffers.newDirectIntBuffer(indices, 0, indexCount);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBuffer);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) vertexCount * FLOATS_PER_VERTEX * Buffers.SIZEOF_FLOAT, vertexData, GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+		gl.glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, (long) indexCount * Buffers.SIZEOF_INT, indexData, GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+		uploadedIndexCount = indexCount;
+		changedFirst = Integer.MAX_VALUE;
+		changedEnd = 0;
+	}
+
+	/**
+	 * Copies only the vertices that were replaced or recolored since the last upload into the vertex buffer.
+	 */
+	public void uploadChanged(GL2 gl) {
+		if(changedFirst >= changedEnd)
+			return;
+
+		int offset = changedFirst * FLOATS_PER_VERTEX;
+		int length = (changedEnd - changedFirst) * FLOATS_PER_VERTEX;
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBuffer);
+		gl.glBufferSubData(GL.GL_ARRAY_BUFFER, (long) offset * Buffers.SIZEOF_FLOAT, (long) length * Buffers.SIZEOF_FLOAT, 
+				Buffers.newDirectFloatBuffer(vertices, offset, length));
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+		changedFirst = Integer.MAX_VALUE;
+		changedEnd = 0;
+	}
+
+
+	/**
+	 * @return the number of draw calls made
+	 */
+	public int draw(GL2 gl) {
+		if(uploadedIndexCount == 0)
+			return 0;
+
+		int stride = FLOATS_PER_VERTEX * Buffers.SIZEOF_FLOAT;
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBuffer);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glEnableClientState(GL2.GL_NORMAL_ARRAY);
+		gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+		gl.glVertexPointer(3, GL.GL_FLOAT, stride, 0);
+		gl.glNormalPointer(GL.GL_FLOAT, stride, 3 * Buffers.SIZEOF_FLOAT);
+		gl.glColorPointer(3, GL.GL_FLOAT, stride, 6 * Buffers.SIZEOF_FLOAT);
+
+		gl.glDrawElements(GL.GL_TRIANGLES, uploadedIndexCount, GL.GL_UNSIGNED_INT, 0);
+
+		gl.glDisableClientState(GL2.GL_COLOR_ARRAY);
+		gl.glDisableClientState(GL2.GL_NORMAL_ARRAY);
+		gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		return 1;
+	}
+}
@@ -0,0 +1,315 @@
+package org.baderlab.cy3d.internal.rendering.shapes;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import javax.media.opengl.GL3bc;
+
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.rendering.shapes.ScalableShapeDrawer.Detail;
+import org.baderlab.cy3d.internal.rendering.shapes.ScalableShapeDrawer.Shape;
+import org.baderlab.cy3d.internal.tools.ShaderToolkit;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Draws the same shapes as {@link ScalableShapeDrawer} but using one instanced
+ * draw call per Shape/Detail combination instead of one display list call per node.
+ *
+ * Instances are accumulated with {@link #addInstance} and drawn by {@link #draw(GL2)}.
+ * Each instance is packed as (x, y, z, scaleX, scaleY, scaleZ, red, green, blue).
+ *
+ * Requires a compatibility profile context of at least OpenGL 3.3 (or the
+ * ARB_instanced_arrays entry points), use {@link #isSupported(GL2)} to check.
+ * The shader reproduces the fixed function lighting set up in AbstractGraphicsConfiguration
+ * so that instanced nodes look the same as the ones drawn with display lists.
+ */
+public class InstancedShapeDrawer {
+
+	public static final int FLOATS_PER_INSTANCE = 9;
+
+	private static final int FLOATS_PER_VERTEX = 6; // position + normal
+
+	private static final int ATTRIB_POSITION = 0;
+	private static final int ATTRIB_NORMAL   = 1;
+	private static final int ATTRIB_OFFSET   = 2;
+	private static final int ATTRIB_SCALE    = 3;
+	private static final int ATTRIB_COLOR    = 4;
+
+	private static final String[] ATTRIBUTES = { "a_position", "a_normal", "i_offset", "i_scale", "i_color" };
+
+	private static final String VERTEX_SHADER =
+		"#version 120\n" +
+		"attribute vec3 a_position;\n" +
+		"attribute vec3 a_normal;\n" +
+		"attribute vec3 i_offset;\n" +
+		"attribute vec3 i_scale;\n" +
+		"attribute vec3 i_color;\n" +
+		"varying vec4 v_color;\n" +
+		"void main() {\n" +
+		"  gl_Position = gl_ModelViewProjectionMatrix * vec4(i_offset + a_position * i_scale, 1.0);\n" +
+		// inverse scale for the normals, same as what GL_NORMALIZE does for glScalef
+		"  vec3 n = normalize(gl_NormalMatrix * (a_normal / max(abs(i_scale), vec3(0.000001))));\n" +
+		"  vec3 l = normalize(gl_LightSource[0].position.xyz);\n" +
+		"  vec4 c = vec4(i_color, 1.0);\n" +
+		"  float nDotL = max(dot(n, l), 0.0);\n" +
+		"  vec4 lit = (gl_LightModel.ambient + gl_LightSource[0].ambient + nDotL * gl_LightSource[0].diffuse) * c;\n" +
+		"  if(nDotL > 0.0) {\n" +
+		"    float nDotH = max(dot(n, normalize(gl_LightSource[0].halfVector.xyz)), 0.0);\n" +
+		"    lit += pow(nDotH, gl_FrontMaterial.shininess) * gl_LightSource[0].specular * gl_FrontMaterial.specular;\n" +
+		"  }\n" +
+		"  v_color = vec4(lit.rgb, 1.0);\n" +
+		"}\n";
+
+	private static final String FRAGMENT_SHADER =
+		"#version 120\n" +
+		"varying vec4 v_color;\n" +
+		"void main() {\n" +
+		"  gl_FragColor = v_color;\n" +
+		"}\n";
+
+	private static final int NUM_DETAILS = Detail.values().length;
+	private static final int NUM_BUCKETS = Shape.values().length * NUM_DETAILS;
+
+	private int program = 0;
+	private int instanceBuffer;
+	private final int[] meshBuffers = new int[NUM_BUCKETS];
+	private final int[] meshVertexCounts = new int[NUM_BUCKETS];
+
+	private final float[][] instanceData = new float[NUM_BUCKETS][FLOATS_PER_INSTANCE * 64];
+	private final int[] instanceCounts = new int[NUM_BUCKETS];
+	private FloatBuffer uploadBuffer = Buffers.newDirectFloatBuffer(FLOATS_PER_INSTANCE * 64);
+
+
+	public static boolean isSupported(GL2 gl) {
+		return gl.isGL3bc()
+			&& gl.hasGLSL()
+			&& gl.isFunctionAvailable("glDrawArraysInstanced")
+			&& gl.isFunctionAvailable("glVertexAttribDivisor");
+	}
+
+
+	/**
+	 * @return false if the shader could not be created, in that case this drawer must not be used.
+	 */
+	public boolean initialize(GL2 gl) {
+		if(!isSupported(gl))
+			return false;
+
+		program = ShaderToolkit.createProgram(gl, VERTEX_SHADER, FRAGMENT_SHADER, ATTRIBUTES);
+		if(program == 0)
+			return false;
+
+		int[] buffers = new int[NUM_BUCKETS + 1];
+		gl.glGenBuffers(buffers.length, buffers, 0);
+		instanceBuffer = buffers[NUM_BUCKETS];
+
+		for(Shape shape : Shape.values()) {
+			for(Detail detail : Detail.values()) {
+				float[] mesh = createMesh(shape, detail);
+				int bucket = bucket(shape, detail);
+				meshBuffers[bucket] = buffers[bucket];
+				meshVertexCounts[bucket] = mesh.length / FLOATS_PER_VERTEX;
+
+				gl.glBindBuffer(GL.GL_ARRAY_BUFFER, meshBuffers[bucket]);
+				gl.glBufferData(GL.GL_ARRAY_BUFFER, mesh.length * Buffers.SIZEOF_FLOAT, Buffers.newDirectFloatBuffer(mesh), GL.GL_STATIC_DRAW);
+			}
+		}
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		return true;
+	}
+
+
+	private static int bucket(Shape shape, Detail detail) {
+		return shape.ordinal() * NUM_DETAILS + detail.ordinal();
+	}
+
+
+	public void clear() {
+		Arrays.fill(instanceCounts, 0);
+	}
+
+
+	public void addInstance(Shape shape, Detail detail, float x, float y, float z,
+			                float scaleX, float scaleY, float scaleZ, float red, float green, float blue) {
+		int bucket = bucket(shape, detail);
+		int count = instanceCounts[bucket];
+		float[] data = instanceData[bucket];
+
+		int i = count * FLOATS_PER_INSTANCE;
+		if(i + FLOATS_PER_INSTANCE > data.length) {
+			data = instanceData[bucket] = Arrays.copyOf(data, data.length * 2);
+		}
+
+		data[i]   = x;
+		data[i+1] = y;
+		data[i+2] = z;
+		data[i+3] = scaleX;
+		data[i+4] = scaleY;
+		data[i+5] = scaleZ;
+		data[i+6] = red;
+		data[i+7] = green;
+		data[i+8] = blue;
+
+		instanceCounts[bucket] = count + 1;
+	}
+
+
+	/**
+	 * Draws all the instances added since the last call to {@link #clear()}.
+	 * 
+	 * @return the number of draw calls made, one per shape and detail level in use
+	 */
+	public int draw(GL2 gl) {
+		if(program == 0)
+			return 0;
+		
+		int drawCalls = 0;
+
+		GL3bc gl3 = gl.getGL3bc();
+		int vertexStride   = FLOATS_PER_VERTEX * Buffers.SIZEOF_FLOAT;
+		int instanceStride = FLOATS_PER_INSTANCE * Buffers.SIZEOF_FLOAT;
+
+		gl.glUseProgram(program);
+		for(int attrib = ATTRIB_POSITION; attrib <= ATTRIB_COLOR; attrib++) {
+			gl.glEnableVertexAttribArray(attrib);
+		}
+		gl3.glVertexAttribDivisor(ATTRIB_OFFSET, 1);
+		gl3.glVertexAttribDivisor(ATTRIB_SCALE, 1);
+		gl3.glVertexAttribDivisor(ATTRIB_COLOR, 1);
+
+		for(int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			int count = instanceCounts[bucket];
+			if(count == 0)
+				continue;
+
+			gl.glBindBuffer(GL.GL_ARRAY_BUFFER, meshBuffers[bucket]);
+			gl.glVertexAttribPointer(ATTRIB_POSITION, 3, GL.GL_FLOAT, false, vertexStride, 0);
+			gl.glVertexAttribPointer(ATTRIB_NORMAL,   3, GL.GL_FLOAT, false, vertexStride, 3 * Buffers.SIZEOF_FLOAT);
+
+			int floats = count * FLOATS_PER_INSTANCE;
+			if(uploadBuffer.capacity() < floats) {
+				uploadBuffer = Buffers.newDirectFloatBuffer(instanceData[bucket].length);
+			}
+			uploadBuffer.clear();
+			uploadBuffer.put(instanceData[bucket], 0, floats);
+			uploadBuffer.flip();
+
+			// re-specifying the whole store every time lets the driver orphan the old one
+			gl.glBindBuffer(GL.GL_ARRAY_BUFFER, instanceBuffer);
+			gl.glBufferData(GL.GL_ARRAY_BUFFER, floats * Buffers.SIZEOF_FLOAT, uploadBuffer, GL2.GL_STREAM_DRAW);
+			gl.glVertexAttribPointer(ATTRIB_OFFSET, 3, GL.GL_FLOAT, false, instanceStride, 0);
+			gl.glVertexAttribPointer(ATTRIB_SCALE,  3, GL.GL_FLOAT, false, instanceStride, 3 * Buffers.SIZEOF_FLOAT);
+			gl.glVertexAttribPointer(ATTRIB_COLOR,  3, GL.GL_FLOAT, false, instanceStride, 6 * Buffers.SIZEOF_FLOAT);
+
+			gl.glDrawArraysInstanced(GL.GL_TRIANGLES, 0, meshVertexCounts[bucket], count);
+			drawCalls++;
+		}
+
+		// leave the state the way the fixed function procedures expect it
+		gl3.glVertexAttribDivisor(ATTRIB_OFFSET, 0);
+		gl3.glVertexAttribDivisor(ATTRIB_SCALE, 0);
+		gl3.glVertexAttribDivisor(ATTRIB_COLOR, 0);
+		for(int attrib = ATTRIB_POSITION; attrib <= ATTRIB_COLOR; attrib++) {
+			gl.glDisableVertexAttribArray(attrib);
+		}
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glUseProgram(0);
+		return drawCalls;
+	}
+
+
+	/**
+	 * Creates a triangle mesh with interleaved positions and normals,
+	 * the same dimensions as the display lists created by {@link ScalableShapeDrawer}.
+	 */
+	static float[] createMesh(Shape shape, Detail detail) {
+		switch(shape) {
+			case SHAPE_SPHERE:      return createSphereMesh(detail.getSphereDetail());
+			case SHAPE_TETRAHEDRON: return createTetrahedronMesh();
+			case SHAPE_CUBE:
+			default:                return createCubeMesh();
+		}
+	}
+
+	// Diameter 1 sphere, same tessellation as gluSphere(0.5, detail, detail)
+	private static float[] createSphereMesh(int detail) {
+		float[] mesh = new float[detail * detail * 6 * FLOATS_PER_VERTEX];
+		int i = 0;
+		for(int stack = 0; stack < detail; stack++) {
+			double phi0 = Math.PI * stack / detail;
+			double phi1 = Math.PI * (stack + 1) / detail;
+			for(int slice = 0; slice < detail; slice++) {
+				double theta0 = 2 * Math.PI * slice / detail;
+				double theta1 = 2 * Math.PI * (slice + 1) / detail;
+				i = putSphereVertex(mesh, i, phi0, theta0);
+				i = putSphereVertex(mesh, i, phi1, theta0);
+				i = putSphereVertex(mesh, i, phi1, theta1);
+				i = putSphereVertex(mesh, i, phi0, theta0);
+				i = putSphereVertex(mesh, i, phi1, theta1);
+				i = putSphereVertex(mesh, i, phi0, theta1);
+			}
+		}
+		return mesh;
+	}
+
+	private static int putSphereVertex(float[] mesh, int i, double phi, double theta) {
+		float nx = (float) (Math.sin(phi) * Math.cos(theta));
+		float ny = (float) (Math.sin(phi) * Math.sin(theta));
+		float nz = (float) Math.cos(phi);
+		return putVertex(mesh, i, nx * 0.5f, ny * 0.5f, nz * 0.5f, nx, ny, nz);
+	}
+
+	// Same as glutSolidCube(0.5f)
+	private static float[] createCubeMesh() {
+		float h = 0.25f;
+		float[][] normals = { {1,0,0}, {-1,0,0}, {0,1,0}, {0,-1,0}, {0,0,1}, {0,0,-1} };
+		float[] mesh = new float[normals.length * 6 * FLOATS_PER_VERTEX];
+		int i = 0;
+		for(float[] n : normals) {
+			// two axes spanning the face, chosen so that u x v = n (counter-clockwise from outside)
+			float[] u = { n[1], n[2], n[0] };
+			float[] v = { n[1]*u[2] - n[2]*u[1], n[2]*u[0] - n[0]*u[2], n[0]*u[1] - n[1]*u[0] };
+			float[][] corners = new float[4][3];
+			float[][] signs = { {-1,-1}, {1,-1}, {1,1}, {-1,1} };
+			for(int c = 0; c < 4; c++) {
+				for(int axis = 0; axis < 3; axis++) {
+					corners[c][axis] = h * (n[axis] + signs[c][0] * u[axis] + signs[c][1] * v[axis]);
+				}
+			}
+			for(int c : new int[] { 0, 1, 2, 0, 2, 3 }) {
+				i = putVertex(mesh, i, corners[c][0], corners[c][1], corners[c][2], n[0], n[1], n[2]);
+			}
+		}
+		return mesh;
+	}
+
+	private static float[] createTetrahedronMesh() {
+		Vector3[][] faces = ScalableShapeDrawer.createTetrahedronFaces();
+		float[] mesh = new float[faces.length * 3 * FLOATS_PER_VERTEX];
+		int i = 0;
+		for(Vector3[] face : faces) {
+			Vector3 n = face[0].normalize();
+			// wind the triangle counter-clockwise around its normal so that it survives back face culling
+			Vector3 winding = face[2].subtract(face[1]).cross(face[3].subtract(face[1]));
+			int[] order = winding.dot(n) < 0 ? new int[] { 1, 3, 2 } : new int[] { 1, 2, 3 };
+			for(int p : order) {
+				i = putVertex(mesh, i, (float) face[p].x(), (float) face[p].y(), (float) face[p].z(),
+						(float) n.x(), (float) n.y(), (float) n.z());
+			}
+		}
+		return mesh;
+	}
+
+	private static int putVertex(float[] mesh, int i, float x, float y, float z, float nx, float ny, float nz) {
+		mesh[i]   = x;
+		mesh[i+1] = y;
+		mesh[i+2] = z;
+		mesh[i+3] = nx;
+		mesh[i+4] = ny;
+		mesh[i+5] = nz;
+		return i + FLOATS_PER_VERTEX;
+	}
+}
@@ -0,0 +1,94 @@
+package org.baderlab.cy3d.internal.rendering.shapes;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Draws nodes that are too far away to show any shape as single points of a fixed size,
+ * all of them with one glDrawArrays call. A point costs one vertex where even the lowest
+ * detail sphere costs hundreds.
+ *
+ * Points are accumulated with {@link #addPoint} and drawn by {@link #draw(GL2)}, they are
+ * not lit since there is no surface to light at that size. Only client side vertex arrays
+ * are used so this works on every context.
+ */
+public class PointSpriteDrawer {
+
+	/** The size of the points in pixels */
+	public static final float POINT_SIZE = 2.0f;
+
+	private static final int FLOATS_PER_POINT = 6; // x, y, z, red, green, blue
+
+	private float[] points = new float[FLOATS_PER_POINT * 256];
+	private int pointCount = 0;
+	private FloatBuffer uploadBuffer = Buffers.newDirectFloatBuffer(FLOATS_PER_POINT * 256);
+
+
+	public void clear() {
+		pointCount = 0;
+	}
+
+	public int getPointCount() {
+		return pointCount;
+	}
+
+	public void addPoint(float x, float y, float z, float red, float green, float blue) {
+		int i = pointCount * FLOATS_PER_POINT;
+		if(i + FLOATS_PER_POINT > points.length) {
+			points = Arrays.copyOf(points, points.length * 2);
+		}
+		points[i]   = x;
+		points[i+1] = y;
+		points[i+2] = z;
+		points[i+3] = red;
+		points[i+4] = green;
+		points[i+5] = blue;
+		pointCount++;
+	}
+
+
+	/**
+	 * Draws all the points added since the last call to {@link #clear()}.
+	 * 
+	 * @return the number of draw calls made
+	 */
+	public int draw(GL2 gl) {
+		if(pointCount == 0)
+			return 0;
+
+		int floats = pointCount * FLOATS_PER_POINT;
+		if(uploadBuffer.capacity() < floats) {
+			uploadBuffer = Buffers.newDirectFloatBuffer(points.length);
+		}
+		uploadBuffer.clear();
+		uploadBuffer.put(points, 0, floats);
+
+		int stride = FLOATS_PER_POINT * Buffers.SIZEOF_FLOAT;
+		uploadBuffer.position(0);
+		FloatBuffer vertices = uploadBuffer.slice();
+		uploadBuffer.position(3);
+		FloatBuffer colors = uploadBuffer.slice();
+
+		gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_POINT_BIT);
+		gl.glPushClientAttrib(GL2.GL_CLIENT_VERTEX_ARRAY_BIT);
+		gl.glDisable(GL2.GL_LIGHTING);
+		gl.glPointSize(POINT_SIZE);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+		gl.glVertexPointer(3, GL.GL_FLOAT, stride, vertices);
+		gl.glColorPointer(3, GL.GL_FLOAT, stride, colors);
+
+		gl.glDrawArrays(GL.GL_POINTS, 0, pointCount);
+
+		gl.glPopClientAttrib();
+		gl.glPopAttrib();
+		return 1;
+	}
+}
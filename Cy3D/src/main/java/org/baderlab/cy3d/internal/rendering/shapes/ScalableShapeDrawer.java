@@ -29,6 +29,10 @@ public class ScalableShapeDrawer {
 		private Detail(int sphereDetail) {
 			this.sphereDetail = sphereDetail;
 		}
+		
+		public int getSphereDetail() {
+			return sphereDetail;
+		}
 	}
 	
 	private Table<Shape, Detail, Integer> shapeLists = ImmutableTable.of();
@@ -109,6 +113,30 @@ public class ScalableShapeDrawer {
 	private int initializeTetrahedron(GL2 gl) {
 		int shapeListIndex = gl.glGenLists(1);
 
+		gl.glNewList(shapeListIndex, GL2.GL_COMPILE);
+		
+		gl.glBegin(GL2.GL_TRIANGLES);
+		
+		for(Vector3[] face : createTetrahedronFaces()) {
+			RenderToolkit.setNormal(gl, face[0]);
+			RenderToolkit.drawPoint(gl, face[1]);
+			RenderToolkit.drawPoint(gl, face[2]);
+			RenderToolkit.drawPoint(gl, face[3]);
+		}
+
+		gl.glEnd();
+		
+		gl.glEndList();
+		
+		return shapeListIndex;
+	}
+	
+	
+	/**
+	 * Returns the four faces of the tetrahedron inscribed in a circle with radius 0.5, 
+	 * each face is given as { normal, point1, point2, point3 }.
+	 */
+	static Vector3[][] createTetrahedronFaces() {
 		double radius = 0.5;
 		Vector3 yAxisDirection = new Vector3(0, 1, 0);
 		Vector3 zAxisDirection = new Vector3(0, 0, 1);
@@ -128,35 +156,12 @@ public class ScalableShapeDrawer {
 		Vector3 rightBackNormal = frontNormal.rotate(yAxisDirection, Math.toRadians(120));
 		Vector3 bottomNormal = new Vector3(0, -1, 0);
 		
-		gl.glNewList(shapeListIndex, GL2.GL_COMPILE);
-		
-		gl.glBegin(GL2.GL_TRIANGLES);
-		
-		RenderToolkit.setNormal(gl, frontNormal);
-		RenderToolkit.drawPoint(gl, topPoint);
-		RenderToolkit.drawPoint(gl, nearRightPoint);
-		RenderToolkit.drawPoint(gl, nearLeftPoint);
-		
-		RenderToolkit.setNormal(gl, leftBackNormal);
-		RenderToolkit.drawPoint(gl, topPoint);
-		RenderToolkit.drawPoint(gl, farPoint);
-		RenderToolkit.drawPoint(gl, nearLeftPoint);
-		
-		RenderToolkit.setNormal(gl, rightBackNormal);
-		RenderToolkit.drawPoint(gl, topPoint);
-		RenderToolkit.drawPoint(gl, nearRightPoint);
-		RenderToolkit.drawPoint(gl, farPoint);
-		
-		RenderToolkit.setNormal(gl, bottomNormal);
-		RenderToolkit.drawPoint(gl, nearRightPoint);
-		RenderToolkit.drawPoint(gl, farPoint);
-		RenderToolkit.drawPoint(gl, nearLeftPoint);
-
-		gl.glEnd();
-		
-		gl.glEndList();
-		
-		return shapeListIndex;
+		return new Vector3[][] {
+			{ frontNormal,     topPoint,       nearRightPoint, nearLeftPoint },
+			{ leftBackNormal,  topPoint,       farPoint,       nearLeftPoint },
+			{ rightBackNormal, topPoint,       nearRightPoint, farPoint },
+			{ bottomNormal,    nearRightPoint, farPoint,       nearLeftPoint }
+		};
 	}
 	
 	
@@ -0,0 +1,231 @@
+package org.baderlab.cy3d.internal.rendering.shapes;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * A texture holding signed distance fields of glyphs, shared by all fonts and font sizes.
+ *
+ * Each glyph is rasterized once at {@link #BASE_SIZE} from a java.awt.Font and stored as the
+ * distance to the glyph outline, 0.5 (128) being the outline itself, larger values inside.
+ * Because the distance interpolates linearly, the same glyph can be drawn crisply at any size
+ * by thresholding the texture at 0.5 in the fragment shader.
+ *
+ * Glyphs are added on demand and packed into rows. When the texture is full it is cleared and
+ * {@link #getGeneration()} changes, the texture coordinates of glyphs obtained before that are
+ * no longer valid.
+ */
+public class SdfGlyphAtlas {
+
+	public static final int ATLAS_SIZE = 1024;
+
+	/** The font size glyphs are rasterized at */
+	public static final float BASE_SIZE = 32;
+
+	/** How far from the outline, in pixels at BASE_SIZE, the distance field reaches */
+	private static final int SPREAD = 4;
+
+	private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, false, true);
+
+	/**
+	 * Texture coordinates and the quad to draw a glyph on, in pixels at BASE_SIZE relative to
+	 * the pen position on the baseline, with y pointing up.
+	 */
+	public static class Glyph {
+		public final float u0, v0, u1, v1;
+		public final float left, top, width, height;
+		public final float advance;
+
+		Glyph(float u0, float v0, float u1, float v1, float left, float top, float width, float height, float advance) {
+			this.u0 = u0;
+			this.v0 = v0;
+			this.u1 = u1;
+			this.v1 = v1;
+			this.left = left;
+			this.top = top;
+			this.width = width;
+			this.height = height;
+			this.advance = advance;
+		}
+
+		public boolean isEmpty() {
+			return width == 0 || height == 0;
+		}
+	}
+
+	private final ByteBuffer pixels = Buffers.newDirectByteBuffer(ATLAS_SIZE * ATLAS_SIZE);
+	private final Map<Font,Map<Integer,Glyph>> glyphs = new HashMap<>();
+
+	private int shelfX = 0;
+	private int shelfY = 0;
+	private int shelfHeight = 0;
+	private int generation = 0;
+
+	private int texture = 0;
+	private boolean dirty = true;
+
+
+	/**
+	 * Changes every time the atlas is cleared to make room for new glyphs.
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the glyph for the given character of the font, rasterizing it if needed.
+	 * Only the face and style of the font matter, not its size.
+	 */
+	public Glyph getGlyph(Font font, int codePoint) {
+		Font baseFont = font.getSize2D() == BASE_SIZE ? font : font.deriveFont(BASE_SIZE);
+		Map<Integer,Glyph> fontGlyphs = glyphs.computeIfAbsent(baseFont, f -> new HashMap<>());
+		Glyph glyph = fontGlyphs.get(codePoint);
+		if(glyph == null) {
+			glyph = createGlyph(baseFont, codePoint);
+			// the atlas may have been cleared to make room
+			glyphs.computeIfAbsent(baseFont, f -> new HashMap<>()).put(codePoint, glyph);
+		}
+		return glyph;
+	}
+
+
+	private Glyph createGlyph(Font baseFont, int codePoint) {
+		GlyphVector glyphVector = baseFont.createGlyphVector(FONT_RENDER_CONTEXT, Character.toChars(codePoint));
+		float advance = glyphVector.getGlyphMetrics(0).getAdvance();
+		Rectangle bounds = glyphVector.getPixelBounds(FONT_RENDER_CONTEXT, 0, 0);
+		if(bounds.isEmpty()) {
+			return new Glyph(0, 0, 0, 0, 0, 0, 0, 0, advance); // white space
+		}
+
+		int width  = bounds.width  + 2 * SPREAD;
+		int height = bounds.height + 2 * SPREAD;
+		if(width > ATLAS_SIZE || height > ATLAS_SIZE) {
+			return new Glyph(0, 0, 0, 0, 0, 0, 0, 0, advance);
+		}
+
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.drawGlyphVector(glyphVector, SPREAD - bounds.x, SPREAD - bounds.y);
+		g.dispose();
+
+		if(shelfX + width > ATLAS_SIZE) {
+			shelfY += shelfHeight;
+			shelfX = 0;
+			shelfHeight = 0;
+		}
+		if(shelfY + height > ATLAS_SIZE) {
+			clear();
+		}
+		int x = shelfX;
+		int y = shelfY;
+		shelfX += width;
+		shelfHeight = Math.max(shelfHeight, height);
+
+		writeDistanceField(image.getRaster(), x, y);
+		dirty = true;
+
+		float size = ATLAS_SIZE;
+		return new Glyph(x / size, y / size, (x + width) / size, (y + height) / size,
+				bounds.x - SPREAD, -(bounds.y - SPREAD), width, height, advance);
+	}
+
+	private void clear() {
+		glyphs.clear();
+		shelfX = 0;
+		shelfY = 0;
+		shelfHeight = 0;
+		generation++;
+		for(int i = 0; i < pixels.capacity(); i++) {
+			pixels.put(i, (byte) 0);
+		}
+	}
+
+	/**
+	 * For each pixel finds the nearest pixel on the other side of the outline, within SPREAD.
+	 */
+	private void writeDistanceField(Raster raster, int atlasX, int atlasY) {
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		boolean[] inside = new boolean[width * height];
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				inside[y * width + x] = raster.getSample(x, y, 0) > 127;
+			}
+		}
+
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				boolean in = inside[y * width + x];
+				int nearestSquared = (SPREAD + 1) * (SPREAD + 1);
+				for(int dy = -SPREAD; dy <= SPREAD; dy++) {
+					int sy = y + dy;
+					if(sy < 0 || sy >= height)
+						continue;
+					for(int dx = -SPREAD; dx <= SPREAD; dx++) {
+						int sx = x + dx;
+						int distanceSquared = dx * dx + dy * dy;
+						if(sx >= 0 && sx < width && distanceSquared < nearestSquared && inside[sy * width + sx] != in) {
+							nearestSquared = distanceSquared;
+						}
+					}
+				}
+				// the outline lies half way between two pixels
+				double distance = Math.sqrt(nearestSquared) - 0.5;
+				double value = 0.5 + (in ? distance : -distance) / (2 * SPREAD);
+				int sample = (int) Math.round(Math.max(0, Math.min(1, value)) * 255);
+				pixels.put((atlasY + y) * ATLAS_SIZE + atlasX + x, (byte) sample);
+			}
+		}
+	}
+
+
+	/**
+	 * Binds the atlas texture to the current texture unit, uploading new glyphs first.
+	 */
+	public void bind(GL2 gl) {
+		if(texture == 0) {
+			int[] textures = new int[1];
+			gl.glGenTextures(1, textures, 0);
+			texture = textures[0];
+			gl.glBindTexture(GL.GL_TEXTURE_2D, texture);
+			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR);
+			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S, GL.GL_CLAMP_TO_EDGE);
+			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T, GL.GL_CLAMP_TO_EDGE);
+			dirty = true;
+		} else {
+			gl.glBindTexture(GL.GL_TEXTURE_2D, texture);
+		}
+
+		if(dirty) {
+			gl.glPushClientAttrib(GL2.GL_CLIENT_PIXEL_STORE_BIT);
+			gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 1);
+			pixels.rewind();
+			gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_ALPHA, ATLAS_SIZE, ATLAS_SIZE, 0, GL.GL_ALPHA, GL.GL_UNSIGNED_BYTE, pixels);
+			gl.glPopClientAttrib();
+			dirty = false;
+		}
+	}
+
+	public void dispose(GL2 gl) {
+		if(texture != 0) {
+			gl.glDeleteTextures(1, new int[] { texture }, 0);
+			texture = 0;
+		}
+	}
+}
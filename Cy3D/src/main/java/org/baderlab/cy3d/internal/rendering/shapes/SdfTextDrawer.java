@@ -0,0 +1,285 @@
+package org.baderlab.cy3d.internal.rendering.shapes;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+
+import org.baderlab.cy3d.internal.rendering.shapes.SdfGlyphAtlas.Glyph;
+import org.baderlab.cy3d.internal.tools.ShaderToolkit;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Draws text as camera facing quads textured from a {@link SdfGlyphAtlas}, all the text
+ * with one draw call from a single vertex buffer.
+ *
+ * Text is given in world coordinates and world units, so it gets smaller as the camera
+ * moves away like the rest of the scene. The quads are turned towards the camera in the
+ * vertex shader, the buffer does not have to be rebuilt when only the camera moves.
+ *
+ * Text is added with {@link #addText}, turned into vertices by {@link #upload(GL2)} and
+ * can then be drawn with {@link #draw(GL2)} every frame until the text changes.
+ */
+public class SdfTextDrawer {
+
+	// center (x, y, z), offset from the center in eye space (x, y), texture coordinates (u, v), color (r, g, b, a)
+	private static final int FLOATS_PER_VERTEX = 11;
+
+	private static final int ATTRIB_CENTER   = 0;
+	private static final int ATTRIB_OFFSET   = 1;
+	private static final int ATTRIB_TEXCOORD = 2;
+	private static final int ATTRIB_COLOR    = 3;
+
+	private static final String[] ATTRIBUTES = { "a_center", "a_offset", "a_texcoord", "a_color" };
+
+	private static final String VERTEX_SHADER =
+		"#version 120\n" +
+		"attribute vec3 a_center;\n" +
+		"attribute vec2 a_offset;\n" +
+		"attribute vec2 a_texcoord;\n" +
+		"attribute vec4 a_color;\n" +
+		"varying vec2 v_texcoord;\n" +
+		"varying vec4 v_color;\n" +
+		"void main() {\n" +
+		"  vec4 eye = gl_ModelViewMatrix * vec4(a_center, 1.0);\n" +
+		"  eye.xy += a_offset;\n" +
+		"  gl_Position = gl_ProjectionMatrix * eye;\n" +
+		"  v_texcoord = a_texcoord;\n" +
+		"  v_color = a_color;\n" +
+		"}\n";
+
+	private static final String FRAGMENT_SHADER =
+		"#version 120\n" +
+		"uniform sampler2D u_atlas;\n" +
+		"varying vec2 v_texcoord;\n" +
+		"varying vec4 v_color;\n" +
+		"void main() {\n" +
+		"  float distance = texture2D(u_atlas, v_texcoord).a;\n" +
+		// about one pixel of anti-aliasing at any scale
+		"  float smoothing = max(fwidth(distance) * 0.5, 0.001);\n" +
+		"  float alpha = smoothstep(0.5 - smoothing, 0.5 + smoothing, distance);\n" +
+		"  if(alpha <= 0.0) discard;\n" +
+		"  gl_FragColor = vec4(v_color.rgb, v_color.a * alpha);\n" +
+		"}\n";
+
+	private static class Text {
+		final String text;
+		final Font font;
+		final float height;
+		final float x, y, z;
+		final Color color;
+
+		Text(String text, Font font, float height, float x, float y, float z, Color color) {
+			this.text = text;
+			this.font = font;
+			this.height = height;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.color = color;
+		}
+	}
+
+	private final SdfGlyphAtlas atlas = new SdfGlyphAtlas();
+	private final List<Text> texts = new ArrayList<>();
+
+	private int program = 0;
+	private int atlasUniform;
+	private int vertexBuffer;
+
+	private float[] vertices = new float[FLOATS_PER_VERTEX * 6 * 256];
+	private int vertexCount = 0;
+	private int uploadedVertexCount = 0;
+
+
+	public static boolean isSupported(GL2 gl) {
+		return gl.hasGLSL()
+			&& gl.isFunctionAvailable("glGenBuffers")
+			&& gl.isFunctionAvailable("glBufferData");
+	}
+
+	/**
+	 * @return false if the shader could not be created, in that case this drawer must not be used.
+	 */
+	public boolean initialize(GL2 gl) {
+		if(!isSupported(gl))
+			return false;
+
+		program = ShaderToolkit.createProgram(gl, VERTEX_SHADER, FRAGMENT_SHADER, ATTRIBUTES);
+		if(program == 0)
+			return false;
+		atlasUniform = gl.glGetUniformLocation(program, "u_atlas");
+
+		int[] buffers = new int[1];
+		gl.glGenBuffers(1, buffers, 0);
+		vertexBuffer = buffers[0];
+		return true;
+	}
+
+
+	public void clear() {
+		texts.clear();
+	}
+
+	/**
+	 * Adds a line of text centered horizontally on the given point, with its baseline going through the point.
+	 *
+	 * @param height The font size in world units.
+	 */
+	public void addText(String text, Font font, float height, float x, float y, float z, Color color) {
+		texts.add(new Text(text, font, height, x, y, z, color));
+	}
+
+	/**
+	 * Returns the width of the text in world units when drawn at the given height.
+	 */
+	public float getTextWidth(String text, Font font, float height) {
+		float advance = 0;
+		for(int i = 0; i < text.length(); ) {
+			int codePoint = text.codePointAt(i);
+			advance += atlas.getGlyph(font, codePoint).advance;
+			i += Character.charCount(codePoint);
+		}
+		return advance * height / SdfGlyphAtlas.BASE_SIZE;
+	}
+
+
+	/**
+	 * Builds the vertices for the text added since the last {@link #clear()} and uploads them.
+	 */
+	public void upload(GL2 gl) {
+		int generation = atlas.getGeneration();
+		buildVertices();
+		if(atlas.getGeneration() != generation) {
+			// The atlas filled up and was cleared half way, the glyphs from before that are gone
+			buildVertices();
+		}
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBuffer);
+		FloatBuffer buffer = Buffers.newDirectFloatBuffer(vertices, 0, vertexCount * FLOATS_PER_VERTEX);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) vertexCount * FLOATS_PER_VERTEX * Buffers.SIZEOF_FLOAT, buffer, GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		uploadedVertexCount = vertexCount;
+	}
+
+	private void buildVertices() {
+		vertexCount = 0;
+		for(Text text : texts) {
+			float scale = text.height / SdfGlyphAtlas.BASE_SIZE;
+			float penX = -getTextWidth(text.text, text.font, text.height);
+			penX /= 2;
+
+			float red   = text.color.getRed()   / 255f;
+			float green = text.color.getGreen() / 255f;
+			float blue  = text.color.getBlue()  / 255f;
+			float alpha = text.color.getAlpha() / 255f;
+
+			for(int i = 0; i < text.text.length(); ) {
+				int codePoint = text.text.codePointAt(i);
+				i += Character.charCount(codePoint);
+
+				Glyph glyph = atlas.getGlyph(text.font, codePoint);
+				if(!glyph.isEmpty()) {
+					float left   = penX + glyph.left * scale;
+					float right  = left + glyph.width * scale;
+					float top    = glyph.top * scale;
+					float bottom = top - glyph.height * scale;
+
+					ensureCapacity(6);
+					putVertex(text, left,  bottom, glyph.u0, glyph.v1, red, green, blue, alpha);
+					putVertex(text, right, bottom, glyph.u1, glyph.v1, red, green, blue, alpha);
+					putVertex(text, right, top,    glyph.u1, glyph.v0, red, green, blue, alpha);
+					putVertex(text, left,  bottom, glyph.u0, glyph.v1, red, green, blue, alpha);
+					putVertex(text, right, top,    glyph.u1, glyph.v0, red, green, blue, alpha);
+					putVertex(text, left,  top,    glyph.u0, glyph.v0, red, green, blue, alpha);
+				}
+				penX += glyph.advance * scale;
+			}
+		}
+	}
+
+	private void ensureCapacity(int newVertices) {
+		int needed = (vertexCount + newVertices) * FLOATS_PER_VERTEX;
+		if(needed > vertices.length) {
+			vertices = Arrays.copyOf(vertices, Math.max(needed, vertices.length * 2));
+		}
+	}
+
+	private void putVertex(Text text, float offsetX, float offsetY, float u, float v, float red, float green, float blue, float alpha) {
+		int i = vertexCount * FLOATS_PER_VERTEX;
+		vertices[i]    = text.x;
+		vertices[i+1]  = text.y;
+		vertices[i+2]  = text.z;
+		vertices[i+3]  = offsetX;
+		vertices[i+4]  = offsetY;
+		vertices[i+5]  = u;
+		vertices[i+6]  = v;
+		vertices[i+7]  = red;
+		vertices[i+8]  = green;
+		vertices[i+9]  = blue;
+		vertices[i+10] = alpha;
+		vertexCount++;
+	}
+
+
+	/**
+	 * Draws the text that was last uploaded. Like the TextRenderer overlay the text is drawn
+	 * over the scene without depth testing so that labels are not hidden inside their nodes.
+	 * 
+	 * @return the number of draw calls made
+	 */
+	public int draw(GL2 gl) {
+		if(program == 0 || uploadedVertexCount == 0)
+			return 0;
+
+		int stride = FLOATS_PER_VERTEX * Buffers.SIZEOF_FLOAT;
+
+		gl.glPushAttrib(GL2.GL_ENABLE_BIT | GL2.GL_COLOR_BUFFER_BIT | GL2.GL_TEXTURE_BIT);
+		gl.glDisable(GL.GL_DEPTH_TEST);
+		gl.glDisable(GL2.GL_LIGHTING);
+		gl.glDisable(GL.GL_CULL_FACE);
+		gl.glEnable(GL.GL_BLEND);
+		gl.glBlendFunc(GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA);
+
+		gl.glActiveTexture(GL.GL_TEXTURE0);
+		atlas.bind(gl);
+
+		gl.glUseProgram(program);
+		gl.glUniform1i(atlasUniform, 0);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBuffer);
+		for(int attrib = ATTRIB_CENTER; attrib <= ATTRIB_COLOR; attrib++) {
+			gl.glEnableVertexAttribArray(attrib);
+		}
+		gl.glVertexAttribPointer(ATTRIB_CENTER,   3, GL.GL_FLOAT, false, stride, 0);
+		gl.glVertexAttribPointer(ATTRIB_OFFSET,   2, GL.GL_FLOAT, false, stride, 3 * Buffers.SIZEOF_FLOAT);
+		gl.glVertexAttribPointer(ATTRIB_TEXCOORD, 2, GL.GL_FLOAT, false, stride, 5 * Buffers.SIZEOF_FLOAT);
+		gl.glVertexAttribPointer(ATTRIB_COLOR,    4, GL.GL_FLOAT, false, stride, 7 * Buffers.SIZEOF_FLOAT);
+
+		gl.glDrawArrays(GL.GL_TRIANGLES, 0, uploadedVertexCount);
+
+		for(int attrib = ATTRIB_CENTER; attrib <= ATTRIB_COLOR; attrib++) {
+			gl.glDisableVertexAttribArray(attrib);
+		}
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glUseProgram(0);
+		gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+		gl.glPopAttrib();
+		return 1;
+	}
+
+	public void dispose(GL2 gl) {
+		atlas.dispose(gl);
+		if(program != 0) {
+			gl.glDeleteBuffers(1, new int[] { vertexBuffer }, 0);
+			gl.glDeleteProgram(program);
+			program = 0;
+		}
+	}
+}
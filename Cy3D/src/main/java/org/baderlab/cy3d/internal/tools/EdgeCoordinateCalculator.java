@@ -18,7 +18,7 @@ public class EdgeCoordinateCalculator {
 		
 		coordinates[0] = start.copy();
 		for (int i = 1; i <= segments; i++) {
-			coordinates[i] = start.plus(offsetDirection.multiply(segmentLength * i));
+			coordinates[i] = pointAlong(start, offsetDirection, segmentLength * i);
 		}
 		
 		return coordinates;
@@ -39,12 +39,12 @@ public class EdgeCoordinateCalculator {
 		
 		// Coordinates from middle point to start, not including start
 		for (int i = 0; i < halfPoints; i++ ) {
-			coordinates[halfPoints - i] = middlePoint.plus(offsetDirection.multiply(-i * distance));
+			coordinates[halfPoints - i] = pointAlong(middlePoint, offsetDirection, -i * distance);
 		}
 		
 		// Coordinates from middle point to end, not including the middle point nor end
 		for (int i = 1; i < halfPoints; i++ ) {
-			coordinates[halfPoints + i] = middlePoint.plus(offsetDirection.multiply(i * distance));
+			coordinates[halfPoints + i] = pointAlong(middlePoint, offsetDirection, i * distance);
 		}
 		
 		// Add the start and end coordinates
@@ -96,7 +96,7 @@ public class EdgeCoordinateCalculator {
 		}
 		
 		for (int i = 0; i < segments; i++) {
-			arcCoordinates[i] = circleCenter.plus(startOffset.rotate(rotationNormal, rotation * i));
+			arcCoordinates[i] = pointOnCircle(circleCenter, startOffset, rotationNormal, rotation * i);
 		}
 		
 		arcCoordinates[arcCoordinates.length - 1] = end.copy();
@@ -164,15 +164,13 @@ public class EdgeCoordinateCalculator {
 		
 		// Points between the first node and the center point
 		for (int i = 0; i < halfIncrements; i++) {
-			arcCoordinates[(halfIncrements - i)] = circleCenter.plus(
-					centerCurvePointOffset.rotate(rotationNormal, -segmentAngle * i));
+			arcCoordinates[(halfIncrements - i)] = pointOnCircle(circleCenter, centerCurvePointOffset, rotationNormal, -segmentAngle * i);
 		}
 		
 		// Points between the center point and the second node. Start at i = 1
 		// to keep from calculating the middle point twice
 		for (int i = 1; i < halfIncrements; i++) {
-			arcCoordinates[(halfIncrements + i)] = circleCenter.plus(
-					centerCurvePointOffset.rotate(rotationNormal, segmentAngle * i));
+			arcCoordinates[(halfIncrements + i)] = pointOnCircle(circleCenter, centerCurvePointOffset, rotationNormal, segmentAngle * i);
 		}
 		
 		// Include the end point
@@ -181,5 +179,16 @@ public class EdgeCoordinateCalculator {
 		return arcCoordinates;
 	}
 	
+	// The points are kept by the edge containers, but the temporaries of plus(), multiply() and rotate() are avoided
+	private static Vector3 pointAlong(Vector3 origin, Vector3 direction, double distance) {
+		Vector3 point = direction.multiply(distance, new Vector3());
+		point.addLocal(origin);
+		return point;
+	}
 	
+	private static Vector3 pointOnCircle(Vector3 circleCenter, Vector3 offset, Vector3 normal, double angle) {
+		Vector3 point = offset.rotate(normal, angle, new Vector3());
+		point.addLocal(circleCenter);
+		return point;
+	}
 }
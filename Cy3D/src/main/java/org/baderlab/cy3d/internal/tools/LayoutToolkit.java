@@ -1,13 +1,14 @@
 package org.baderlab.cy3d.internal.tools;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 import org.baderlab.cy3d.internal.geometric.Vector3;
 import org.cytoscape.model.CyNode;
+import org.cytoscape.view.layout.LayoutNode;
+import org.cytoscape.view.layout.LayoutPartition;
 import org.cytoscape.view.model.View;
-import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 
 public class LayoutToolkit {
 	
@@ -17,31 +18,37 @@ public class LayoutToolkit {
 	 * 
 	 * The average position of all given nodes should remain the same after the arrangement.
 	 * 
+	 * Only the buffered positions are moved, the caller commits them.
+	 * 
 	 * @param partitions The graph partitions to arrange.
 	 */
-	public static void arrangePartitions(Collection<Collection<View<CyNode>>> partitions) {
+	public static void arrangePartitions(List<NodePositionBuffer> partitions) {
 		// Consider sorting partitions in order of decreasing radius?
 		
-		Map<Collection<View<CyNode>>, Double> partitionRadii = new HashMap<Collection<View<CyNode>>, Double>(partitions.size());
+		double[] centers = new double[partitions.size() * 3];
+		double[] center = new double[3];
 		
 		// Basic approach: 1 partition per cube
 		int cubeLength = (int) Math.ceil(Math.pow(partitions.size(), 1.0/3));
 		
-		// System.out.println("cubeLength: " + cubeLength);
-		
 		// Average position of all nodes
-		Vector3 averageTotalNodePosition = new Vector3();
+		double averageX = 0, averageY = 0, averageZ = 0;
 		int totalNodeCount = 0;
 		
 		double largestRadius = -1;
 		
-		for (Collection<View<CyNode>> partition : partitions) {
-			averageTotalNodePosition.addLocal(findCenter(partition).multiply(partition.size()));
-			totalNodeCount += partition.size();
+		for (int p = 0; p < partitions.size(); p++) {
+			NodePositionBuffer partition = partitions.get(p);
+			double[] positions = partition.getPositions();
 			
-			double partitionRadius = findSubgraphRadius(partition);
-			partitionRadii.put(partition, partitionRadius);
+			PositionToolkit.findCenter(positions, partition.size(), center);
+			System.arraycopy(center, 0, centers, p * 3, 3);
+			averageX += center[0] * partition.size();
+			averageY += center[1] * partition.size();
+			averageZ += center[2] * partition.size();
+			totalNodeCount += partition.size();
 			
+			double partitionRadius = PositionToolkit.findRadius(positions, partition.size(), center[0], center[1], center[2]);
 			if (partitionRadius > largestRadius) {
 				largestRadius = partitionRadius;
 			}
@@ -51,23 +58,36 @@ public class LayoutToolkit {
 		largestRadius *= 2;
 		
 		// Calculate the average position of all nodes by using the average position of partitions weighted by their node count
-		averageTotalNodePosition.divideLocal(totalNodeCount);
+		if (totalNodeCount > 0) {
+			averageX /= totalNodeCount;
+			averageY /= totalNodeCount;
+			averageZ /= totalNodeCount;
+		}
+		
+		double halfCubeActualLength = (double) (cubeLength - 1) / 2 * largestRadius;
 		
-		int count = 0;
-		for (Collection<View<CyNode>> partition : partitions) {
+		for (int count = 0; count < partitions.size(); count++) {
 			int x = count % cubeLength;
 			int y = count / cubeLength % cubeLength;
 			int z = count / cubeLength / cubeLength;
 			
 			// TODO: Need to set offset so that total average node position is preserved
-			Vector3 offset = new Vector3(x * largestRadius, y * largestRadius, z * largestRadius);
-			double halfCubeActualLength = (double) (cubeLength - 1) / 2 * largestRadius;
-			offset.subtractLocal(halfCubeActualLength, halfCubeActualLength, halfCubeActualLength);
-			
-			displaceNodes(partition, offset.plus(averageTotalNodePosition));
+			double targetX = x * largestRadius - halfCubeActualLength + averageX;
+			double targetY = y * largestRadius - halfCubeActualLength + averageY;
+			double targetZ = z * largestRadius - halfCubeActualLength + averageZ;
 			
-			// System.out.println(new Vector3(x, y, z));
-			count++;
+			NodePositionBuffer partition = partitions.get(count);
+			PositionToolkit.translate(partition.getPositions(), partition.size(), 
+					targetX - centers[count*3], targetY - centers[count*3+1], targetZ - centers[count*3+2]);
+		}
+	}
+	
+	/**
+	 * Writes the positions of all the partitions to their node views.
+	 */
+	public static void commitAll(List<NodePositionBuffer> partitions) {
+		for (NodePositionBuffer partition : partitions) {
+			partition.commit();
 		}
 	}
 	
@@ -79,17 +99,11 @@ public class LayoutToolkit {
 	 * @param target The target position to move the nodes towards
 	 */
 	public static void displaceNodes(Collection<View<CyNode>> nodeViews, Vector3 target) {
-		Vector3 currentCenter = findCenter(nodeViews);
-		Vector3 displacement = target.subtract(currentCenter);
-		
-		for (View<CyNode> nodeView : nodeViews) {
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION,
-					nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION) + displacement.x());
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION,
-					nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION) + displacement.y());
-			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION,
-					nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION) + displacement.z());
-		}
+		NodePositionBuffer buffer = new NodePositionBuffer(nodeViews);
+		double[] center = new double[3];
+		PositionToolkit.findCenter(buffer.getPositions(), buffer.size(), center);
+		PositionToolkit.translate(buffer.getPositions(), buffer.size(), target.x() - center[0], target.y() - center[1], target.z() - center[2]);
+		buffer.commit();
 	}
 	
 
@@ -99,20 +113,10 @@ public class LayoutToolkit {
 	 * @return The average position, in coordinates directly obtained from node visual properties
 	 */
 	public static Vector3 findCenter(Collection<View<CyNode>> nodeViews) {
-		double x = 0;
-		double y = 0;
-		double z = 0;
-		
-		for (View<CyNode> nodeView : nodeViews) {
-			x += nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION);
-			y += nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION);
-			z += nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION);
-		}
-		
-		Vector3 center = new Vector3(x, y, z);
-		center.divideLocal(nodeViews.size());
-		
-		return center;
+		NodePositionBuffer buffer = new NodePositionBuffer(nodeViews);
+		double[] center = new double[3];
+		PositionToolkit.findCenter(buffer.getPositions(), buffer.size(), center);
+		return new Vector3(center[0], center[1], center[2]);
 	}
 	
 	/**
@@ -122,25 +126,24 @@ public class LayoutToolkit {
 	 * the node that is farthest from the average position.
 	 */
 	public static double findSubgraphRadius(Collection<View<CyNode>> nodeViews) {
-		
-		// Obtain the average node position
-		Vector3 averagePosition = findCenter(nodeViews);
-		
-		double maxDistanceSquared = -1;
-		View<CyNode> farthestNode = null;
-		double distanceSquared;
-		
-		for (View<CyNode> nodeView : nodeViews) {
-			distanceSquared = Math.pow(nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION) - averagePosition.x(), 2)
-				+ Math.pow(nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION) - averagePosition.y(), 2)
-				+ Math.pow(nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION) - averagePosition.z(), 2);
-			
-			if (distanceSquared > maxDistanceSquared) {
-				maxDistanceSquared = distanceSquared;
-				farthestNode = nodeView;
+		NodePositionBuffer buffer = new NodePositionBuffer(nodeViews);
+		double[] center = new double[3];
+		PositionToolkit.findCenter(buffer.getPositions(), buffer.size(), center);
+		return PositionToolkit.findRadius(buffer.getPositions(), buffer.size(), center[0], center[1], center[2]);
+	}
+	
+	/**
+	 * Returns a buffer for the nodes of each partition, in the order of the partitions.
+	 */
+	public static List<NodePositionBuffer> createBuffers(List<LayoutPartition> layoutPartitions) {
+		List<NodePositionBuffer> buffers = new ArrayList<NodePositionBuffer>(layoutPartitions.size());
+		for (LayoutPartition partition : layoutPartitions) {
+			List<View<CyNode>> nodeViews = new ArrayList<View<CyNode>>(partition.nodeCount());
+			for (LayoutNode layoutNode : partition.getNodeList()) {
+				nodeViews.add(layoutNode.getNodeView());
 			}
+			buffers.add(new NodePositionBuffer(nodeViews));
 		}
-		
-		return Math.sqrt(maxDistanceSquared);
+		return buffers;
 	}
 }
@@ -0,0 +1,85 @@
+package org.baderlab.cy3d.internal.tools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+
+/**
+ * The positions of a set of nodes while a layout works on them. The positions are read from the
+ * views once, the layout changes them in the flat array (x, y, z of each node, see {@link PositionToolkit}),
+ * and {@link #commit()} writes them back in one pass at the end.
+ *
+ * Only coordinates that changed are written, every write goes through the view model's change
+ * tracking and shows up as a change in the next snapshot.
+ */
+public class NodePositionBuffer {
+
+	private final List<View<CyNode>> nodeViews;
+	private final double[] positions;
+	private final double[] committed;
+
+	public NodePositionBuffer(Collection<? extends View<CyNode>> nodeViews) {
+		this.nodeViews = new ArrayList<View<CyNode>>(nodeViews);
+		this.positions = new double[nodeViews.size() * 3];
+		int i = 0;
+		for (View<CyNode> nodeView : this.nodeViews) {
+			positions[i++] = nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION);
+			positions[i++] = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION);
+			positions[i++] = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION);
+		}
+		this.committed = positions.clone();
+	}
+
+	public int size() {
+		return nodeViews.size();
+	}
+
+	public List<View<CyNode>> getNodeViews() {
+		return nodeViews;
+	}
+
+	/**
+	 * x, y, z of each node in the order of {@link #getNodeViews()}, changes are kept until {@link #commit()}.
+	 */
+	public double[] getPositions() {
+		return positions;
+	}
+
+	public void set(int node, double x, double y, double z) {
+		positions[node*3]   = x;
+		positions[node*3+1] = y;
+		positions[node*3+2] = z;
+	}
+
+	/**
+	 * Writes the positions that changed since they were read, or since the last commit, to the node views.
+	 *
+	 * @return the number of coordinates written
+	 */
+	public int commit() {
+		int written = 0;
+		for (int node = 0, i = 0; node < nodeViews.size(); node++, i += 3) {
+			if (positions[i] == committed[i] && positions[i+1] == committed[i+1] && positions[i+2] == committed[i+2])
+				continue;
+			View<CyNode> nodeView = nodeViews.get(node);
+			if (positions[i] != committed[i]) {
+				nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, positions[i]);
+				written++;
+			}
+			if (positions[i+1] != committed[i+1]) {
+				nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, positions[i+1]);
+				written++;
+			}
+			if (positions[i+2] != committed[i+2]) {
+				nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, positions[i+2]);
+				written++;
+			}
+		}
+		System.arraycopy(positions, 0, committed, 0, positions.length);
+		return written;
+	}
+}
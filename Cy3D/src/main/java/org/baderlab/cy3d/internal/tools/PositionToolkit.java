@@ -0,0 +1,81 @@
+package org.baderlab.cy3d.internal.tools;
+
+/**
+ * Loops over node positions kept in a flat array, x, y, z of each node one after the other,
+ * the layout that the force-directed layout and the layout tasks use. Nothing here allocates,
+ * results go into arrays that the caller passes in.
+ *
+ * The loops are plain counted loops over the array without calls or branches in the body,
+ * which is what the JIT needs to unroll them and keep the values in registers.
+ */
+public class PositionToolkit {
+
+	/**
+	 * Finds the average position of the first count nodes.
+	 *
+	 * @param center Receives x, y, z of the average position, the origin if count is 0.
+	 */
+	public static void findCenter(double[] positions, int count, double[] center) {
+		double x = 0, y = 0, z = 0;
+		for(int i = 0, end = count * 3; i < end; i += 3) {
+			x += positions[i];
+			y += positions[i+1];
+			z += positions[i+2];
+		}
+		if(count > 0) {
+			x /= count;
+			y /= count;
+			z /= count;
+		}
+		center[0] = x;
+		center[1] = y;
+		center[2] = z;
+	}
+
+	/**
+	 * Returns the distance from the given point to the farthest of the first count nodes, 0 if there are none.
+	 */
+	public static double findRadius(double[] positions, int count, double x, double y, double z) {
+		double maxDistanceSquared = 0;
+		for(int i = 0, end = count * 3; i < end; i += 3) {
+			double dx = positions[i]   - x;
+			double dy = positions[i+1] - y;
+			double dz = positions[i+2] - z;
+			maxDistanceSquared = Math.max(maxDistanceSquared, dx * dx + dy * dy + dz * dz);
+		}
+		return Math.sqrt(maxDistanceSquared);
+	}
+
+	/**
+	 * Finds the axis aligned box around the first count nodes.
+	 *
+	 * @param bounds Receives the minimum x, y, z followed by the maximum x, y, z. Infinite if count is 0.
+	 */
+	public static void findBounds(double[] positions, int count, double[] bounds) {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for(int i = 0, end = count * 3; i < end; i += 3) {
+			double x = positions[i], y = positions[i+1], z = positions[i+2];
+			minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+			minZ = Math.min(minZ, z); maxZ = Math.max(maxZ, z);
+		}
+		bounds[0] = minX;
+		bounds[1] = minY;
+		bounds[2] = minZ;
+		bounds[3] = maxX;
+		bounds[4] = maxY;
+		bounds[5] = maxZ;
+	}
+
+	/**
+	 * Moves the first count nodes by the given displacement.
+	 */
+	public static void translate(double[] positions, int count, double dx, double dy, double dz) {
+		for(int i = 0, end = count * 3; i < end; i += 3) {
+			positions[i]   += dx;
+			positions[i+1] += dy;
+			positions[i+2] += dz;
+		}
+	}
+}
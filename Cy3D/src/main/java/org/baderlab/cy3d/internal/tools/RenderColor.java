@@ -59,6 +59,10 @@ public class RenderColor {
 	public void set(double red, double green, double blue) {
 		set(red, green, blue, this.alpha);
 	}
+	
+	public void set(RenderColor other) {
+		set(other.red, other.green, other.blue, other.alpha);
+	}
 
 	// Does not allow colors to escape range [0, 1]
 	public void multiplyNonAlphaColors(double multiplier) {
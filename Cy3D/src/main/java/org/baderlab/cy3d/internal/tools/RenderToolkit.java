@@ -19,17 +19,25 @@ public class RenderToolkit {
 	 * 			
 	 */
 	public static void setUpFacingTransformation(GL2 gl, Vector3 location, Vector3 direction) {
-		gl.glTranslatef((float) location.x(), (float) location.y(), (float) location.z());
-		
-		Vector3 current = new Vector3(0, 0, 1);
-		Vector3 rotateAxis = current.cross(direction);
+		setUpFacingTransformation(gl, location.x(), location.y(), location.z(), direction.x(), direction.y(), direction.z());
+	}
+	
+	/**
+	 * Same as {@link #setUpFacingTransformation(GL2, Vector3, Vector3)}, but takes the coordinates 
+	 * so that it can be called for every segment of every edge without creating garbage.
+	 */
+	public static void setUpFacingTransformation(GL2 gl, double x, double y, double z, 
+			double directionX, double directionY, double directionZ) {
+		gl.glTranslatef((float) x, (float) y, (float) z);
 		
 		// Make sure the given normal has nonzero length
-		if (direction.magnitudeSquared() > Double.MIN_NORMAL) {
-			gl.glRotatef((float) Math.toDegrees(direction.angle(current)), 
-					(float) rotateAxis.x(),
-					(float) rotateAxis.y(),
-					(float) rotateAxis.z());
+		double lengthSquared = directionX * directionX + directionY * directionY + directionZ * directionZ;
+		if (lengthSquared > Double.MIN_NORMAL) {
+			// The angle from the z-axis, about the axis (0, 0, 1) x direction
+			double cosAngle = directionZ / Math.sqrt(lengthSquared);
+			double angle = cosAngle >= 1 ? 0 : cosAngle <= -1 ? Math.PI : Math.acos(cosAngle);
+			
+			gl.glRotatef((float) Math.toDegrees(angle), (float) -directionY, (float) directionX, 0);
 		}
 	}
 	
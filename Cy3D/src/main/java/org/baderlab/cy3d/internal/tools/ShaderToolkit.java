@@ -0,0 +1,90 @@
+package org.baderlab.cy3d.internal.tools;
+
+import javax.media.opengl.GL2;
+import javax.media.opengl.GL2ES2;
+
+/**
+ * Helpers for compiling the small GLSL programs used by the optional
+ * (non fixed-function) rendering paths.
+ *
+ * Failures are reported to System.err and signalled by returning 0 so that
+ * callers can fall back to the legacy immediate mode path.
+ */
+public class ShaderToolkit {
+
+	/**
+	 * Compile and link a program from the given sources. Attribute names in
+	 * attributeBindings are bound to their array index before linking.
+	 *
+	 * @return the program id, or 0 if compilation or linking failed
+	 */
+	public static int createProgram(GL2 gl, String vertexSource, String fragmentSource, String... attributeBindings) {
+		int vertexShader = compileShader(gl, GL2ES2.GL_VERTEX_SHADER, vertexSource);
+		if(vertexShader == 0)
+			return 0;
+
+		int fragmentShader = compileShader(gl, GL2ES2.GL_FRAGMENT_SHADER, fragmentSource);
+		if(fragmentShader == 0) {
+			gl.glDeleteShader(vertexShader);
+			return 0;
+		}
+
+		int program = gl.glCreateProgram();
+		gl.glAttachShader(program, vertexShader);
+		gl.glAttachShader(program, fragmentShader);
+		for(int i = 0; i < attributeBindings.length; i++) {
+			gl.glBindAttribLocation(program, i, attributeBindings[i]);
+		}
+		gl.glLinkProgram(program);
+
+		// the program keeps the shaders alive for as long as it needs them
+		gl.glDeleteShader(vertexShader);
+		gl.glDeleteShader(fragmentShader);
+
+		int[] status = new int[1];
+		gl.glGetProgramiv(program, GL2ES2.GL_LINK_STATUS, status, 0);
+		if(status[0] == 0) {
+			System.err.println("Shader program failed to link: " + getProgramLog(gl, program));
+			gl.glDeleteProgram(program);
+			return 0;
+		}
+		return program;
+	}
+
+
+	private static int compileShader(GL2 gl, int type, String source) {
+		int shader = gl.glCreateShader(type);
+		gl.glShaderSource(shader, 1, new String[] { source }, null, 0);
+		gl.glCompileShader(shader);
+
+		int[] status = new int[1];
+		gl.glGetShaderiv(shader, GL2ES2.GL_COMPILE_STATUS, status, 0);
+		if(status[0] == 0) {
+			System.err.println("Shader failed to compile: " + getShaderLog(gl, shader));
+			gl.glDeleteShader(shader);
+			return 0;
+		}
+		return shader;
+	}
+
+
+	private static String getShaderLog(GL2 gl, int shader) {
+		int[] length = new int[1];
+		gl.glGetShaderiv(shader, GL2ES2.GL_INFO_LOG_LENGTH, length, 0);
+		if(length[0] <= 1)
+			return "";
+		byte[] log = new byte[length[0]];
+		gl.glGetShaderInfoLog(shader, length[0], null, 0, log, 0);
+		return new String(log).trim();
+	}
+
+	private static String getProgramLog(GL2 gl, int program) {
+		int[] length = new int[1];
+		gl.glGetProgramiv(program, GL2ES2.GL_INFO_LOG_LENGTH, length, 0);
+		if(length[0] <= 1)
+			return "";
+		byte[] log = new byte[length[0]];
+		gl.glGetProgramInfoLog(program, length[0], null, 0, log, 0);
+		return new String(log).trim();
+	}
+}
@@ -0,0 +1,110 @@
+package org.baderlab.cy3d.internal;
+
+import java.nio.ByteBuffer;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLDrawableFactory;
+import javax.media.opengl.GLEventListener;
+import javax.media.opengl.GLOffscreenAutoDrawable;
+import javax.media.opengl.GLProfile;
+import javax.swing.JPanel;
+
+import org.baderlab.cy3d.internal.cytoscape.view.Cy3DVisualLexicon;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.graphics.GraphicsConfiguration;
+import org.baderlab.cy3d.internal.graphics.RenderEventListener;
+import org.junit.Assume;
+
+import com.google.common.eventbus.EventBus;
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Renders a {@link TestNetwork} into an offscreen buffer for tests. Creating the renderer skips
+ * the test when OpenGL can't be loaded, Mesa's llvmpipe is enough (LIBGL_ALWAYS_SOFTWARE=1).
+ */
+public class OffscreenRenderer {
+
+	private final GLProfile profile;
+	private final int width;
+	private final int height;
+
+
+	public OffscreenRenderer(int width, int height) {
+		try {
+			Assume.assumeTrue("OpenGL 2 is not available", GLProfile.isAvailable(GLProfile.GL2));
+		} catch(Throwable e) {
+			Assume.assumeNoException("OpenGL could not be loaded", e);
+		}
+		this.profile = GLProfile.get(GLProfile.GL2);
+		this.width = width;
+		this.height = height;
+	}
+
+	public static GraphicsData createGraphicsData() {
+		return new GraphicsData(new Cy3DVisualLexicon(), new EventBus(), new JPanel(), new JPanel());
+	}
+
+
+	/**
+	 * Draws a few frames and returns the RGBA pixels of the last one.
+	 *
+	 * @param beforeLastFrame run before the last frame is drawn, may be null
+	 */
+	public ByteBuffer render(TestNetwork network, GraphicsConfiguration configuration, GraphicsData graphicsData, Runnable beforeLastFrame) {
+		GLCapabilities capabilities = new GLCapabilities(profile);
+		capabilities.setOnscreen(false);
+		capabilities.setDoubleBuffered(false);
+		GLOffscreenAutoDrawable drawable = GLDrawableFactory.getFactory(profile).createOffscreenAutoDrawable(null, capabilities, null, width, height);
+
+		configuration.initializeFrame(graphicsData.getContainer(), graphicsData.getInputComponent());
+
+		ByteBuffer pixels = Buffers.newDirectByteBuffer(width * height * 4);
+		drawable.addGLEventListener(new RenderEventListener(network.getNetworkView(), configuration, graphicsData));
+		drawable.addGLEventListener(new PixelReader(pixels));
+		try {
+			drawable.display();
+			drawable.display();
+			if(beforeLastFrame != null) {
+				beforeLastFrame.run();
+			}
+			drawable.display();
+		} finally {
+			drawable.destroy();
+		}
+		return pixels;
+	}
+
+
+	/** Reads the frame back after the renderer has drawn it */
+	private class PixelReader implements GLEventListener {
+
+		private final ByteBuffer pixels;
+
+		PixelReader(ByteBuffer pixels) {
+			this.pixels = pixels;
+		}
+
+		@Override
+		public void init(GLAutoDrawable drawable) {
+		}
+
+		@Override
+		public void display(GLAutoDrawable drawable) {
+			GL gl = drawable.getGL();
+			gl.glFinish();
+			gl.glPixelStorei(GL.GL_PACK_ALIGNMENT, 1);
+			pixels.clear();
+			gl.glReadPixels(0, 0, width, height, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, pixels);
+		}
+
+		@Override
+		public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+		}
+
+		@Override
+		public void dispose(GLAutoDrawable drawable) {
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package org.baderlab.cy3d.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.SnapshotEdgeInfo;
+import org.cytoscape.view.model.SnapshotNodeInfo;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.VisualProperty;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+
+/**
+ * A small network view for tests, built one node and edge at a time.
+ *
+ * The views are dynamic proxies that keep their visual properties in a map and answer the
+ * methods Cy3D uses, everything else returns null or 0. Every call to createSnapshot() returns
+ * a new snapshot object over the same views, so that the snapshot differ sees each one as a new frame.
+ */
+public class TestNetwork {
+
+	private long nextSuid = 1;
+
+	private final List<View<CyNode>> nodeViews = new ArrayList<>();
+	private final List<View<CyEdge>> edgeViews = new ArrayList<>();
+	private final Map<Long,View<CyNode>> nodeViewsBySuid = new HashMap<>();
+	private final Map<Long,View<CyEdge>> edgeViewsBySuid = new HashMap<>();
+
+	private final NetworkViewHandler networkViewHandler = new NetworkViewHandler(nextSuid++);
+	private final CyNetworkView networkView = proxy(networkViewHandler, CyNetworkView.class, CyNetworkViewSnapshot.class);
+
+
+	public CyNetworkView getNetworkView() {
+		return networkView;
+	}
+
+	public CyNetworkViewSnapshot createSnapshot() {
+		return proxy(networkViewHandler, CyNetworkViewSnapshot.class, CyNetworkView.class);
+	}
+
+	public List<View<CyNode>> getNodeViews() {
+		return nodeViews;
+	}
+
+	public List<View<CyEdge>> getEdgeViews() {
+		return edgeViews;
+	}
+
+	/**
+	 * Adds a node at the given position, in Cytoscape coordinates.
+	 */
+	public View<CyNode> addNode(double x, double y, double z) {
+		CyNode node = proxy(new ModelHandler(nextSuid++), CyNode.class);
+		ElementHandler handler = new ElementHandler(nextSuid++, node);
+		View<CyNode> nodeView = handler.createView();
+		handler.createInfo(SnapshotNodeInfo.class);
+		nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, x);
+		nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, y);
+		nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, z);
+
+		nodeViews.add(nodeView);
+		nodeViewsBySuid.put(handler.suid, nodeView);
+		return nodeView;
+	}
+
+	public View<CyEdge> addEdge(View<CyNode> source, View<CyNode> target) {
+		CyEdge edge = proxy(new ModelHandler(nextSuid++), CyEdge.class);
+		ElementHandler handler = new ElementHandler(nextSuid++, edge);
+		View<CyEdge> edgeView = handler.createView();
+		handler.sourceView = source;
+		handler.targetView = target;
+		handler.createInfo(SnapshotEdgeInfo.class);
+
+		edgeViews.add(edgeView);
+		edgeViewsBySuid.put(handler.suid, edgeView);
+		return edgeView;
+	}
+
+	public void removeEdge(View<CyEdge> edgeView) {
+		edgeViews.remove(edgeView);
+		edgeViewsBySuid.remove(edgeView.getSUID());
+	}
+
+	/**
+	 * Removes the node and its edges, like removing a node from a network does.
+	 */
+	public void removeNode(View<CyNode> nodeView) {
+		for(View<CyEdge> edgeView : new ArrayList<>(edgeViews)) {
+			ElementHandler handler = (ElementHandler) Proxy.getInvocationHandler(edgeView);
+			if(handler.sourceView == nodeView || handler.targetView == nodeView) {
+				removeEdge(edgeView);
+			}
+		}
+		nodeViews.remove(nodeView);
+		nodeViewsBySuid.remove(nodeView.getSUID());
+	}
+
+	/**
+	 * The SUID of the node or edge of the view, which is what picking reports.
+	 */
+	public static long getModelSuid(View<? extends CyIdentifiable> view) {
+		return view.getModel().getSUID();
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(InvocationHandler handler, Class<T> type, Class<?>... moreTypes) {
+		Class<?>[] types = new Class<?>[moreTypes.length + 1];
+		types[0] = type;
+		System.arraycopy(moreTypes, 0, types, 1, moreTypes.length);
+		return (T) Proxy.newProxyInstance(TestNetwork.class.getClassLoader(), types, handler);
+	}
+
+	private static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+		switch(method.getName()) {
+			case "equals":   return proxy == args[0];
+			case "hashCode": return System.identityHashCode(proxy);
+			case "toString": return proxy.getClass().getInterfaces()[0].getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+			default:         return primitiveDefault(method.getReturnType());
+		}
+	}
+
+	private static Object primitiveDefault(Class<?> type) {
+		if(!type.isPrimitive() || type == void.class)
+			return null;
+		if(type == boolean.class)
+			return Boolean.FALSE;
+		if(type == long.class)
+			return 0L;
+		if(type == double.class)
+			return 0.0;
+		if(type == float.class)
+			return 0.0f;
+		return 0;
+	}
+
+	private static Object getValue(Map<Object,Object> values, Object visualProperty) {
+		return values.containsKey(visualProperty) ? values.get(visualProperty) : ((VisualProperty<?>) visualProperty).getDefault();
+	}
+
+
+	/** CyNode and CyEdge */
+	private static class ModelHandler implements InvocationHandler {
+		final long suid;
+
+		ModelHandler(long suid) {
+			this.suid = suid;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			if("getSUID".equals(method.getName()))
+				return suid;
+			return handleObjectMethod(proxy, method, args);
+		}
+	}
+
+
+	/** A node or edge view and the SnapshotNodeInfo or SnapshotEdgeInfo for it */
+	private static class ElementHandler implements InvocationHandler {
+		final long suid;
+		final CyIdentifiable model;
+		final Map<Object,Object> values = new HashMap<>();
+
+		Object view;
+		Object info;
+		View<CyNode> sourceView;
+		View<CyNode> targetView;
+
+		ElementHandler(long suid, CyIdentifiable model) {
+			this.suid = suid;
+			this.model = model;
+		}
+
+		@SuppressWarnings("unchecked")
+		<T> View<T> createView() {
+			view = proxy(this, View.class);
+			return (View<T>) view;
+		}
+
+		void createInfo(Class<?> type) {
+			info = proxy(this, type);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			switch(method.getName()) {
+				case "getSUID":
+				case "getViewSUID":
+					return suid;
+				case "getModel":
+				case "getEdge":
+				case "getNode":
+					return model;
+				case "getModelSUID":
+					return model.getSUID();
+				case "getNodeView":
+				case "getEdgeView":
+					return view;
+				case "getSourceNodeView":
+					return sourceView;
+				case "getTargetNodeView":
+					return targetView;
+				case "getSourceViewSUID":
+					return sourceView.getSUID();
+				case "getTargetViewSUID":
+					return targetView.getSUID();
+				case "isDirected":
+					return Boolean.TRUE;
+				case "getVisualProperty":
+					return getValue(values, args[0]);
+				case "setVisualProperty":
+				case "setLockedValue":
+					values.put(args[0], args[1]);
+					return null;
+				case "isSet":
+				case "isValueLocked":
+				case "isDirectlyLocked":
+					return values.containsKey(args[0]);
+				default:
+					return handleObjectMethod(proxy, method, args);
+			}
+		}
+	}
+
+
+	/** The network view and every snapshot of it */
+	private class NetworkViewHandler implements InvocationHandler {
+		final long suid;
+		final Map<Object,Object> values = new HashMap<>();
+
+		NetworkViewHandler(long suid) {
+			this.suid = suid;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			switch(method.getName()) {
+				case "getSUID":
+					return suid;
+				case "createSnapshot":
+					return TestNetwork.this.createSnapshot();
+				case "getMutableNetworkView":
+					return networkView;
+				case "getNodeViews":
+					return new ArrayList<>(nodeViews);
+				case "getEdgeViews":
+					return new ArrayList<>(edgeViews);
+				case "getNodeCount":
+					return nodeViews.size();
+				case "getEdgeCount":
+					return edgeViews.size();
+				case "getNodeView":
+					return nodeViewsBySuid.get(args[0]);
+				case "getEdgeView":
+					return edgeViewsBySuid.get(args[0]);
+				case "getNodeInfo":
+				case "getEdgeInfo":
+					return ((ElementHandler) Proxy.getInvocationHandler(args[0])).info;
+				case "getVisualProperty":
+					return getValue(values, args[0]);
+				case "getViewDefault":
+					return ((VisualProperty<?>) args[0]).getDefault();
+				case "setVisualProperty":
+				case "setLockedValue":
+					values.put(args[0], args[1]);
+					return null;
+				case "getTrackedNodes":
+					return Collections.emptyList();
+				default:
+					return handleObjectMethod(proxy, method, args);
+			}
+		}
+	}
+}
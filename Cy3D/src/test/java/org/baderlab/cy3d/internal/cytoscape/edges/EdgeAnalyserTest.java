@@ -0,0 +1,146 @@
+package org.baderlab.cy3d.internal.cytoscape.edges;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotDiffer;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.cytoscape.view.presentation.property.LineTypeVisualProperty;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EdgeAnalyserTest {
+
+	private TestNetwork network;
+	private SnapshotDiffer snapshotDiffer;
+	private EdgeAnalyser edgeAnalyser;
+
+	private View<CyNode> node1, node2, node3;
+	private View<CyEdge> edge12, edge23, edge31;
+
+	@Before
+	public void setUp() {
+		network = new TestNetwork();
+		snapshotDiffer = new SnapshotDiffer();
+		edgeAnalyser = new EdgeAnalyser();
+
+		node1 = network.addNode(0, 0, 0);
+		node2 = network.addNode(180, 0, 0);
+		node3 = network.addNode(0, 180, 0);
+		edge12 = network.addEdge(node1, node2);
+		edge23 = network.addEdge(node2, node3);
+		edge31 = network.addEdge(node3, node1);
+	}
+
+	/**
+	 * Analyses the next snapshot, returns the coordinates by edge view SUID.
+	 */
+	private Map<Long,Vector3[]> analyse(EdgeAnalyser analyser, SnapshotDiffer differ) {
+		CyNetworkViewSnapshot snapshot = network.createSnapshot();
+		SnapshotChanges changes = differ.diff(snapshot);
+		Map<Long,Vector3[]> coordinates = new HashMap<>();
+		for(AugmentedEdgeContainer container : analyser.getAnalyzedEdges(snapshot, changes, GraphicsData.DISTANCE_SCALE)) {
+			coordinates.put(container.getEdgeView().getSUID(), container.getCoordinates());
+		}
+		return coordinates;
+	}
+
+	private Map<Long,Vector3[]> analyse() {
+		return analyse(edgeAnalyser, snapshotDiffer);
+	}
+
+	private Set<Long> recalculated() {
+		Set<Long> suids = new HashSet<>();
+		for(AugmentedEdgeContainer container : edgeAnalyser.getRecalculatedEdges()) {
+			suids.add(container.getEdgeView().getSUID());
+		}
+		return suids;
+	}
+
+	private static Set<Long> set(View<?>... views) {
+		Set<Long> suids = new HashSet<>();
+		for(View<?> view : views)
+			suids.add(view.getSUID());
+		return suids;
+	}
+
+	/** The incremental analysis has to end up where analysing the network from scratch does */
+	private void assertSameAsFreshAnalysis(Map<Long,Vector3[]> coordinates) {
+		Map<Long,Vector3[]> fresh = analyse(new EdgeAnalyser(), new SnapshotDiffer());
+		assertEquals(fresh.keySet(), coordinates.keySet());
+		for(Long suid : fresh.keySet()) {
+			assertArrayEquals(fresh.get(suid), coordinates.get(suid));
+		}
+	}
+
+
+	@Test
+	public void testNothingChanged() {
+		Map<Long,Vector3[]> before = analyse();
+		assertEquals(set(edge12, edge23, edge31), recalculated());
+
+		node1.setVisualProperty(BasicVisualLexicon.NODE_FILL_COLOR, Color.RED);
+		Map<Long,Vector3[]> after = analyse();
+		assertTrue(recalculated().isEmpty());
+		for(Long suid : before.keySet()) {
+			assertSame(before.get(suid), after.get(suid));
+		}
+	}
+
+	@Test
+	public void testMovedNodeRecalculatesOnlyItsEdges() {
+		Map<Long,Vector3[]> before = analyse();
+
+		node2.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, 360.0);
+		Map<Long,Vector3[]> after = analyse();
+		assertEquals(set(edge12, edge23), recalculated());
+		assertSame(before.get(edge31.getSUID()), after.get(edge31.getSUID()));
+		assertFalse(before.get(edge12.getSUID()) == after.get(edge12.getSUID()));
+		assertSameAsFreshAnalysis(after);
+	}
+
+	@Test
+	public void testCoincidentEdgesAreRenumbered() {
+		analyse();
+
+		// A second edge between the same nodes makes both of them curve
+		View<CyEdge> edge12b = network.addEdge(node1, node2);
+		Map<Long,Vector3[]> after = analyse();
+		assertEquals(set(edge12, edge12b), recalculated());
+		assertSameAsFreshAnalysis(after);
+
+		// And removing it straightens the first one again
+		network.removeEdge(edge12b);
+		after = analyse();
+		assertEquals(set(edge12), recalculated());
+		assertSameAsFreshAnalysis(after);
+	}
+
+	@Test
+	public void testLineTypeChange() {
+		Map<Long,Vector3[]> before = analyse();
+
+		edge23.setVisualProperty(BasicVisualLexicon.EDGE_LINE_TYPE, LineTypeVisualProperty.EQUAL_DASH);
+		Map<Long,Vector3[]> after = analyse();
+		assertEquals(set(edge23), recalculated());
+		assertSame(before.get(edge12.getSUID()), after.get(edge12.getSUID()));
+		assertSameAsFreshAnalysis(after);
+	}
+}
@@ -0,0 +1,83 @@
+package org.baderlab.cy3d.internal.cytoscape.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.Collections;
+
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotDifferTest {
+
+	private TestNetwork network;
+	private SnapshotDiffer differ;
+
+	private View<CyNode> node1, node2;
+	private View<CyEdge> edge12;
+
+	@Before
+	public void setUp() {
+		network = new TestNetwork();
+		differ = new SnapshotDiffer();
+		node1 = network.addNode(0, 0, 0);
+		node2 = network.addNode(100, 0, 0);
+		edge12 = network.addEdge(node1, node2);
+		assertTrue(differ.diff(network.createSnapshot()).isFull());
+	}
+
+	private SnapshotChanges diff() {
+		return differ.diff(network.createSnapshot());
+	}
+
+
+	@Test
+	public void testSelectionIsNotAGeometryChange() {
+		node1.setVisualProperty(BasicVisualLexicon.NODE_SELECTED, true);
+		edge12.setVisualProperty(BasicVisualLexicon.EDGE_SELECTED, true);
+		SnapshotChanges changes = diff();
+		assertEquals(Collections.singleton(node1.getSUID()), changes.getSelectionChangedNodes());
+		assertEquals(Collections.singleton(edge12.getSUID()), changes.getSelectionChangedEdges());
+		assertTrue(changes.hasEdgeChanges());
+		assertFalse(changes.hasEdgeGeometryChanges());
+		assertFalse(changes.hasGeometryChanges());
+
+		node2.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, 200.0);
+		changes = diff();
+		assertTrue(changes.hasEdgeGeometryChanges());
+		assertTrue(changes.hasGeometryChanges());
+
+		node2.setVisualProperty(BasicVisualLexicon.NODE_WIDTH, 80.0);
+		changes = diff();
+		assertFalse(changes.hasEdgeGeometryChanges());
+		assertTrue(changes.hasGeometryChanges());
+	}
+
+	@Test
+	public void testRestyleWithEqualValues() {
+		node1.setVisualProperty(BasicVisualLexicon.NODE_FILL_COLOR, new Color(10, 20, 30));
+		edge12.setVisualProperty(BasicVisualLexicon.EDGE_WIDTH, Double.valueOf(3.0));
+		SnapshotChanges changes = diff();
+		assertEquals(Collections.singleton(node1.getSUID()), changes.getRestyledNodes());
+		assertEquals(Collections.singleton(edge12.getSUID()), changes.getRestyledEdges());
+
+		// New objects with the same values are not a change
+		node1.setVisualProperty(BasicVisualLexicon.NODE_FILL_COLOR, new Color(10, 20, 30));
+		edge12.setVisualProperty(BasicVisualLexicon.EDGE_WIDTH, Double.valueOf(3.0));
+		changes = diff();
+		assertTrue(changes.getRestyledNodes().isEmpty());
+		assertTrue(changes.getRestyledEdges().isEmpty());
+		assertTrue(changes.isEmpty());
+
+		node1.setVisualProperty(BasicVisualLexicon.NODE_FILL_COLOR, new Color(10, 20, 31));
+		changes = diff();
+		assertEquals(Collections.singleton(node1.getSUID()), changes.getRestyledNodes());
+	}
+}
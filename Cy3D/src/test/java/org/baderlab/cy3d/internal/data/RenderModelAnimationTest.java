@@ -0,0 +1,122 @@
+package org.baderlab.cy3d.internal.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotDiffer;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenderModelAnimationTest {
+
+	/** Long enough that the animation has hardly started when the test looks at it */
+	private static final int ANIMATION_MILLIS = 60000;
+
+	private TestNetwork network;
+	private SnapshotDiffer snapshotDiffer;
+	private EdgeAnalyser edgeAnalyser;
+	private RenderModel model;
+
+	private View<CyNode> node1, node2, node3;
+	private View<CyEdge> edge12, edge13;
+
+	@Before
+	public void setUp() {
+		network = new TestNetwork();
+		snapshotDiffer = new SnapshotDiffer();
+		edgeAnalyser = new EdgeAnalyser();
+		model = new RenderModel(ANIMATION_MILLIS);
+
+		node1 = network.addNode(0, 0, 0);
+		node2 = network.addNode(180, 0, 0);
+		node3 = network.addNode(0, 180, 0);
+		edge12 = network.addEdge(node1, node2);
+		edge13 = network.addEdge(node1, node3);
+		update();
+	}
+
+	private void update() {
+		CyNetworkViewSnapshot snapshot = network.createSnapshot();
+		SnapshotChanges changes = snapshotDiffer.diff(snapshot);
+		edgeAnalyser.getAnalyzedEdges(snapshot, changes, GraphicsData.DISTANCE_SCALE);
+		model.update(snapshot, changes, edgeAnalyser);
+	}
+
+	private static void assertOffset(Vector3 expected, Vector3 drawn, Vector3 target) {
+		assertEquals(expected.x(), drawn.x() - target.x(), 1e-3);
+		assertEquals(expected.y(), drawn.y() - target.y(), 1e-3);
+		assertEquals(expected.z(), drawn.z() - target.z(), 1e-3);
+	}
+
+
+	@Test
+	public void testEdgesFollowAnimatedNodes() {
+		node2.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, 1080.0);
+		update();
+		assertTrue(model.isAnimationFrame());
+
+		// The node is still drawn where it was, 5 units short of where it goes
+		int n2 = model.indexOfNode(node2.getSUID());
+		assertEquals(1, model.getNodePositions()[n2*3], 1e-3);
+		assertEquals(6, model.getNodeTargetPositions()[n2*3], 1e-3);
+
+		// The edge to it is shifted by that much at the moving end and not at all at the other end
+		int e12 = model.indexOfEdge(edge12.getSUID());
+		Vector3[] drawn = model.getEdgeCoordinates(e12);
+		Vector3[] target = model.getEdgeTargetCoordinates(e12);
+		assertNotSame(target, drawn);
+		assertEquals(target.length, drawn.length);
+		int last = drawn.length - 1;
+		assertOffset(new Vector3(0, 0, 0), drawn[0], target[0]);
+		assertOffset(new Vector3(-5, 0, 0), drawn[last], target[last]);
+		for(int k = 0; k <= last; k++) {
+			assertOffset(new Vector3(-5.0 * k / last, 0, 0), drawn[k], target[k]);
+		}
+
+		// Edges between nodes that don't move are drawn from the arrays of the analyser
+		int e13 = model.indexOfEdge(edge13.getSUID());
+		assertSame(model.getEdgeTargetCoordinates(e13), model.getEdgeCoordinates(e13));
+	}
+
+	@Test
+	public void testRemovingFinishesAnimation() {
+		node2.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, 1080.0);
+		update();
+		assertTrue(model.isAnimating());
+
+		network.removeEdge(edge13);
+		update();
+		assertFalse(model.isAnimating());
+		int n2 = model.indexOfNode(node2.getSUID());
+		assertEquals(6, model.getNodePositions()[n2*3], 1e-6);
+		int e12 = model.indexOfEdge(edge12.getSUID());
+		assertSame(model.getEdgeTargetCoordinates(e12), model.getEdgeCoordinates(e12));
+	}
+
+	@Test
+	public void testNoAnimationWhenTurnedOff() {
+		model = new RenderModel(0);
+		snapshotDiffer = new SnapshotDiffer();
+		update();
+
+		node2.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, 1080.0);
+		update();
+		assertFalse(model.isAnimationFrame());
+		int n2 = model.indexOfNode(node2.getSUID());
+		assertEquals(6, model.getNodePositions()[n2*3], 1e-6);
+		int e12 = model.indexOfEdge(edge12.getSUID());
+		assertSame(model.getEdgeTargetCoordinates(e12), model.getEdgeCoordinates(e12));
+	}
+}
@@ -0,0 +1,121 @@
+package org.baderlab.cy3d.internal.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotDiffer;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenderModelTest {
+
+	private TestNetwork network;
+	private SnapshotDiffer snapshotDiffer;
+	private EdgeAnalyser edgeAnalyser;
+	private RenderModel model;
+
+	@Before
+	public void setUp() {
+		network = new TestNetwork();
+		snapshotDiffer = new SnapshotDiffer();
+		edgeAnalyser = new EdgeAnalyser();
+		model = new RenderModel(0);
+	}
+
+	private void update() {
+		CyNetworkViewSnapshot snapshot = network.createSnapshot();
+		SnapshotChanges changes = snapshotDiffer.diff(snapshot);
+		edgeAnalyser.getAnalyzedEdges(snapshot, changes, GraphicsData.DISTANCE_SCALE);
+		model.update(snapshot, changes, edgeAnalyser);
+	}
+
+	private void assertNodeAt(View<CyNode> node, double x) {
+		int i = model.indexOfNode(node.getSUID());
+		assertEquals(node.getSUID().longValue(), model.getNodeSuid(i));
+		assertEquals(x / GraphicsData.DISTANCE_SCALE, model.getNodePositions()[i*3], 1e-6);
+	}
+
+
+	@Test
+	public void testRemovingMiddleNodeMovesLastNode() {
+		View<CyNode> node1 = network.addNode(0, 0, 0);
+		View<CyNode> node2 = network.addNode(180, 0, 0);
+		View<CyNode> node3 = network.addNode(360, 0, 0);
+		View<CyEdge> edge13 = network.addEdge(node1, node3);
+		update();
+		int middle = model.indexOfNode(node2.getSUID());
+		int last = model.indexOfNode(node3.getSUID());
+		assertEquals(3, model.getNodeCount());
+		assertEquals(2, last);
+
+		network.removeNode(node2);
+		update();
+		assertEquals(2, model.getNodeCount());
+		assertEquals(RenderModel.NO_INDEX, model.indexOfNode(node2.getSUID()));
+		assertEquals(middle, model.indexOfNode(node3.getSUID()));
+		assertNodeAt(node1, 0);
+		assertNodeAt(node3, 360);
+
+		// The edge points to the new index of its target
+		int e = model.indexOfEdge(edge13.getSUID());
+		assertEquals(model.indexOfNode(node1.getSUID()), model.getEdgeSources()[e]);
+		assertEquals(model.indexOfNode(node3.getSUID()), model.getEdgeTargets()[e]);
+	}
+
+	@Test
+	public void testRemovingMiddleEdgeMovesLastEdge() {
+		View<CyNode> node1 = network.addNode(0, 0, 0);
+		View<CyNode> node2 = network.addNode(180, 0, 0);
+		View<CyNode> node3 = network.addNode(360, 0, 0);
+		View<CyEdge> edge12 = network.addEdge(node1, node2);
+		View<CyEdge> edge23 = network.addEdge(node2, node3);
+		View<CyEdge> edge31 = network.addEdge(node3, node1);
+		update();
+		int middle = model.indexOfEdge(edge23.getSUID());
+
+		network.removeEdge(edge23);
+		update();
+		assertEquals(2, model.getEdgeCount());
+		assertEquals(RenderModel.NO_INDEX, model.indexOfEdge(edge23.getSUID()));
+		int moved = model.indexOfEdge(edge31.getSUID());
+		assertEquals(middle, moved);
+		assertEquals(edge31.getSUID().longValue(), model.getEdgeSuid(moved));
+		assertEquals(model.indexOfNode(node3.getSUID()), model.getEdgeSources()[moved]);
+		assertEquals(model.indexOfNode(node1.getSUID()), model.getEdgeTargets()[moved]);
+		assertEquals(model.indexOfNode(node2.getSUID()), model.getEdgeTargets()[model.indexOfEdge(edge12.getSUID())]);
+	}
+
+	@Test
+	public void testSuidIndexAfterManyRemovals() {
+		// Enough nodes for the index to grow, then removals all over it
+		List<View<CyNode>> nodes = new ArrayList<>();
+		for(int i = 0; i < 200; i++) {
+			nodes.add(network.addNode(i * 10, 0, 0));
+		}
+		update();
+		for(int i = 0; i < nodes.size(); i += 3) {
+			network.removeNode(nodes.get(i));
+		}
+		update();
+
+		int count = 0;
+		for(int i = 0; i < nodes.size(); i++) {
+			if(i % 3 == 0) {
+				assertEquals(RenderModel.NO_INDEX, model.indexOfNode(nodes.get(i).getSUID()));
+			} else {
+				assertNodeAt(nodes.get(i), i * 10);
+				count++;
+			}
+		}
+		assertEquals(count, model.getNodeCount());
+	}
+}
@@ -0,0 +1,210 @@
+package org.baderlab.cy3d.internal.data;
+
+import static org.baderlab.cy3d.internal.TestNetwork.getModelSuid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.baderlab.cy3d.internal.cytoscape.edges.EdgeAnalyser;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotDiffer;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.geometric.ViewingVolume;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SceneIndexTest {
+
+	private static final Vector3 DOWN = new Vector3(0, 0, -1);
+
+	private TestNetwork network;
+	private SnapshotDiffer snapshotDiffer;
+	private EdgeAnalyser edgeAnalyser;
+	private RenderModel model;
+	private SceneIndex sceneIndex;
+
+	private View<CyNode> node1, node2, node3;
+	private View<CyEdge> edge12;
+
+	@Before
+	public void setUp() {
+		network = new TestNetwork();
+		snapshotDiffer = new SnapshotDiffer();
+		edgeAnalyser = new EdgeAnalyser();
+		model = new RenderModel(0); // no animation, nodes move at once
+		sceneIndex = new SceneIndex();
+
+		// Cytoscape coordinates, 180 units apart is 1 apart in the scene
+		node1 = network.addNode(0, 0, 0);
+		node2 = network.addNode(900, 0, 0);
+		node3 = network.addNode(0, 900, 0);
+		edge12 = network.addEdge(node1, node2);
+		update();
+	}
+
+	private void update() {
+		CyNetworkViewSnapshot snapshot = network.createSnapshot();
+		SnapshotChanges changes = snapshotDiffer.diff(snapshot);
+		edgeAnalyser.getAnalyzedEdges(snapshot, changes, GraphicsData.DISTANCE_SCALE);
+		model.update(snapshot, changes, edgeAnalyser);
+		sceneIndex.update(changes, model, edgeAnalyser);
+	}
+
+	/** Looks straight down at the scene position under the given Cytoscape coordinates */
+	private static Vector3 above(double x, double y) {
+		return new Vector3(x / GraphicsData.DISTANCE_SCALE, -y / GraphicsData.DISTANCE_SCALE, 10);
+	}
+
+
+	@Test
+	public void testPickNode() {
+		assertEquals(3, sceneIndex.getNodeCount());
+		assertEquals(getModelSuid(node1), sceneIndex.pickNode(above(0, 0), DOWN));
+		assertEquals(getModelSuid(node2), sceneIndex.pickNode(above(900, 0), DOWN));
+		assertEquals(getModelSuid(node3), sceneIndex.pickNode(above(0, 900), DOWN));
+		assertEquals(PickingData.NO_INDEX, sceneIndex.pickNode(above(450, 450), DOWN));
+		assertEquals(PickingData.NO_INDEX, sceneIndex.pickNode(above(0, 0), new Vector3(0, 0, 1)));
+	}
+
+	@Test
+	public void testPickEdge() {
+		assertEquals(1, sceneIndex.getEdgeCount());
+		assertEquals(getModelSuid(edge12), sceneIndex.pickEdge(above(450, 0), DOWN));
+		assertEquals(PickingData.NO_INDEX, sceneIndex.pickEdge(above(450, 90), DOWN));
+		assertEquals(PickingData.NO_INDEX, sceneIndex.pickEdge(above(0, 450), DOWN));
+	}
+
+	@Test
+	public void testMovedNodeTakesItsEdgeAlong() {
+		node2.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, 900.0);
+		update();
+
+		assertEquals(PickingData.NO_INDEX, sceneIndex.pickNode(above(900, 0), DOWN));
+		assertEquals(getModelSuid(node2), sceneIndex.pickNode(above(900, 900), DOWN));
+		assertEquals(PickingData.NO_INDEX, sceneIndex.pickEdge(above(450, 0), DOWN));
+		assertEquals(getModelSuid(edge12), sceneIndex.pickEdge(above(450, 450), DOWN));
+	}
+
+	@Test
+	public void testAddAndRemoveEdge() {
+		View<CyEdge> edge13 = network.addEdge(node1, node3);
+		update();
+		assertEquals(2, sceneIndex.getEdgeCount());
+		assertEquals(getModelSuid(edge13), sceneIndex.pickEdge(above(0, 450), DOWN));
+
+		network.removeEdge(edge12);
+		update();
+		assertEquals(1, sceneIndex.getEdgeCount());
+		assertEquals(PickingData.NO_INDEX, sceneIndex.pickEdge(above(450, 0), DOWN));
+		assertEquals(getModelSuid(edge13), sceneIndex.pickEdge(above(0, 450), DOWN));
+	}
+
+	@Test
+	public void testHiddenNodeIsNotPicked() {
+		node1.setVisualProperty(BasicVisualLexicon.NODE_VISIBLE, false);
+		update();
+		assertEquals(PickingData.NO_INDEX, sceneIndex.pickNode(above(0, 0), DOWN));
+
+		node1.setVisualProperty(BasicVisualLexicon.NODE_VISIBLE, true);
+		update();
+		assertEquals(getModelSuid(node1), sceneIndex.pickNode(above(0, 0), DOWN));
+	}
+
+	@Test
+	public void testSelect() {
+		// A volume looking down at the nodes along x = 0
+		ViewingVolume volume = new ViewingVolume();
+		Vector3 position = new Vector3(0, -2.5, 10);
+		Vector3[] corners = {
+			new Vector3(-1, 1, 0), new Vector3(1, 1, 0), new Vector3(1, -6, 0), new Vector3(-1, -6, 0)
+		};
+		volume.calculateViewingVolume(position, DOWN, corners, GraphicsData.NEAR_Z, GraphicsData.FAR_Z);
+
+		Set<Long> selected = new HashSet<>();
+		sceneIndex.selectNodes(volume, selected);
+		assertEquals(set(getModelSuid(node1), getModelSuid(node3)), selected);
+
+		selected.clear();
+		sceneIndex.selectEdges(volume, selected);
+		assertTrue(selected.contains(getModelSuid(edge12)));
+	}
+
+	@Test
+	public void testPickingSceneFollowsUpdates() {
+		PickingScene scene = sceneIndex.getPickingScene();
+		PickingIndex pickingIndex = new PickingIndex();
+		pickingIndex.update(scene);
+		assertEquals(getModelSuid(node2), pickingIndex.pickNode(above(900, 0), DOWN));
+		assertEquals(getModelSuid(edge12), pickingIndex.pickEdge(above(450, 0), DOWN));
+
+		// Nothing changed, nothing is published
+		update();
+		assertSame(scene, sceneIndex.getPickingScene());
+
+		node2.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, 900.0);
+		update();
+		pickingIndex.update(sceneIndex.getPickingScene());
+		assertEquals(PickingData.NO_INDEX, pickingIndex.pickNode(above(900, 0), DOWN));
+		assertEquals(getModelSuid(node2), pickingIndex.pickNode(above(900, 900), DOWN));
+		assertEquals(getModelSuid(edge12), pickingIndex.pickEdge(above(450, 450), DOWN));
+
+		network.removeEdge(edge12);
+		update();
+		pickingIndex.update(sceneIndex.getPickingScene());
+		assertEquals(PickingData.NO_INDEX, pickingIndex.pickEdge(above(450, 450), DOWN));
+
+		// A scene that was published before is not changed by the updates
+		PickingIndex oldIndex = new PickingIndex();
+		oldIndex.update(scene);
+		assertEquals(getModelSuid(node2), oldIndex.pickNode(above(900, 0), DOWN));
+		assertEquals(getModelSuid(edge12), oldIndex.pickEdge(above(450, 0), DOWN));
+	}
+
+	@Test
+	public void testPickingSceneWithManyNodes() {
+		// Enough nodes for several chunks of the picking scene
+		List<View<CyNode>> row = new ArrayList<>();
+		for(int i = 0; i < 2500; i++) {
+			row.add(network.addNode(i * 90, -900, 0));
+		}
+		update();
+		PickingIndex pickingIndex = new PickingIndex();
+		pickingIndex.update(sceneIndex.getPickingScene());
+		assertEquals(getModelSuid(row.get(2400)), pickingIndex.pickNode(above(2400 * 90, -900), DOWN));
+
+		// Hidden nodes free their slots, shown nodes take them again
+		for(int i = 0; i < row.size(); i += 2) {
+			row.get(i).setVisualProperty(BasicVisualLexicon.NODE_VISIBLE, false);
+		}
+		update();
+		pickingIndex.update(sceneIndex.getPickingScene());
+		assertEquals(PickingData.NO_INDEX, pickingIndex.pickNode(above(2400 * 90, -900), DOWN));
+		assertEquals(getModelSuid(row.get(2401)), pickingIndex.pickNode(above(2401 * 90, -900), DOWN));
+
+		row.get(2400).setVisualProperty(BasicVisualLexicon.NODE_VISIBLE, true);
+		update();
+		pickingIndex.update(sceneIndex.getPickingScene());
+		assertEquals(getModelSuid(row.get(2400)), pickingIndex.pickNode(above(2400 * 90, -900), DOWN));
+		assertEquals(getModelSuid(row.get(2401)), pickingIndex.pickNode(above(2401 * 90, -900), DOWN));
+		assertEquals(PickingData.NO_INDEX, pickingIndex.pickNode(above(2398 * 90, -900), DOWN));
+	}
+
+
+	private static Set<Long> set(long... suids) {
+		Set<Long> set = new HashSet<>();
+		for(long suid : suids)
+			set.add(suid);
+		return set;
+	}
+}
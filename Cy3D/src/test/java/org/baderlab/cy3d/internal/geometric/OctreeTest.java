@@ -0,0 +1,171 @@
+package org.baderlab.cy3d.internal.geometric;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OctreeTest {
+
+	private Octree tree;
+	private Map<Long,double[]> spheres;
+
+	@Before
+	public void setUp() {
+		tree = new Octree();
+		spheres = new HashMap<>();
+	}
+
+	private void put(long id, double x, double y, double z, double radius) {
+		tree.put(id, x, y, z, radius);
+		spheres.put(id, new double[] { x, y, z, radius });
+	}
+
+	/** Distance along the ray to the sphere of the item, in units of the direction */
+	private double intersect(Vector3 origin, Vector3 direction, long id) {
+		double[] s = spheres.get(id);
+		double ox = origin.x() - s[0], oy = origin.y() - s[1], oz = origin.z() - s[2];
+		double a = direction.dot(direction);
+		double b = ox * direction.x() + oy * direction.y() + oz * direction.z();
+		double c = ox * ox + oy * oy + oz * oz - s[3] * s[3];
+		double discriminant = b * b - a * c;
+		if(discriminant < 0)
+			return Double.POSITIVE_INFINITY;
+		double t = (-b - Math.sqrt(discriminant)) / a;
+		return t >= 0 ? t : Double.POSITIVE_INFINITY;
+	}
+
+	private long raycast(Vector3 origin, Vector3 direction) {
+		return tree.raycast(origin, direction, id -> intersect(origin, direction, id));
+	}
+
+
+	@Test
+	public void testRaycastFindsClosestItem() {
+		put(1, 0, 0, -5, 1);
+		put(2, 0, 0, -2, 1);
+		put(3, 0, 0, -8, 1);
+		put(4, 5, 0, -2, 1);
+
+		assertEquals(2, raycast(new Vector3(0, 0, 0), new Vector3(0, 0, -1)));
+		assertEquals(3, raycast(new Vector3(0, 0, -10), new Vector3(0, 0, 1)));
+		assertEquals(4, raycast(new Vector3(5, 0, 0), new Vector3(0, 0, -1)));
+		assertEquals(Octree.NO_ITEM, raycast(new Vector3(0, 0, 0), new Vector3(0, 0, 1)));
+		assertEquals(Octree.NO_ITEM, raycast(new Vector3(0, 3, 0), new Vector3(0, 0, -1)));
+	}
+
+	@Test
+	public void testRaycastEmptyTree() {
+		assertEquals(Octree.NO_ITEM, raycast(new Vector3(0, 0, 0), new Vector3(0, 0, -1)));
+	}
+
+	@Test
+	public void testRaycastAfterMoveAndRemove() {
+		put(1, 0, 0, -5, 1);
+		put(2, 0, 0, -2, 1);
+
+		put(2, 10, 0, -2, 1);
+		assertEquals(1, raycast(new Vector3(0, 0, 0), new Vector3(0, 0, -1)));
+
+		tree.remove(1);
+		assertFalse(tree.contains(1));
+		assertEquals(Octree.NO_ITEM, raycast(new Vector3(0, 0, 0), new Vector3(0, 0, -1)));
+		assertEquals(2, raycast(new Vector3(10, 0, 0), new Vector3(0, 0, -1)));
+	}
+
+	@Test
+	public void testFrustumQuery() {
+		ViewingVolume volume = new ViewingVolume();
+		volume.calculateViewingVolume(new Vector3(0, 0, 10), new Vector3(0, 0, -1), new Vector3(0, 1, 0), 0.2, 50, 45, 45);
+
+		put(1, 0, 0, 0, 0.5);      // in front of the camera
+		put(2, 100, 0, 0, 0.5);    // far to the right
+		put(6, -100, 0, 0, 0.5);   // far to the left
+		put(3, 0, 0, 20, 0.5);     // behind the camera
+		put(4, 0, 0, -100, 0.5);   // past the far plane
+		put(5, 4.8, 0, 0, 1);      // outside, but the sphere reaches into the volume
+
+		Set<Long> visited = new HashSet<>();
+		tree.query(volume, visited::add);
+		assertEquals(set(1, 5), visited);
+
+		visited.clear();
+		tree.query(volume, 100, visited::add);
+		assertTrue(visited.contains(2L));
+	}
+
+	@Test
+	public void testFrustumQueryMatchesBruteForce() {
+		Random random = new Random(42);
+		for(long id = 0; id < 2000; id++) {
+			put(id, random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50, random.nextDouble());
+		}
+		ViewingVolume volume = new ViewingVolume();
+		volume.calculateViewingVolume(new Vector3(0, 0, 30), new Vector3(0, 0, -1), new Vector3(0, 1, 0), 0.2, 60, 45, 60);
+
+		Set<Long> expected = new HashSet<>();
+		for(Map.Entry<Long,double[]> entry : spheres.entrySet()) {
+			double[] s = entry.getValue();
+			if(volume.intersectsSphere(s[0], s[1], s[2], s[3]))
+				expected.add(entry.getKey());
+		}
+		Set<Long> visited = new HashSet<>();
+		tree.query(volume, visited::add);
+		assertEquals(expected, visited);
+	}
+
+	@Test
+	public void testNearest() {
+		put(1, 0, 0, 0, 0.1);
+		put(2, 3, 0, 0, 0.1);
+		put(3, 1, 0, 0, 0.1);
+		put(4, -10, 0, 0, 0.1);
+
+		long[] result = new long[3];
+		assertEquals(3, tree.nearest(0.9, 0, 0, result));
+		assertArrayEquals(new long[] { 3, 1, 2 }, result);
+
+		long[] all = new long[10];
+		assertEquals(4, tree.nearest(0, 0, 0, all));
+		assertEquals(4, all[3]);
+	}
+
+	@Test
+	public void testNearestMatchesBruteForce() {
+		Random random = new Random(7);
+		for(long id = 0; id < 1000; id++) {
+			put(id, random.nextDouble() * 10, random.nextDouble() * 10, random.nextDouble() * 10, 0.01);
+		}
+		long[] result = new long[1];
+		assertEquals(1, tree.nearest(5, 5, 5, result));
+
+		long closest = -1;
+		double closestDistance = Double.POSITIVE_INFINITY;
+		for(Map.Entry<Long,double[]> entry : spheres.entrySet()) {
+			double[] s = entry.getValue();
+			double distance = (s[0] - 5) * (s[0] - 5) + (s[1] - 5) * (s[1] - 5) + (s[2] - 5) * (s[2] - 5);
+			if(distance < closestDistance) {
+				closest = entry.getKey();
+				closestDistance = distance;
+			}
+		}
+		assertEquals(closest, result[0]);
+	}
+
+
+	private static Set<Long> set(long... ids) {
+		Set<Long> set = new HashSet<>();
+		for(long id : ids)
+			set.add(id);
+		return set;
+	}
+}
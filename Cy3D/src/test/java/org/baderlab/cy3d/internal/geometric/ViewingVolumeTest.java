@@ -0,0 +1,78 @@
+package org.baderlab.cy3d.internal.geometric;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ViewingVolumeTest {
+
+	private static final Vector3 POSITION = new Vector3(0, 0, 10);
+	private static final Vector3 DIRECTION = new Vector3(0, 0, -1);
+	private static final Vector3 UP = new Vector3(0, 1, 0);
+
+
+	@Test
+	public void testFieldOfViewVolumeIsBoundedOnAllSides() {
+		// 90 degrees across and 45 up and down, 10 to the right and 4.1 up at the origin
+		ViewingVolume volume = new ViewingVolume();
+		volume.calculateViewingVolume(POSITION, DIRECTION, UP, 0.2, 50, 45, 90);
+
+		assertTrue(volume.inside(new Vector3(0, 0, 0)));
+		assertTrue(volume.inside(new Vector3(9, 0, 0)));
+		assertTrue(volume.inside(new Vector3(-9, 0, 0)));
+		assertTrue(volume.inside(new Vector3(0, 4, 0)));
+		assertTrue(volume.inside(new Vector3(0, -4, 0)));
+
+		assertFalse(volume.inside(new Vector3(11, 0, 0)));
+		assertFalse(volume.inside(new Vector3(-11, 0, 0)));
+		assertFalse(volume.inside(new Vector3(0, 4.5, 0)));
+		assertFalse(volume.inside(new Vector3(0, -4.5, 0)));
+		assertFalse(volume.inside(new Vector3(0, 0, 11)));
+		assertFalse(volume.inside(new Vector3(0, 0, -41)));
+	}
+
+	@Test
+	public void testSphereReachingIntoTheSide() {
+		ViewingVolume volume = new ViewingVolume();
+		volume.calculateViewingVolume(POSITION, DIRECTION, UP, 0.2, 50, 45, 90);
+
+		assertFalse(volume.intersectsSphere(11, 0, 0, 0.5));
+		assertTrue(volume.intersectsSphere(11, 0, 0, 1.5));
+		assertFalse(volume.intersectsSphere(-11, 0, 0, 0.5));
+		assertTrue(volume.intersectsSphere(-11, 0, 0, 1.5));
+	}
+
+	@Test
+	public void testRectangleVolumeIsBoundedOnAllSides() {
+		// A selection rectangle from x = 1 to 3 and y = -1 to 1 at the origin
+		Vector3[] corners = {
+			new Vector3(1, 1, 0), new Vector3(3, 1, 0), new Vector3(3, -1, 0), new Vector3(1, -1, 0)
+		};
+		ViewingVolume volume = new ViewingVolume();
+		volume.calculateViewingVolume(POSITION, DIRECTION, corners, 0.2, 50);
+
+		assertTrue(volume.inside(new Vector3(2, 0, 0)));
+		assertFalse(volume.inside(new Vector3(0, 0, 0)));
+		assertFalse(volume.inside(new Vector3(4, 0, 0)));
+		assertFalse(volume.inside(new Vector3(2, 2, 0)));
+		assertFalse(volume.inside(new Vector3(2, -2, 0)));
+
+		// The sides spread out from the camera
+		assertTrue(volume.inside(new Vector3(5, 0, -15)));
+		assertFalse(volume.inside(new Vector3(2, 0, 10.5)));
+	}
+
+	@Test
+	public void testSegmentCrossingTheVolume() {
+		Vector3[] corners = {
+			new Vector3(1, 1, 0), new Vector3(3, 1, 0), new Vector3(3, -1, 0), new Vector3(1, -1, 0)
+		};
+		ViewingVolume volume = new ViewingVolume();
+		volume.calculateViewingVolume(POSITION, DIRECTION, corners, 0.2, 50);
+
+		assertTrue(volume.intersectsSegment(new Vector3(0, 0, 0), new Vector3(10, 0, 0)));
+		assertFalse(volume.intersectsSegment(new Vector3(4, 0, 0), new Vector3(10, 0, 0)));
+		assertFalse(volume.intersectsSegment(new Vector3(0, 2, 0), new Vector3(10, 2, 0)));
+	}
+}
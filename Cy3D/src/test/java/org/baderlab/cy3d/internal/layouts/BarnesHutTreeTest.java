@@ -0,0 +1,144 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BarnesHutTreeTest {
+
+	private static double[] randomPositions(int count, long seed) {
+		Random random = new Random(seed);
+		double[] positions = new double[count * 3];
+		for(int i = 0; i < positions.length; i++) {
+			positions[i] = random.nextDouble() * 100 - 50;
+		}
+		return positions;
+	}
+
+	/** The repulsion of every other point, summed one pair at a time */
+	private static double[] bruteForce(double[] positions, double[] masses, int count, double strength) {
+		double[] force = new double[count * 3];
+		for(int i = 0; i < count; i++) {
+			for(int j = 0; j < count; j++) {
+				if(i == j)
+					continue;
+				double dx = positions[i*3]   - positions[j*3];
+				double dy = positions[i*3+1] - positions[j*3+1];
+				double dz = positions[i*3+2] - positions[j*3+2];
+				double f = (masses == null ? 1 : masses[j]) * strength / (dx * dx + dy * dy + dz * dz);
+				force[i*3]   += dx * f;
+				force[i*3+1] += dy * f;
+				force[i*3+2] += dz * f;
+			}
+		}
+		return force;
+	}
+
+	private static double[] treeForce(BarnesHutTree tree, double[] positions, int count, double strength, double theta) {
+		double[] force = new double[count * 3];
+		int[] stack = new int[1];
+		for(int i = 0; i < count; i++) {
+			stack = tree.addRepulsion(i, force, strength, theta, stack);
+		}
+		return force;
+	}
+
+
+	@Test
+	public void testZeroThetaIsExact() {
+		int count = 200;
+		double[] positions = randomPositions(count, 1);
+		double[] masses = new double[count];
+		for(int i = 0; i < count; i++) {
+			masses[i] = 1 + i % 3;
+		}
+
+		BarnesHutTree tree = new BarnesHutTree();
+		tree.build(positions, masses, count);
+
+		double[] expected = bruteForce(positions, masses, count, 2.5);
+		double[] actual = treeForce(tree, positions, count, 2.5, 0);
+		for(int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i], 1e-9 * Math.max(1, Math.abs(expected[i])));
+		}
+	}
+
+	@Test
+	public void testApproximationIsClose() {
+		int count = 500;
+		double[] positions = randomPositions(count, 2);
+
+		BarnesHutTree tree = new BarnesHutTree();
+		tree.build(positions, null, count);
+
+		double[] expected = bruteForce(positions, null, count, 1);
+		double[] actual = treeForce(tree, positions, count, 1, 0.5);
+
+		double error = 0, total = 0;
+		for(int i = 0; i < expected.length; i++) {
+			error += Math.abs(expected[i] - actual[i]);
+			total += Math.abs(expected[i]);
+		}
+		assertTrue("relative error " + error / total, error / total < 0.05);
+	}
+
+	@Test
+	public void testFarClusterActsAsOnePoint() {
+		// one point at the origin, four points of mass 1 close together far away along x
+		double[] positions = {
+			0, 0, 0,
+			1000, 0.5, 0.5,   1000, -0.5, 0.5,   1000, 0.5, -0.5,   1000, -0.5, -0.5
+		};
+		BarnesHutTree tree = new BarnesHutTree();
+		tree.build(positions, null, 5);
+
+		double[] force = new double[15];
+		tree.addRepulsion(0, force, 1, 0.5, new int[8]);
+
+		// pushed away from the cluster, as if by a point of mass 4 at distance 1000
+		assertEquals(-4.0 / 1000, force[0], 1e-6);
+		assertEquals(0, force[1], 1e-9);
+		assertEquals(0, force[2], 1e-9);
+		// the other points are left alone
+		for(int i = 3; i < force.length; i++) {
+			assertEquals(0, force[i], 0);
+		}
+	}
+
+	@Test
+	public void testCoincidentPoints() {
+		double[] positions = { 1, 2, 3,  1, 2, 3,  1, 2, 3,  11, 2, 3 };
+		BarnesHutTree tree = new BarnesHutTree();
+		tree.build(positions, null, 4);
+
+		double[] force = new double[12];
+		int[] stack = new int[1];
+		for(int i = 0; i < 4; i++) {
+			stack = tree.addRepulsion(i, force, 1, 0, stack);
+		}
+		for(double f : force) {
+			assertTrue(Double.isFinite(f));
+		}
+		// the stacked points only feel the one 10 away, and push it with all three
+		assertEquals(-0.1, force[0], 1e-9);
+		assertEquals(0.3, force[9], 1e-9);
+	}
+
+	@Test
+	public void testRebuildReusesTree() {
+		BarnesHutTree tree = new BarnesHutTree();
+		double[] many = randomPositions(300, 3);
+		tree.build(many, null, 300);
+		assertTrue(tree.getCellCount() >= 300);
+
+		double[] few = { 0, 0, 0,  10, 0, 0 };
+		tree.build(few, null, 2);
+		double[] force = treeForce(tree, few, 2, 1, 0.5);
+		assertEquals(-0.1, force[0], 1e-9);
+		assertEquals(0.1, force[3], 1e-9);
+		assertEquals(3, tree.getCellCount());
+	}
+}
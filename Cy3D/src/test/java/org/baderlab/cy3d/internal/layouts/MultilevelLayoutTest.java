@@ -0,0 +1,124 @@
+package org.baderlab.cy3d.internal.layouts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MultilevelLayoutTest {
+
+	private static double[] randomPositions(int count, long seed) {
+		Random random = new Random(seed);
+		double[] positions = new double[count * 3];
+		for(int i = 0; i < positions.length; i++) {
+			positions[i] = random.nextDouble() * 1000 - 500;
+		}
+		return positions;
+	}
+
+	/** Node 0 is the hub, every other node is a leaf connected to it */
+	private static Adjacency star(int nodeCount) {
+		int[] sources = new int[nodeCount - 1];
+		int[] targets = new int[nodeCount - 1];
+		for(int i = 1; i < nodeCount; i++) {
+			sources[i-1] = 0;
+			targets[i-1] = i;
+		}
+		return Adjacency.fromEdges(nodeCount, sources, targets, nodeCount - 1);
+	}
+
+	private static Adjacency path(int nodeCount) {
+		int[] sources = new int[nodeCount - 1];
+		int[] targets = new int[nodeCount - 1];
+		for(int i = 1; i < nodeCount; i++) {
+			sources[i-1] = i - 1;
+			targets[i-1] = i;
+		}
+		return Adjacency.fromEdges(nodeCount, sources, targets, nodeCount - 1);
+	}
+
+	/** Runs the layout to the end, returns the number of steps */
+	private static int run(MultilevelLayout layout) {
+		int steps = 1;
+		while(layout.step()) {
+			steps++;
+			assertTrue(layout.getProgress() >= 0 && layout.getProgress() <= 1);
+		}
+		return steps;
+	}
+
+	private static void assertFinite(double[] positions) {
+		for(double p : positions) {
+			assertTrue(Double.isFinite(p));
+		}
+	}
+
+
+	@Test
+	public void testStarCollapses() {
+		int n = 1000;
+		double[] positions = randomPositions(n, 1);
+		MultilevelLayout layout = new MultilevelLayout(positions, star(n), 7);
+		layout.setIterations(50);
+
+		assertTrue(layout.step());
+		// the hub matches one leaf and every other leaf joins it, the whole star is one node
+		assertEquals(2, layout.getLevelCount());
+
+		run(layout);
+		assertFinite(positions);
+		assertEquals(1.0, layout.getProgress(), 0);
+		assertFalse(layout.step());
+	}
+
+	@Test
+	public void testLeavesStayNearTheHub() {
+		int n = 200;
+		double[] positions = randomPositions(n, 2);
+		MultilevelLayout layout = new MultilevelLayout(positions, star(n), 3);
+		layout.setIterations(50);
+		run(layout);
+		assertFinite(positions);
+
+		// every leaf is pulled to about one edge length from the hub, none is left at its random start
+		for(int i = 1; i < n; i++) {
+			double dx = positions[i*3]   - positions[0];
+			double dy = positions[i*3+1] - positions[1];
+			double dz = positions[i*3+2] - positions[2];
+			assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) < 500);
+		}
+	}
+
+	@Test
+	public void testLevelsAreBounded() {
+		int n = 4096;
+		MultilevelLayout layout = new MultilevelLayout(randomPositions(n, 3), path(n), 5);
+		layout.setIterations(20);
+		layout.step();
+		// each level keeps at most 80% of the nodes and coarsening stops at 64 nodes
+		int bound = 1 + (int) Math.ceil(Math.log(n / 64.0) / Math.log(1 / 0.8));
+		assertTrue(layout.getLevelCount() > 1);
+		assertTrue(layout.getLevelCount() <= bound);
+
+		MultilevelLayout limited = new MultilevelLayout(randomPositions(n, 3), path(n), 5);
+		limited.setMaxLevels(3);
+		limited.setIterations(20);
+		limited.step();
+		assertEquals(3, limited.getLevelCount());
+	}
+
+	@Test
+	public void testNoEdgesIsNotCoarsened() {
+		int n = 300;
+		double[] positions = randomPositions(n, 4);
+		MultilevelLayout layout = new MultilevelLayout(positions, Adjacency.fromEdges(n, new int[0], new int[0], 0), 9);
+		layout.setIterations(10);
+		run(layout);
+		// nothing to merge, the graph is laid out directly
+		assertEquals(1, layout.getLevelCount());
+		assertFinite(positions);
+	}
+}
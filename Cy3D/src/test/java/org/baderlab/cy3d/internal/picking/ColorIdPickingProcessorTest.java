@@ -0,0 +1,80 @@
+package org.baderlab.cy3d.internal.picking;
+
+import static org.baderlab.cy3d.internal.TestNetwork.getModelSuid;
+import static org.junit.Assert.assertEquals;
+
+import org.baderlab.cy3d.internal.OffscreenRenderer;
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.graphics.MainGraphicsConfiguration;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Picks from the id buffer of an offscreen rendering, skipped when OpenGL can't be loaded.
+ */
+public class ColorIdPickingProcessorTest {
+
+	private static final int WIDTH = 400;
+	private static final int HEIGHT = 300;
+
+	private OffscreenRenderer renderer;
+	private TestNetwork network;
+	private View<CyNode> centerNode;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		renderer = new OffscreenRenderer(WIDTH, HEIGHT);
+		System.setProperty("cy3d.colorIdPicking", "true");
+
+		// The network is fit into the view, so the node in the middle of the grid ends up in the middle of the screen
+		network = new TestNetwork();
+		View<CyNode>[] row = new View[3];
+		for(int i = 0; i < 3; i++) {
+			for(int j = 0; j < 3; j++) {
+				View<CyNode> node = network.addNode((i - 1) * 360, (j - 1) * 360, 0);
+				if(i == 1 && j == 1) {
+					centerNode = node;
+				}
+				if(j == 1) {
+					row[i] = node;
+				}
+			}
+		}
+		network.addEdge(row[0], row[1]);
+		network.addEdge(row[1], row[2]);
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty("cy3d.colorIdPicking");
+	}
+
+
+	@Test
+	public void testFindsNodeUnderMouse() {
+		GraphicsData graphicsData = OffscreenRenderer.createGraphicsData();
+		renderer.render(network, new MainGraphicsConfiguration(), graphicsData, () -> {
+			graphicsData.setMouseCurrentX(WIDTH / 2);
+			graphicsData.setMouseCurrentY(HEIGHT / 2);
+		});
+		assertEquals(getModelSuid(centerNode), graphicsData.getPickingData().getClosestPickedNodeIndex());
+	}
+
+	@Test
+	public void testFindsNodeAfterSelectionChange() {
+		GraphicsData graphicsData = OffscreenRenderer.createGraphicsData();
+		graphicsData.setMouseCurrentX(WIDTH / 2);
+		graphicsData.setMouseCurrentY(HEIGHT / 2);
+		// Only the selection changes before the last frame, the id buffer is kept
+		renderer.render(network, new MainGraphicsConfiguration(), graphicsData, () -> {
+			centerNode.setVisualProperty(BasicVisualLexicon.NODE_SELECTED, true);
+		});
+		assertEquals(getModelSuid(centerNode), graphicsData.getPickingData().getClosestPickedNodeIndex());
+	}
+}
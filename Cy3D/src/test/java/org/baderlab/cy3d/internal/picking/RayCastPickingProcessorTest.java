@@ -0,0 +1,178 @@
+package org.baderlab.cy3d.internal.picking;
+
+import static org.baderlab.cy3d.internal.TestNetwork.getModelSuid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.baderlab.cy3d.internal.camera.OriginOrbitCamera;
+import org.baderlab.cy3d.internal.cytoscape.view.Cy3DVisualLexicon;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotChanges;
+import org.baderlab.cy3d.internal.cytoscape.view.SnapshotDiffer;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.data.GraphicsSelectionData;
+import org.baderlab.cy3d.internal.data.PickingData;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.eventbus.EventBus;
+
+public class RayCastPickingProcessorTest {
+
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+
+	private TestNetwork network;
+	private SnapshotDiffer snapshotDiffer;
+	private GraphicsData graphicsData;
+	private AsyncHoverPicker hoverPicker;
+
+	private View<CyNode> node1, node2, node3;
+	private View<CyEdge> edge12;
+
+	@Before
+	public void setUp() {
+		network = new TestNetwork();
+		snapshotDiffer = new SnapshotDiffer();
+		graphicsData = new GraphicsData(new Cy3DVisualLexicon(), new EventBus(), new JPanel(), new JPanel());
+		graphicsData.setScreenWidth(WIDTH);
+		graphicsData.setScreenHeight(HEIGHT);
+		graphicsData.getCamera().moveTo(new Vector3(0, 0, 10), null);
+
+		// The camera sees from about -5.5 to 5.5 across and -4.1 to 4.1 up and down at the nodes
+		node1 = network.addNode(0, 0, 0);
+		node2 = network.addNode(900, 0, 0);
+		node3 = network.addNode(0, 540, 0);
+		edge12 = network.addEdge(node1, node2);
+	}
+
+	@After
+	public void tearDown() {
+		if(hoverPicker != null) {
+			hoverPicker.dispose();
+		}
+	}
+
+	/** Does what the renderer does for a frame up to picking */
+	private void frame(RayCastPickingProcessor processor) {
+		CyNetworkViewSnapshot snapshot = network.createSnapshot();
+		graphicsData.setNetworkSnapshot(snapshot);
+		SnapshotChanges changes = snapshotDiffer.diff(snapshot);
+		graphicsData.setSnapshotChanges(changes);
+		graphicsData.getEdgeAnalyser().getAnalyzedEdges(snapshot, changes, GraphicsData.DISTANCE_SCALE);
+		graphicsData.getRenderModel().update(snapshot, changes, graphicsData.getEdgeAnalyser());
+		graphicsData.getSceneIndex().update(changes, graphicsData.getRenderModel(), graphicsData.getEdgeAnalyser());
+		graphicsData.getQualityGovernor().beginFrame(graphicsData.getCamera());
+		processor.processPicking(graphicsData);
+	}
+
+	private void pickAt(RayCastPickingProcessor processor, int x, int y) {
+		graphicsData.setMouseCurrentX(x);
+		graphicsData.setMouseCurrentY(y);
+		frame(processor);
+	}
+
+
+	@Test
+	public void testPickMouse() {
+		RayCastPickingProcessor processor = new RayCastPickingProcessor();
+		PickingData pickingData = graphicsData.getPickingData();
+
+		pickAt(processor, WIDTH / 2, HEIGHT / 2);
+		assertEquals(getModelSuid(node1), pickingData.getClosestPickedNodeIndex());
+		assertEquals(PickingData.NO_INDEX, pickingData.getClosestPickedEdgeIndex());
+
+		pickAt(processor, WIDTH / 2 + 200, HEIGHT / 2);
+		assertEquals(PickingData.NO_INDEX, pickingData.getClosestPickedNodeIndex());
+		assertEquals(getModelSuid(edge12), pickingData.getClosestPickedEdgeIndex());
+
+		pickAt(processor, WIDTH / 2, HEIGHT / 2 + 150);
+		assertEquals(PickingData.NO_INDEX, pickingData.getClosestPickedNodeIndex());
+		assertEquals(PickingData.NO_INDEX, pickingData.getClosestPickedEdgeIndex());
+
+		// Screen y goes down, Cytoscape y goes down too
+		pickAt(processor, WIDTH / 2, HEIGHT / 2 + 217);
+		assertEquals(getModelSuid(node3), pickingData.getClosestPickedNodeIndex());
+	}
+
+	@Test
+	public void testDragSelect() {
+		RayCastPickingProcessor processor = new RayCastPickingProcessor();
+		GraphicsSelectionData selectionData = graphicsData.getSelectionData();
+		selectionData.setDragSelectMode(true);
+		selectionData.setSelectTopLeftX(0);
+		selectionData.setSelectTopLeftY(0);
+		selectionData.setSelectBottomRightX(WIDTH / 2 + 100);
+		selectionData.setSelectBottomRightY(HEIGHT);
+		frame(processor);
+
+		PickingData pickingData = graphicsData.getPickingData();
+		assertEquals(set(getModelSuid(node1), getModelSuid(node3)), pickingData.getPickedNodeIndices());
+		assertEquals(set(getModelSuid(edge12)), pickingData.getPickedEdgeIndices());
+
+		// A rectangle dragged up and to the left works the same
+		selectionData.setSelectTopLeftX(WIDTH);
+		selectionData.setSelectTopLeftY(HEIGHT / 2 - 20);
+		selectionData.setSelectBottomRightX(WIDTH / 2 + 300);
+		selectionData.setSelectBottomRightY(HEIGHT / 2 + 20);
+		frame(processor);
+		assertEquals(set(getModelSuid(node2)), pickingData.getPickedNodeIndices());
+		assertEquals(set(getModelSuid(edge12)), pickingData.getPickedEdgeIndices());
+	}
+
+	@Test
+	public void testHoverPickRepeatsWhenCameraMoves() throws InterruptedException {
+		PickingData pickingData = graphicsData.getPickingData();
+		Semaphore results = new Semaphore(0);
+		hoverPicker = new AsyncHoverPicker(pickingData, graphicsData.getSceneIndex(), results::release);
+		RayCastPickingProcessor processor = new RayCastPickingProcessor(hoverPicker);
+		frame(processor);
+
+		OriginOrbitCamera camera = graphicsData.getCamera();
+		hoverPicker.requestPick(WIDTH / 2, HEIGHT / 2, WIDTH, HEIGHT, camera);
+		assertTrue(results.tryAcquire(5, TimeUnit.SECONDS));
+		assertEquals(getModelSuid(node1), pickingData.getClosestPickedNodeIndex());
+
+		// The mouse stays where it is, the camera moves over the other node
+		camera.moveTo(new Vector3(5, 0, 10), null);
+		camera.setTarget(new Vector3(5, 0, 0));
+		frame(processor);
+		assertTrue(results.tryAcquire(5, TimeUnit.SECONDS));
+		assertEquals(getModelSuid(node2), pickingData.getClosestPickedNodeIndex());
+
+		// After the mouse leaves a frame where the camera moves doesn't pick again
+		hoverPicker.clear();
+		camera.moveTo(new Vector3(0, 0, 10), null);
+		camera.setTarget(new Vector3(0, 0, 0));
+		frame(processor);
+		assertFalse(results.tryAcquire(200, TimeUnit.MILLISECONDS));
+		assertEquals(PickingData.NO_INDEX, pickingData.getClosestPickedNodeIndex());
+
+		// Until the mouse comes back
+		hoverPicker.requestPick(WIDTH / 2, HEIGHT / 2, WIDTH, HEIGHT, camera);
+		assertTrue(results.tryAcquire(5, TimeUnit.SECONDS));
+		assertEquals(getModelSuid(node1), pickingData.getClosestPickedNodeIndex());
+	}
+
+
+	private static Set<Long> set(long... suids) {
+		Set<Long> set = new HashSet<>();
+		for(long suid : suids)
+			set.add(suid);
+		return set;
+	}
+}
@@ -0,0 +1,105 @@
+package org.baderlab.cy3d.internal.rendering;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.baderlab.cy3d.internal.OffscreenRenderer;
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.baderlab.cy3d.internal.data.GraphicsData;
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.graphics.AbstractGraphicsConfiguration;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.cytoscape.view.presentation.property.NodeShapeVisualProperty;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Renders a small network offscreen, skipped when OpenGL can't be loaded.
+ */
+public class OffscreenRenderTest {
+
+	private static final int WIDTH = 400;
+	private static final int HEIGHT = 300;
+
+	private OffscreenRenderer renderer;
+	private TestNetwork network;
+
+	@Before
+	public void setUp() {
+		renderer = new OffscreenRenderer(WIDTH, HEIGHT);
+
+		// A grid of nodes around the origin, one of each shape
+		network = new TestNetwork();
+		View<CyNode>[][] grid = createGrid(3);
+		grid[0][0].setVisualProperty(BasicVisualLexicon.NODE_SHAPE, NodeShapeVisualProperty.RECTANGLE);
+		grid[2][2].setVisualProperty(BasicVisualLexicon.NODE_SHAPE, NodeShapeVisualProperty.TRIANGLE);
+	}
+
+	@SuppressWarnings("unchecked")
+	private View<CyNode>[][] createGrid(int size) {
+		View<CyNode>[][] grid = new View[size][size];
+		for(int i = 0; i < size; i++) {
+			for(int j = 0; j < size; j++) {
+				grid[i][j] = network.addNode((i - size / 2) * 360, (j - size / 2) * 360, 0);
+			}
+		}
+		return grid;
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty("cy3d.instancing");
+		System.clearProperty("cy3d.adaptiveQuality");
+	}
+
+
+	/** Draws only the nodes, so that the test can ask the node procedure how it drew them */
+	private static class NodesConfiguration extends AbstractGraphicsConfiguration {
+		final RenderNodesProcedure nodes = new RenderNodesProcedure();
+
+		NodesConfiguration() {
+			add(new ResetSceneProcedure());
+			add(new PositionCameraProcedure());
+			add(nodes);
+		}
+	}
+
+	private ByteBuffer render(NodesConfiguration configuration) {
+		GraphicsData graphicsData = OffscreenRenderer.createGraphicsData();
+		graphicsData.getCamera().moveTo(new Vector3(0, 0, 10), null);
+		return renderer.render(network, configuration, graphicsData, null);
+	}
+
+
+	@Test
+	public void testInstancedNodesLookLikeDisplayLists() {
+		System.setProperty("cy3d.adaptiveQuality", "false");
+		NodesConfiguration instancedConfiguration = new NodesConfiguration();
+		ByteBuffer instanced = render(instancedConfiguration);
+		assertTrue("the nodes were not drawn with instancing", instancedConfiguration.nodes.isInstancing());
+
+		System.setProperty("cy3d.instancing", "false");
+		NodesConfiguration displayListConfiguration = new NodesConfiguration();
+		ByteBuffer displayLists = render(displayListConfiguration);
+		assertFalse(displayListConfiguration.nodes.isInstancing());
+
+		int background = instanced.getInt(0);
+		int drawn = 0;
+		int different = 0;
+		for(int i = 0; i < WIDTH * HEIGHT * 4; i++) {
+			if(Math.abs((instanced.get(i) & 0xFF) - (displayLists.get(i) & 0xFF)) > 8) {
+				different++;
+			}
+			if(i % 4 == 0 && instanced.getInt(i) != background) {
+				drawn++;
+			}
+		}
+		assertTrue("nothing was drawn", drawn > 1000);
+		assertTrue(different + " of the color values differ", different < WIDTH * HEIGHT * 4 / 100);
+	}
+}
@@ -0,0 +1,60 @@
+package org.baderlab.cy3d.internal.rendering.shapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.baderlab.cy3d.internal.geometric.Vector3;
+import org.baderlab.cy3d.internal.tools.RenderColor;
+import org.junit.Test;
+
+public class EdgeMeshDrawerTest {
+
+	private static final RenderColor COLOR = new RenderColor(0.5, 0.5, 0.5);
+
+	private static Vector3[] line(double x, int pointCount) {
+		Vector3[] points = new Vector3[pointCount];
+		for(int i = 0; i < pointCount; i++) {
+			points[i] = new Vector3(x, i, 0);
+		}
+		return points;
+	}
+
+
+	@Test
+	public void testReplaceKeepsTheMeshSize() {
+		EdgeMeshDrawer drawer = new EdgeMeshDrawer();
+		drawer.addRegularArc(line(0, 5), 0.1f, COLOR);
+		int vertexEnd = drawer.getVertexCount();
+		int indexEnd = drawer.getIndexCount();
+		drawer.addDottedArc(line(1, 5), 0.1f, COLOR);
+		int vertexCount = drawer.getVertexCount();
+		int indexCount = drawer.getIndexCount();
+
+		// The first edge moved, same number of points
+		drawer.beginReplace(0, 0);
+		drawer.addRegularArc(line(3, 5), 0.1f, COLOR);
+		assertTrue(drawer.endReplace(vertexEnd, indexEnd));
+		assertEquals(vertexCount, drawer.getVertexCount());
+		assertEquals(indexCount, drawer.getIndexCount());
+
+		// More points need more vertices, the mesh has to be built again
+		drawer.beginReplace(0, 0);
+		drawer.addRegularArc(line(3, 6), 0.1f, COLOR);
+		assertFalse(drawer.endReplace(vertexEnd, indexEnd));
+		assertEquals(vertexCount, drawer.getVertexCount());
+		assertEquals(indexCount, drawer.getIndexCount());
+	}
+
+	@Test
+	public void testReplaceWithOtherLineType() {
+		EdgeMeshDrawer drawer = new EdgeMeshDrawer();
+		drawer.addRegularArc(line(0, 5), 0.1f, COLOR);
+		int vertexEnd = drawer.getVertexCount();
+		int indexEnd = drawer.getIndexCount();
+
+		drawer.beginReplace(0, 0);
+		drawer.addDashedArc(line(0, 5), 0.1f, 0.05f, COLOR);
+		assertFalse(drawer.endReplace(vertexEnd, indexEnd));
+	}
+}
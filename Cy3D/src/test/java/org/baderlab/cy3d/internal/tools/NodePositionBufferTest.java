@@ -0,0 +1,104 @@
+package org.baderlab.cy3d.internal.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.baderlab.cy3d.internal.TestNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NodePositionBufferTest {
+
+	private TestNetwork network;
+	/** The visual properties set through the views given to the buffer, in order */
+	private List<Object> written;
+
+	@Before
+	public void setUp() {
+		network = new TestNetwork();
+		written = new ArrayList<>();
+	}
+
+	/** Wraps the node view so that the properties set on it are recorded */
+	@SuppressWarnings("unchecked")
+	private View<CyNode> recording(View<CyNode> nodeView) {
+		return (View<CyNode>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { View.class }, (proxy, method, args) -> {
+			if(method.getName().equals("setVisualProperty"))
+				written.add(args[0]);
+			try {
+				return method.invoke(nodeView, args);
+			} catch(InvocationTargetException e) {
+				throw e.getCause();
+			}
+		});
+	}
+
+	@SafeVarargs
+	private final NodePositionBuffer createBuffer(View<CyNode>... nodeViews) {
+		List<View<CyNode>> views = new ArrayList<>();
+		for(View<CyNode> nodeView : nodeViews) {
+			views.add(recording(nodeView));
+		}
+		return new NodePositionBuffer(views);
+	}
+
+
+	@Test
+	public void testReadsPositions() {
+		View<CyNode> a = network.addNode(1, 2, 3);
+		View<CyNode> b = network.addNode(4, 5, 6);
+		NodePositionBuffer buffer = createBuffer(a, b);
+
+		assertEquals(2, buffer.size());
+		assertArrayEquals(new double[] { 1, 2, 3, 4, 5, 6 }, buffer.getPositions(), 0);
+		assertTrue(written.isEmpty());
+	}
+
+	@Test
+	public void testCommitWritesOnlyChangedAxes() {
+		View<CyNode> a = network.addNode(1, 2, 3);
+		View<CyNode> b = network.addNode(4, 5, 6);
+		View<CyNode> c = network.addNode(7, 8, 9);
+		NodePositionBuffer buffer = createBuffer(a, b, c);
+
+		buffer.set(0, 10, 2, 3);  // only x
+		buffer.set(1, 4, 50, 60); // y and z
+		buffer.set(2, 7, 8, 9);   // unchanged
+
+		assertEquals(3, buffer.commit());
+		assertEquals(List.of(BasicVisualLexicon.NODE_X_LOCATION, BasicVisualLexicon.NODE_Y_LOCATION, BasicVisualLexicon.NODE_Z_LOCATION), written);
+
+		assertEquals(10.0, a.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION), 0);
+		assertEquals(2.0,  a.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION), 0);
+		assertEquals(50.0, b.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION), 0);
+		assertEquals(60.0, b.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION), 0);
+	}
+
+	@Test
+	public void testCommitAgainWritesNothing() {
+		View<CyNode> a = network.addNode(1, 2, 3);
+		NodePositionBuffer buffer = createBuffer(a);
+
+		buffer.getPositions()[2] = 30;
+		assertEquals(1, buffer.commit());
+		written.clear();
+
+		assertEquals(0, buffer.commit());
+		assertTrue(written.isEmpty());
+
+		// a change back to the value read at the start is a change from the last commit
+		buffer.getPositions()[2] = 3;
+		assertEquals(1, buffer.commit());
+		assertEquals(List.of(BasicVisualLexicon.NODE_Z_LOCATION), written);
+		assertEquals(3.0, a.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION), 0);
+	}
+}